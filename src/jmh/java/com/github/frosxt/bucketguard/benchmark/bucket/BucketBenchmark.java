@@ -0,0 +1,71 @@
+package com.github.frosxt.bucketguard.benchmark.bucket;
+
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.spec.ContentionStrategy;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.benchmark.support.Workload;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.AtomicBucket;
+import com.github.frosxt.bucketguard.runtime.bucket.striped.StripedBucket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw {@link Bucket#tryAcquire(long, long)} throughput for {@link AtomicBucket}
+ * and {@link StripedBucket}, without the limiter and coordinator layers.
+ * <p>
+ * Run with {@code -prof gc} to verify the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketBenchmark {
+
+    @Param({"ATOMIC", "STRIPED"})
+    public ContentionStrategy strategy;
+
+    @Param({"GRANT_HEAVY", "REJECT_HEAVY"})
+    public Workload workload;
+
+    @Param({"true", "false"})
+    public boolean allowBurst;
+
+    private Bucket bucket;
+    private TimeSource timeSource;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final TokenBucketSpec spec = workload.spec(strategy, allowBurst);
+        bucket = BucketFactory.create(spec);
+        timeSource = spec.timeSource();
+
+        final Class<?> expected = strategy == ContentionStrategy.STRIPED ? StripedBucket.class : AtomicBucket.class;
+        if (!expected.isInstance(bucket)) {
+            throw new IllegalStateException("Expected " + expected.getSimpleName() + " but factory built " + bucket.getClass().getSimpleName());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Permit tryAcquireSingleThread() {
+        return bucket.tryAcquire(1, timeSource.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Permit tryAcquireFourThreads() {
+        return bucket.tryAcquire(1, timeSource.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Permit tryAcquireAllThreads() {
+        return bucket.tryAcquire(1, timeSource.nanoTime());
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.frosxt.bucketguard.benchmark.limiter;
+
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.ContentionStrategy;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.benchmark.support.Workload;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link RateLimiter#acquireAsync(Executor)}.
+ * <p>
+ * {@code immediate*} measures the common case where the permit is granted on
+ * the calling thread, so the result is dominated by future allocation.
+ * {@code delayed} uses a one-token bucket refilled every microsecond, so most
+ * calls are parked on the scheduler and reflect the rescheduling overhead.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsyncAcquireBenchmark {
+    private static final Executor DIRECT = Runnable::run;
+
+    @Param({"ATOMIC", "STRIPED"})
+    public ContentionStrategy strategy;
+
+    @Param({"true", "false"})
+    public boolean allowBurst;
+
+    private RateLimiter immediateLimiter;
+    private RateLimiter delayedLimiter;
+    private ScheduledExecutorService scheduler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        immediateLimiter = BucketGuards.tokenBucket(Workload.GRANT_HEAVY.spec(strategy, allowBurst));
+
+        final TokenBucketSpec delayedSpec = TokenBucketSpec.builder()
+                .capacity(1)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofNanos(1_000))
+                .contentionStrategy(strategy)
+                .allowBurst(allowBurst)
+                .build();
+        delayedLimiter = BucketGuards.tokenBucket(delayedSpec);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Permit immediateSingleThread() {
+        return immediateLimiter.acquireAsync(DIRECT).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Permit immediateAllThreads() {
+        return immediateLimiter.acquireAsync(DIRECT).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Permit delayed() {
+        return delayedLimiter.acquireAsync(scheduler).toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.frosxt.bucketguard.benchmark.limiter;
+
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.ContentionStrategy;
+import com.github.frosxt.bucketguard.benchmark.support.Workload;
+import com.github.frosxt.bucketguard.runtime.limiter.global.StandardRateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StandardRateLimiter#tryAcquire()} throughput, including argument
+ * checks, the acquire coordinator and the clock read.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    @Param({"ATOMIC", "STRIPED"})
+    public ContentionStrategy strategy;
+
+    @Param({"GRANT_HEAVY", "REJECT_HEAVY"})
+    public Workload workload;
+
+    @Param({"true", "false"})
+    public boolean allowBurst;
+
+    private RateLimiter limiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        limiter = BucketGuards.tokenBucket(workload.spec(strategy, allowBurst));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Permit tryAcquireSingleThread() {
+        return limiter.tryAcquire();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Permit tryAcquireFourThreads() {
+        return limiter.tryAcquire();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Permit tryAcquireAllThreads() {
+        return limiter.tryAcquire();
+    }
+}
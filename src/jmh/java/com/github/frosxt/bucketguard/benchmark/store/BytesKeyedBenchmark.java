@@ -0,0 +1,68 @@
+package com.github.frosxt.bucketguard.benchmark.store;
+
+import com.github.frosxt.bucketguard.api.BytesKeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keys arriving as bytes: decoding to a String for a keyed limiter versus
+ * looking the bytes up in place. Run with {@code -prof gc} to compare
+ * allocation per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BytesKeyedBenchmark {
+
+    @Param({"1000", "100000"})
+    public int keyCount;
+
+    private byte[][] keys;
+    private ByteBuffer[] buffers;
+    private KeyedRateLimiter<String> stringLimiter;
+    private BytesKeyedRateLimiter bytesLimiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final TokenBucketSpec spec = TokenBucketSpec.builder().capacity(Long.MAX_VALUE / 4).refillTokens(1_000_000).build();
+        stringLimiter = BucketGuards.keyedTokenBucket(spec, KeyedStoreSpec.<String>builder().build());
+        bytesLimiter = BucketGuards.bytesKeyedTokenBucket(spec, KeyedStoreSpec.<byte[]>builder().build());
+
+        keys = new byte[keyCount][];
+        buffers = new ByteBuffer[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = ("10." + (i >>> 16 & 0xFF) + "." + (i >>> 8 & 0xFF) + "." + (i & 0xFF)).getBytes(StandardCharsets.US_ASCII);
+            buffers[i] = ByteBuffer.allocateDirect(keys[i].length).put(keys[i]).flip();
+            stringLimiter.tryAcquire(new String(keys[i], StandardCharsets.US_ASCII));
+            bytesLimiter.tryAcquire(keys[i], 0, keys[i].length);
+        }
+    }
+
+    @Benchmark
+    public boolean decodedString() {
+        final byte[] key = keys[ThreadLocalRandom.current().nextInt(keyCount)];
+        return stringLimiter.tryAcquire(new String(key, StandardCharsets.US_ASCII)).granted();
+    }
+
+    @Benchmark
+    public boolean byteRange() {
+        final byte[] key = keys[ThreadLocalRandom.current().nextInt(keyCount)];
+        return bytesLimiter.tryAcquire(key, 0, key.length).granted();
+    }
+
+    @Benchmark
+    public boolean directBuffer() {
+        return bytesLimiter.tryAcquire(buffers[ThreadLocalRandom.current().nextInt(keyCount)]).granted();
+    }
+}
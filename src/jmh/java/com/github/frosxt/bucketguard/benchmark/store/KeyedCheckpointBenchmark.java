@@ -0,0 +1,61 @@
+package com.github.frosxt.bucketguard.benchmark.store;
+
+import com.github.frosxt.bucketguard.api.KeyCodec;
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to checkpoint and to restore {@code keyCount} partially drained keys.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class KeyedCheckpointBenchmark {
+
+    @Param({"100000", "10000000"})
+    public int keyCount;
+
+    private TokenBucketSpec spec;
+    private KeyedStoreSpec<Long> storeSpec;
+    private KeyedRateLimiter<Long> limiter;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        spec = TokenBucketSpec.builder().capacity(10).refillTokens(1).build();
+        storeSpec = KeyedStoreSpec.<Long>builder().build();
+        limiter = BucketGuards.keyedTokenBucket(spec, storeSpec);
+        for (long i = 0; i < keyCount; i++) {
+            limiter.tryAcquire(i, 5);
+        }
+        file = Files.createTempFile("bucketguard", ".ckpt");
+        limiter.checkpoint(file, KeyCodec.longs());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long checkpoint() throws IOException {
+        return limiter.checkpoint(file, KeyCodec.longs());
+    }
+
+    @Benchmark
+    public long restore() throws IOException {
+        final KeyedRateLimiter<Long> restored = BucketGuards.keyedTokenBucket(spec, storeSpec);
+        return restored.restore(file, KeyCodec.longs());
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.frosxt.bucketguard.benchmark.store;
+
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.benchmark.support.KeyDistribution;
+import com.github.frosxt.bucketguard.benchmark.support.KeyTrace;
+import com.github.frosxt.bucketguard.benchmark.support.StoreKind;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keyed store lookup plus acquisition under realistic key traffic.
+ * <p>
+ * Reports throughput and, through {@link Mode#SampleTime}, the latency
+ * percentiles (p0.99 and above) of a single keyed decision. Stores start empty
+ * each iteration, so flood traces measure steady-state insertion cost. Larger
+ * key spaces (up to 50M) can be selected with {@code -p keyCount=50000000}
+ * given a suitably sized heap.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class KeyedStoreBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+        @Param({"CONCURRENT", "EXACT_NONE", "EXACT_LRU", "EXACT_EXPIRE_AFTER_ACCESS", "SKETCH"})
+        public StoreKind store;
+
+        @Param({"1000", "1000000"})
+        public int keyCount;
+
+        @Param({"ZIPF", "UNIFORM", "FLOOD", "ZIPF_WITH_FLOOD"})
+        public KeyDistribution distribution;
+
+        @Param({"0.99"})
+        public double zipfSkew;
+
+        KeyedStore<Long> keyedStore;
+        TimeSource timeSource;
+        Supplier<Bucket> bucketFactory;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            final TokenBucketSpec spec = TokenBucketSpec.builder()
+                    .capacity(10)
+                    .refillTokens(10)
+                    .refillPeriod(Duration.ofSeconds(1))
+                    .build();
+
+            timeSource = spec.timeSource();
+            bucketFactory = () -> BucketFactory.create(spec);
+            keyedStore = store.create(keyCount, spec);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TraceState {
+        KeyTrace trace;
+
+        @Setup(Level.Trial)
+        public void setUp(final StoreState storeState, final ThreadParams threadParams) {
+            trace = new KeyTrace(storeState.distribution, storeState.keyCount, storeState.zipfSkew, threadParams.getThreadIndex() + 1);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Permit acquireSingleThread(final StoreState state, final TraceState trace) {
+        return acquire(state, trace);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Permit acquireAllThreads(final StoreState state, final TraceState trace) {
+        return acquire(state, trace);
+    }
+
+    private static Permit acquire(final StoreState state, final TraceState trace) {
+        return state.keyedStore.tryAcquire(trace.trace.next(), state.bucketFactory, 1, state.timeSource.nanoTime());
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.frosxt.bucketguard.benchmark.store;
+
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.benchmark.support.KeyDistribution;
+import com.github.frosxt.bucketguard.benchmark.support.KeyTrace;
+import com.github.frosxt.bucketguard.benchmark.support.StoreKind;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.RefillMath;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Counts limit violations caused by eviction, and false rejections caused by
+ * approximation.
+ * <p>
+ * Every decision is replayed against a shadow GCRA state per key that is never
+ * evicted. A grant that the shadow would have rejected happened only because
+ * the key's bucket was dropped and recreated full; a rejection that the shadow
+ * would have granted came from sketch collisions. The {@code violations},
+ * {@code falseRejections} and {@code grants} secondary results are reported
+ * per iteration; single threaded so the shadow stays exact.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class KeyedStoreEvictionBenchmark {
+
+    @Param({"EXACT_LRU", "EXACT_EXPIRE_AFTER_ACCESS", "SKETCH"})
+    public StoreKind store;
+
+    @Param({"10000", "1000000"})
+    public int keyCount;
+
+    @Param({"ZIPF", "UNIFORM", "ZIPF_WITH_FLOOD"})
+    public KeyDistribution distribution;
+
+    @Param({"0.99"})
+    public double zipfSkew;
+
+    private KeyedStore<Long> keyedStore;
+    private KeyTrace trace;
+    private TimeSource timeSource;
+    private Supplier<Bucket> bucketFactory;
+
+    private long[] shadowTat;
+    private long emissionIntervalNanos;
+    private long burstOffsetNanos;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long grants;
+        public long violations;
+        public long falseRejections;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            grants = 0;
+            violations = 0;
+            falseRejections = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final TokenBucketSpec spec = TokenBucketSpec.builder()
+                .capacity(10)
+                .refillTokens(10)
+                .refillPeriod(Duration.ofSeconds(1))
+                .build();
+
+        timeSource = spec.timeSource();
+        bucketFactory = () -> BucketFactory.create(spec);
+        keyedStore = store.create(keyCount, spec);
+        trace = new KeyTrace(distribution, keyCount, zipfSkew, 1);
+
+        shadowTat = new long[keyCount];
+        emissionIntervalNanos = RefillMath.calculateEmissionIntervalNanos(spec.refillTokens(), spec.refillPeriod());
+        burstOffsetNanos = RefillMath.calculateBurstOffsetNanos(spec.allowBurst(), spec.capacity(), emissionIntervalNanos, spec.strictMath());
+    }
+
+    @Benchmark
+    public boolean acquire(final Outcome outcome) {
+        final Long key = trace.next();
+        final long now = timeSource.nanoTime();
+        final boolean granted = keyedStore.tryAcquire(key, bucketFactory, 1, now).granted();
+
+        if (granted) {
+            outcome.grants++;
+            if (trace.isRegular(key) && !shadowAcquire((int) key.longValue(), now)) {
+                outcome.violations++;
+            }
+        } else if (trace.isRegular(key) && shadowAcquire((int) key.longValue(), now)) {
+            outcome.falseRejections++;
+        }
+
+        return granted;
+    }
+
+    private boolean shadowAcquire(final int index, final long now) {
+        final long potentialTat = Math.max(shadowTat[index], now) + emissionIntervalNanos;
+        if (potentialTat <= now + burstOffsetNanos) {
+            shadowTat[index] = potentialTat;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.frosxt.bucketguard.benchmark.store;
+
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.benchmark.support.StoreKind;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.ref.Reference;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Retained heap per key.
+ * <p>
+ * Populates a store with {@code keyCount} distinct keys and reports the heap
+ * growth divided by the resulting store size as the {@code bytesPerKey}
+ * secondary result. The figure includes the boxed key itself.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class KeyedStoreFootprintBenchmark {
+
+    @Param({"CONCURRENT", "EXACT_NONE", "EXACT_LRU", "EXACT_EXPIRE_AFTER_ACCESS", "SKETCH"})
+    public StoreKind store;
+
+    @Param({"1000", "1000000"})
+    public int keyCount;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public double bytesPerKey;
+    }
+
+    @Benchmark
+    public int populate(final Footprint footprint) {
+        final TokenBucketSpec spec = TokenBucketSpec.builder().capacity(10).build();
+        final TimeSource timeSource = spec.timeSource();
+        final Supplier<Bucket> bucketFactory = () -> BucketFactory.create(spec);
+
+        final long before = usedHeap();
+        final KeyedStore<Long> keyedStore = store.create(keyCount, spec);
+        for (long i = 0; i < keyCount; i++) {
+            keyedStore.tryAcquire(i, bucketFactory, 1, timeSource.nanoTime());
+        }
+        final long after = usedHeap();
+
+        // The sketch tracks no keys; charge its fixed matrix to every key offered
+        final int size = keyedStore.size();
+        footprint.bytesPerKey = (double) (after - before) / Math.max(1, size > 0 ? size : keyCount);
+        Reference.reachabilityFence(keyedStore);
+        return size;
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
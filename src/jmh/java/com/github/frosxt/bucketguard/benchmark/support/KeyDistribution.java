@@ -0,0 +1,24 @@
+package com.github.frosxt.bucketguard.benchmark.support;
+
+/**
+ * Shapes of key traffic replayed against keyed stores.
+ */
+public enum KeyDistribution {
+    /**
+     * Zipf distributed keys; a few hot keys dominate traffic.
+     */
+    ZIPF,
+    /**
+     * Every key in the key space is equally likely.
+     */
+    UNIFORM,
+    /**
+     * Every request carries a key that has never been seen before.
+     */
+    FLOOD,
+    /**
+     * Half Zipf traffic, half one-off keys. Models an attacker churning the
+     * store to push legitimate hot keys out of it.
+     */
+    ZIPF_WITH_FLOOD
+}
@@ -0,0 +1,89 @@
+package com.github.frosxt.bucketguard.benchmark.support;
+
+import java.util.SplittableRandom;
+
+/**
+ * A replayable, per-thread sequence of keys.
+ * <p>
+ * Keys drawn from the key space are pre-generated and pre-boxed so that
+ * sampling cost and boxing do not show up in the measurement. One-off keys are
+ * numbered from {@code keyCount} upwards and are boxed on demand, since by
+ * definition they cannot be reused.
+ */
+public final class KeyTrace {
+    private static final int TRACE_LENGTH = 1 << 20;
+
+    private final KeyDistribution distribution;
+    private final int keyCount;
+    private final Long[] trace;
+    private int cursor;
+    private long nextUniqueKey;
+    private boolean floodTurn;
+
+    /**
+     * Creates a trace.
+     *
+     * @param distribution key distribution
+     * @param keyCount     size of the regular key space
+     * @param zipfSkew     Zipf exponent, ignored for other distributions
+     * @param seed         per-thread seed
+     */
+    public KeyTrace(final KeyDistribution distribution, final int keyCount, final double zipfSkew, final long seed) {
+        this.distribution = distribution;
+        this.keyCount = keyCount;
+        this.nextUniqueKey = keyCount + (seed << 40);
+
+        if (distribution == KeyDistribution.FLOOD) {
+            this.trace = new Long[0];
+            return;
+        }
+
+        this.trace = new Long[TRACE_LENGTH];
+        if (distribution == KeyDistribution.UNIFORM) {
+            final SplittableRandom random = new SplittableRandom(seed);
+            for (int i = 0; i < TRACE_LENGTH; i++) {
+                trace[i] = (long) random.nextInt(keyCount);
+            }
+        } else {
+            final ZipfSampler sampler = new ZipfSampler(keyCount, zipfSkew, seed);
+            for (int i = 0; i < TRACE_LENGTH; i++) {
+                trace[i] = (long) sampler.next();
+            }
+        }
+    }
+
+    /**
+     * @return the next key
+     */
+    public Long next() {
+        switch (distribution) {
+            case FLOOD -> {
+                return nextUniqueKey++;
+            }
+            case ZIPF_WITH_FLOOD -> {
+                floodTurn = !floodTurn;
+                if (floodTurn) {
+                    return nextUniqueKey++;
+                }
+                return nextFromTrace();
+            }
+            default -> {
+                return nextFromTrace();
+            }
+        }
+    }
+
+    /**
+     * @param key a key returned by {@link #next()}
+     * @return true if the key belongs to the regular key space rather than a flood
+     */
+    public boolean isRegular(final Long key) {
+        return key >= 0 && key < keyCount;
+    }
+
+    private Long nextFromTrace() {
+        final Long key = trace[cursor];
+        cursor = (cursor + 1) & (TRACE_LENGTH - 1);
+        return key;
+    }
+}
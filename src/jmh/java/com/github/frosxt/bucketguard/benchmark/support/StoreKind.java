@@ -0,0 +1,58 @@
+package com.github.frosxt.bucketguard.benchmark.support;
+
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import com.github.frosxt.bucketguard.runtime.key.store.concurrent.ConcurrentKeyedStore;
+import com.github.frosxt.bucketguard.runtime.key.store.exact.ExactKeyedStoreAdapter;
+import com.github.frosxt.bucketguard.runtime.key.store.sketch.SketchKeyedStore;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.time.Duration;
+
+/**
+ * Keyed store implementations under benchmark.
+ */
+public enum StoreKind {
+    /**
+     * {@link ConcurrentKeyedStore}, used for {@code EvictionPolicy.NONE}.
+     */
+    CONCURRENT,
+    /**
+     * Exact store with neither a size bound nor expiry.
+     */
+    EXACT_NONE,
+    /**
+     * Exact store bounded to a tenth of the key space, evicting in LRU order.
+     */
+    EXACT_LRU,
+    /**
+     * Exact store expiring keys idle for 100 milliseconds.
+     */
+    EXACT_EXPIRE_AFTER_ACCESS,
+    /**
+     * {@link SketchKeyedStore} with 4 rows of 65536 cells (2 MiB) regardless
+     * of key count.
+     */
+    SKETCH;
+
+    private static final long EXPIRE_NANOS = Duration.ofMillis(100).toNanos();
+
+    /**
+     * Creates an empty store.
+     *
+     * @param keyCount size of the regular key space
+     * @param spec     bucket configuration, for its time source and rates
+     * @return the store
+     */
+    public KeyedStore<Long> create(final int keyCount, final TokenBucketSpec spec) {
+        final TimeSource timeSource = spec.timeSource();
+        return switch (this) {
+            case CONCURRENT -> new ConcurrentKeyedStore<>();
+            case EXACT_NONE -> new ExactKeyedStoreAdapter<>(-1, 0, null, timeSource);
+            case EXACT_LRU -> new ExactKeyedStoreAdapter<>(Math.max(1, keyCount / 10), 0, null, timeSource);
+            case EXACT_EXPIRE_AFTER_ACCESS -> new ExactKeyedStoreAdapter<>(-1, EXPIRE_NANOS, null, timeSource);
+            case SKETCH -> new SketchKeyedStore<>(4, 1 << 16, spec, MetricsRecorder.NOOP);
+        };
+    }
+}
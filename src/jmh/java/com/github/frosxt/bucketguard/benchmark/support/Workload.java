@@ -0,0 +1,47 @@
+package com.github.frosxt.bucketguard.benchmark.support;
+
+import com.github.frosxt.bucketguard.api.spec.ContentionStrategy;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+
+import java.time.Duration;
+
+/**
+ * Canonical bucket configurations used by the benchmarks.
+ */
+public enum Workload {
+    /**
+     * One token per nanosecond with a large burst, so nearly every attempt is granted.
+     */
+    GRANT_HEAVY(1_000_000, 1_000_000_000, Duration.ofSeconds(1)),
+    /**
+     * A small bucket refilled once an hour, so nearly every attempt is rejected.
+     */
+    REJECT_HEAVY(64, 64, Duration.ofHours(1));
+
+    private final long capacity;
+    private final long refillTokens;
+    private final Duration refillPeriod;
+
+    Workload(final long capacity, final long refillTokens, final Duration refillPeriod) {
+        this.capacity = capacity;
+        this.refillTokens = refillTokens;
+        this.refillPeriod = refillPeriod;
+    }
+
+    /**
+     * Builds the spec for this workload.
+     *
+     * @param strategy   contention strategy
+     * @param allowBurst whether bursts up to capacity are allowed
+     * @return the spec
+     */
+    public TokenBucketSpec spec(final ContentionStrategy strategy, final boolean allowBurst) {
+        return TokenBucketSpec.builder()
+                .capacity(capacity)
+                .refillTokens(refillTokens)
+                .refillPeriod(refillPeriod)
+                .contentionStrategy(strategy)
+                .allowBurst(allowBurst)
+                .build();
+    }
+}
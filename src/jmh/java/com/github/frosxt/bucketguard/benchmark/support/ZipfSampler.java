@@ -0,0 +1,94 @@
+package com.github.frosxt.bucketguard.benchmark.support;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distributed sampler over {@code [0, n)} using rejection-inversion
+ * (Hörmann and Derflinger), so no CDF table is needed even for very large key
+ * spaces.
+ * <p>
+ * Rank 0 is the most frequent value.
+ */
+public final class ZipfSampler {
+    private final int n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+    private final SplittableRandom random;
+
+    /**
+     * Creates a sampler.
+     *
+     * @param n        number of distinct values, must be >= 1
+     * @param exponent skew, must be > 0 (0.99 is typical for web traffic)
+     * @param seed     random seed
+     */
+    public ZipfSampler(final int n, final double exponent, final long seed) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be >= 1");
+        }
+        if (exponent <= 0) {
+            throw new IllegalArgumentException("exponent must be > 0");
+        }
+
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1.0;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return the next rank, in {@code [0, n)}
+     */
+    public int next() {
+        while (true) {
+            final double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            final double x = hIntegralInverse(u);
+
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k - 1;
+            }
+        }
+    }
+
+    private double h(final double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(final double x) {
+        final double logX = Math.log(x);
+        return helper2((1.0 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(final double x) {
+        double t = x * (1.0 - exponent);
+        if (t < -1.0) {
+            t = -1.0;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    private static double helper1(final double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+        return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    private static double helper2(final double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+        return 1.0 + x * 0.5 * (1.0 + x / 3.0 * (1.0 + 0.25 * x));
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.frosxt.bucketguard.api;
+
+/**
+ * Time-to-grant distributions for waiting acquisitions.
+ * <p>
+ * Each sample runs from the moment the caller invoked {@code acquire} or
+ * {@code acquireAsync} to the moment tokens were granted, so every retry and
+ * scheduler delay the limiter introduced is included. Measuring from the
+ * intended start rather than from each retry keeps the distribution free of
+ * coordinated omission.
+ *
+ * @param blocking samples from {@code acquire}
+ * @param async    samples from {@code acquireAsync}
+ */
+public record AcquireLatency(LatencySnapshot blocking, LatencySnapshot async) {
+
+    /**
+     * Latency reported by limiters that do not record it.
+     */
+    public static final AcquireLatency EMPTY = new AcquireLatency(LatencySnapshot.EMPTY, LatencySnapshot.EMPTY);
+}
@@ -0,0 +1,42 @@
+package com.github.frosxt.bucketguard.api;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * A rate limiter whose rate follows the health of the downstream it protects.
+ * <p>
+ * Callers report the latency and outcome of each call made under a permit;
+ * the limiter lowers its rate while the downstream is slow or failing and
+ * raises it again while it is healthy. Rate changes apply to the live bucket
+ * without blocking acquisitions.
+ * <p>
+ * Implementations must be thread-safe.
+ */
+public interface AdaptiveRateLimiter extends RateLimiter {
+
+    /**
+     * Reports the outcome of one downstream call.
+     *
+     * @param latencyNanos how long the call took, in nanoseconds, must be >= 0.
+     * @param failed       {@code true} if the call failed or timed out.
+     * @throws IllegalArgumentException if latencyNanos &lt; 0.
+     */
+    void recordSample(long latencyNanos, boolean failed);
+
+    /**
+     * Reports the outcome of one downstream call.
+     *
+     * @param latency how long the call took, not null.
+     * @param failed  {@code true} if the call failed or timed out.
+     */
+    default void recordSample(final Duration latency, final boolean failed) {
+        Objects.requireNonNull(latency, "latency");
+        recordSample(latency.toNanos(), failed);
+    }
+
+    /**
+     * @return the current rate, in tokens per second.
+     */
+    double currentRate();
+}
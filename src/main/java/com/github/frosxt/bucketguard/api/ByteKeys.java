@@ -0,0 +1,85 @@
+package com.github.frosxt.bucketguard.api;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * Hashing for byte keys, as used by {@link BytesKeyedRateLimiter}.
+ * <p>
+ * Callers that already have a key's hash, for example because the same bytes
+ * are looked up in several limiters, can pass it to the limiter instead of
+ * having it recomputed. Keys are read eight bytes at a time; heap and direct
+ * buffers holding the same bytes hash alike.
+ */
+public final class ByteKeys {
+    private static final VarHandle ARRAY_LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final long MIXER = 0xC2B2AE3D27D4EB4FL;
+
+    private ByteKeys() {
+        throw new UnsupportedOperationException("This class cannot be instantiated!");
+    }
+
+    /**
+     * @param key    array holding the key, not null
+     * @param offset start of the key
+     * @param length length of the key
+     * @return the key's hash
+     */
+    public static int hash(final byte[] key, final int offset, final int length) {
+        Objects.checkFromIndexSize(offset, length, key.length);
+        long h = length * MULTIPLIER;
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            h = mix(h, (long) ARRAY_LONGS.get(key, offset + i));
+        }
+        if (i < length) {
+            long tail = 0;
+            for (int shift = 0; i < length; i++, shift += Byte.SIZE) {
+                tail |= (key[offset + i] & 0xFFL) << shift;
+            }
+            h = mix(h, tail);
+        }
+        return finish(h);
+    }
+
+    /**
+     * Hashes the bytes between the buffer's position and limit, without
+     * changing either.
+     *
+     * @param key buffer holding the key, not null
+     * @return the key's hash
+     */
+    public static int hash(final ByteBuffer key) {
+        final int offset = key.position();
+        final int length = key.remaining();
+        long h = length * MULTIPLIER;
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            h = mix(h, (long) BUFFER_LONGS.get(key, offset + i));
+        }
+        if (i < length) {
+            long tail = 0;
+            for (int shift = 0; i < length; i++, shift += Byte.SIZE) {
+                tail |= (key.get(offset + i) & 0xFFL) << shift;
+            }
+            h = mix(h, tail);
+        }
+        return finish(h);
+    }
+
+    private static long mix(final long h, final long chunk) {
+        return Long.rotateLeft(h ^ (chunk * MULTIPLIER), 29) * MIXER;
+    }
+
+    private static int finish(long h) {
+        h ^= h >>> 32;
+        h *= MULTIPLIER;
+        h ^= h >>> 29;
+        return (int) h;
+    }
+}
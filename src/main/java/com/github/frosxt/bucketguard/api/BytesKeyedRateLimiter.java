@@ -0,0 +1,138 @@
+package com.github.frosxt.bucketguard.api;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A keyed rate limiter whose keys are byte sequences, such as addresses,
+ * header values or tenant IDs read from the network.
+ * <p>
+ * Keys are looked up in place, as an array range or the remaining bytes of a
+ * buffer, without building a key object. Two keys are the same when they hold
+ * the same bytes. Key bytes are only copied when a new key is inserted, and
+ * the caller may reuse its array or buffer as soon as a call returns.
+ * <p>
+ * Methods taking a {@code hash} skip hashing the key; the hash must be the
+ * one {@link ByteKeys} computes for the same bytes.
+ * <p>
+ * Implementations must be thread-safe.
+ */
+public interface BytesKeyedRateLimiter extends AutoCloseable {
+
+    /**
+     * Attempts to acquire one token for the key.
+     *
+     * @param key    array holding the key, not null
+     * @param offset start of the key
+     * @param length length of the key
+     * @return a Permit indicating success or failure.
+     */
+    Permit tryAcquire(byte[] key, int offset, int length);
+
+    /**
+     * Attempts to acquire tokens for the key.
+     *
+     * @param key    array holding the key, not null
+     * @param offset start of the key
+     * @param length length of the key
+     * @param tokens number of tokens to acquire, must be >= 1.
+     * @return a Permit indicating success or failure.
+     */
+    Permit tryAcquire(byte[] key, int offset, int length, long tokens);
+
+    /**
+     * Attempts to acquire tokens for the key, using a precomputed hash.
+     *
+     * @param key    array holding the key, not null
+     * @param offset start of the key
+     * @param length length of the key
+     * @param hash   {@link ByteKeys#hash(byte[], int, int)} of the key
+     * @param tokens number of tokens to acquire, must be >= 1.
+     * @return a Permit indicating success or failure.
+     */
+    Permit tryAcquire(byte[] key, int offset, int length, int hash, long tokens);
+
+    /**
+     * Attempts to acquire one token for the key held between the buffer's
+     * position and limit. Neither is changed.
+     *
+     * @param key buffer holding the key, not null
+     * @return a Permit indicating success or failure.
+     */
+    Permit tryAcquire(ByteBuffer key);
+
+    /**
+     * Attempts to acquire tokens for the key held between the buffer's
+     * position and limit. Neither is changed.
+     *
+     * @param key    buffer holding the key, not null
+     * @param tokens number of tokens to acquire, must be >= 1.
+     * @return a Permit indicating success or failure.
+     */
+    Permit tryAcquire(ByteBuffer key, long tokens);
+
+    /**
+     * Attempts to acquire tokens for the key held between the buffer's
+     * position and limit, using a precomputed hash. Neither is changed.
+     *
+     * @param key    buffer holding the key, not null
+     * @param hash   {@link ByteKeys#hash(ByteBuffer)} of the key
+     * @param tokens number of tokens to acquire, must be >= 1.
+     * @return a Permit indicating success or failure.
+     */
+    Permit tryAcquire(ByteBuffer key, int hash, long tokens);
+
+    /**
+     * Returns a snapshot of the key's bucket, or of a full bucket if the key
+     * is absent.
+     *
+     * @param key    array holding the key, not null
+     * @param offset start of the key
+     * @param length length of the key
+     * @return stats for the key.
+     */
+    LimiterStats snapshot(byte[] key, int offset, int length);
+
+    /**
+     * @return the number of keys currently tracked.
+     */
+    int size();
+
+    /**
+     * @return a snapshot of the limiter's counters.
+     */
+    LimiterMetrics metrics();
+
+    /**
+     * Removes keys idle for longer than the store's expire-after-access.
+     */
+    void prune();
+
+    /**
+     * Starts pruning on the process-wide maintenance thread at the store's
+     * maintenance period. The thread holds the limiter weakly.
+     */
+    void startMaintenance();
+
+    /**
+     * Starts pruning on the given scheduler at the store's maintenance period.
+     *
+     * @param scheduler the scheduler, not null
+     */
+    void startMaintenance(ScheduledExecutorService scheduler);
+
+    /**
+     * Starts pruning on the given scheduler.
+     *
+     * @param scheduler the scheduler, not null
+     * @param period    the pruning period, not null
+     */
+    void startMaintenance(ScheduledExecutorService scheduler, Duration period);
+
+    /**
+     * Stops maintenance, if running.
+     */
+    @Override
+    void close();
+}
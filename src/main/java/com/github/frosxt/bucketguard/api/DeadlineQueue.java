@@ -0,0 +1,222 @@
+package com.github.frosxt.bucketguard.api;
+
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+
+import java.io.IOException;
+import java.nio.channels.Selector;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A min-heap of items keyed by deadline, for single-threaded event loops that
+ * park throttled connections until their tokens are ready.
+ * <p>
+ * A throttled item is added with the delay from
+ * {@link RateLimiter#nanosUntilAvailable(long)}; {@link #select(Selector)}
+ * then waits no longer than the soonest deadline, and
+ * {@link #pollExpired(Consumer)} hands back every item whose deadline has
+ * passed. Deadlines live in a primitive array, so adding allocates only when
+ * the heap grows.
+ * <p>
+ * This class is not thread-safe and is meant to be owned by one loop.
+ *
+ * @param <T> the item type, typically a channel or selection key
+ */
+public final class DeadlineQueue<T> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    // Keeps deadline differences from overflowing
+    private static final long MAX_DELAY_NANOS = Long.MAX_VALUE >> 1;
+
+    private final TimeSource timeSource;
+    private long[] deadlines;
+    private Object[] items;
+    private int size;
+
+    /**
+     * Creates an empty queue on the system time source.
+     */
+    public DeadlineQueue() {
+        this(TimeSource.system());
+    }
+
+    /**
+     * Creates an empty queue.
+     *
+     * @param timeSource source of deadlines, not null
+     */
+    public DeadlineQueue(final TimeSource timeSource) {
+        this.timeSource = Objects.requireNonNull(timeSource, "timeSource");
+        this.deadlines = new long[INITIAL_CAPACITY];
+        this.items = new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds an item that becomes due after {@code delayNanos}.
+     *
+     * @param item       the item, not null
+     * @param delayNanos nanoseconds until the item is due, 0 if due now
+     * @throws IllegalArgumentException if delayNanos &lt; 0
+     */
+    public void add(final T item, final long delayNanos) {
+        Objects.requireNonNull(item, "item");
+        if (delayNanos < 0) {
+            throw new IllegalArgumentException("delayNanos must be >= 0");
+        }
+
+        if (size == deadlines.length) {
+            deadlines = Arrays.copyOf(deadlines, size * 2);
+            items = Arrays.copyOf(items, size * 2);
+        }
+        siftUp(size++, timeSource.nanoTime() + Math.min(delayNanos, MAX_DELAY_NANOS), item);
+    }
+
+    /**
+     * Removes an item, for example when its channel is closed.
+     *
+     * @param item the item
+     * @return {@code true} if the item was queued
+     */
+    public boolean remove(final Object item) {
+        for (int i = 0; i < size; i++) {
+            if (items[i].equals(item)) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return nanoseconds until the soonest deadline, 0 if an item is already
+     *         due, or {@link Long#MAX_VALUE} if the queue is empty
+     */
+    public long nanosUntilNext() {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, deadlines[0] - timeSource.nanoTime());
+    }
+
+    /**
+     * Removes and returns the item with the soonest deadline if it is due.
+     *
+     * @return the due item, or null if none is due
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if (size == 0 || deadlines[0] - timeSource.nanoTime() > 0) {
+            return null;
+        }
+        final T item = (T) items[0];
+        removeAt(0);
+        return item;
+    }
+
+    /**
+     * Removes every due item and passes it to the action, soonest first.
+     *
+     * @param action receives each due item, not null
+     * @return the number of items removed
+     */
+    @SuppressWarnings("unchecked")
+    public int pollExpired(final Consumer<? super T> action) {
+        Objects.requireNonNull(action, "action");
+
+        final long now = timeSource.nanoTime();
+        int polled = 0;
+        while (size > 0 && deadlines[0] - now <= 0) {
+            final T item = (T) items[0];
+            removeAt(0);
+            action.accept(item);
+            polled++;
+        }
+        return polled;
+    }
+
+    /**
+     * Selects on the given selector, waiting no longer than the soonest
+     * deadline: without blocking if an item is due, indefinitely if the queue
+     * is empty.
+     *
+     * @param selector the selector, not null
+     * @return the number of keys whose ready sets were updated
+     * @throws IOException if an I/O error occurs
+     */
+    public int select(final Selector selector) throws IOException {
+        final long waitNanos = nanosUntilNext();
+        if (waitNanos == 0) {
+            return selector.selectNow();
+        }
+        if (waitNanos == Long.MAX_VALUE) {
+            return selector.select();
+        }
+        // Round up so the loop does not wake just before the deadline
+        return selector.select(waitNanos / NANOS_PER_MILLI + (waitNanos % NANOS_PER_MILLI == 0 ? 0 : 1));
+    }
+
+    /**
+     * @return the number of queued items
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if no items are queued
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void removeAt(final int index) {
+        final int last = --size;
+        final long deadline = deadlines[last];
+        final Object item = items[last];
+        items[last] = null;
+        if (index == last) {
+            return;
+        }
+
+        siftDown(index, deadline, item);
+        if (items[index] == item) {
+            siftUp(index, deadline, item);
+        }
+    }
+
+    private void siftUp(final int start, final long deadline, final Object item) {
+        int index = start;
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (deadlines[parent] - deadline <= 0) {
+                break;
+            }
+            deadlines[index] = deadlines[parent];
+            items[index] = items[parent];
+            index = parent;
+        }
+        deadlines[index] = deadline;
+        items[index] = item;
+    }
+
+    private void siftDown(final int start, final long deadline, final Object item) {
+        int index = start;
+        final int half = size >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            final int right = child + 1;
+            if (right < size && deadlines[right] - deadlines[child] < 0) {
+                child = right;
+            }
+            if (deadline - deadlines[child] <= 0) {
+                break;
+            }
+            deadlines[index] = deadlines[child];
+            items[index] = items[child];
+            index = child;
+        }
+        deadlines[index] = deadline;
+        items[index] = item;
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.frosxt.bucketguard.api;
+
+/**
+ * A key reported by a heavy-hitter tracker.
+ * <p>
+ * Counts are approximate: {@code count} never underestimates the key's true
+ * frequency, and {@code count - error} never overestimates it.
+ *
+ * @param key   the key
+ * @param count estimated number of occurrences (upper bound)
+ * @param error maximum overestimation included in {@code count}
+ * @param <K>   key type
+ */
+public record HeavyHitter<K>(K key, long count, long error) {
+}
@@ -0,0 +1,81 @@
+package com.github.frosxt.bucketguard.api;
+
+import java.net.InetAddress;
+
+/**
+ * A rate limiter keyed by IP address that applies a bucket to each configured
+ * prefix of the address, such as its /32, /24 and /16, in one call.
+ * <p>
+ * A request is granted only if every prefix level of its address family grants
+ * it; a rejected request consumes nothing. An address family with no levels
+ * configured is not limited. Addresses are taken as primitives,
+ * so the hot path allocates no key objects.
+ * <p>
+ * Implementations must be thread-safe.
+ */
+public interface IpRateLimiter {
+
+    /**
+     * Attempts to acquire one token for an IPv4 address.
+     *
+     * @param address the address, most significant octet first
+     * @return a Permit indicating success or failure.
+     */
+    Permit tryAcquireIpv4(int address);
+
+    /**
+     * Attempts to acquire tokens for an IPv4 address.
+     *
+     * @param address the address, most significant octet first
+     * @param tokens  number of tokens to acquire, must be >= 1.
+     * @return a Permit indicating success or failure.
+     */
+    Permit tryAcquireIpv4(int address, long tokens);
+
+    /**
+     * Attempts to acquire one token for an IPv6 address.
+     *
+     * @param high the first 64 bits of the address
+     * @param low  the last 64 bits of the address
+     * @return a Permit indicating success or failure.
+     */
+    Permit tryAcquireIpv6(long high, long low);
+
+    /**
+     * Attempts to acquire tokens for an IPv6 address.
+     *
+     * @param high   the first 64 bits of the address
+     * @param low    the last 64 bits of the address
+     * @param tokens number of tokens to acquire, must be >= 1.
+     * @return a Permit indicating success or failure.
+     */
+    Permit tryAcquireIpv6(long high, long low, long tokens);
+
+    /**
+     * Attempts to acquire tokens for an address of either family.
+     *
+     * @param address the address, not null
+     * @param tokens  number of tokens to acquire, must be >= 1.
+     * @return a Permit indicating success or failure.
+     */
+    Permit tryAcquire(InetAddress address, long tokens);
+
+    /**
+     * @return the number of prefixes currently materialized, over all levels.
+     */
+    int size();
+
+    /**
+     * Drops prefixes whose buckets are full. They behave exactly like absent
+     * prefixes, so this only reclaims memory.
+     * <p>
+     * Pruning is manual: no maintenance thread runs it, so tables only shrink
+     * when the caller invokes this, for example from its own scheduler.
+     */
+    void prune();
+
+    /**
+     * @return a snapshot of the limiter's counters.
+     */
+    LimiterMetrics metrics();
+}
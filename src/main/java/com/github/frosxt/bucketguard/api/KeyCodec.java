@@ -0,0 +1,58 @@
+package com.github.frosxt.bucketguard.api;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts keys to and from bytes for checkpoints.
+ *
+ * @param <K> the type of key
+ */
+public interface KeyCodec<K> {
+
+    /**
+     * @param key the key, not null.
+     * @return the key's bytes, not null.
+     */
+    byte[] encode(K key);
+
+    /**
+     * @param bytes bytes produced by {@link #encode(Object)}.
+     * @return the key, not null.
+     */
+    K decode(byte[] bytes);
+
+    /**
+     * @return a codec for strings, as UTF-8.
+     */
+    static KeyCodec<String> utf8() {
+        return new KeyCodec<>() {
+            @Override
+            public byte[] encode(final String key) {
+                return key.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(final byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * @return a codec for longs, as 8 big-endian bytes.
+     */
+    static KeyCodec<Long> longs() {
+        return new KeyCodec<>() {
+            @Override
+            public byte[] encode(final Long key) {
+                return ByteBuffer.allocate(Long.BYTES).putLong(key).array();
+            }
+
+            @Override
+            public Long decode(final byte[] bytes) {
+                return ByteBuffer.wrap(bytes).getLong();
+            }
+        };
+    }
+}
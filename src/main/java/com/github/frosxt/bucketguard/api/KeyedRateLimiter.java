@@ -1,6 +1,13 @@
 package com.github.frosxt.bucketguard.api;
 
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
@@ -86,6 +93,93 @@ public interface KeyedRateLimiter<K> extends AutoCloseable {
      */
     CompletionStage<Permit> acquireAsync(K key, long tokens, Executor executor);
 
+    /**
+     * Asynchronously acquires {@code tokens} for the given key, reporting to a
+     * callback instead of a CompletionStage.
+     * <p>
+     * An immediate grant invokes the callback inline and allocates no future;
+     * only a delayed grant uses the executor, which <b>MUST</b> then be an
+     * instance of {@link ScheduledExecutorService}. Exceptions thrown by an
+     * inline callback propagate to the caller; those thrown by a later
+     * delivery go to the delivering thread's uncaught exception handler.
+     * <p>
+     * A callback acquisition cannot be cancelled once it is waiting. Use
+     * {@link #acquireAsync(Object, long, Executor)} and cancel its future when
+     * the caller may give up.
+     * <p>
+     * Default implementation adapts {@link #acquireAsync(Object, long, Executor)}.
+     *
+     * @param key      the key, must not be null.
+     * @param tokens   number of tokens to acquire, must be >= 1.
+     * @param callback receives the permit or failure, not null.
+     * @param executor executor for delayed retries.
+     * @throws IllegalArgumentException if tokens &lt; 1.
+     */
+    default void acquireAsync(final K key, final long tokens, final PermitCallback callback, final Executor executor) {
+        Objects.requireNonNull(callback, "callback");
+        acquireAsync(key, tokens, executor).whenComplete((permit, error) -> {
+            try {
+                if (error != null) {
+                    callback.onError(error);
+                } else {
+                    callback.onPermit(permit);
+                }
+            } catch (final RuntimeException e) {
+                // The returned stage is dropped, so report rather than lose it
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        });
+    }
+
+    /**
+     * Acquires as many tokens as the key has available, up to {@code max}, in
+     * a single attempt.
+     * <p>
+     * The granted permit's {@link Permit#tokensGranted()} says how many were
+     * acquired. A rejected permit carries the wait for a single token.
+     * Limiters that do not allow bursts grant at most one token.
+     * <p>
+     * Default implementation sizes a {@link #tryAcquire(Object, long)} from
+     * {@link #snapshot(Object)}.
+     *
+     * @param key the key, must not be null.
+     * @param max most tokens to acquire, must be >= 1.
+     * @return the permit, granted if at least one token was acquired.
+     * @throws IllegalArgumentException if max &lt; 1.
+     */
+    default Permit tryAcquireUpTo(final K key, final long max) {
+        Objects.requireNonNull(key, "key");
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be >= 1");
+        }
+        return tryAcquire(key, Math.max(1, Math.min(max, snapshot(key).availableTokens())));
+    }
+
+    /**
+     * Returns how long until {@code tokens} could be acquired for the given
+     * key, without consuming anything or creating the key.
+     * <p>
+     * The probe does not count as an access: it neither refreshes the key's
+     * LRU position nor extends its expiry, so schedulers can probe many keys
+     * without keeping them alive. The delay is a hint; the acquisition must
+     * still be attempted once it has passed.
+     * <p>
+     * Default implementation estimates it from {@link #snapshot(Object)}.
+     *
+     * @param key    the key, must not be null.
+     * @param tokens number of tokens, must be >= 1.
+     * @return nanoseconds to wait, 0 if available now.
+     * @throws IllegalArgumentException if tokens &lt; 1.
+     */
+    default long nanosUntilAvailable(final K key, final long tokens) {
+        Objects.requireNonNull(key, "key");
+        if (tokens < 1) {
+            throw new IllegalArgumentException("tokens must be >= 1");
+        }
+        return snapshot(key).nanosUntilAvailable(tokens);
+    }
+
     /**
      * @param key the key to get stats for.
      * @return a snapshot of the limiter's stats for the specific key, or empty
@@ -107,6 +201,167 @@ public interface KeyedRateLimiter<K> extends AutoCloseable {
      */
     KeyedLimiterStats snapshotSample(int limit);
 
+    /**
+     * Returns a uniform random sample of stats for up to {@code limit} keys.
+     * <p>
+     * Unlike {@link #snapshotSample(int)}, which returns the first keys in
+     * iteration order, every key has the same chance of being included. This
+     * visits every key. Default implementation delegates to
+     * {@link #snapshotSample(int)}; implementations may override.
+     *
+     * @param limit maximum number of keys to include in the sample
+     * @return a map of stats per key
+     */
+    default KeyedLimiterStats snapshotReservoir(final int limit) {
+        return snapshotSample(limit);
+    }
+
+    /**
+     * Streams the available tokens of every tracked key to {@code visitor}
+     * without building a snapshot map.
+     * <p>
+     * Iteration is weakly consistent: keys added or removed during the call
+     * may or may not be visited, and stores guarded by a lock release it
+     * while the visitor runs. Default implementation iterates
+     * {@link #snapshotAll()}; implementations may override.
+     *
+     * @param visitor receives each key and its available tokens, not null.
+     */
+    @SuppressWarnings("unchecked")
+    default void forEachSnapshot(final KeyedSnapshotVisitor<? super K> visitor) {
+        for (final Map.Entry<?, LimiterStats> entry : snapshotAll().samples().entrySet()) {
+            visitor.visit((K) entry.getKey(), entry.getValue().availableTokens());
+        }
+    }
+
+    /**
+     * Returns the limiter's cumulative counters, aggregated across all keys.
+     * <p>
+     * Default implementation returns {@link LimiterMetrics#DISABLED};
+     * implementations may override.
+     *
+     * @return the current metrics, never null.
+     */
+    default LimiterMetrics metrics() {
+        return LimiterMetrics.DISABLED;
+    }
+
+    /**
+     * Returns the time-to-grant distributions of {@code acquire} and
+     * {@code acquireAsync} recorded across all keys since the limiter was created or last reset.
+     * <p>
+     * Recorded only when metrics are enabled. Default implementation returns
+     * {@link AcquireLatency#EMPTY}; implementations may override.
+     *
+     * @return the latency distributions, never null.
+     */
+    default AcquireLatency acquireLatency() {
+        return AcquireLatency.EMPTY;
+    }
+
+    /**
+     * Returns the same distributions as {@link #acquireLatency()} and starts a
+     * new interval, so periodic callers get non-overlapping windows.
+     * <p>
+     * Default implementation returns {@link AcquireLatency#EMPTY};
+     * implementations may override.
+     *
+     * @return the latency distributions of the interval just ended, never null.
+     */
+    default AcquireLatency resetAcquireLatency() {
+        return AcquireLatency.EMPTY;
+    }
+
+    /**
+     * Returns the keys that were throttled most often: rejected by
+     * {@code tryAcquire}, or made to wait by {@code acquire} and
+     * {@code acquireAsync}.
+     * <p>
+     * Tracked only when {@code heavyHitterCapacity} is set on the store spec;
+     * counts are approximate. Default implementation returns an empty list;
+     * implementations may override.
+     *
+     * @param k maximum number of keys to return, must be >= 0.
+     * @return up to {@code k} keys, most throttled first.
+     */
+    default List<HeavyHitter<K>> topThrottled(final int k) {
+        return List.of();
+    }
+
+    /**
+     * Returns the keys that received the most requests, granted or not.
+     * <p>
+     * Tracked only when {@code heavyHitterCapacity} is set on the store spec;
+     * counts are approximate. Default implementation returns an empty list;
+     * implementations may override.
+     *
+     * @param k maximum number of keys to return, must be >= 0.
+     * @return up to {@code k} keys, busiest first.
+     */
+    default List<HeavyHitter<K>> topTraffic(final int k) {
+        return List.of();
+    }
+
+    /**
+     * Changes the capacity and refill rate of every key's bucket in place.
+     * <p>
+     * Tokens already consumed are kept: each bucket rescales its state to the
+     * new rate the next time it is used, so the change takes effect at once
+     * without rebuilding buckets or handing out a burst of free tokens.
+     * <p>
+     * Only capacity and refill rate are taken from {@code spec}. Burst and
+     * strict math must match the current configuration; other settings are
+     * ignored. Default implementation throws
+     * {@link UnsupportedOperationException}; implementations may override.
+     *
+     * @param spec the new configuration, not null.
+     * @throws IllegalArgumentException      if {@code spec} changes burst or
+     *                                       strict math, or adds bandwidths.
+     * @throws UnsupportedOperationException if this limiter cannot change its
+     *                                       rate in place, for example when
+     *                                       striped or multi-bandwidth.
+     */
+    default void reconfigure(final TokenBucketSpec spec) {
+        throw new UnsupportedOperationException("reconfiguration is not supported by this limiter");
+    }
+
+    /**
+     * Writes the state of every key that is not at full capacity to a binary
+     * file, replacing it atomically.
+     * <p>
+     * Default implementation throws {@link UnsupportedOperationException};
+     * implementations may override.
+     *
+     * @param path  target file, not null.
+     * @param codec converts keys to bytes, not null.
+     * @return the number of keys written.
+     * @throws IOException                   if writing fails.
+     * @throws UnsupportedOperationException if this limiter's buckets cannot
+     *                                       be checkpointed.
+     */
+    default long checkpoint(final Path path, final KeyCodec<? super K> codec) throws IOException {
+        throw new UnsupportedOperationException("checkpoints are not supported by this limiter");
+    }
+
+    /**
+     * Loads a file written by {@link #checkpoint(Path, KeyCodec)}, aged by the
+     * wall-clock time since it was written. Keys already present are kept.
+     * <p>
+     * Default implementation throws {@link UnsupportedOperationException};
+     * implementations may override.
+     *
+     * @param path  checkpoint file, not null.
+     * @param codec converts bytes to keys, not null.
+     * @return the number of keys restored.
+     * @throws IOException                   if the file cannot be read or is
+     *                                       not a checkpoint.
+     * @throws UnsupportedOperationException if this limiter's buckets cannot
+     *                                       be restored.
+     */
+    default long restore(final Path path, final KeyCodec<? extends K> codec) throws IOException {
+        throw new UnsupportedOperationException("checkpoints are not supported by this limiter");
+    }
+
     /**
      * Prunes expired keys from the storage.
      * <p>
@@ -120,6 +375,24 @@ public interface KeyedRateLimiter<K> extends AutoCloseable {
     default void prune() {
     }
 
+    /**
+     * Starts scheduled maintenance on the process-wide maintenance thread, at
+     * the store's maintenance period.
+     * <p>
+     * The thread is shared by every limiter and holds them weakly: a limiter
+     * that is closed or garbage-collected stops being maintained. Limiters
+     * start at random points of their period so that they do not prune
+     * together. Removal listeners without a removal executor run on this
+     * thread for the keys it expires, so a slow listener delays every limiter.
+     * <p>
+     * Default implementation is a no-op; implementations may override.
+     * <p>
+     * This method is idempotent; calling it multiple times has no additional
+     * effect.
+     */
+    default void startMaintenance() {
+    }
+
     /**
      * Starts scheduled maintenance using the provided scheduler.
      * <p>
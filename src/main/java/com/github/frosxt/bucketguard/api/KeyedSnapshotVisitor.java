@@ -0,0 +1,20 @@
+package com.github.frosxt.bucketguard.api;
+
+/**
+ * Receives per-key state from
+ * {@link KeyedRateLimiter#forEachSnapshot(KeyedSnapshotVisitor)}.
+ * <p>
+ * Capacity and refill settings are shared by every key of a limiter, so only
+ * the per-key value is passed.
+ *
+ * @param <K> the type of key
+ */
+@FunctionalInterface
+public interface KeyedSnapshotVisitor<K> {
+
+    /**
+     * @param key             the key
+     * @param availableTokens tokens currently available to the key
+     */
+    void visit(K key, long availableTokens);
+}
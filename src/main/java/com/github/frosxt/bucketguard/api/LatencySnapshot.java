@@ -0,0 +1,102 @@
+package com.github.frosxt.bucketguard.api;
+
+import java.util.Arrays;
+
+/**
+ * An immutable latency distribution in nanoseconds.
+ * <p>
+ * Values are grouped into log-linear buckets with roughly 3% relative
+ * precision. Percentiles report the upper bound of the bucket they fall in,
+ * capped at the exact recorded maximum, so they never understate latency.
+ */
+public final class LatencySnapshot {
+
+    /**
+     * A distribution with no samples.
+     */
+    public static final LatencySnapshot EMPTY = new LatencySnapshot(new long[0], new long[0], 0);
+
+    private final long[] upperBounds;
+    private final long[] counts;
+    private final long totalCount;
+    private final long max;
+    private final double mean;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param upperBounds ascending bucket upper bounds, in nanoseconds
+     * @param counts      sample count for each bucket
+     * @param max         exact largest recorded value
+     */
+    public LatencySnapshot(final long[] upperBounds, final long[] counts, final long max) {
+        if (upperBounds.length != counts.length) {
+            throw new IllegalArgumentException("upperBounds and counts must have the same length");
+        }
+        this.upperBounds = upperBounds.clone();
+        this.counts = counts.clone();
+        this.max = max;
+
+        long total = 0;
+        double weighted = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i];
+            weighted += (double) Math.min(upperBounds[i], max) * counts[i];
+        }
+        this.totalCount = total;
+        this.mean = total == 0 ? 0 : weighted / total;
+    }
+
+    /**
+     * @return number of recorded samples
+     */
+    public long count() {
+        return totalCount;
+    }
+
+    /**
+     * @return the largest recorded value, or 0 if empty
+     */
+    public long maxNanos() {
+        return max;
+    }
+
+    /**
+     * @return the approximate mean, or 0 if empty
+     */
+    public double meanNanos() {
+        return mean;
+    }
+
+    /**
+     * Returns the value at or below which {@code percentile} percent of samples
+     * fall.
+     *
+     * @param percentile percentile in {@code [0, 100]}, e.g. 99.9
+     * @return the value in nanoseconds, or 0 if empty
+     * @throws IllegalArgumentException if percentile is out of range
+     */
+    public long valueAtPercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be within [0, 100]");
+        }
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBounds[i], max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencySnapshot[count=" + totalCount + ", max=" + max + ", buckets=" + Arrays.toString(upperBounds) + "]";
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.frosxt.bucketguard.api;
+
+/**
+ * A rate limiter that spends tokens leased in batches from a shared
+ * {@link com.github.frosxt.bucketguard.api.lease.LeaseBackend}.
+ * <p>
+ * Leases are renewed in the background before the local tokens run out, and
+ * sized from the local consumption rate. Closing the limiter returns unspent
+ * tokens to the backend.
+ * <p>
+ * Implementations must be thread-safe.
+ */
+public interface LeasedRateLimiter extends RateLimiter, AutoCloseable {
+
+    /**
+     * @return the number of tokens the next lease will request.
+     */
+    long leaseSize();
+
+    /**
+     * Stops renewing leases and returns unspent tokens to the backend. Errors
+     * while returning tokens are ignored; the backend's own refill recovers
+     * them.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,30 @@
+package com.github.frosxt.bucketguard.api;
+
+/**
+ * Cumulative counters for a rate limiter.
+ * <p>
+ * Metrics are opt-in via
+ * {@link com.github.frosxt.bucketguard.api.spec.builder.TokenBucketSpecBuilder#metricsEnabled(boolean)}.
+ * When disabled, every counter is zero and {@link #enabled()} is false.
+ * Counters are read independently, so a snapshot taken under load is not an
+ * atomic cut across all of them.
+ *
+ * @param enabled             whether metrics are being recorded
+ * @param granted             number of granted acquisitions
+ * @param rejected            number of rejected {@code tryAcquire} attempts
+ * @param tokensGranted       total tokens handed out by granted acquisitions
+ * @param casRetries          failed compare-and-set attempts on bucket state
+ * @param blockedNanos        total time callers spent blocked in {@code acquire}
+ * @param pendingAsyncWaiters async acquisitions currently waiting for tokens
+ * @param keysCreated         keyed only: buckets created for new keys
+ * @param keysEvicted         keyed only: keys evicted because the store was full
+ * @param keysExpired         keyed only: keys removed after being idle
+ */
+public record LimiterMetrics(boolean enabled, long granted, long rejected, long tokensGranted, long casRetries,
+        long blockedNanos, long pendingAsyncWaiters, long keysCreated, long keysEvicted, long keysExpired) {
+
+    /**
+     * Metrics reported by limiters that do not record them.
+     */
+    public static final LimiterMetrics DISABLED = new LimiterMetrics(false, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+}
@@ -11,4 +11,25 @@ import java.time.Duration;
  * @param refillPeriod    period for refill
  */
 public record LimiterStats(long capacity, long availableTokens, long refillTokens, Duration refillPeriod) {
+
+    /**
+     * Estimates how long until {@code tokens} are available, assuming
+     * nothing else is taken in the meantime.
+     *
+     * @param tokens tokens wanted
+     * @return nanoseconds to wait, 0 if available now, or
+     *         {@code Long.MAX_VALUE} if the wait is too long to represent
+     */
+    public long nanosUntilAvailable(final long tokens) {
+        final long deficit = tokens - availableTokens;
+        if (deficit <= 0) {
+            return 0;
+        }
+        final long periodNanos = refillPeriod.toNanos();
+        final long scaled = deficit * periodNanos;
+        if (Math.multiplyHigh(deficit, periodNanos) != 0 || scaled < 0 || scaled > Long.MAX_VALUE - (refillTokens - 1)) {
+            return Long.MAX_VALUE;
+        }
+        return (scaled + refillTokens - 1) / refillTokens;
+    }
 }
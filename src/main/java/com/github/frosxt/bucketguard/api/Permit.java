@@ -19,6 +19,15 @@ public interface Permit {
      */
     long tokensRequested();
 
+    /**
+     * @return the number of tokens granted: all of them if granted, none
+     *         otherwise. A partial grant from {@code tryAcquireUpTo} requests
+     *         exactly what it was granted.
+     */
+    default long tokensGranted() {
+        return granted() ? tokensRequested() : 0;
+    }
+
     /**
      * @return the approximate number of tokens remaining in the bucket after this attempt.
      */
@@ -0,0 +1,35 @@
+package com.github.frosxt.bucketguard.api;
+
+/**
+ * Receives the outcome of a callback-style asynchronous acquisition.
+ * <p>
+ * Exactly one method is called per acquisition: on the calling thread if the
+ * tokens are granted immediately, otherwise on the scheduler's thread once
+ * they are. Unlike a future, a waiting callback acquisition cannot be
+ * cancelled.
+ */
+@FunctionalInterface
+public interface PermitCallback {
+
+    /**
+     * Called with the granted permit.
+     *
+     * @param permit the permit, always granted.
+     */
+    void onPermit(Permit permit);
+
+    /**
+     * Called instead of {@link #onPermit(Permit)} if the acquisition fails,
+     * for example because a delay is needed and the executor is not a
+     * {@link java.util.concurrent.ScheduledExecutorService}.
+     * <p>
+     * Default implementation hands the error to the current thread's
+     * uncaught exception handler.
+     *
+     * @param error the failure.
+     */
+    default void onError(final Throwable error) {
+        final Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+    }
+}
@@ -1,5 +1,8 @@
 package com.github.frosxt.bucketguard.api;
 
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+
+import java.util.Objects;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 
@@ -71,8 +74,154 @@ public interface RateLimiter {
      */
     CompletionStage<Permit> acquireAsync(long tokens, Executor executor);
 
+    /**
+     * Asynchronously acquires {@code tokens}, reporting to a callback instead
+     * of a CompletionStage.
+     * <p>
+     * An immediate grant invokes the callback inline and allocates no future;
+     * only a delayed grant uses the executor, which <b>MUST</b> then be an
+     * instance of {@link java.util.concurrent.ScheduledExecutorService}.
+     * Exceptions thrown by an inline callback propagate to the caller; those
+     * thrown by a later delivery go to the delivering thread's uncaught
+     * exception handler.
+     * <p>
+     * A callback acquisition cannot be cancelled once it is waiting. Use
+     * {@link #acquireAsync(long, Executor)} and cancel its future when the
+     * caller may give up.
+     * <p>
+     * Default implementation adapts {@link #acquireAsync(long, Executor)}.
+     *
+     * @param tokens   number of tokens, must be >= 1.
+     * @param callback receives the permit or failure, not null.
+     * @param executor executor for delayed retries.
+     * @throws IllegalArgumentException if tokens &lt; 1.
+     */
+    default void acquireAsync(final long tokens, final PermitCallback callback, final Executor executor) {
+        Objects.requireNonNull(callback, "callback");
+        acquireAsync(tokens, executor).whenComplete((permit, error) -> {
+            try {
+                if (error != null) {
+                    callback.onError(error);
+                } else {
+                    callback.onPermit(permit);
+                }
+            } catch (final RuntimeException e) {
+                // The returned stage is dropped, so report rather than lose it
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        });
+    }
+
+    /**
+     * Acquires as many tokens as are available, up to {@code max}, in a
+     * single attempt.
+     * <p>
+     * Suited to consumers that drain a queue in batches: the granted permit's
+     * {@link Permit#tokensGranted()} says how many items may be processed. A
+     * rejected permit carries the wait for a single token. Limiters that do
+     * not allow bursts grant at most one token.
+     * <p>
+     * Default implementation sizes a {@link #tryAcquire(long)} from
+     * {@link #snapshot()}.
+     *
+     * @param max most tokens to acquire, must be >= 1.
+     * @return the permit, granted if at least one token was acquired.
+     * @throws IllegalArgumentException if max &lt; 1.
+     */
+    default Permit tryAcquireUpTo(final long max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be >= 1");
+        }
+        return tryAcquire(Math.max(1, Math.min(max, snapshot().availableTokens())));
+    }
+
+    /**
+     * Returns how long until {@code tokens} could be acquired, without
+     * consuming anything.
+     * <p>
+     * Intended for event loops that can neither block nor hop to an executor:
+     * a throttled connection can be parked until the returned delay has passed.
+     * Schedulers can also use it to compare limiters before choosing one.
+     * Another caller may take the tokens first, so the delay is a hint and the
+     * acquisition must still be attempted.
+     * <p>
+     * Default implementation estimates it from {@link #snapshot()}.
+     *
+     * @param tokens number of tokens, must be >= 1.
+     * @return nanoseconds to wait, 0 if available now.
+     * @throws IllegalArgumentException if tokens &lt; 1.
+     */
+    default long nanosUntilAvailable(final long tokens) {
+        if (tokens < 1) {
+            throw new IllegalArgumentException("tokens must be >= 1");
+        }
+        return snapshot().nanosUntilAvailable(tokens);
+    }
+
     /**
      * @return a snapshot of the limiter's current statistics.
      */
     LimiterStats snapshot();
+
+    /**
+     * Changes the capacity and refill rate of this limiter in place.
+     * <p>
+     * Tokens already consumed are kept: each bucket rescales its state to the
+     * new rate the next time it is used, so the change takes effect at once
+     * without rebuilding buckets or handing out a burst of free tokens.
+     * <p>
+     * Only capacity and refill rate are taken from {@code spec}. Burst and
+     * strict math must match the current configuration; other settings are
+     * ignored. Default implementation throws
+     * {@link UnsupportedOperationException}; implementations may override.
+     *
+     * @param spec the new configuration, not null.
+     * @throws IllegalArgumentException      if {@code spec} changes burst or
+     *                                       strict math, or adds bandwidths.
+     * @throws UnsupportedOperationException if this limiter cannot change its
+     *                                       rate in place, for example when
+     *                                       striped or multi-bandwidth.
+     */
+    default void reconfigure(final TokenBucketSpec spec) {
+        throw new UnsupportedOperationException("reconfiguration is not supported by this limiter");
+    }
+
+    /**
+     * Returns the limiter's cumulative counters.
+     * <p>
+     * Default implementation returns {@link LimiterMetrics#DISABLED};
+     * implementations may override.
+     *
+     * @return the current metrics, never null.
+     */
+    default LimiterMetrics metrics() {
+        return LimiterMetrics.DISABLED;
+    }
+
+    /**
+     * Returns the time-to-grant distributions of {@code acquire} and
+     * {@code acquireAsync} recorded since the limiter was created or last reset.
+     * <p>
+     * Recorded only when metrics are enabled. Default implementation returns
+     * {@link AcquireLatency#EMPTY}; implementations may override.
+     *
+     * @return the latency distributions, never null.
+     */
+    default AcquireLatency acquireLatency() {
+        return AcquireLatency.EMPTY;
+    }
+
+    /**
+     * Returns the same distributions as {@link #acquireLatency()} and starts a
+     * new interval, so periodic callers get non-overlapping windows.
+     * <p>
+     * Default implementation returns {@link AcquireLatency#EMPTY};
+     * implementations may override.
+     *
+     * @return the latency distributions of the interval just ended, never null.
+     */
+    default AcquireLatency resetAcquireLatency() {
+        return AcquireLatency.EMPTY;
+    }
 }
@@ -0,0 +1,21 @@
+package com.github.frosxt.bucketguard.api;
+
+/**
+ * Why a key left a keyed limiter's store.
+ */
+public enum RemovalCause {
+    /**
+     * Evicted to keep the store within its maximum size.
+     */
+    SIZE,
+
+    /**
+     * Removed after being idle for longer than expire-after-access.
+     */
+    EXPIRED,
+
+    /**
+     * Removed explicitly, for example when the store was cleared.
+     */
+    EXPLICIT
+}
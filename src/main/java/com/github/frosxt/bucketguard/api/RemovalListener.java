@@ -0,0 +1,41 @@
+package com.github.frosxt.bucketguard.api;
+
+import java.util.List;
+
+/**
+ * Receives keys removed from a keyed limiter's store.
+ * <p>
+ * Without a removal executor, notifications are delivered one at a time on the
+ * thread that removed the key, after the store has released its lock. With
+ * one, they are queued and delivered in batches on the executor, off the
+ * acquisition path. A removal that finds the queue full, or whose delivery the
+ * executor rejects, is delivered on the removing thread instead, so
+ * notifications may arrive out of removal order.
+ *
+ * @param <K> the type of key
+ */
+@FunctionalInterface
+public interface RemovalListener<K> {
+
+    /**
+     * Called for each removed key.
+     *
+     * @param notification the removal, not null.
+     */
+    void onRemoval(RemovalNotification<K> notification);
+
+    /**
+     * Called with each batch of removals. Override to handle a batch at once,
+     * for example to write it out with a single flush.
+     * <p>
+     * Default implementation calls {@link #onRemoval(RemovalNotification)}
+     * for each notification.
+     *
+     * @param notifications the removals, not empty.
+     */
+    default void onRemovals(final List<RemovalNotification<K>> notifications) {
+        for (final RemovalNotification<K> notification : notifications) {
+            onRemoval(notification);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.frosxt.bucketguard.api;
+
+/**
+ * A key that left a keyed limiter's store.
+ *
+ * @param key        the removed key
+ * @param cause      why it was removed
+ * @param finalState the state of its bucket when it was removed
+ * @param <K>        the type of key
+ */
+public record RemovalNotification<K>(K key, RemovalCause cause, LimiterStats finalState) {
+}
@@ -1,20 +1,36 @@
 package com.github.frosxt.bucketguard.api.factory;
 
+import com.github.frosxt.bucketguard.api.AdaptiveRateLimiter;
+import com.github.frosxt.bucketguard.api.BytesKeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.IpRateLimiter;
+import com.github.frosxt.bucketguard.api.KeyCodec;
 import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.LeasedRateLimiter;
 import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.spec.AdaptiveLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.CompositeLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.IpLimiterSpec;
 import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.LeaseLimiterSpec;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.spec.builder.AdaptiveLimiterSpecBuilder;
+import com.github.frosxt.bucketguard.api.spec.builder.CompositeLimiterSpecBuilder;
+import com.github.frosxt.bucketguard.api.spec.builder.IpLimiterSpecBuilder;
 import com.github.frosxt.bucketguard.api.spec.builder.KeyedStoreSpecBuilder;
+import com.github.frosxt.bucketguard.api.spec.builder.LeaseLimiterSpecBuilder;
 import com.github.frosxt.bucketguard.api.spec.builder.TokenBucketSpecBuilder;
 import com.github.frosxt.bucketguard.runtime.wiring.KeyedLimiterFactory;
 import com.github.frosxt.bucketguard.runtime.wiring.LimiterFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Factory for creating rate limiters.
  */
 public final class BucketGuards {
+    private static final int DEFAULT_SHARED_SLOTS = 1024;
 
     private BucketGuards() {
         throw new UnsupportedOperationException("This class cannot be instantiated!");
@@ -30,6 +46,40 @@ public final class BucketGuards {
         return LimiterFactory.create(spec);
     }
 
+    /**
+     * Creates a RateLimiter whose bucket lives in a memory-mapped file, so that
+     * every process on the host opening the same file and name shares one
+     * limit. A new file holds up to 1024 named buckets.
+     *
+     * @param file backing file, created if missing, not null
+     * @param name bucket name within the file, not null
+     * @param spec configuration spec, must match the rate the file was created
+     *             with, not null
+     * @return a new RateLimiter instance
+     * @throws IOException if the file cannot be opened or is not a bucket table
+     */
+    public static RateLimiter sharedTokenBucket(final Path file, final String name, final TokenBucketSpec spec) throws IOException {
+        return sharedTokenBucket(file, DEFAULT_SHARED_SLOTS, name, spec);
+    }
+
+    /**
+     * Creates a RateLimiter whose bucket lives in a memory-mapped file, so that
+     * every process on the host opening the same file and name shares one
+     * limit.
+     *
+     * @param file  backing file, created if missing, not null
+     * @param slots number of named buckets a new file holds, a power of two
+     * @param name  bucket name within the file, not null
+     * @param spec  configuration spec, must match the rate the file was created
+     *              with, not null
+     * @return a new RateLimiter instance
+     * @throws IOException if the file cannot be opened or is not a bucket table
+     */
+    public static RateLimiter sharedTokenBucket(final Path file, final int slots, final String name, final TokenBucketSpec spec)
+            throws IOException {
+        return LimiterFactory.createMapped(file, slots, name, spec);
+    }
+
     /**
      * Creates a new KeyedRateLimiter with the specified specs.
      * 
@@ -62,6 +112,82 @@ public final class BucketGuards {
         return KeyedLimiterFactory.create(spec, storeSpec, scheduler);
     }
 
+    /**
+     * Creates a keyed rate limiter that looks byte keys up in place, as array
+     * ranges or buffers, without building a key object per call.
+     *
+     * @param spec      bucket configuration spec, not null
+     * @param storeSpec key storage configuration spec, with eviction policy
+     *                  NONE or EXPIRE_AFTER_ACCESS, not null
+     * @return a new BytesKeyedRateLimiter instance
+     */
+    public static BytesKeyedRateLimiter bytesKeyedTokenBucket(final TokenBucketSpec spec, final KeyedStoreSpec<byte[]> storeSpec) {
+        return KeyedLimiterFactory.createBytes(spec, storeSpec);
+    }
+
+    /**
+     * Creates a rate limiter that applies a bucket to each configured prefix
+     * of an IP address, for example its /32, /24 and /16, in one call.
+     *
+     * @param spec IP limiter configuration spec, not null
+     * @return a new IpRateLimiter instance
+     */
+    public static IpRateLimiter ipTokenBucket(final IpLimiterSpec spec) {
+        return LimiterFactory.createIp(spec);
+    }
+
+    /**
+     * Creates a new KeyedRateLimiter and restores the state saved by
+     * {@link KeyedRateLimiter#checkpoint(Path, KeyCodec)}.
+     *
+     * @param spec      bucket configuration spec, not null
+     * @param storeSpec key storage configuration spec, not null
+     * @param path      checkpoint file, not null
+     * @param codec     key codec, not null
+     * @param <K>       key type
+     * @return a new KeyedRateLimiter instance
+     * @throws IOException if the checkpoint cannot be read
+     */
+    public static <K> KeyedRateLimiter<K> restoreKeyedTokenBucket(final TokenBucketSpec spec, final KeyedStoreSpec<K> storeSpec,
+            final Path path, final KeyCodec<? extends K> codec) throws IOException {
+        return KeyedLimiterFactory.restore(spec, storeSpec, path, codec);
+    }
+
+    /**
+     * Creates a KeyedRateLimiter that grants a request only when every stage
+     * of the spec grants it, as one all-or-nothing decision.
+     *
+     * @param spec composite configuration spec, not null
+     * @param <K>  key type
+     * @return a new KeyedRateLimiter instance
+     */
+    public static <K> KeyedRateLimiter<K> composite(final CompositeLimiterSpec<K> spec) {
+        return KeyedLimiterFactory.createComposite(spec);
+    }
+
+    /**
+     * Creates a RateLimiter whose rate adapts to the latency and failures
+     * reported by its callers.
+     *
+     * @param spec adaptive configuration spec, not null
+     * @return a new AdaptiveRateLimiter instance
+     */
+    public static AdaptiveRateLimiter adaptive(final AdaptiveLimiterSpec spec) {
+        return LimiterFactory.createAdaptive(spec);
+    }
+
+    /**
+     * Creates a RateLimiter that spends tokens leased in batches from a shared
+     * backend, so that many instances share one limit while rarely contacting
+     * it.
+     *
+     * @param spec lease configuration spec, not null
+     * @return a new LeasedRateLimiter instance
+     */
+    public static LeasedRateLimiter leased(final LeaseLimiterSpec spec) {
+        return LimiterFactory.createLeased(spec);
+    }
+
     /**
      * Creates a builder for TokenBucketSpec.
      * 
@@ -80,4 +206,41 @@ public final class BucketGuards {
     public static <K> KeyedStoreSpecBuilder<K> keyedTokenBucketBuilder() {
         return KeyedStoreSpec.builder();
     }
+
+    /**
+     * Creates a builder for CompositeLimiterSpec.
+     *
+     * @param <K> the key type
+     * @return a new builder
+     */
+    public static <K> CompositeLimiterSpecBuilder<K> compositeBuilder() {
+        return CompositeLimiterSpec.builder();
+    }
+
+    /**
+     * Creates a builder for AdaptiveLimiterSpec.
+     *
+     * @return a new builder
+     */
+    public static AdaptiveLimiterSpecBuilder adaptiveBuilder() {
+        return AdaptiveLimiterSpec.builder();
+    }
+
+    /**
+     * Creates a builder for LeaseLimiterSpec.
+     *
+     * @return a new builder
+     */
+    public static LeaseLimiterSpecBuilder leaseBuilder() {
+        return LeaseLimiterSpec.builder();
+    }
+
+    /**
+     * Creates a builder for IpLimiterSpec.
+     *
+     * @return a new builder
+     */
+    public static IpLimiterSpecBuilder ipBuilder() {
+        return IpLimiterSpec.builder();
+    }
 }
@@ -0,0 +1,20 @@
+package com.github.frosxt.bucketguard.api.lease;
+
+/**
+ * Tokens granted by a {@link LeaseBackend}.
+ *
+ * @param tokens          number of tokens granted, possibly fewer than requested
+ * @param retryAfterNanos when {@code tokens} is 0, how long until the backend
+ *                        expects to have tokens again
+ */
+public record Lease(long tokens, long retryAfterNanos) {
+
+    public Lease {
+        if (tokens < 0) {
+            throw new IllegalArgumentException("tokens must be >= 0");
+        }
+        if (retryAfterNanos < 0) {
+            throw new IllegalArgumentException("retryAfterNanos must be >= 0");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.frosxt.bucketguard.api.lease;
+
+import java.io.IOException;
+
+/**
+ * Shared token source for lease-based limiters.
+ * <p>
+ * A backend owns one global bucket per name. Limiters lease tokens from it in
+ * batches and return the ones they did not spend, so the backend is contacted
+ * about once per lease rather than once per request.
+ * <p>
+ * Implementations must be thread-safe.
+ */
+public interface LeaseBackend {
+
+    /**
+     * Takes up to {@code tokens} tokens from the bucket {@code name}.
+     *
+     * @param name   bucket name, not null.
+     * @param tokens maximum number of tokens to take, must be >= 1.
+     * @return the tokens granted, which may be fewer than requested or none.
+     * @throws IOException if the backend cannot be reached.
+     */
+    Lease acquire(String name, long tokens) throws IOException;
+
+    /**
+     * Returns unspent tokens to the bucket {@code name}.
+     *
+     * @param name   bucket name, not null.
+     * @param tokens number of tokens to return, must be >= 1.
+     * @throws IOException if the backend cannot be reached.
+     */
+    void release(String name, long tokens) throws IOException;
+}
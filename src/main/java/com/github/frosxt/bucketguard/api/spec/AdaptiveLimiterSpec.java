@@ -0,0 +1,122 @@
+package com.github.frosxt.bucketguard.api.spec;
+
+import com.github.frosxt.bucketguard.api.spec.builder.AdaptiveLimiterSpecBuilder;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Configuration for an adaptive limiter using additive-increase,
+ * multiplicative-decrease (AIMD).
+ * <p>
+ * Samples are grouped into windows. At the end of a window in which any call
+ * failed or exceeded {@link #latencyThreshold()}, the rate is multiplied by
+ * {@link #decreaseFactor()}; otherwise {@link #increaseStep()} is added. The
+ * rate always stays within [{@link #minRate()}, {@link #maxRate()}]. The
+ * initial rate is the refill rate of {@link #bucketSpec()}.
+ */
+public final class AdaptiveLimiterSpec {
+    private final TokenBucketSpec bucketSpec;
+    private final double minRate;
+    private final double maxRate;
+    private final Duration latencyThreshold;
+    private final double increaseStep;
+    private final double decreaseFactor;
+    private final Duration window;
+
+    public AdaptiveLimiterSpec(final AdaptiveLimiterSpecBuilder builder) {
+        this.bucketSpec = builder.getBucketSpec();
+        this.minRate = builder.getMinRate();
+        this.maxRate = builder.getMaxRate();
+        this.latencyThreshold = builder.getLatencyThreshold();
+        this.increaseStep = builder.getIncreaseStep();
+        this.decreaseFactor = builder.getDecreaseFactor();
+        this.window = builder.getWindow();
+
+        validate();
+    }
+
+    private void validate() {
+        Objects.requireNonNull(bucketSpec, "bucketSpec");
+        Objects.requireNonNull(latencyThreshold, "latencyThreshold");
+        Objects.requireNonNull(window, "window");
+
+        if (!bucketSpec.bandwidths().isEmpty()) {
+            throw new IllegalArgumentException("adaptive limiting does not support additional bandwidths");
+        }
+        if (!(minRate > 0)) {
+            throw new IllegalArgumentException("minRate must be > 0");
+        }
+        if (!(maxRate >= minRate) || Double.isInfinite(maxRate)) {
+            throw new IllegalArgumentException("maxRate must be finite and >= minRate");
+        }
+        if (maxRate > 1_000_000_000D) {
+            throw new IllegalArgumentException("maxRate must be <= 1e9 tokens per second");
+        }
+        if (latencyThreshold.isNegative() || latencyThreshold.isZero()) {
+            throw new IllegalArgumentException("latencyThreshold must be positive");
+        }
+        if (!(increaseStep >= 0) || Double.isInfinite(increaseStep)) {
+            throw new IllegalArgumentException("increaseStep must be finite and >= 0");
+        }
+        if (!(decreaseFactor > 0 && decreaseFactor < 1)) {
+            throw new IllegalArgumentException("decreaseFactor must be in (0, 1)");
+        }
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+    }
+
+    public static AdaptiveLimiterSpecBuilder builder() {
+        return new AdaptiveLimiterSpecBuilder();
+    }
+
+    /**
+     * @return the bucket configuration; its refill rate is the initial rate.
+     */
+    public TokenBucketSpec bucketSpec() {
+        return bucketSpec;
+    }
+
+    /**
+     * @return the lowest rate, in tokens per second.
+     */
+    public double minRate() {
+        return minRate;
+    }
+
+    /**
+     * @return the highest rate, in tokens per second.
+     */
+    public double maxRate() {
+        return maxRate;
+    }
+
+    /**
+     * @return the latency above which a call counts as congested.
+     */
+    public Duration latencyThreshold() {
+        return latencyThreshold;
+    }
+
+    /**
+     * @return tokens per second added after a healthy window.
+     */
+    public double increaseStep() {
+        return increaseStep;
+    }
+
+    /**
+     * @return the factor the rate is multiplied by after a congested window.
+     */
+    public double decreaseFactor() {
+        return decreaseFactor;
+    }
+
+    /**
+     * @return the length of a sampling window.
+     */
+    public Duration window() {
+        return window;
+    }
+}
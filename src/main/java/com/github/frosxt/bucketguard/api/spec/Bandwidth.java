@@ -0,0 +1,32 @@
+package com.github.frosxt.bucketguard.api.spec;
+
+import java.time.Duration;
+
+/**
+ * An additional rate limit enforced by a token bucket alongside its primary
+ * capacity and refill rate, for example a sustained 500 per minute on top of
+ * a 10 per second burst limit.
+ *
+ * @param capacity     maximum tokens, must be >= 1
+ * @param refillTokens tokens added per period, must be >= 1
+ * @param refillPeriod period for refill, must be > 0
+ */
+public record Bandwidth(long capacity, long refillTokens, Duration refillPeriod) {
+
+    public Bandwidth {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+        if (refillTokens < 1) {
+            throw new IllegalArgumentException("refillTokens must be >= 1");
+        }
+        if (refillPeriod == null || refillPeriod.isZero() || refillPeriod.isNegative()) {
+            throw new IllegalArgumentException("refillPeriod must be > 0");
+        }
+        try {
+            refillPeriod.toNanos();
+        } catch (final ArithmeticException e) {
+            throw new IllegalArgumentException("refillPeriod overflow", e);
+        }
+    }
+}
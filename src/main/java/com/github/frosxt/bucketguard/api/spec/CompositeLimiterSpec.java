@@ -0,0 +1,64 @@
+package com.github.frosxt.bucketguard.api.spec;
+
+import com.github.frosxt.bucketguard.api.spec.builder.CompositeLimiterSpecBuilder;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Configuration for a composite limiter that checks a chain of buckets, for
+ * example per key, then per tenant, then global, as one decision.
+ *
+ * @param <K> the type of key
+ */
+public final class CompositeLimiterSpec<K> {
+    private final List<Stage<K>> stages;
+
+    public CompositeLimiterSpec(final CompositeLimiterSpecBuilder<K> builder) {
+        this.stages = List.copyOf(builder.getStages());
+
+        validate();
+    }
+
+    private void validate() {
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("at least one stage is required");
+        }
+    }
+
+    public static <K> CompositeLimiterSpecBuilder<K> builder() {
+        return new CompositeLimiterSpecBuilder<>();
+    }
+
+    /**
+     * @return the stages, in evaluation order.
+     */
+    public List<Stage<K>> stages() {
+        return stages;
+    }
+
+    /**
+     * One bucket level of a composite limiter.
+     *
+     * @param classifier maps the request key to this stage's key, or null to use
+     *                   the request key itself; ignored for global stages
+     * @param bucketSpec bucket configuration for this stage
+     * @param storeSpec  key storage for this stage, or null for a single global
+     *                   bucket
+     * @param <K>        the type of request key
+     */
+    public record Stage<K>(Function<? super K, ?> classifier, TokenBucketSpec bucketSpec, KeyedStoreSpec<?> storeSpec) {
+
+        public Stage {
+            Objects.requireNonNull(bucketSpec, "bucketSpec");
+        }
+
+        /**
+         * @return {@code true} if this stage keeps a bucket per key.
+         */
+        public boolean keyed() {
+            return storeSpec != null;
+        }
+    }
+}
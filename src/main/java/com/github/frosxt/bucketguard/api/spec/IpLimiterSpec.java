@@ -0,0 +1,75 @@
+package com.github.frosxt.bucketguard.api.spec;
+
+import com.github.frosxt.bucketguard.api.spec.builder.IpLimiterSpecBuilder;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Configuration for an IP limiter that applies one bucket per address prefix,
+ * for example per /32, per /24 and per /16 for IPv4 and per /64 and per /48
+ * for IPv6.
+ * <p>
+ * A request is granted only if the buckets of every configured prefix of its
+ * address family grant it. Levels are evaluated in the order they were added.
+ */
+public final class IpLimiterSpec {
+    private final List<Level> ipv4Levels;
+    private final List<Level> ipv6Levels;
+
+    public IpLimiterSpec(final IpLimiterSpecBuilder builder) {
+        this.ipv4Levels = List.copyOf(builder.getIpv4Levels());
+        this.ipv6Levels = List.copyOf(builder.getIpv6Levels());
+
+        validate();
+    }
+
+    private void validate() {
+        if (ipv4Levels.isEmpty() && ipv6Levels.isEmpty()) {
+            throw new IllegalArgumentException("at least one prefix level is required");
+        }
+        for (final Level level : ipv4Levels) {
+            if (level.prefixLength() > 32) {
+                throw new IllegalArgumentException("IPv4 prefix length must be within [0, 32]");
+            }
+        }
+    }
+
+    public static IpLimiterSpecBuilder builder() {
+        return new IpLimiterSpecBuilder();
+    }
+
+    /**
+     * @return the IPv4 levels, in evaluation order.
+     */
+    public List<Level> ipv4Levels() {
+        return ipv4Levels;
+    }
+
+    /**
+     * @return the IPv6 levels, in evaluation order.
+     */
+    public List<Level> ipv6Levels() {
+        return ipv6Levels;
+    }
+
+    /**
+     * One prefix level of an IP limiter.
+     *
+     * @param prefixLength number of leading address bits that identify a bucket
+     * @param bucketSpec   bucket configuration for each prefix at this level;
+     *                     additional bandwidths are not supported
+     */
+    public record Level(int prefixLength, TokenBucketSpec bucketSpec) {
+
+        public Level {
+            Objects.requireNonNull(bucketSpec, "bucketSpec");
+            if (prefixLength < 0 || prefixLength > 128) {
+                throw new IllegalArgumentException("prefixLength must be within [0, 128]");
+            }
+            if (!bucketSpec.bandwidths().isEmpty()) {
+                throw new IllegalArgumentException("prefix levels do not support additional bandwidths");
+            }
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.github.frosxt.bucketguard.api.spec;
 
+import com.github.frosxt.bucketguard.api.RemovalListener;
 import com.github.frosxt.bucketguard.api.spec.builder.KeyedStoreSpecBuilder;
 
 import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 /**
@@ -19,16 +21,32 @@ public final class KeyedStoreSpec<K> {
     private final Duration expireAfterAccess;
     private final EvictionPolicy evictionPolicy;
     private final Consumer<K> removalListener;
+    private final RemovalListener<K> removalNotificationListener;
+    private final Executor removalExecutor;
+    private final int removalBufferSize;
     private final boolean maintenanceEnabled;
     private final Duration maintenancePeriod;
+    private final int maintenanceMaxEntries;
+    private final Duration maintenanceMaxTime;
+    private final int heavyHitterCapacity;
+    private final int sketchDepth;
+    private final int sketchWidth;
 
     public KeyedStoreSpec(final KeyedStoreSpecBuilder<K> builder) {
         this.maxKeys = builder.getMaxKeys();
         this.expireAfterAccess = builder.getExpireAfterAccess();
         this.evictionPolicy = builder.getEvictionPolicy();
         this.removalListener = builder.getRemovalListener();
+        this.removalNotificationListener = builder.getRemovalNotificationListener();
+        this.removalExecutor = builder.getRemovalExecutor();
+        this.removalBufferSize = builder.getRemovalBufferSize();
         this.maintenanceEnabled = builder.isMaintenanceEnabled();
         this.maintenancePeriod = builder.getMaintenancePeriod() != null ? builder.getMaintenancePeriod() : DEFAULT_MAINTENANCE_PERIOD;
+        this.maintenanceMaxEntries = builder.getMaintenanceMaxEntries();
+        this.maintenanceMaxTime = builder.getMaintenanceMaxTime();
+        this.heavyHitterCapacity = builder.getHeavyHitterCapacity();
+        this.sketchDepth = builder.getSketchDepth();
+        this.sketchWidth = builder.getSketchWidth();
 
         validate();
     }
@@ -60,6 +78,38 @@ public final class KeyedStoreSpec<K> {
                 throw new IllegalArgumentException("maintenancePeriod overflow", e);
             }
         }
+        if (maintenanceMaxEntries < 1) {
+            throw new IllegalArgumentException("maintenanceMaxEntries must be >= 1");
+        }
+        Objects.requireNonNull(maintenanceMaxTime, "maintenanceMaxTime");
+        if (maintenanceMaxTime.isZero() || maintenanceMaxTime.isNegative()) {
+            throw new IllegalArgumentException("maintenanceMaxTime must be > 0");
+        }
+        try {
+            maintenanceMaxTime.toNanos();
+        } catch (final ArithmeticException e) {
+            throw new IllegalArgumentException("maintenanceMaxTime overflow", e);
+        }
+        if (removalBufferSize < 1) {
+            throw new IllegalArgumentException("removalBufferSize must be >= 1");
+        }
+        if (heavyHitterCapacity < 0) {
+            throw new IllegalArgumentException("heavyHitterCapacity must be >= 0");
+        }
+        if (sketchWidth != 0) {
+            if (sketchDepth < 1) {
+                throw new IllegalArgumentException("sketch depth must be >= 1");
+            }
+            if (sketchWidth < 0 || Integer.bitCount(sketchWidth) != 1) {
+                throw new IllegalArgumentException("sketch width must be a power of two");
+            }
+            if ((long) sketchDepth * sketchWidth > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("sketch depth * width too large");
+            }
+            if (evictionPolicy != EvictionPolicy.NONE) {
+                throw new IllegalArgumentException("EvictionPolicy must be NONE for an approximate store");
+            }
+        }
     }
 
     public static <K> KeyedStoreSpecBuilder<K> builder() {
@@ -98,6 +148,29 @@ public final class KeyedStoreSpec<K> {
         return removalListener;
     }
 
+    /**
+     * @return the listener invoked with the cause and final state of each
+     *         removed key, or null.
+     */
+    public RemovalListener<K> removalNotificationListener() {
+        return removalNotificationListener;
+    }
+
+    /**
+     * @return the executor removals are delivered on, or null for synchronous
+     *         delivery.
+     */
+    public Executor removalExecutor() {
+        return removalExecutor;
+    }
+
+    /**
+     * @return the maximum number of removals queued for the executor.
+     */
+    public int removalBufferSize() {
+        return removalBufferSize;
+    }
+
     /**
      * @return {@code true} if maintenance should be started automatically when a
      *         scheduler is provided.
@@ -112,4 +185,49 @@ public final class KeyedStoreSpec<K> {
     public Duration maintenancePeriod() {
         return maintenancePeriod;
     }
+
+    /**
+     * @return the maximum number of keys a maintenance tick examines.
+     *         Defaults to 10,000.
+     */
+    public int maintenanceMaxEntries() {
+        return maintenanceMaxEntries;
+    }
+
+    /**
+     * @return the time budget of a maintenance tick. Defaults to 1 ms.
+     */
+    public Duration maintenanceMaxTime() {
+        return maintenanceMaxTime;
+    }
+
+    /**
+     * @return the number of keys monitored by heavy-hitter tracking, or 0 if
+     *         tracking is disabled.
+     */
+    public int heavyHitterCapacity() {
+        return heavyHitterCapacity;
+    }
+
+    /**
+     * @return {@code true} if keys share a fixed-size sketch instead of
+     *         having their own buckets.
+     */
+    public boolean approximate() {
+        return sketchWidth != 0;
+    }
+
+    /**
+     * @return the number of sketch rows, or 0 if not approximate.
+     */
+    public int sketchDepth() {
+        return sketchDepth;
+    }
+
+    /**
+     * @return the number of cells per sketch row, or 0 if not approximate.
+     */
+    public int sketchWidth() {
+        return sketchWidth;
+    }
 }
@@ -0,0 +1,123 @@
+package com.github.frosxt.bucketguard.api.spec;
+
+import com.github.frosxt.bucketguard.api.lease.LeaseBackend;
+import com.github.frosxt.bucketguard.api.spec.builder.LeaseLimiterSpecBuilder;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Configuration for a lease-based limiter.
+ * <p>
+ * The limiter leases tokens for the bucket {@link #name()} from
+ * {@link #backend()} and renews on {@link #renewalExecutor()} when its local
+ * tokens run low. Each lease asks for about {@link #leaseDuration()} worth of
+ * the local consumption rate, within [{@link #minLease()},
+ * {@link #maxLease()}]; the first asks for {@link #initialLease()}.
+ */
+public final class LeaseLimiterSpec {
+    private final String name;
+    private final LeaseBackend backend;
+    private final Executor renewalExecutor;
+    private final TokenBucketSpec bucketSpec;
+    private final long minLease;
+    private final long maxLease;
+    private final long initialLease;
+    private final Duration leaseDuration;
+
+    public LeaseLimiterSpec(final LeaseLimiterSpecBuilder builder) {
+        this.name = builder.getName();
+        this.backend = builder.getBackend();
+        this.renewalExecutor = builder.getRenewalExecutor();
+        this.bucketSpec = builder.getBucketSpec();
+        this.minLease = builder.getMinLease();
+        this.maxLease = builder.getMaxLease();
+        this.initialLease = builder.getInitialLease();
+        this.leaseDuration = builder.getLeaseDuration();
+
+        validate();
+    }
+
+    private void validate() {
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(backend, "backend");
+        Objects.requireNonNull(renewalExecutor, "renewalExecutor");
+        Objects.requireNonNull(bucketSpec, "bucketSpec");
+        Objects.requireNonNull(leaseDuration, "leaseDuration");
+
+        if (minLease < 1) {
+            throw new IllegalArgumentException("minLease must be >= 1");
+        }
+        if (maxLease < minLease) {
+            throw new IllegalArgumentException("maxLease must be >= minLease");
+        }
+        if (initialLease < minLease || initialLease > maxLease) {
+            throw new IllegalArgumentException("initialLease must be within [minLease, maxLease]");
+        }
+        if (leaseDuration.isNegative() || leaseDuration.isZero()) {
+            throw new IllegalArgumentException("leaseDuration must be positive");
+        }
+    }
+
+    public static LeaseLimiterSpecBuilder builder() {
+        return new LeaseLimiterSpecBuilder();
+    }
+
+    /**
+     * @return the name of the shared bucket in the backend.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the backend tokens are leased from.
+     */
+    public LeaseBackend backend() {
+        return backend;
+    }
+
+    /**
+     * @return the executor lease renewals run on.
+     */
+    public Executor renewalExecutor() {
+        return renewalExecutor;
+    }
+
+    /**
+     * @return the local configuration: its time source, contention strategy,
+     *         metrics setting and reported capacity and refill rate.
+     */
+    public TokenBucketSpec bucketSpec() {
+        return bucketSpec;
+    }
+
+    /**
+     * @return the smallest lease requested.
+     */
+    public long minLease() {
+        return minLease;
+    }
+
+    /**
+     * @return the largest lease requested.
+     */
+    public long maxLease() {
+        return maxLease;
+    }
+
+    /**
+     * @return the size of the first lease.
+     */
+    public long initialLease() {
+        return initialLease;
+    }
+
+    /**
+     * @return how long a lease should last at the local consumption rate.
+     */
+    public Duration leaseDuration() {
+        return leaseDuration;
+    }
+}
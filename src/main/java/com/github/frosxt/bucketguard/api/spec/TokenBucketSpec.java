@@ -4,6 +4,7 @@ import com.github.frosxt.bucketguard.api.spec.builder.TokenBucketSpecBuilder;
 import com.github.frosxt.bucketguard.api.time.TimeSource;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -17,6 +18,8 @@ public final class TokenBucketSpec {
     private final TimeSource timeSource;
     private final boolean strictMath;
     private final boolean allowBurst;
+    private final boolean metricsEnabled;
+    private final List<Bandwidth> bandwidths;
 
     public TokenBucketSpec(final TokenBucketSpecBuilder builder) {
         this.capacity = builder.getCapacity();
@@ -26,6 +29,8 @@ public final class TokenBucketSpec {
         this.timeSource = builder.getTimeSource();
         this.strictMath = builder.isStrictMath();
         this.allowBurst = builder.isAllowBurst();
+        this.metricsEnabled = builder.isMetricsEnabled();
+        this.bandwidths = List.copyOf(builder.getBandwidths());
         validate();
     }
 
@@ -102,4 +107,19 @@ public final class TokenBucketSpec {
     public boolean allowBurst() {
         return allowBurst;
     }
+
+    /**
+     * @return true if limiters built from this spec record metrics.
+     */
+    public boolean metricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * @return limits enforced in addition to the primary capacity and refill
+     *         rate; empty for a single-rate bucket.
+     */
+    public List<Bandwidth> bandwidths() {
+        return bandwidths;
+    }
 }
@@ -0,0 +1,124 @@
+package com.github.frosxt.bucketguard.api.spec.builder;
+
+import com.github.frosxt.bucketguard.api.spec.AdaptiveLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+
+import java.time.Duration;
+
+/**
+ * Builder for {@link AdaptiveLimiterSpec}.
+ */
+public final class AdaptiveLimiterSpecBuilder {
+    private TokenBucketSpec bucketSpec;
+    private double minRate = 1;
+    private double maxRate = 1_000;
+    private Duration latencyThreshold = Duration.ofMillis(250);
+    private double increaseStep = 1;
+    private double decreaseFactor = 0.5;
+    private Duration window = Duration.ofSeconds(1);
+
+    public TokenBucketSpec getBucketSpec() {
+        return bucketSpec;
+    }
+
+    public double getMinRate() {
+        return minRate;
+    }
+
+    public double getMaxRate() {
+        return maxRate;
+    }
+
+    public Duration getLatencyThreshold() {
+        return latencyThreshold;
+    }
+
+    public double getIncreaseStep() {
+        return increaseStep;
+    }
+
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    /**
+     * Sets the bucket configuration. Its refill rate is the initial rate.
+     *
+     * @param bucketSpec not null.
+     * @return this builder.
+     */
+    public AdaptiveLimiterSpecBuilder bucketSpec(final TokenBucketSpec bucketSpec) {
+        this.bucketSpec = bucketSpec;
+        return this;
+    }
+
+    /**
+     * Sets the bounds of the rate, in tokens per second.
+     *
+     * @param minRate must be > 0.
+     * @param maxRate must be >= minRate.
+     * @return this builder.
+     */
+    public AdaptiveLimiterSpecBuilder rateBounds(final double minRate, final double maxRate) {
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        return this;
+    }
+
+    /**
+     * Sets the latency above which a call counts as congested.
+     *
+     * @param latencyThreshold must be positive.
+     * @return this builder.
+     */
+    public AdaptiveLimiterSpecBuilder latencyThreshold(final Duration latencyThreshold) {
+        this.latencyThreshold = latencyThreshold;
+        return this;
+    }
+
+    /**
+     * Sets the tokens per second added after a healthy window.
+     *
+     * @param increaseStep must be >= 0.
+     * @return this builder.
+     */
+    public AdaptiveLimiterSpecBuilder increaseStep(final double increaseStep) {
+        this.increaseStep = increaseStep;
+        return this;
+    }
+
+    /**
+     * Sets the factor the rate is multiplied by after a congested window.
+     *
+     * @param decreaseFactor must be in (0, 1).
+     * @return this builder.
+     */
+    public AdaptiveLimiterSpecBuilder decreaseFactor(final double decreaseFactor) {
+        this.decreaseFactor = decreaseFactor;
+        return this;
+    }
+
+    /**
+     * Sets the length of a sampling window.
+     *
+     * @param window must be positive.
+     * @return this builder.
+     */
+    public AdaptiveLimiterSpecBuilder window(final Duration window) {
+        this.window = window;
+        return this;
+    }
+
+    /**
+     * Builds the spec.
+     *
+     * @return a new {@link AdaptiveLimiterSpec}.
+     */
+    public AdaptiveLimiterSpec build() {
+        return new AdaptiveLimiterSpec(this);
+    }
+}
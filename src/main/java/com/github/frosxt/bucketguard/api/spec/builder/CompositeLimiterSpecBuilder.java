@@ -0,0 +1,77 @@
+package com.github.frosxt.bucketguard.api.spec.builder;
+
+import com.github.frosxt.bucketguard.api.spec.CompositeLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Builder for {@link CompositeLimiterSpec}.
+ * <p>
+ * Stages are evaluated in the order they are added. Put the stage most likely
+ * to reject first, so that rejections roll back as little as possible.
+ *
+ * @param <K> key type
+ */
+public final class CompositeLimiterSpecBuilder<K> {
+    private final List<CompositeLimiterSpec.Stage<K>> stages = new ArrayList<>();
+
+    public List<CompositeLimiterSpec.Stage<K>> getStages() {
+        return stages;
+    }
+
+    /**
+     * Adds a stage with a bucket per request key.
+     *
+     * @param bucketSpec bucket configuration, not null.
+     * @param storeSpec  key storage configuration, not null.
+     * @return this builder.
+     */
+    public CompositeLimiterSpecBuilder<K> perKey(final TokenBucketSpec bucketSpec, final KeyedStoreSpec<K> storeSpec) {
+        Objects.requireNonNull(storeSpec, "storeSpec");
+        stages.add(new CompositeLimiterSpec.Stage<>(null, bucketSpec, storeSpec));
+        return this;
+    }
+
+    /**
+     * Adds a stage with a bucket per derived key, for example the tenant a
+     * user belongs to.
+     *
+     * @param classifier maps request keys to this stage's keys, not null.
+     * @param bucketSpec bucket configuration, not null.
+     * @param storeSpec  key storage configuration, not null.
+     * @param <T>        stage key type
+     * @return this builder.
+     */
+    public <T> CompositeLimiterSpecBuilder<K> perKey(final Function<? super K, ? extends T> classifier, final TokenBucketSpec bucketSpec,
+            final KeyedStoreSpec<T> storeSpec) {
+        Objects.requireNonNull(classifier, "classifier");
+        Objects.requireNonNull(storeSpec, "storeSpec");
+        stages.add(new CompositeLimiterSpec.Stage<>(classifier, bucketSpec, storeSpec));
+        return this;
+    }
+
+    /**
+     * Adds a stage with a single bucket shared by all keys.
+     *
+     * @param bucketSpec bucket configuration, not null.
+     * @return this builder.
+     */
+    public CompositeLimiterSpecBuilder<K> global(final TokenBucketSpec bucketSpec) {
+        stages.add(new CompositeLimiterSpec.Stage<>(null, bucketSpec, null));
+        return this;
+    }
+
+    /**
+     * Builds the spec.
+     *
+     * @return a new {@link CompositeLimiterSpec}.
+     */
+    public CompositeLimiterSpec<K> build() {
+        return new CompositeLimiterSpec<>(this);
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.frosxt.bucketguard.api.spec.builder;
+
+import com.github.frosxt.bucketguard.api.spec.IpLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builder for {@link IpLimiterSpec}.
+ * <p>
+ * Levels are evaluated in the order they are added. Put the level most likely
+ * to reject first, usually the longest prefix, so that rejections roll back as
+ * little as possible.
+ */
+public final class IpLimiterSpecBuilder {
+    private final List<IpLimiterSpec.Level> ipv4Levels = new ArrayList<>();
+    private final List<IpLimiterSpec.Level> ipv6Levels = new ArrayList<>();
+
+    public List<IpLimiterSpec.Level> getIpv4Levels() {
+        return ipv4Levels;
+    }
+
+    public List<IpLimiterSpec.Level> getIpv6Levels() {
+        return ipv6Levels;
+    }
+
+    /**
+     * Adds an IPv4 level.
+     *
+     * @param prefixLength leading bits per bucket, within [0, 32].
+     * @param bucketSpec   bucket configuration, not null.
+     * @return this builder.
+     */
+    public IpLimiterSpecBuilder ipv4(final int prefixLength, final TokenBucketSpec bucketSpec) {
+        ipv4Levels.add(new IpLimiterSpec.Level(prefixLength, bucketSpec));
+        return this;
+    }
+
+    /**
+     * Adds an IPv6 level.
+     *
+     * @param prefixLength leading bits per bucket, within [0, 128].
+     * @param bucketSpec   bucket configuration, not null.
+     * @return this builder.
+     */
+    public IpLimiterSpecBuilder ipv6(final int prefixLength, final TokenBucketSpec bucketSpec) {
+        ipv6Levels.add(new IpLimiterSpec.Level(prefixLength, bucketSpec));
+        return this;
+    }
+
+    /**
+     * Builds the spec.
+     *
+     * @return a new {@link IpLimiterSpec}.
+     */
+    public IpLimiterSpec build() {
+        return new IpLimiterSpec(this);
+    }
+}
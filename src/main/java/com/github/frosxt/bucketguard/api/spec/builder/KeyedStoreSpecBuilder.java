@@ -1,9 +1,11 @@
 package com.github.frosxt.bucketguard.api.spec.builder;
 
+import com.github.frosxt.bucketguard.api.RemovalListener;
 import com.github.frosxt.bucketguard.api.spec.EvictionPolicy;
 import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
 
 import java.time.Duration;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 /**
@@ -16,8 +18,16 @@ public final class KeyedStoreSpecBuilder<K> {
     private Duration expireAfterAccess = null;
     private EvictionPolicy evictionPolicy = EvictionPolicy.NONE;
     private Consumer<K> removalListener = null;
+    private RemovalListener<K> removalNotificationListener = null;
+    private Executor removalExecutor = null;
+    private int removalBufferSize = 1024;
     private boolean maintenanceEnabled = false;
     private Duration maintenancePeriod = null;
+    private int maintenanceMaxEntries = 10_000;
+    private Duration maintenanceMaxTime = Duration.ofMillis(1);
+    private int heavyHitterCapacity = 0;
+    private int sketchDepth = 0;
+    private int sketchWidth = 0;
 
     public int getMaxKeys() {
         return maxKeys;
@@ -35,6 +45,18 @@ public final class KeyedStoreSpecBuilder<K> {
         return removalListener;
     }
 
+    public RemovalListener<K> getRemovalNotificationListener() {
+        return removalNotificationListener;
+    }
+
+    public Executor getRemovalExecutor() {
+        return removalExecutor;
+    }
+
+    public int getRemovalBufferSize() {
+        return removalBufferSize;
+    }
+
     public boolean isMaintenanceEnabled() {
         return maintenanceEnabled;
     }
@@ -43,6 +65,26 @@ public final class KeyedStoreSpecBuilder<K> {
         return maintenancePeriod;
     }
 
+    public int getMaintenanceMaxEntries() {
+        return maintenanceMaxEntries;
+    }
+
+    public Duration getMaintenanceMaxTime() {
+        return maintenanceMaxTime;
+    }
+
+    public int getHeavyHitterCapacity() {
+        return heavyHitterCapacity;
+    }
+
+    public int getSketchDepth() {
+        return sketchDepth;
+    }
+
+    public int getSketchWidth() {
+        return sketchWidth;
+    }
+
     /**
      * Sets the maximum number of keys.
      * 
@@ -87,11 +129,45 @@ public final class KeyedStoreSpecBuilder<K> {
         return this;
     }
 
+    /**
+     * Sets a listener that receives each removed key with its cause and the
+     * final state of its bucket.
+     *
+     * @param removalNotificationListener listener to invoke on removal.
+     * @return this builder.
+     */
+    public KeyedStoreSpecBuilder<K> removalNotificationListener(final RemovalListener<K> removalNotificationListener) {
+        this.removalNotificationListener = removalNotificationListener;
+        return this;
+    }
+
+    /**
+     * Delivers removals to the listeners on the given executor, in batches,
+     * instead of on the thread that removed the key.
+     * <p>
+     * Up to {@code bufferSize} removals are queued; beyond that, removals are
+     * delivered on the removing thread, which slows it down until the
+     * listeners catch up. Defaults to synchronous delivery.
+     *
+     * @param removalExecutor executor for deliveries, or null for synchronous delivery.
+     * @param bufferSize      maximum queued removals, must be >= 1.
+     * @return this builder.
+     */
+    public KeyedStoreSpecBuilder<K> removalExecutor(final Executor removalExecutor, final int bufferSize) {
+        this.removalExecutor = removalExecutor;
+        this.removalBufferSize = bufferSize;
+        return this;
+    }
+
     /**
      * Enables or disables automatic maintenance scheduling.
      * <p>
-     * When enabled and a scheduler is passed to startMaintenance/factory,
-     * prune tasks will be scheduled at the configured period.
+     * When enabled, limiters created by the factory start maintenance at the
+     * configured period, on the given scheduler if one is passed and
+     * otherwise on the process-wide maintenance thread. Without a
+     * {@linkplain #removalExecutor(Executor, int) removal executor}, removal
+     * listeners are called for expired keys on that thread, which every
+     * limiter shares, so they should return quickly.
      *
      * @param maintenanceEnabled true to enable.
      * @return this builder.
@@ -114,6 +190,60 @@ public final class KeyedStoreSpecBuilder<K> {
         return this;
     }
 
+    /**
+     * Bounds each scheduled maintenance tick.
+     * <p>
+     * A tick examines at most {@code maxEntries} keys or runs for about
+     * {@code maxTime}, then yields; the next tick resumes where it stopped.
+     * Ticks come faster than the maintenance period while many keys are
+     * expiring and slower while none are. Defaults to 10,000 keys and 1 ms.
+     *
+     * @param maxEntries maximum keys examined per tick, must be >= 1.
+     * @param maxTime    time budget per tick, must be > 0.
+     * @return this builder.
+     */
+    public KeyedStoreSpecBuilder<K> maintenanceBudget(final int maxEntries, final Duration maxTime) {
+        this.maintenanceMaxEntries = maxEntries;
+        this.maintenanceMaxTime = maxTime;
+        return this;
+    }
+
+    /**
+     * Enables tracking of the keys with the most traffic and the most
+     * throttled requests.
+     * <p>
+     * Memory is fixed at {@code heavyHitterCapacity} monitored keys per
+     * ranking; counts are approximate once more distinct keys than that are
+     * seen. Defaults to 0 (disabled).
+     *
+     * @param heavyHitterCapacity number of keys to monitor, must be >= 0.
+     * @return this builder.
+     */
+    public KeyedStoreSpecBuilder<K> heavyHitterCapacity(final int heavyHitterCapacity) {
+        this.heavyHitterCapacity = heavyHitterCapacity;
+        return this;
+    }
+
+    /**
+     * Replaces per-key buckets with a fixed {@code depth x width} sketch of
+     * arrival times shared by all keys.
+     * <p>
+     * Memory stays constant however many keys are seen, and nothing is ever
+     * evicted. Keys whose hashes collide in every row may be throttled early,
+     * but no key is ever allowed more than its rate. Per-key snapshots are
+     * estimates and the key count is not tracked. Requires
+     * {@link EvictionPolicy#NONE}.
+     *
+     * @param depth number of hash rows, must be >= 1.
+     * @param width cells per row, must be a power of two.
+     * @return this builder.
+     */
+    public KeyedStoreSpecBuilder<K> approximate(final int depth, final int width) {
+        this.sketchDepth = depth;
+        this.sketchWidth = width;
+        return this;
+    }
+
     /**
      * Builds the spec.
      * 
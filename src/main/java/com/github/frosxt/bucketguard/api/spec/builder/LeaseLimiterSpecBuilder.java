@@ -0,0 +1,143 @@
+package com.github.frosxt.bucketguard.api.spec.builder;
+
+import com.github.frosxt.bucketguard.api.lease.LeaseBackend;
+import com.github.frosxt.bucketguard.api.spec.LeaseLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builder for {@link LeaseLimiterSpec}.
+ */
+public final class LeaseLimiterSpecBuilder {
+    private String name;
+    private LeaseBackend backend;
+    private Executor renewalExecutor = ForkJoinPool.commonPool();
+    private TokenBucketSpec bucketSpec = TokenBucketSpec.builder().build();
+    private long minLease = 1;
+    private long maxLease = 1_000;
+    private long initialLease = 10;
+    private Duration leaseDuration = Duration.ofSeconds(1);
+
+    public String getName() {
+        return name;
+    }
+
+    public LeaseBackend getBackend() {
+        return backend;
+    }
+
+    public Executor getRenewalExecutor() {
+        return renewalExecutor;
+    }
+
+    public TokenBucketSpec getBucketSpec() {
+        return bucketSpec;
+    }
+
+    public long getMinLease() {
+        return minLease;
+    }
+
+    public long getMaxLease() {
+        return maxLease;
+    }
+
+    public long getInitialLease() {
+        return initialLease;
+    }
+
+    public Duration getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    /**
+     * Sets the name of the shared bucket in the backend.
+     *
+     * @param name not null.
+     * @return this builder.
+     */
+    public LeaseLimiterSpecBuilder name(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Sets the backend tokens are leased from.
+     *
+     * @param backend not null.
+     * @return this builder.
+     */
+    public LeaseLimiterSpecBuilder backend(final LeaseBackend backend) {
+        this.backend = backend;
+        return this;
+    }
+
+    /**
+     * Sets the executor lease renewals run on. Defaults to the common pool.
+     *
+     * @param renewalExecutor not null.
+     * @return this builder.
+     */
+    public LeaseLimiterSpecBuilder renewalExecutor(final Executor renewalExecutor) {
+        this.renewalExecutor = renewalExecutor;
+        return this;
+    }
+
+    /**
+     * Sets the local configuration.
+     *
+     * @param bucketSpec not null.
+     * @return this builder.
+     */
+    public LeaseLimiterSpecBuilder bucketSpec(final TokenBucketSpec bucketSpec) {
+        this.bucketSpec = bucketSpec;
+        return this;
+    }
+
+    /**
+     * Sets the bounds of the lease size.
+     *
+     * @param minLease must be >= 1.
+     * @param maxLease must be >= minLease.
+     * @return this builder.
+     */
+    public LeaseLimiterSpecBuilder leaseBounds(final long minLease, final long maxLease) {
+        this.minLease = minLease;
+        this.maxLease = maxLease;
+        return this;
+    }
+
+    /**
+     * Sets the size of the first lease.
+     *
+     * @param initialLease must be within the lease bounds.
+     * @return this builder.
+     */
+    public LeaseLimiterSpecBuilder initialLease(final long initialLease) {
+        this.initialLease = initialLease;
+        return this;
+    }
+
+    /**
+     * Sets how long a lease should last at the local consumption rate.
+     *
+     * @param leaseDuration must be positive.
+     * @return this builder.
+     */
+    public LeaseLimiterSpecBuilder leaseDuration(final Duration leaseDuration) {
+        this.leaseDuration = leaseDuration;
+        return this;
+    }
+
+    /**
+     * Builds the spec.
+     *
+     * @return a new {@link LeaseLimiterSpec}.
+     */
+    public LeaseLimiterSpec build() {
+        return new LeaseLimiterSpec(this);
+    }
+}
@@ -1,10 +1,14 @@
 package com.github.frosxt.bucketguard.api.spec.builder;
 
+import com.github.frosxt.bucketguard.api.spec.Bandwidth;
 import com.github.frosxt.bucketguard.api.spec.ContentionStrategy;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
 import com.github.frosxt.bucketguard.api.time.TimeSource;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Builder for {@link TokenBucketSpec}.
@@ -17,6 +21,8 @@ public final class TokenBucketSpecBuilder {
     private TimeSource timeSource = TimeSource.system();
     private boolean strictMath = true;
     private boolean allowBurst = true;
+    private boolean metricsEnabled = false;
+    private final List<Bandwidth> bandwidths = new ArrayList<>();
 
     public long getCapacity() {
         return capacity;
@@ -46,6 +52,14 @@ public final class TokenBucketSpecBuilder {
         return allowBurst;
     }
 
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public List<Bandwidth> getBandwidths() {
+        return bandwidths;
+    }
+
     /**
      * Sets the maximum capacity of tokens.
      * 
@@ -123,6 +137,32 @@ public final class TokenBucketSpecBuilder {
         return this;
     }
 
+    /**
+     * Sets whether limiters built from this spec record {@link com.github.frosxt.bucketguard.api.LimiterMetrics}.
+     * <p>
+     * Disabled by default.
+     * 
+     * @param metricsEnabled true to enable.
+     * @return this builder.
+     */
+    public TokenBucketSpecBuilder metricsEnabled(final boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+        return this;
+    }
+
+    /**
+     * Adds a limit enforced together with the primary capacity and refill
+     * rate. A request is granted only if every limit allows it, and all of
+     * them are updated in one atomic step.
+     *
+     * @param bandwidth must not be null.
+     * @return this builder.
+     */
+    public TokenBucketSpecBuilder addBandwidth(final Bandwidth bandwidth) {
+        this.bandwidths.add(Objects.requireNonNull(bandwidth, "bandwidth"));
+        return this;
+    }
+
     /**
      * Builds the spec.
      * 
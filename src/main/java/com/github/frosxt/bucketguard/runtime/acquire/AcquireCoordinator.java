@@ -4,6 +4,9 @@ import com.github.frosxt.bucketguard.api.Permit;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
 import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
 import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.runtime.jfr.AcquireWaitEvent;
+import com.github.frosxt.bucketguard.runtime.jfr.JfrEvents;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
 import java.util.concurrent.locks.LockSupport;
 
@@ -13,10 +16,16 @@ import java.util.concurrent.locks.LockSupport;
 public final class AcquireCoordinator {
     private final Bucket bucket;
     private final TokenBucketSpec spec;
+    private final MetricsRecorder metrics;
 
     public AcquireCoordinator(final Bucket bucket, final TokenBucketSpec spec) {
+        this(bucket, spec, MetricsRecorder.NOOP);
+    }
+
+    public AcquireCoordinator(final Bucket bucket, final TokenBucketSpec spec, final MetricsRecorder metrics) {
         this.bucket = bucket;
         this.spec = spec;
+        this.metrics = metrics;
     }
 
     /**
@@ -31,10 +40,43 @@ public final class AcquireCoordinator {
         }
 
         if (!spec.allowBurst() && tokens > 1) {
-            return new SimplePermit(false, tokens, 0, spec.refillPeriod().toNanos());
+            metrics.rejected();
+            // The bucket reports the period in force after any reconfiguration
+            final long retryNanos = bucket.refillPeriodNanos();
+            JfrEvents.throttled(null, tokens, retryNanos);
+            return new SimplePermit(false, tokens, 0, retryNanos);
+        }
+
+        final Permit permit = bucket.tryAcquire(tokens, spec.timeSource().nanoTime());
+        if (permit.granted()) {
+            metrics.granted(tokens);
+        } else {
+            metrics.rejected();
+            JfrEvents.throttled(null, tokens, permit.retryAfterNanos());
+        }
+        return permit;
+    }
+
+    /**
+     * Acquires as many tokens as are available, up to {@code max}.
+     *
+     * @param max most tokens to acquire
+     * @return result permit
+     */
+    public Permit tryAcquireUpTo(final long max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be >= 1");
         }
 
-        return bucket.tryAcquire(tokens, spec.timeSource().nanoTime());
+        // Without bursting, tokens are granted one at a time
+        final Permit permit = bucket.tryAcquireUpTo(spec.allowBurst() ? max : 1, spec.timeSource().nanoTime());
+        if (permit.granted()) {
+            metrics.granted(permit.tokensGranted());
+        } else {
+            metrics.rejected();
+            JfrEvents.throttled(null, permit.tokensRequested(), permit.retryAfterNanos());
+        }
+        return permit;
     }
 
     /**
@@ -49,16 +91,25 @@ public final class AcquireCoordinator {
             throw new IllegalArgumentException("tokens must be >= 1");
         }
 
+        final AcquireWaitEvent waitEvent = new AcquireWaitEvent();
+        waitEvent.begin();
+        final long start = spec.timeSource().nanoTime();
+        final Permit result;
         if (!spec.allowBurst() && tokens > 1) {
             long remaining = 0;
             for (long i = 0; i < tokens; i++) {
                 final Permit p = acquireSingle();
                 remaining = p.remainingTokens();
             }
-            return new SimplePermit(true, tokens, remaining, 0);
+            result = new SimplePermit(true, tokens, remaining, 0);
+        } else {
+            result = acquireSingle(tokens);
         }
 
-        return acquireSingle(tokens);
+        metrics.granted(tokens);
+        metrics.blocked(spec.timeSource().nanoTime() - start);
+        JfrEvents.acquireWaited(waitEvent, null, tokens);
+        return result;
     }
 
     private Permit acquireSingle() throws InterruptedException {
@@ -1,9 +1,11 @@
 package com.github.frosxt.bucketguard.runtime.acquire;
 
 import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.PermitCallback;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
 import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
-import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.runtime.jfr.JfrEvents;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
 import java.util.Objects;
 import java.util.concurrent.*;
@@ -12,12 +14,20 @@ import java.util.concurrent.*;
  * Handles asynchronous acquisition scheduling.
  */
 public final class AsyncAcquireScheduler {
+    private static final long UNTRACKED = Long.MIN_VALUE;
+
     private final Bucket bucket;
     private final TokenBucketSpec spec;
+    private final MetricsRecorder metrics;
 
     public AsyncAcquireScheduler(final Bucket bucket, final TokenBucketSpec spec) {
+        this(bucket, spec, MetricsRecorder.NOOP);
+    }
+
+    public AsyncAcquireScheduler(final Bucket bucket, final TokenBucketSpec spec, final MetricsRecorder metrics) {
         this.bucket = bucket;
         this.spec = spec;
+        this.metrics = metrics;
     }
 
     /**
@@ -40,42 +50,138 @@ public final class AsyncAcquireScheduler {
             return chainAsyncAcquisitions(tokens, executor);
         }
 
-        final CompletableFuture<Permit> future = new CompletableFuture<>();
-        scheduleAsync(tokens, executor, future);
-        return future;
+        return scheduleAsync(tokens, executor, null, spec.timeSource().nanoTime());
     }
 
-    private CompletionStage<Permit> chainAsyncAcquisitions(final long tokens, final Executor executor) {
-        CompletionStage<Permit> stage = acquireAsyncSingle(executor);
-        for (int i = 1; i < tokens; i++) {
-            stage = stage.thenCompose(permit -> acquireAsyncSingle(executor));
+    /**
+     * Acquires tokens asynchronously, invoking the callback inline on an
+     * immediate grant and scheduling retries only when delayed.
+     *
+     * @param tokens   number of tokens
+     * @param callback receives the permit or failure
+     * @param executor executor for scheduling
+     */
+    public void acquireAsync(final long tokens, final PermitCallback callback, final Executor executor) {
+        if (tokens < 1) {
+            throw new IllegalArgumentException("tokens must be >= 1");
         }
-        return stage.thenApply(lastPermit -> new SimplePermit(true, tokens, lastPermit.remainingTokens(), 0));
+        if (tokens > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("tokens too large for async chaining");
+        }
+        Objects.requireNonNull(callback, "callback");
+        Objects.requireNonNull(executor, "executor");
+
+        if (!spec.allowBurst() && tokens > 1) {
+            chainAsyncAcquisitions(tokens, executor).whenComplete((permit, error) -> PermitCallbacks.deliver(callback, permit, error));
+            return;
+        }
+
+        scheduleCallback(tokens, executor, callback, false, spec.timeSource().nanoTime());
     }
 
-    private CompletionStage<Permit> acquireAsyncSingle(final Executor executor) {
-        final CompletableFuture<Permit> future = new CompletableFuture<>();
-        scheduleAsync(1, executor, future);
-        return future;
+    private void scheduleCallback(final long tokens, final Executor executor, final PermitCallback callback, final boolean waiting,
+            final long startNanos) {
+        final long now;
+        final Permit permit;
+        try {
+            now = spec.timeSource().nanoTime();
+            permit = bucket.tryAcquire(tokens, now);
+        } catch (final RuntimeException e) {
+            failCallback(callback, waiting, e);
+            return;
+        }
+
+        if (permit.granted()) {
+            if (waiting) {
+                metrics.waiterRemoved();
+            }
+            metrics.granted(tokens);
+            metrics.asyncWaited(now - startNanos);
+            callback.onPermit(permit);
+        } else if (executor instanceof final ScheduledExecutorService scheduler) {
+            if (!waiting) {
+                metrics.waiterAdded();
+            }
+            final long delayNanos = permit.retryAfterNanos();
+            JfrEvents.rescheduled(null, tokens, delayNanos);
+            try {
+                // A retry runs after the caller returned, so what the callback throws is reported, not lost in the task
+                scheduler.schedule(() -> PermitCallbacks.run(() -> scheduleCallback(tokens, executor, callback, true, startNanos)),
+                        delayNanos, TimeUnit.NANOSECONDS);
+            } catch (final RejectedExecutionException e) {
+                failCallback(callback, true, e);
+            }
+        } else {
+            failCallback(callback, waiting, new IllegalArgumentException("Async acquisition with delay requires a ScheduledExecutorService"));
+        }
+    }
+
+    private void failCallback(final PermitCallback callback, final boolean waiting, final Throwable error) {
+        if (waiting) {
+            metrics.waiterRemoved();
+        }
+        callback.onError(error);
+    }
+
+    private CompletableFuture<Permit> chainAsyncAcquisitions(final long tokens, final Executor executor) {
+        final long start = spec.timeSource().nanoTime();
+        return AsyncChain.start(tokens, () -> acquireAsyncSingle(executor),
+                taken -> bucket.refund(taken, spec.timeSource().nanoTime()),
+                () -> metrics.asyncWaited(spec.timeSource().nanoTime() - start));
+    }
+
+    private CompletableFuture<Permit> acquireAsyncSingle(final Executor executor) {
+        return scheduleAsync(1, executor, null, UNTRACKED);
     }
 
-    private void scheduleAsync(final long tokens, final Executor executor, final CompletableFuture<Permit> future) {
+    /**
+     * Makes one attempt. The first attempt passes no waiter and gets an
+     * already completed future on an immediate grant or failure; a waiter is
+     * created only once the attempt has to be retried.
+     *
+     * @return the acquisition's future
+     */
+    private CompletableFuture<Permit> scheduleAsync(final long tokens, final Executor executor, final AsyncWaiter pending,
+            final long startNanos) {
+        if (pending != null && pending.isDone()) {
+            return pending.future();
+        }
+        AsyncWaiter waiter = pending;
         try {
             final long now = spec.timeSource().nanoTime();
             final Permit permit = bucket.tryAcquire(tokens, now);
             if (permit.granted()) {
-                future.complete(permit);
+                metrics.granted(tokens);
+                if (startNanos != UNTRACKED) {
+                    metrics.asyncWaited(now - startNanos);
+                }
+                if (waiter == null) {
+                    return CompletableFuture.completedFuture(permit);
+                }
+                if (!waiter.grant(permit)) {
+                    // Cancelled while this attempt ran
+                    bucket.refund(tokens, now);
+                }
             } else {
                 final long delayNanos = permit.retryAfterNanos();
 
+                if (waiter == null) {
+                    waiter = new AsyncWaiter(metrics);
+                }
                 if (executor instanceof final ScheduledExecutorService scheduler) {
-                    scheduler.schedule(() -> scheduleAsync(tokens, executor, future), delayNanos, TimeUnit.NANOSECONDS);
+                    JfrEvents.rescheduled(null, tokens, delayNanos);
+                    final AsyncWaiter retrying = waiter;
+                    waiter.retryLater(scheduler, () -> scheduleAsync(tokens, executor, retrying, startNanos), delayNanos);
                 } else {
-                    future.completeExceptionally(new IllegalArgumentException("Async acquisition with delay requires a ScheduledExecutorService"));
+                    waiter.fail(new IllegalArgumentException("Async acquisition with delay requires a ScheduledExecutorService"));
                 }
             }
         } catch (final Exception e) {
-            future.completeExceptionally(e);
+            if (waiter == null) {
+                return CompletableFuture.failedFuture(e);
+            }
+            waiter.fail(e);
         }
+        return waiter.future();
     }
 }
@@ -0,0 +1,111 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Acquires tokens one at a time, for buckets that do not allow bursts.
+ * <p>
+ * The returned future controls the whole chain: completing it without a
+ * permit, for example by cancelling it, cancels the pending single
+ * acquisition and refunds every token the chain already took. A failed
+ * single acquisition fails the chain the same way.
+ */
+public final class AsyncChain {
+    private final long tokens;
+    private final Supplier<CompletableFuture<Permit>> single;
+    private final LongConsumer refund;
+    private final Runnable onGranted;
+    private final CompletableFuture<Permit> result = new CompletableFuture<>();
+    private volatile CompletableFuture<Permit> current;
+
+    private AsyncChain(final long tokens, final Supplier<CompletableFuture<Permit>> single, final LongConsumer refund,
+            final Runnable onGranted) {
+        this.tokens = tokens;
+        this.single = single;
+        this.refund = refund;
+        this.onGranted = onGranted;
+    }
+
+    /**
+     * Starts a chain.
+     *
+     * @param tokens    tokens to acquire, one at a time
+     * @param single    starts a single-token acquisition
+     * @param refund    gives back the given number of tokens
+     * @param onGranted runs before the chain's future completes with a permit
+     * @return the chain's future
+     */
+    public static CompletableFuture<Permit> start(final long tokens, final Supplier<CompletableFuture<Permit>> single,
+            final LongConsumer refund, final Runnable onGranted) {
+        final AsyncChain chain = new AsyncChain(tokens, single, refund, onGranted);
+        chain.result.whenComplete((permit, error) -> {
+            final CompletableFuture<Permit> pending = chain.current;
+            if (error != null && pending != null) {
+                pending.cancel(false);
+            }
+        });
+        chain.continueFrom(0);
+        return chain.result;
+    }
+
+    private void continueFrom(final long taken) {
+        long granted = taken;
+        while (true) {
+            final CompletableFuture<Permit> next = single.get();
+            current = next;
+            if (result.isDone()) {
+                next.cancel(false);
+            }
+
+            if (!next.isDone()) {
+                final long before = granted;
+                next.whenComplete((permit, error) -> {
+                    if (step(before, permit, error)) {
+                        continueFrom(before + 1);
+                    }
+                });
+                return;
+            }
+
+            // Completed inline; loop rather than recurse so long chains keep a flat stack
+            final Permit permit = next.isCompletedExceptionally() ? null : next.join();
+            final Throwable error = permit == null ? next.handle((p, e) -> e).join() : null;
+            if (!step(granted, permit, error)) {
+                return;
+            }
+            granted++;
+        }
+    }
+
+    /**
+     * Handles the completion of the single acquisition that follows
+     * {@code taken} granted tokens.
+     *
+     * @return {@code true} if the chain continues
+     */
+    private boolean step(final long taken, final Permit permit, final Throwable error) {
+        if (error != null || result.isDone()) {
+            // The single acquisition was cancelled along with the chain, or it failed
+            final long held = error == null ? taken + 1 : taken;
+            if (held > 0) {
+                refund.accept(held);
+            }
+            result.completeExceptionally(error != null ? error : new IllegalStateException("chain completed"));
+            return false;
+        }
+        if (taken + 1 < tokens) {
+            return true;
+        }
+
+        onGranted.run();
+        if (!result.complete(new SimplePermit(true, tokens, permit.remainingTokens(), 0))) {
+            refund.accept(tokens);
+        }
+        return false;
+    }
+}
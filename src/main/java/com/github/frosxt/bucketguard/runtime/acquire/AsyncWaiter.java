@@ -0,0 +1,116 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One delayed asynchronous acquisition: its future, its pending retry, and
+ * whether it is counted as a waiter.
+ * <p>
+ * Callers create a waiter only once the first attempt is rejected; an
+ * immediate grant completes an already completed future instead. From the
+ * first {@link #retryLater retry} on, when the future completes without a
+ * permit, because the caller cancelled it, applied a timeout or completed it
+ * themselves, the pending retry is cancelled and the acquisition stops
+ * counting as a waiter. An attempt that races with that and wins tokens finds
+ * {@link #grant(Permit)} returning {@code false} and must refund them.
+ */
+public final class AsyncWaiter {
+    private static final VarHandle WAITING;
+
+    static {
+        try {
+            WAITING = MethodHandles.lookup().findVarHandle(AsyncWaiter.class, "waiting", boolean.class);
+        } catch (final ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final CompletableFuture<Permit> future = new CompletableFuture<>();
+    private final MetricsRecorder metrics;
+    private volatile boolean waiting;
+    private volatile Future<?> retry;
+
+    public AsyncWaiter(final MetricsRecorder metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the future handed to the caller
+     */
+    public CompletableFuture<Permit> future() {
+        return future;
+    }
+
+    /**
+     * @return {@code true} once the future has completed, so that further
+     *         attempts must not take tokens
+     */
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Completes the future with a granted permit.
+     *
+     * @param permit the permit
+     * @return {@code false} if the future had already completed, in which case
+     *         the caller must refund the permit's tokens
+     */
+    public boolean grant(final Permit permit) {
+        // Released first so that a caller woken by the completion sees it
+        stopWaiting();
+        return future.complete(permit);
+    }
+
+    /**
+     * Completes the future exceptionally.
+     *
+     * @param error the failure
+     */
+    public void fail(final Throwable error) {
+        stopWaiting();
+        future.completeExceptionally(error);
+    }
+
+    /**
+     * Schedules the next attempt and counts the acquisition as a waiter until
+     * its future completes.
+     *
+     * @param scheduler  scheduler to run the attempt on
+     * @param attempt    the attempt
+     * @param delayNanos delay before the attempt
+     */
+    public void retryLater(final ScheduledExecutorService scheduler, final Runnable attempt, final long delayNanos) {
+        if (WAITING.compareAndSet(this, false, true)) {
+            metrics.waiterAdded();
+            future.whenComplete((permit, error) -> {
+                stopWaiting();
+                final Future<?> pending = retry;
+                if (error != null && pending != null) {
+                    pending.cancel(false);
+                }
+            });
+        }
+        final Future<?> scheduled = scheduler.schedule(attempt, delayNanos, TimeUnit.NANOSECONDS);
+        retry = scheduled;
+        // Cancelled between the check above and publishing the retry
+        if (future.isDone()) {
+            stopWaiting();
+            scheduled.cancel(false);
+        }
+    }
+
+    private void stopWaiting() {
+        if (WAITING.compareAndSet(this, true, false)) {
+            metrics.waiterRemoved();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.PermitCallback;
+
+/**
+ * Delivers outcomes to a {@link PermitCallback} after the acquiring call has
+ * returned.
+ * <p>
+ * By then nobody is waiting for an exception the callback throws, and a
+ * scheduled task or future would swallow it, so it is handed to the
+ * delivering thread's uncaught exception handler instead.
+ */
+public final class PermitCallbacks {
+
+    private PermitCallbacks() {
+    }
+
+    /**
+     * Delivers the outcome of a future to the callback.
+     *
+     * @param callback the callback
+     * @param permit   the permit, if {@code error} is null
+     * @param error    the failure, or null
+     */
+    public static void deliver(final PermitCallback callback, final Permit permit, final Throwable error) {
+        run(() -> {
+            if (error != null) {
+                callback.onError(error);
+            } else {
+                callback.onPermit(permit);
+            }
+        });
+    }
+
+    /**
+     * Runs a delivery, reporting what it throws.
+     *
+     * @param delivery calls the callback
+     */
+    public static void run(final Runnable delivery) {
+        try {
+            delivery.run();
+        } catch (final RuntimeException e) {
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+}
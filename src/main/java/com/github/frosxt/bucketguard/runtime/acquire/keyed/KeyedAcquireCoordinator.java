@@ -1,23 +1,57 @@
 package com.github.frosxt.bucketguard.runtime.acquire.keyed;
 
 import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.PermitCallback;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.acquire.AsyncChain;
+import com.github.frosxt.bucketguard.runtime.acquire.AsyncWaiter;
+import com.github.frosxt.bucketguard.runtime.acquire.PermitCallbacks;
 import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
 import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
 import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.SharedRate;
+import com.github.frosxt.bucketguard.runtime.jfr.AcquireWaitEvent;
+import com.github.frosxt.bucketguard.runtime.jfr.JfrEvents;
+import com.github.frosxt.bucketguard.runtime.key.hitters.HeavyHitterTracker;
 import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
 import java.util.Objects;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 public final class KeyedAcquireCoordinator<K> {
+    private static final long UNTRACKED = Long.MIN_VALUE;
+
     private final KeyedStore<K> store;
     private final TokenBucketSpec bucketSpec;
+    private final MetricsRecorder metrics;
+    private final HeavyHitterTracker<K> heavyHitters;
+    private final SharedRate sharedRate;
+    private final Supplier<Bucket> bucketFactory;
 
     public KeyedAcquireCoordinator(final KeyedStore<K> store, final TokenBucketSpec bucketSpec) {
+        this(store, bucketSpec, MetricsRecorder.NOOP);
+    }
+
+    public KeyedAcquireCoordinator(final KeyedStore<K> store, final TokenBucketSpec bucketSpec, final MetricsRecorder metrics) {
+        this(store, bucketSpec, metrics, new HeavyHitterTracker<>(0));
+    }
+
+    public KeyedAcquireCoordinator(final KeyedStore<K> store, final TokenBucketSpec bucketSpec, final MetricsRecorder metrics,
+            final HeavyHitterTracker<K> heavyHitters) {
+        this(store, bucketSpec, metrics, heavyHitters, null);
+    }
+
+    public KeyedAcquireCoordinator(final KeyedStore<K> store, final TokenBucketSpec bucketSpec, final MetricsRecorder metrics,
+            final HeavyHitterTracker<K> heavyHitters, final SharedRate sharedRate) {
         this.store = store;
         this.bucketSpec = bucketSpec;
+        this.metrics = metrics;
+        this.heavyHitters = heavyHitters;
+        this.sharedRate = sharedRate;
+        this.bucketFactory = () -> BucketFactory.create(bucketSpec, sharedRate, metrics);
     }
 
     /**
@@ -34,11 +68,66 @@ public final class KeyedAcquireCoordinator<K> {
         }
 
         if (!bucketSpec.allowBurst() && tokens > 1) {
-            return new SimplePermit(false, tokens, 0, bucketSpec.refillPeriod().toNanos());
+            metrics.rejected();
+            heavyHitters.throttled(key);
+            final long retryNanos = refillPeriodNanos();
+            JfrEvents.throttled(key, tokens, retryNanos);
+            return new SimplePermit(false, tokens, 0, retryNanos);
         }
 
-        final Bucket bucket = store.getOrCreate(key, () -> BucketFactory.create(bucketSpec));
-        return bucket.tryAcquire(tokens, bucketSpec.timeSource().nanoTime());
+        final Permit permit = store.tryAcquire(key, bucketFactory, tokens, bucketSpec.timeSource().nanoTime());
+        if (permit.granted()) {
+            metrics.granted(tokens);
+            heavyHitters.granted(key);
+        } else {
+            metrics.rejected();
+            heavyHitters.throttled(key);
+            JfrEvents.throttled(key, tokens, permit.retryAfterNanos());
+        }
+        return permit;
+    }
+
+    /**
+     * Acquires as many tokens as the key has available, up to {@code max}.
+     *
+     * @param key the key
+     * @param max most tokens to acquire
+     * @return result permit
+     */
+    public Permit tryAcquireUpTo(final K key, final long max) {
+        Objects.requireNonNull(key, "key");
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be >= 1");
+        }
+
+        // Without bursting, tokens are granted one at a time
+        final Permit permit = store.tryAcquireUpTo(key, bucketFactory, bucketSpec.allowBurst() ? max : 1, bucketSpec.timeSource().nanoTime());
+        if (permit.granted()) {
+            metrics.granted(permit.tokensGranted());
+            heavyHitters.granted(key);
+        } else {
+            metrics.rejected();
+            heavyHitters.throttled(key);
+            JfrEvents.throttled(key, permit.tokensRequested(), permit.retryAfterNanos());
+        }
+        return permit;
+    }
+
+    /**
+     * Returns how long until tokens could be acquired for a key, without
+     * consuming anything, creating the key or refreshing it.
+     *
+     * @param key    the key
+     * @param tokens number of tokens
+     * @return nanoseconds to wait, 0 if available now
+     */
+    public long nanosUntilAvailable(final K key, final long tokens) {
+        Objects.requireNonNull(key, "key");
+        if (tokens < 1) {
+            throw new IllegalArgumentException("tokens must be >= 1");
+        }
+
+        return store.peekRetryAfterNanos(key, tokens, bucketSpec.timeSource().nanoTime());
     }
 
     /**
@@ -55,16 +144,25 @@ public final class KeyedAcquireCoordinator<K> {
             throw new IllegalArgumentException("tokens must be >= 1");
         }
 
+        final AcquireWaitEvent waitEvent = new AcquireWaitEvent();
+        waitEvent.begin();
+        final long start = bucketSpec.timeSource().nanoTime();
+        final Permit result;
         if (!bucketSpec.allowBurst() && tokens > 1) {
             long remaining = 0;
             for (long i = 0; i < tokens; i++) {
                 final Permit p = acquireSingle(key);
                 remaining = p.remainingTokens();
             }
-            return new SimplePermit(true, tokens, remaining, 0);
+            result = new SimplePermit(true, tokens, remaining, 0);
+        } else {
+            result = acquireSingle(key, tokens);
         }
 
-        return acquireSingle(key, tokens);
+        metrics.granted(tokens);
+        metrics.blocked(bucketSpec.timeSource().nanoTime() - start);
+        JfrEvents.acquireWaited(waitEvent, key, tokens);
+        return result;
     }
 
     private Permit acquireSingle(final K key) throws InterruptedException {
@@ -72,14 +170,20 @@ public final class KeyedAcquireCoordinator<K> {
     }
 
     private Permit acquireSingle(final K key, final long tokens) throws InterruptedException {
-        final Bucket bucket = store.getOrCreate(key, () -> BucketFactory.create(bucketSpec));
-
+        boolean waited = false;
         while (true) {
             final long now = bucketSpec.timeSource().nanoTime();
-            final Permit permit = bucket.tryAcquire(tokens, now);
+            final Permit permit = store.tryAcquire(key, bucketFactory, tokens, now);
             if (permit.granted()) {
+                if (!waited) {
+                    heavyHitters.granted(key);
+                }
                 return permit;
             }
+            if (!waited) {
+                heavyHitters.throttled(key);
+                waited = true;
+            }
 
             if (Thread.interrupted()) {
                 throw new InterruptedException();
@@ -115,47 +219,164 @@ public final class KeyedAcquireCoordinator<K> {
             return chainAsyncAcquisitions(key, tokens, executor);
         }
 
-        final CompletableFuture<Permit> future = new CompletableFuture<>();
-        scheduleAsync(key, tokens, executor, future);
-        return future;
+        return scheduleAsync(key, tokens, executor, null, bucketSpec.timeSource().nanoTime());
     }
 
-    private CompletionStage<Permit> chainAsyncAcquisitions(final K key, final long tokens, final Executor executor) {
+    /**
+     * Acquires tokens for a key asynchronously, invoking the callback inline on
+     * an immediate grant and scheduling retries only when delayed.
+     *
+     * @param key      the key
+     * @param tokens   number of tokens
+     * @param callback receives the permit or failure
+     * @param executor executor for scheduling
+     */
+    public void acquireAsync(final K key, final long tokens, final PermitCallback callback, final Executor executor) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(callback, "callback");
+        Objects.requireNonNull(executor, "executor");
+        if (tokens < 1) {
+            throw new IllegalArgumentException("tokens must be >= 1");
+        }
+
+        if (!bucketSpec.allowBurst() && tokens > 1) {
+            chainAsyncAcquisitions(key, tokens, executor).whenComplete((permit, error) -> PermitCallbacks.deliver(callback, permit, error));
+            return;
+        }
+
+        scheduleCallback(key, tokens, executor, callback, false, bucketSpec.timeSource().nanoTime());
+    }
+
+    private void scheduleCallback(final K key, final long tokens, final Executor executor, final PermitCallback callback, final boolean waiting,
+            final long startNanos) {
+        final long now;
+        final Permit permit;
+        try {
+            now = bucketSpec.timeSource().nanoTime();
+            permit = store.tryAcquire(key, bucketFactory, tokens, now);
+        } catch (final RuntimeException e) {
+            failCallback(callback, waiting, e);
+            return;
+        }
+
+        if (permit.granted()) {
+            if (waiting) {
+                metrics.waiterRemoved();
+            } else {
+                heavyHitters.granted(key);
+            }
+            metrics.granted(tokens);
+            metrics.asyncWaited(now - startNanos);
+            callback.onPermit(permit);
+            return;
+        }
+
+        if (!waiting) {
+            heavyHitters.throttled(key);
+        }
+        if (executor instanceof final ScheduledExecutorService scheduler) {
+            if (!waiting) {
+                metrics.waiterAdded();
+            }
+            final long delayNanos = permit.retryAfterNanos();
+            JfrEvents.rescheduled(key, tokens, delayNanos);
+            try {
+                // A retry runs after the caller returned, so what the callback throws is reported, not lost in the task
+                scheduler.schedule(() -> PermitCallbacks.run(() -> scheduleCallback(key, tokens, executor, callback, true, startNanos)),
+                        delayNanos, TimeUnit.NANOSECONDS);
+            } catch (final RejectedExecutionException e) {
+                failCallback(callback, true, e);
+            }
+        } else {
+            failCallback(callback, waiting, new IllegalArgumentException("Async acquisition with delay requires a ScheduledExecutorService"));
+        }
+    }
+
+    private void failCallback(final PermitCallback callback, final boolean waiting, final Throwable error) {
+        if (waiting) {
+            metrics.waiterRemoved();
+        }
+        callback.onError(error);
+    }
+
+    private CompletableFuture<Permit> chainAsyncAcquisitions(final K key, final long tokens, final Executor executor) {
         if (tokens > Integer.MAX_VALUE) {
             throw new IllegalArgumentException("tokens too large for async chaining");
         }
-        CompletionStage<Permit> stage = acquireAsyncSingle(key, executor);
-        for (int i = 1; i < tokens; i++) {
-            stage = stage.thenCompose(permit -> acquireAsyncSingle(key, executor));
-        }
-        return stage.thenApply(lastPermit -> new SimplePermit(true, tokens, lastPermit.remainingTokens(), 0));
+        final long start = bucketSpec.timeSource().nanoTime();
+        return AsyncChain.start(tokens, () -> acquireAsyncSingle(key, executor),
+                taken -> refund(key, taken, bucketSpec.timeSource().nanoTime()),
+                () -> metrics.asyncWaited(bucketSpec.timeSource().nanoTime() - start));
     }
 
-    private CompletionStage<Permit> acquireAsyncSingle(final K key, final Executor executor) {
-        final CompletableFuture<Permit> future = new CompletableFuture<>();
-        scheduleAsync(key, 1, executor, future);
-        return future;
+    private CompletableFuture<Permit> acquireAsyncSingle(final K key, final Executor executor) {
+        return scheduleAsync(key, 1, executor, null, UNTRACKED);
     }
 
-    private void scheduleAsync(final K key, final long tokens, final Executor executor, final CompletableFuture<Permit> future) {
+    /**
+     * Makes one attempt. The first attempt passes no waiter and gets an
+     * already completed future on an immediate grant or failure; a waiter is
+     * created only once the attempt has to be retried.
+     *
+     * @return the acquisition's future
+     */
+    private CompletableFuture<Permit> scheduleAsync(final K key, final long tokens, final Executor executor, final AsyncWaiter pending,
+            final long startNanos) {
+        if (pending != null && pending.isDone()) {
+            return pending.future();
+        }
+        AsyncWaiter waiter = pending;
         try {
-            final Bucket bucket = store.getOrCreate(key, () -> BucketFactory.create(bucketSpec));
             final long now = bucketSpec.timeSource().nanoTime();
-            final Permit permit = bucket.tryAcquire(tokens, now);
+            final Permit permit = store.tryAcquire(key, bucketFactory, tokens, now);
 
             if (permit.granted()) {
-                future.complete(permit);
+                metrics.granted(tokens);
+                if (startNanos != UNTRACKED) {
+                    metrics.asyncWaited(now - startNanos);
+                }
+                if (waiter == null) {
+                    heavyHitters.granted(key);
+                    return CompletableFuture.completedFuture(permit);
+                }
+                if (!waiter.grant(permit)) {
+                    // Cancelled while this attempt ran
+                    refund(key, tokens, now);
+                }
             } else {
                 final long delayNanos = permit.retryAfterNanos();
 
+                if (waiter == null) {
+                    heavyHitters.throttled(key);
+                    waiter = new AsyncWaiter(metrics);
+                }
                 if (executor instanceof final ScheduledExecutorService scheduler) {
-                    scheduler.schedule(() -> scheduleAsync(key, tokens, executor, future), delayNanos, TimeUnit.NANOSECONDS);
+                    JfrEvents.rescheduled(key, tokens, delayNanos);
+                    final AsyncWaiter retrying = waiter;
+                    waiter.retryLater(scheduler, () -> scheduleAsync(key, tokens, executor, retrying, startNanos), delayNanos);
                 } else {
-                    future.completeExceptionally(new IllegalArgumentException("Async acquisition with delay requires a ScheduledExecutorService"));
+                    waiter.fail(new IllegalArgumentException("Async acquisition with delay requires a ScheduledExecutorService"));
                 }
             }
         } catch (final Exception e) {
-            future.completeExceptionally(e);
+            if (waiter == null) {
+                return CompletableFuture.failedFuture(e);
+            }
+            waiter.fail(e);
+        }
+        return waiter.future();
+    }
+
+    // Follows reconfiguration when the buckets share a rate
+    private long refillPeriodNanos() {
+        final TokenBucketSpec spec = sharedRate != null ? sharedRate.current().spec() : bucketSpec;
+        return spec.refillPeriod().toNanos();
+    }
+
+    private void refund(final K key, final long tokens, final long nowNanos) {
+        final Bucket bucket = store.get(key);
+        if (bucket != null) {
+            bucket.refund(tokens, nowNanos);
         }
     }
 }
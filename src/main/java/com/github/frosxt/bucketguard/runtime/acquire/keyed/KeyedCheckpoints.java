@@ -0,0 +1,268 @@
+package com.github.frosxt.bucketguard.runtime.acquire.keyed;
+
+import com.github.frosxt.bucketguard.api.KeyCodec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.AtomicBucket;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.RateParameters;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.SharedRate;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+
+/**
+ * Binary checkpoints of keyed limiter state.
+ * <p>
+ * Layout, big-endian: a header of magic, version, wall-clock anchor (epoch
+ * nanos), emission interval and record count, followed by one record per key
+ * of key length, key bytes, debt and idle time in nanoseconds. Debt and idle
+ * time are relative to the anchor, so a restore in another process ages them
+ * by the wall-clock time that passed. Keys with full buckets are not written;
+ * an absent key behaves exactly like one.
+ * <p>
+ * Files are streamed through a large direct buffer and written to a temporary
+ * sibling that is atomically moved into place.
+ */
+public final class KeyedCheckpoints {
+    private static final int MAGIC = 0x42474350;
+    private static final int VERSION = 1;
+    private static final int COUNT_OFFSET = Integer.BYTES * 2 + Long.BYTES * 2;
+    private static final int HEADER_SIZE = COUNT_OFFSET + Long.BYTES;
+    private static final int RECORD_OVERHEAD = Integer.BYTES + Long.BYTES * 2;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long MAX_IDLE_NANOS = Long.MAX_VALUE / 4;
+
+    private KeyedCheckpoints() {
+        throw new UnsupportedOperationException("This class cannot be instantiated!");
+    }
+
+    /**
+     * Writes every key that is not at full capacity to {@code path}.
+     *
+     * @param path       target file, replaced atomically
+     * @param codec      key codec
+     * @param store      the store, whose buckets must be {@link AtomicBucket}s
+     * @param sharedRate the buckets' shared rate
+     * @param timeSource the buckets' time source
+     * @param wallClock  clock for the anchor
+     * @param <K>        key type
+     * @return the number of keys written
+     * @throws IOException if writing fails
+     */
+    public static <K> long write(final Path path, final KeyCodec<? super K> codec, final KeyedStore<K> store, final SharedRate sharedRate,
+            final TimeSource timeSource, final Clock wallClock) throws IOException {
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        final long count;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                final long now = timeSource.nanoTime();
+                buffer.putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putLong(epochNanos(wallClock))
+                        .putLong(sharedRate.current().emissionIntervalNanos())
+                        .putLong(0L);
+
+                final RecordWriter<K> writer = new RecordWriter<>(channel, buffer, codec, now);
+                try {
+                    store.forEachEntry(writer);
+                } catch (final UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                writer.flush();
+                count = writer.count;
+
+                buffer.clear();
+                buffer.putLong(count).flip();
+                long position = COUNT_OFFSET;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return count;
+    }
+
+    /**
+     * Restores the keys in {@code path} into {@code store}. Keys that are
+     * already present, have refilled or have expired in the meantime are
+     * skipped.
+     *
+     * @param path       checkpoint file
+     * @param codec      key codec
+     * @param store      the store
+     * @param sharedRate rate for the restored buckets
+     * @param metrics    metrics recorder for the restored buckets
+     * @param timeSource the buckets' time source
+     * @param wallClock  clock to age the checkpoint by
+     * @param <K>        key type
+     * @return the number of keys restored
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    public static <K> long read(final Path path, final KeyCodec<? extends K> codec, final KeyedStore<K> store, final SharedRate sharedRate,
+            final MetricsRecorder metrics, final TimeSource timeSource, final Clock wallClock) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final RecordReader reader = new RecordReader(channel);
+            reader.require(HEADER_SIZE);
+            final ByteBuffer buffer = reader.buffer;
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a BucketGuard checkpoint: " + path);
+            }
+            final int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version);
+            }
+            final long anchor = buffer.getLong();
+            final long intervalNanos = buffer.getLong();
+            final long count = buffer.getLong();
+
+            final long currentIntervalNanos = sharedRate.current().emissionIntervalNanos();
+            final long now = timeSource.nanoTime();
+            final long elapsed = Math.max(0, epochNanos(wallClock) - anchor);
+
+            long restored = 0;
+            for (long i = 0; i < count; i++) {
+                reader.require(Integer.BYTES);
+                final int keyLength = buffer.getInt();
+                if (keyLength < 0) {
+                    throw new IOException("Corrupt checkpoint: negative key length");
+                }
+                final byte[] keyBytes = reader.readBytes(keyLength);
+                reader.require(Long.BYTES * 2);
+                final long debt = buffer.getLong();
+                final long idle = buffer.getLong();
+
+                final long remainingDebt = RateParameters.rescaleDebt(debt, intervalNanos, currentIntervalNanos) - elapsed;
+                if (remainingDebt <= 0) {
+                    continue;
+                }
+
+                final long idleNow = Math.min(MAX_IDLE_NANOS, Math.min(idle, MAX_IDLE_NANOS) + Math.min(elapsed, MAX_IDLE_NANOS));
+                final AtomicBucket bucket = new AtomicBucket(sharedRate, metrics);
+                bucket.restoreDebt(remainingDebt, now);
+                if (store.restore(codec.decode(keyBytes), bucket, now - idleNow)) {
+                    restored++;
+                }
+            }
+            return restored;
+        }
+    }
+
+    private static long epochNanos(final Clock clock) {
+        final Instant instant = clock.instant();
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private static final class RecordWriter<K> implements KeyedStore.EntryVisitor<K> {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final KeyCodec<? super K> codec;
+        private final long now;
+        private long count;
+
+        RecordWriter(final FileChannel channel, final ByteBuffer buffer, final KeyCodec<? super K> codec, final long now) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.codec = codec;
+            this.now = now;
+        }
+
+        @Override
+        public boolean visit(final K key, final Bucket bucket) {
+            return visit(key, bucket, now);
+        }
+
+        @Override
+        public boolean visit(final K key, final Bucket bucket, final long lastAccessNanos) {
+            final long debt = ((AtomicBucket) bucket).debtNanos(now);
+            if (debt == 0) {
+                return true;
+            }
+
+            final byte[] keyBytes = codec.encode(key);
+            try {
+                if (buffer.remaining() < RECORD_OVERHEAD + keyBytes.length) {
+                    flush();
+                }
+                buffer.putInt(keyBytes.length);
+                if (keyBytes.length <= buffer.remaining() - Long.BYTES * 2) {
+                    buffer.put(keyBytes);
+                } else {
+                    flush();
+                    writeFully(ByteBuffer.wrap(keyBytes));
+                }
+                buffer.putLong(debt).putLong(Math.max(0, now - lastAccessNanos));
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+            return true;
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(final ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+    }
+
+    private static final class RecordReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        RecordReader(final FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).flip();
+        }
+
+        void require(final int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Truncated checkpoint");
+                }
+            }
+            buffer.flip();
+        }
+
+        byte[] readBytes(final int length) throws IOException {
+            final byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                if (!buffer.hasRemaining()) {
+                    require(1);
+                }
+                final int chunk = Math.min(buffer.remaining(), length - offset);
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return bytes;
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package com.github.frosxt.bucketguard.runtime.acquire.keyed;
 
 import com.github.frosxt.bucketguard.api.KeyedLimiterStats;
+import com.github.frosxt.bucketguard.api.KeyedSnapshotVisitor;
 import com.github.frosxt.bucketguard.api.LimiterStats;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
 import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
 import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 public final class KeyedSnapshots {
 
@@ -42,24 +45,100 @@ public final class KeyedSnapshots {
     }
 
     /**
-     * Captures a sample of snapshots from the store.
+     * Streams the available tokens of every live key to a visitor.
      *
-     * @param limit max number of entries
-     * @param store the store
-     * @param <K>   key type
+     * @param visitor    the visitor
+     * @param store      the store
+     * @param bucketSpec the spec (for the time source)
+     * @param <K>        key type
+     */
+    public static <K> void forEachSnapshot(final KeyedSnapshotVisitor<? super K> visitor, final KeyedStore<K> store,
+            final TokenBucketSpec bucketSpec) {
+        final long now = bucketSpec.timeSource().nanoTime();
+        store.forEachEntry((key, bucket) -> {
+            visitor.visit(key, bucket.availableTokens(now));
+            return true;
+        });
+    }
+
+    /**
+     * Captures a sample of snapshots from the store, taking the first
+     * {@code limit} keys in traversal order.
+     *
+     * @param limit      max number of entries
+     * @param store      the store
+     * @param bucketSpec the spec (for shared stats fields)
+     * @param <K>        key type
+     * @return keyed stats
+     */
+    public static <K> KeyedLimiterStats snapshotSample(final int limit, final KeyedStore<K> store, final TokenBucketSpec bucketSpec) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must be >= 0");
+        }
+
+        final int size = store.size();
+        final Map<K, LimiterStats> statsMap = HashMap.newHashMap(Math.min(limit, size));
+        if (limit > 0) {
+            final long now = bucketSpec.timeSource().nanoTime();
+            final Duration refillPeriod = bucketSpec.refillPeriod();
+            store.forEachEntry((key, bucket) -> {
+                statsMap.put(key, new LimiterStats(bucketSpec.capacity(), bucket.availableTokens(now), bucketSpec.refillTokens(), refillPeriod));
+                return statsMap.size() < limit;
+            });
+        }
+
+        return new KeyedLimiterStats(size, Collections.unmodifiableMap(statsMap));
+    }
+
+    /**
+     * Captures a uniform random sample of snapshots from the store using
+     * reservoir sampling, so the result is not biased towards keys early in
+     * traversal order. Visits every key.
+     *
+     * @param limit      max number of entries
+     * @param store      the store
+     * @param bucketSpec the spec (for shared stats fields)
+     * @param <K>        key type
      * @return keyed stats
      */
-    public static <K> KeyedLimiterStats snapshotSample(final int limit, final KeyedStore<K> store) {
+    @SuppressWarnings("unchecked")
+    public static <K> KeyedLimiterStats reservoirSample(final int limit, final KeyedStore<K> store, final TokenBucketSpec bucketSpec) {
         if (limit < 0) {
             throw new IllegalArgumentException("limit must be >= 0");
         }
 
-        final Map<K, Bucket> bucketSnapshot = store.snapshot(limit);
         final int size = store.size();
+        if (limit == 0) {
+            return new KeyedLimiterStats(size, Map.of());
+        }
+
+        final int capacity = Math.min(limit, Math.max(size, 1));
+        final Object[] keys = new Object[capacity];
+        final long[] available = new long[capacity];
+        final long[] seen = new long[1];
+        final long now = bucketSpec.timeSource().nanoTime();
+
+        store.forEachEntry((key, bucket) -> {
+            final long n = seen[0]++;
+            final int slot;
+            if (n < capacity) {
+                slot = (int) n;
+            } else {
+                final long r = ThreadLocalRandom.current().nextLong(n + 1);
+                if (r >= capacity) {
+                    return true;
+                }
+                slot = (int) r;
+            }
+            keys[slot] = key;
+            available[slot] = bucket.availableTokens(now);
+            return true;
+        });
 
-        final Map<K, LimiterStats> statsMap = HashMap.newHashMap(bucketSnapshot.size());
-        for (final Map.Entry<K, Bucket> entry : bucketSnapshot.entrySet()) {
-            statsMap.put(entry.getKey(), entry.getValue().snapshot());
+        final int sampled = (int) Math.min(seen[0], capacity);
+        final Map<K, LimiterStats> statsMap = HashMap.newHashMap(sampled);
+        for (int i = 0; i < sampled; i++) {
+            statsMap.put((K) keys[i], new LimiterStats(bucketSpec.capacity(), available[i], bucketSpec.refillTokens(), bucketSpec.refillPeriod()));
         }
 
         return new KeyedLimiterStats(size, Collections.unmodifiableMap(statsMap));
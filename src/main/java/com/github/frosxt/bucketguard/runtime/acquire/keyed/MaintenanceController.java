@@ -2,19 +2,43 @@ package com.github.frosxt.bucketguard.runtime.acquire.keyed;
 
 import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
 import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import com.github.frosxt.bucketguard.runtime.key.store.PruneSlice;
 
 import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs scheduled maintenance as bounded prune slices.
+ * <p>
+ * Each tick prunes one {@link KeyedStore#pruneSlice(int, long) slice} within
+ * the spec's maintenance budget and schedules the next one. The delay starts
+ * at the maintenance period and halves, down to an eighth of it, while slices
+ * run out of budget or find many expired keys; it doubles, up to four times
+ * the period, while slices find nothing to remove.
+ * <p>
+ * Ticks run either on a caller's scheduler or on a {@link MaintenanceRuntime},
+ * which holds the controller weakly.
+ */
 public final class MaintenanceController<K> {
+    private static final int MIN_DELAY_DIVISOR = 8;
+    private static final int MAX_DELAY_MULTIPLIER = 4;
+    private static final int BUSY_REMOVAL_RATIO = 4;
+
     private final KeyedStore<K> store;
     private final KeyedStoreSpec<K> storeSpec;
 
     private final Object maintenanceLock = new Object();
     private volatile ScheduledFuture<?> maintenanceTask;
+    private volatile MaintenanceRuntime.Registration registration;
+    private ScheduledExecutorService scheduler;
+    private long generation;
+    private long periodNanos;
+    private long delayNanos;
 
     public MaintenanceController(final KeyedStore<K> store, final KeyedStoreSpec<K> storeSpec) {
         this.store = store;
@@ -28,6 +52,36 @@ public final class MaintenanceController<K> {
         store.prune();
     }
 
+    /**
+     * Starts maintenance on the shared {@link MaintenanceRuntime} with the
+     * spec's period.
+     */
+    public void startMaintenance() {
+        startMaintenance(MaintenanceRuntime.shared(), storeSpec.maintenancePeriod());
+    }
+
+    /**
+     * Starts maintenance on a maintenance runtime, at a random point of the
+     * first period.
+     *
+     * @param runtime runtime to use
+     * @param period  base delay between ticks
+     */
+    public void startMaintenance(final MaintenanceRuntime runtime, final Duration period) {
+        Objects.requireNonNull(runtime, "runtime");
+        Objects.requireNonNull(period, "period");
+
+        synchronized (maintenanceLock) {
+            if (isMaintenanceRunning()) {
+                return;
+            }
+
+            this.periodNanos = period.toNanos();
+            this.delayNanos = periodNanos;
+            registration = runtime.register(this, ThreadLocalRandom.current().nextLong(periodNanos) + 1);
+        }
+    }
+
     /**
      * Starts maintenance with default period.
      * 
@@ -41,29 +95,75 @@ public final class MaintenanceController<K> {
      * Starts maintenance with specified period.
      * 
      * @param scheduler scheduler to use
-     * @param period    execution period
+     * @param period    base delay between ticks
      */
     public void startMaintenance(final ScheduledExecutorService scheduler, final Duration period) {
         Objects.requireNonNull(scheduler, "scheduler");
         Objects.requireNonNull(period, "period");
 
         synchronized (maintenanceLock) {
-            if (maintenanceTask != null && !maintenanceTask.isDone()) {
+            if (isMaintenanceRunning()) {
                 return;
             }
 
-            maintenanceTask = scheduler.scheduleWithFixedDelay(this::pruneSafely, period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+            this.scheduler = scheduler;
+            this.periodNanos = period.toNanos();
+            this.delayNanos = periodNanos;
+            final long current = ++generation;
+            maintenanceTask = scheduler.schedule(() -> tick(current), delayNanos, TimeUnit.NANOSECONDS);
         }
     }
 
     /**
-     * Safely executes prune, swallowing exceptions to prevent scheduler thread death.
+     * Runs one tick for a {@link MaintenanceRuntime}.
+     *
+     * @return the delay before the next tick, in nanoseconds
      */
-    private void pruneSafely() {
+    long runSlice() {
+        final PruneSlice slice = pruneSlice();
+        synchronized (maintenanceLock) {
+            delayNanos = nextDelayNanos(slice);
+            return delayNanos;
+        }
+    }
+
+    private void tick(final long tickGeneration) {
+        final PruneSlice slice = pruneSlice();
+
+        synchronized (maintenanceLock) {
+            // Closed or restarted since this tick was scheduled
+            if (tickGeneration != generation || maintenanceTask == null) {
+                return;
+            }
+
+            delayNanos = nextDelayNanos(slice);
+            try {
+                maintenanceTask = scheduler.schedule(() -> tick(tickGeneration), delayNanos, TimeUnit.NANOSECONDS);
+            } catch (final RejectedExecutionException e) {
+                maintenanceTask = null;
+            }
+        }
+    }
+
+    private PruneSlice pruneSlice() {
         try {
-            prune();
+            return store.pruneSlice(storeSpec.maintenanceMaxEntries(), storeSpec.maintenanceMaxTime().toNanos());
         } catch (final Exception ignored) {
+            // Swallowed so that one failure does not stop maintenance
+            return PruneSlice.EMPTY;
+        }
+    }
+
+    private long nextDelayNanos(final PruneSlice slice) {
+        final boolean busy = !slice.complete() || (slice.removed() > 0 && slice.removed() * BUSY_REMOVAL_RATIO >= slice.scanned());
+        if (busy) {
+            return Math.max(Math.max(1, periodNanos / MIN_DELAY_DIVISOR), delayNanos / 2);
         }
+        if (slice.removed() == 0) {
+            final long maxDelayNanos = periodNanos > Long.MAX_VALUE / MAX_DELAY_MULTIPLIER ? Long.MAX_VALUE : periodNanos * MAX_DELAY_MULTIPLIER;
+            return delayNanos > maxDelayNanos / 2 ? maxDelayNanos : delayNanos * 2;
+        }
+        return delayNanos;
     }
 
     /**
@@ -71,7 +171,8 @@ public final class MaintenanceController<K> {
      */
     public boolean isMaintenanceRunning() {
         final ScheduledFuture<?> task = maintenanceTask;
-        return task != null && !task.isDone();
+        final MaintenanceRuntime.Registration current = registration;
+        return (task != null && !task.isDone()) || (current != null && current.isActive());
     }
 
     /**
@@ -83,6 +184,11 @@ public final class MaintenanceController<K> {
                 maintenanceTask.cancel(false);
                 maintenanceTask = null;
             }
+            if (registration != null) {
+                registration.cancel();
+                registration = null;
+            }
+            generation++;
         }
     }
 }
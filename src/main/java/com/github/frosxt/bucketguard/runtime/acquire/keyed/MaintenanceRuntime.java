@@ -0,0 +1,179 @@
+package com.github.frosxt.bucketguard.runtime.acquire.keyed;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide maintenance thread shared by keyed limiters.
+ * <p>
+ * Registered controllers are held weakly, in a queue ordered by their next
+ * tick, and ticked one at a time on a single daemon thread that starts with
+ * the first registration. A controller whose limiter is garbage-collected
+ * drops out on its own; closing the limiter cancels its registration.
+ * <p>
+ * Registrations start at a random point of their first period, so limiters
+ * created together do not prune together.
+ * <p>
+ * Slices run on this thread, and so do removal listeners of stores without a
+ * removal executor, so a slow listener delays every limiter. An error that
+ * escapes a slice is reported to the thread's uncaught exception handler and
+ * the slice is retried after {@value #ERROR_DELAY_SECONDS} second; the thread
+ * keeps running.
+ */
+public final class MaintenanceRuntime {
+    private static final MaintenanceRuntime SHARED = new MaintenanceRuntime("bucketguard-maintenance");
+    private static final long MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long ERROR_DELAY_SECONDS = 1;
+
+    private final String threadName;
+    private final Object lock = new Object();
+    private final PriorityQueue<Registration> queue = new PriorityQueue<>(Comparator.comparingLong(r -> r.nextRunNanos));
+    private final ReferenceQueue<MaintenanceController<?>> collected = new ReferenceQueue<>();
+    private Thread thread;
+
+    /**
+     * Creates a runtime whose thread is started on the first registration.
+     *
+     * @param threadName name of the maintenance thread
+     */
+    public MaintenanceRuntime(final String threadName) {
+        this.threadName = threadName;
+    }
+
+    /**
+     * @return the process-wide runtime
+     */
+    public static MaintenanceRuntime shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the number of live registrations
+     */
+    public int size() {
+        synchronized (lock) {
+            expungeCollected();
+            return queue.size();
+        }
+    }
+
+    /**
+     * Schedules the controller's first tick.
+     *
+     * @param controller        the controller, held weakly
+     * @param initialDelayNanos delay before the first tick
+     * @return the registration, to cancel on close
+     */
+    Registration register(final MaintenanceController<?> controller, final long initialDelayNanos) {
+        final Registration registration = new Registration(controller, collected);
+        synchronized (lock) {
+            registration.nextRunNanos = System.nanoTime() + initialDelayNanos;
+            queue.add(registration);
+            if (thread == null) {
+                thread = Thread.ofPlatform().daemon().name(threadName).start(this::run);
+            }
+            lock.notifyAll();
+        }
+        return registration;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                final Registration next;
+                try {
+                    next = awaitNext();
+                } catch (final InterruptedException e) {
+                    // The thread is shared by every limiter, so it keeps going
+                    continue;
+                }
+
+                final MaintenanceController<?> controller = next.get();
+                if (controller == null) {
+                    continue;
+                }
+                final long delayNanos = runSlice(controller);
+
+                synchronized (lock) {
+                    if (!next.cancelled) {
+                        next.nextRunNanos = System.nanoTime() + delayNanos;
+                        queue.add(next);
+                    }
+                }
+            }
+        } finally {
+            // Only reached if reporting itself failed; let the next registration start a new thread
+            synchronized (lock) {
+                thread = null;
+            }
+        }
+    }
+
+    private static long runSlice(final MaintenanceController<?> controller) {
+        try {
+            return controller.runSlice();
+        } catch (final Throwable error) {
+            // One limiter's failure, for example in a removal listener, must not stop the others
+            final Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, error);
+            return TimeUnit.SECONDS.toNanos(ERROR_DELAY_SECONDS);
+        }
+    }
+
+    private Registration awaitNext() throws InterruptedException {
+        synchronized (lock) {
+            while (true) {
+                expungeCollected();
+                final Registration head = queue.peek();
+                final long waitNanos = head == null ? MAX_WAIT_NANOS : head.nextRunNanos - System.nanoTime();
+                if (head != null && waitNanos <= 0) {
+                    return queue.poll();
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, Math.min(waitNanos, MAX_WAIT_NANOS));
+            }
+        }
+    }
+
+    // Callers hold the lock
+    private void expungeCollected() {
+        Reference<? extends MaintenanceController<?>> reference;
+        while ((reference = collected.poll()) != null) {
+            queue.remove(reference);
+        }
+    }
+
+    /**
+     * A controller's place in the runtime.
+     */
+    final class Registration extends WeakReference<MaintenanceController<?>> {
+        private long nextRunNanos;
+        private boolean cancelled;
+
+        private Registration(final MaintenanceController<?> controller, final ReferenceQueue<MaintenanceController<?>> queue) {
+            super(controller, queue);
+        }
+
+        /**
+         * @return {@code true} until cancelled or the controller is collected
+         */
+        boolean isActive() {
+            synchronized (lock) {
+                return !cancelled && !refersTo(null);
+            }
+        }
+
+        /**
+         * Stops future ticks. A tick already running completes.
+         */
+        void cancel() {
+            synchronized (lock) {
+                cancelled = true;
+                queue.remove(this);
+            }
+        }
+    }
+}
@@ -17,8 +17,83 @@ public interface Bucket {
      */
     Permit tryAcquire(long tokens, long nowNanos);
 
+    /**
+     * Acquires as many tokens as are available, up to {@code max}.
+     * <p>
+     * A granted permit requests exactly the tokens it was granted; a rejected
+     * one carries the wait for a single token. Default implementation reads
+     * {@link #availableTokens(long)} and, if another caller takes the tokens
+     * in between, retries with fewer. Every retry asks for at least one token
+     * less, so the loop ends even when the available count overstates what
+     * {@link #tryAcquire(long, long)} can grant.
+     *
+     * @param max      most tokens to acquire, at least 1
+     * @param nowNanos current time in nanoseconds
+     * @return a Permit result
+     */
+    default Permit tryAcquireUpTo(final long max, final long nowNanos) {
+        long tokens = Math.max(1, Math.min(max, availableTokens(nowNanos)));
+        while (true) {
+            final Permit permit = tryAcquire(tokens, nowNanos);
+            if (permit.granted() || tokens == 1) {
+                return permit;
+            }
+            tokens = Math.max(1, Math.min(tokens - 1, availableTokens(nowNanos)));
+        }
+    }
+
     /**
      * @return current stats snapshot
      */
     LimiterStats snapshot();
+
+    /**
+     * Returns the tokens available at the given time without allocating.
+     * <p>
+     * Default implementation reads them from {@link #snapshot()}.
+     *
+     * @param nowNanos current time in nanoseconds
+     * @return available tokens
+     */
+    default long availableTokens(final long nowNanos) {
+        return snapshot().availableTokens();
+    }
+
+    /**
+     * Returns the refill period currently in force without allocating.
+     * <p>
+     * Default implementation reads it from {@link #snapshot()}.
+     *
+     * @return refill period in nanoseconds
+     */
+    default long refillPeriodNanos() {
+        return snapshot().refillPeriod().toNanos();
+    }
+
+    /**
+     * Returns how long until {@code tokens} could be acquired, without
+     * consuming anything.
+     * <p>
+     * Default implementation estimates it from {@link #snapshot()}.
+     *
+     * @param tokens   tokens to acquire
+     * @param nowNanos current time in nanoseconds
+     * @return nanoseconds to wait, 0 if available now
+     */
+    default long retryAfterNanos(final long tokens, final long nowNanos) {
+        return snapshot().nanosUntilAvailable(tokens);
+    }
+
+    /**
+     * Returns tokens taken by a granted {@link #tryAcquire(long, long)} that
+     * is being rolled back.
+     * <p>
+     * Buckets that cannot return tokens keep them consumed, which only errs
+     * towards limiting. Default implementation does nothing.
+     *
+     * @param tokens   tokens previously granted
+     * @param nowNanos the time the tokens were granted at
+     */
+    default void refund(final long tokens, final long nowNanos) {
+    }
 }
@@ -3,7 +3,10 @@ package com.github.frosxt.bucketguard.runtime.bucket;
 import com.github.frosxt.bucketguard.api.spec.ContentionStrategy;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
 import com.github.frosxt.bucketguard.runtime.bucket.atomic.AtomicBucket;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.MultiBandwidthBucket;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.SharedRate;
 import com.github.frosxt.bucketguard.runtime.bucket.striped.StripedBucket;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
 /**
  * Factory for creating {@link Bucket} instances based on configuration and
@@ -22,6 +25,25 @@ public final class BucketFactory {
      * @return a new Bucket instance
      */
     public static Bucket create(final TokenBucketSpec spec) {
+        return create(spec, MetricsRecorder.NOOP);
+    }
+
+    /**
+     * Creates a bucket based on the provided spec, reporting to the given
+     * recorder.
+     * <p>
+     * Specs with additional bandwidths always get a {@link MultiBandwidthBucket};
+     * striping is not applied to them.
+     * 
+     * @param spec    config spec, not null
+     * @param metrics metrics recorder, not null
+     * @return a new Bucket instance
+     */
+    public static Bucket create(final TokenBucketSpec spec, final MetricsRecorder metrics) {
+        if (!spec.bandwidths().isEmpty()) {
+            return new MultiBandwidthBucket(spec, metrics);
+        }
+
         ContentionStrategy strategy = spec.contentionStrategy();
 
         if (strategy == ContentionStrategy.AUTO) {
@@ -45,7 +67,7 @@ public final class BucketFactory {
             if (limit < stripes) {
                 final long maxStripes = Long.highestOneBit(limit);
                 if (maxStripes < 2) {
-                    return new AtomicBucket(spec);
+                    return new AtomicBucket(spec, metrics);
                 }
                 if (stripes > maxStripes) {
                     stripes = (int) maxStripes;
@@ -56,9 +78,36 @@ public final class BucketFactory {
                 stripes = Integer.highestOneBit(stripes);
             }
 
-            return new StripedBucket(spec, stripes);
+            return new StripedBucket(spec, stripes, metrics);
         }
 
-        return new AtomicBucket(spec);
+        return new AtomicBucket(spec, metrics);
+    }
+
+    /**
+     * Creates a bucket that follows {@code sharedRate} when the spec allows it,
+     * so that the whole family can be reconfigured at once.
+     *
+     * @param spec       config spec, not null
+     * @param sharedRate shared rate built from {@code spec}, or null
+     * @param metrics    metrics recorder, not null
+     * @return a new Bucket instance
+     */
+    public static Bucket create(final TokenBucketSpec spec, final SharedRate sharedRate, final MetricsRecorder metrics) {
+        if (sharedRate != null && supportsReconfigure(spec)) {
+            return new AtomicBucket(sharedRate, metrics);
+        }
+        return create(spec, metrics);
+    }
+
+    /**
+     * Returns whether buckets built from the spec can change their rate in
+     * place. Striped and multi-bandwidth buckets cannot.
+     *
+     * @param spec config spec, not null
+     * @return {@code true} if the buckets are reconfigurable
+     */
+    public static boolean supportsReconfigure(final TokenBucketSpec spec) {
+        return spec.bandwidths().isEmpty() && spec.contentionStrategy() != ContentionStrategy.STRIPED;
     }
 }
@@ -4,10 +4,12 @@ import com.github.frosxt.bucketguard.api.LimiterStats;
 import com.github.frosxt.bucketguard.api.Permit;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
 import com.github.frosxt.bucketguard.api.time.TimeSource;
-import com.github.frosxt.bucketguard.runtime.bucket.AbstractBucket;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
 import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
-import java.time.Duration;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
  * A token bucket implementation using atomic operations (CAS).
@@ -15,32 +17,74 @@ import java.time.Duration;
  * This implementation is lock-free and suitable for low-to-moderate contention.
  * It uses the Generic Cell Rate Algorithm (GCRA) for efficiency and
  * zero-allocation state management.
+ * <p>
+ * The rate is read from a {@link SharedRate} that may be shared with other
+ * buckets. When it changes, the bucket rescales its TAT on first use so that
+ * the tokens it owes are kept; acquisitions racing with the change may be
+ * priced at either rate. The first user claims the rescale with a CAS on the
+ * applied parameters, so no thread ever waits for another to finish it.
  */
-public class AtomicBucket extends AbstractBucket {
+public class AtomicBucket implements Bucket {
+    private static final VarHandle APPLIED;
+    /** Marks a bucket whose TAT is being rescaled by another thread. */
+    private static final RateParameters MIGRATING = new RateParameters(null, 0, 0);
+
+    static {
+        try {
+            APPLIED = MethodHandles.lookup().findVarHandle(AtomicBucket.class, "applied", RateParameters.class);
+        } catch (final ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     private final AtomicStateCodec state;
-    private final long emissionIntervalNanos;
-    private final long burstOffsetNanos;
+    private final SharedRate sharedRate;
     private final boolean strictMath;
     private final TimeSource timeSource;
+    private final MetricsRecorder metrics;
+
+    /** The parameters the current TAT was written under, or {@link #MIGRATING}. */
+    private volatile RateParameters applied;
 
     /**
      * Creates a new AtomicBucket with the given spec.
-     * 
+     *
      * @param spec configuration spec, not null
      */
     public AtomicBucket(final TokenBucketSpec spec) {
-        super(spec);
+        this(spec, MetricsRecorder.NOOP);
+    }
 
+    /**
+     * Creates a new AtomicBucket that reports CAS retries to the given recorder.
+     *
+     * @param spec    configuration spec, not null
+     * @param metrics metrics recorder, not null
+     */
+    public AtomicBucket(final TokenBucketSpec spec, final MetricsRecorder metrics) {
+        this(new SharedRate(spec), metrics);
+    }
+
+    /**
+     * Creates a new AtomicBucket that follows the given shared rate.
+     *
+     * @param sharedRate rate parameters, possibly shared with other buckets, not null
+     * @param metrics    metrics recorder, not null
+     */
+    public AtomicBucket(final SharedRate sharedRate, final MetricsRecorder metrics) {
         this.state = new AtomicStateCodec();
-        this.emissionIntervalNanos = RefillMath.calculateEmissionIntervalNanos(spec.refillTokens(), spec.refillPeriod());
-        this.burstOffsetNanos = RefillMath.calculateBurstOffsetNanos(spec.allowBurst(), spec.capacity(), emissionIntervalNanos, spec.strictMath());
-        this.strictMath = spec.strictMath();
-        this.timeSource = spec.timeSource();
+        this.sharedRate = sharedRate;
+        this.applied = sharedRate.current();
+        this.strictMath = applied.spec().strictMath();
+        this.timeSource = applied.spec().timeSource();
+        this.metrics = metrics;
     }
 
     @Override
     public Permit tryAcquire(final long tokens, final long nowNanos) {
+        final RateParameters r = parameters(nowNanos);
+        final long emissionIntervalNanos = r.emissionIntervalNanos();
+        final long burstOffsetNanos = r.burstOffsetNanos();
         if (emissionIntervalNanos == 0) {
             return new SimplePermit(true, tokens, Long.MAX_VALUE, 0);
         }
@@ -59,6 +103,7 @@ public class AtomicBucket extends AbstractBucket {
                     final long remainingTokens = remainingTime / emissionIntervalNanos;
                     return new SimplePermit(true, tokens, remainingTokens, 0);
                 }
+                metrics.casRetry();
             } else {
                 final long retryAfter = potentialTat - burstOffsetNanos - nowNanos;
                 return new SimplePermit(false, tokens, 0, retryAfter);
@@ -66,15 +111,195 @@ public class AtomicBucket extends AbstractBucket {
         }
     }
 
+    /**
+     * Takes {@code min(max, available)} tokens with a single successful CAS
+     * on the TAT.
+     */
+    @Override
+    public Permit tryAcquireUpTo(final long max, final long nowNanos) {
+        final RateParameters r = parameters(nowNanos);
+        final long emissionIntervalNanos = r.emissionIntervalNanos();
+        final long burstOffsetNanos = r.burstOffsetNanos();
+        if (emissionIntervalNanos == 0) {
+            return new SimplePermit(true, max, Long.MAX_VALUE, 0);
+        }
+
+        final long allowedLimit = nowNanos + burstOffsetNanos;
+        while (true) {
+            final long currentTat = state.getTat();
+            final long baseTime = Math.max(currentTat, nowNanos);
+            final long available = allowedLimit < baseTime ? 0 : (allowedLimit - baseTime) / emissionIntervalNanos;
+            if (available < 1) {
+                final long oneTokenNanos = GcraMath.calculateCostNanos(1, emissionIntervalNanos, strictMath);
+                final long retryAfter = GcraMath.calculatePotentialTat(baseTime, oneTokenNanos, strictMath) - burstOffsetNanos - nowNanos;
+                return new SimplePermit(false, 1, 0, retryAfter);
+            }
+
+            final long tokens = Math.min(max, available);
+            final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos, strictMath);
+            final long potentialTat = GcraMath.calculatePotentialTat(baseTime, costNanos, strictMath);
+            if (state.compareAndSetTat(currentTat, potentialTat)) {
+                return new SimplePermit(true, tokens, (allowedLimit - potentialTat) / emissionIntervalNanos, 0);
+            }
+            metrics.casRetry();
+        }
+    }
+
     @Override
     public LimiterStats snapshot() {
         final long now = timeSource.nanoTime();
-        final long cTat = state.getTat();
-        final long base = Math.max(cTat, now);
+        final TokenBucketSpec spec = parameters(now).spec();
+        return new LimiterStats(spec.capacity(), availableTokens(now), spec.refillTokens(), spec.refillPeriod());
+    }
+
+    @Override
+    public long refillPeriodNanos() {
+        return sharedRate.current().spec().refillPeriod().toNanos();
+    }
 
-        final long availTime = (now + burstOffsetNanos) - base;
-        final long avail = (emissionIntervalNanos == 0) ? Long.MAX_VALUE : Math.max(0, availTime / emissionIntervalNanos);
+    @Override
+    public long availableTokens(final long nowNanos) {
+        final RateParameters r = parameters(nowNanos);
+        final long emissionIntervalNanos = r.emissionIntervalNanos();
+        final long burstOffsetNanos = r.burstOffsetNanos();
+        if (emissionIntervalNanos == 0) {
+            return Long.MAX_VALUE;
+        }
 
-        return new LimiterStats(capacity, avail, refillTokens, Duration.ofNanos(refillPeriodNanos));
+        final long base = Math.max(state.getTat(), nowNanos);
+        final long availTime = (nowNanos + burstOffsetNanos) - base;
+        return Math.max(0, availTime / emissionIntervalNanos);
+    }
+
+    /**
+     * Reads the TAT without writing it; a pending rate change is applied to
+     * the value read rather than migrated.
+     */
+    @Override
+    public long retryAfterNanos(final long tokens, final long nowNanos) {
+        final RateParameters r = sharedRate.current();
+        final RateParameters from = applied;
+        final long emissionIntervalNanos = r.emissionIntervalNanos();
+        final long burstOffsetNanos = r.burstOffsetNanos();
+        if (emissionIntervalNanos == 0) {
+            return 0;
+        }
+
+        final long tat = from == r || from == MIGRATING ? state.getTat() : r.rescale(state.getTat(), nowNanos, from);
+        final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos, strictMath);
+        final long potentialTat = GcraMath.calculatePotentialTat(Math.max(tat, nowNanos), costNanos, strictMath);
+        return Math.max(0, potentialTat - burstOffsetNanos - nowNanos);
+    }
+
+    @Override
+    public void refund(final long tokens, final long nowNanos) {
+        final long emissionIntervalNanos = parameters(nowNanos).emissionIntervalNanos();
+        if (emissionIntervalNanos == 0) {
+            return;
+        }
+
+        final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos, strictMath);
+        while (true) {
+            final long currentTat = state.getTat();
+            if (currentTat <= nowNanos) {
+                return;
+            }
+
+            // A TAT at or before now already means a full bucket
+            final long refundedTat = Math.max(currentTat - costNanos, nowNanos);
+            if (state.compareAndSetTat(currentTat, refundedTat)) {
+                return;
+            }
+            metrics.casRetry();
+        }
+    }
+
+    /**
+     * @return the current emission interval in nanoseconds per token, 0 if unlimited
+     */
+    public long emissionIntervalNanos() {
+        return sharedRate.current().emissionIntervalNanos();
+    }
+
+    /**
+     * Changes the rate to one token per {@code emissionIntervalNanos}, without
+     * locking or replacing the bucket. Affects every bucket sharing its rate.
+     *
+     * @param emissionIntervalNanos nanoseconds per token, must be >= 1
+     */
+    public void updateEmissionInterval(final long emissionIntervalNanos) {
+        sharedRate.updateEmissionInterval(emissionIntervalNanos);
+    }
+
+    /**
+     * Takes the capacity and refill rate of {@code spec}. Affects every bucket
+     * sharing its rate.
+     *
+     * @param spec config spec, not null
+     * @see SharedRate#reconfigure(TokenBucketSpec)
+     */
+    public void reconfigure(final TokenBucketSpec spec) {
+        sharedRate.reconfigure(spec);
+    }
+
+    /**
+     * Returns how far the bucket is from full, as nanoseconds of refill at the
+     * current rate.
+     *
+     * @param nowNanos current time
+     * @return the debt, 0 when the bucket is full
+     */
+    public long debtNanos(final long nowNanos) {
+        parameters(nowNanos);
+        return Math.max(0, state.getTat() - nowNanos);
+    }
+
+    /**
+     * Sets the bucket's state so that it owes {@code debtNanos} of refill at
+     * the current rate, as when restoring a checkpoint.
+     *
+     * @param debtNanos the debt, must be >= 0
+     * @param nowNanos  current time
+     */
+    public void restoreDebt(final long debtNanos, final long nowNanos) {
+        if (debtNanos < 0) {
+            throw new IllegalArgumentException("debtNanos must be >= 0");
+        }
+        parameters(nowNanos);
+        final long restoredTat = debtNanos > Long.MAX_VALUE - nowNanos ? Long.MAX_VALUE : nowNanos + debtNanos;
+        while (true) {
+            final long currentTat = state.getTat();
+            if (state.compareAndSetTat(currentTat, restoredTat)) {
+                return;
+            }
+            metrics.casRetry();
+        }
+    }
+
+    private RateParameters parameters(final long nowNanos) {
+        final RateParameters current = sharedRate.current();
+        final RateParameters from = applied;
+        if (from == current || from == MIGRATING) {
+            // While another thread rescales, price at the new rate like any racing acquisition
+            return current;
+        }
+        return migrate(from, current, nowNanos);
+    }
+
+    private RateParameters migrate(final RateParameters from, final RateParameters target, final long nowNanos) {
+        // One thread wins the claim; a change published meanwhile is migrated on a later use
+        if (!APPLIED.compareAndSet(this, from, MIGRATING)) {
+            return sharedRate.current();
+        }
+
+        while (true) {
+            final long currentTat = state.getTat();
+            if (state.compareAndSetTat(currentTat, target.rescale(currentTat, nowNanos, from))) {
+                break;
+            }
+            metrics.casRetry();
+        }
+        applied = target;
+        return target;
     }
 }
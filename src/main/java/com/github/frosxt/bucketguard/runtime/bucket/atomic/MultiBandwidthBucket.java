@@ -0,0 +1,157 @@
+package com.github.frosxt.bucketguard.runtime.bucket.atomic;
+
+import com.github.frosxt.bucketguard.api.LimiterStats;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.spec.Bandwidth;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.runtime.bucket.AbstractBucket;
+import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A token bucket enforcing several bandwidths at once, for example 10 per
+ * second and 500 per minute.
+ * <p>
+ * Keeps one GCRA TAT per bandwidth in an immutable array and replaces the
+ * whole array with a single CAS, so each call makes one decision across all
+ * bandwidths. Rejections do not allocate; a grant allocates the next state
+ * array.
+ */
+public class MultiBandwidthBucket extends AbstractBucket {
+
+    private final MultiStateCodec state;
+    private final long[] emissionIntervalNanos;
+    private final long[] burstOffsetNanos;
+    private final boolean strictMath;
+    private final TimeSource timeSource;
+    private final MetricsRecorder metrics;
+
+    /**
+     * Creates a new MultiBandwidthBucket with the given spec.
+     *
+     * @param spec configuration spec, not null
+     */
+    public MultiBandwidthBucket(final TokenBucketSpec spec) {
+        this(spec, MetricsRecorder.NOOP);
+    }
+
+    /**
+     * Creates a new MultiBandwidthBucket that reports CAS retries to the given
+     * recorder.
+     *
+     * @param spec    configuration spec, not null
+     * @param metrics metrics recorder, not null
+     */
+    public MultiBandwidthBucket(final TokenBucketSpec spec, final MetricsRecorder metrics) {
+        super(spec);
+
+        final List<Bandwidth> extra = spec.bandwidths();
+        final int count = extra.size() + 1;
+        this.emissionIntervalNanos = new long[count];
+        this.burstOffsetNanos = new long[count];
+        for (int i = 0; i < count; i++) {
+            final long bandwidthCapacity = i == 0 ? spec.capacity() : extra.get(i - 1).capacity();
+            final long bandwidthRefill = i == 0 ? spec.refillTokens() : extra.get(i - 1).refillTokens();
+            final Duration bandwidthPeriod = i == 0 ? spec.refillPeriod() : extra.get(i - 1).refillPeriod();
+
+            emissionIntervalNanos[i] = RefillMath.calculateEmissionIntervalNanos(bandwidthRefill, bandwidthPeriod);
+            burstOffsetNanos[i] = RefillMath.calculateBurstOffsetNanos(spec.allowBurst(), bandwidthCapacity, emissionIntervalNanos[i],
+                    spec.strictMath());
+        }
+
+        this.state = new MultiStateCodec(count);
+        this.strictMath = spec.strictMath();
+        this.timeSource = spec.timeSource();
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Permit tryAcquire(final long tokens, final long nowNanos) {
+        while (true) {
+            final long[] current = state.getTats();
+
+            long retryAfter = 0;
+            for (int i = 0; i < current.length; i++) {
+                final long potentialTat = potentialTat(i, current[i], tokens, nowNanos);
+                retryAfter = Math.max(retryAfter, potentialTat - burstOffsetNanos[i] - nowNanos);
+            }
+            if (retryAfter > 0) {
+                return new SimplePermit(false, tokens, 0, retryAfter);
+            }
+
+            final long[] next = new long[current.length];
+            long remainingTokens = Long.MAX_VALUE;
+            for (int i = 0; i < current.length; i++) {
+                next[i] = potentialTat(i, current[i], tokens, nowNanos);
+                if (emissionIntervalNanos[i] != 0) {
+                    remainingTokens = Math.min(remainingTokens, (nowNanos + burstOffsetNanos[i] - next[i]) / emissionIntervalNanos[i]);
+                }
+            }
+
+            if (state.compareAndSetTats(current, next)) {
+                return new SimplePermit(true, tokens, remainingTokens, 0);
+            }
+            metrics.casRetry();
+        }
+    }
+
+    @Override
+    public LimiterStats snapshot() {
+        return new LimiterStats(capacity, availableTokens(timeSource.nanoTime()), refillTokens, Duration.ofNanos(refillPeriodNanos));
+    }
+
+    /**
+     * @return the tokens available under the most restrictive bandwidth.
+     */
+    @Override
+    public long availableTokens(final long nowNanos) {
+        final long[] current = state.getTats();
+        long available = Long.MAX_VALUE;
+        for (int i = 0; i < current.length; i++) {
+            if (emissionIntervalNanos[i] == 0) {
+                continue;
+            }
+            final long availTime = (nowNanos + burstOffsetNanos[i]) - Math.max(current[i], nowNanos);
+            available = Math.min(available, Math.max(0, availTime / emissionIntervalNanos[i]));
+        }
+        return available;
+    }
+
+    @Override
+    public long retryAfterNanos(final long tokens, final long nowNanos) {
+        final long[] current = state.getTats();
+        long retryAfter = 0;
+        for (int i = 0; i < current.length; i++) {
+            retryAfter = Math.max(retryAfter, potentialTat(i, current[i], tokens, nowNanos) - burstOffsetNanos[i] - nowNanos);
+        }
+        return retryAfter;
+    }
+
+    @Override
+    public void refund(final long tokens, final long nowNanos) {
+        while (true) {
+            final long[] current = state.getTats();
+            final long[] next = new long[current.length];
+            boolean changed = false;
+            for (int i = 0; i < current.length; i++) {
+                final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos[i], strictMath);
+                next[i] = current[i] > nowNanos ? Math.max(current[i] - costNanos, nowNanos) : current[i];
+                changed |= next[i] != current[i];
+            }
+
+            if (!changed || state.compareAndSetTats(current, next)) {
+                return;
+            }
+            metrics.casRetry();
+        }
+    }
+
+    private long potentialTat(final int bandwidth, final long currentTat, final long tokens, final long nowNanos) {
+        final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos[bandwidth], strictMath);
+        return GcraMath.calculatePotentialTat(Math.max(currentTat, nowNanos), costNanos, strictMath);
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.frosxt.bucketguard.runtime.bucket.atomic;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Handles CAS operations on the MultiBandwidthBucket state.
+ * <p>
+ * The state is an array of TATs, one per bandwidth. Arrays are never mutated
+ * after publication; an update swaps in a new array with a single CAS, so all
+ * bandwidths advance together or not at all.
+ */
+public final class MultiStateCodec {
+    private static final VarHandle TATS;
+
+    static {
+        try {
+            TATS = MethodHandles.lookup().findVarHandle(MultiStateCodec.class, "tats", long[].class);
+        } catch (final ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private volatile long[] tats;
+
+    public MultiStateCodec(final int bandwidths) {
+        this.tats = new long[bandwidths];
+    }
+
+    public long[] getTats() {
+        return (long[]) TATS.get(this);
+    }
+
+    public boolean compareAndSetTats(final long[] expected, final long[] next) {
+        return TATS.compareAndSet(this, expected, next);
+    }
+}
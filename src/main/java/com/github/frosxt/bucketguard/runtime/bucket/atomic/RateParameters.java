@@ -0,0 +1,81 @@
+package com.github.frosxt.bucketguard.runtime.bucket.atomic;
+
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+
+/**
+ * Immutable GCRA rate parameters of an {@link AtomicBucket}.
+ * <p>
+ * Published as a single reference so that a rate change is seen by each
+ * acquisition either entirely or not at all. Each change creates a new
+ * instance, so buckets can tell by identity which parameters their state was
+ * written under.
+ *
+ * @param spec                  the effective spec
+ * @param emissionIntervalNanos nanoseconds per token, 0 for unlimited
+ * @param burstOffsetNanos      how far the TAT may run ahead of now
+ */
+public record RateParameters(TokenBucketSpec spec, long emissionIntervalNanos, long burstOffsetNanos) {
+
+    /**
+     * Computes the parameters for a spec.
+     *
+     * @param spec config spec, not null
+     * @return the parameters
+     * @throws IllegalArgumentException if the burst offset overflows
+     */
+    public static RateParameters of(final TokenBucketSpec spec) {
+        final long emissionIntervalNanos = RefillMath.calculateEmissionIntervalNanos(spec.refillTokens(), spec.refillPeriod());
+        return new RateParameters(spec, emissionIntervalNanos,
+                RefillMath.calculateBurstOffsetNanos(spec.allowBurst(), spec.capacity(), emissionIntervalNanos, spec.strictMath()));
+    }
+
+    /**
+     * Rescales a TAT written under {@code from} to these parameters, keeping the
+     * number of tokens it owes.
+     *
+     * @param tat       the TAT written under {@code from}
+     * @param nowNanos  current time
+     * @param from      the parameters the TAT was written under
+     * @return the equivalent TAT under these parameters
+     */
+    long rescale(final long tat, final long nowNanos, final RateParameters from) {
+        final long debtNanos = tat - nowNanos;
+        if (debtNanos <= 0) {
+            return tat;
+        }
+
+        final long scaledDebt = rescaleDebt(debtNanos, from.emissionIntervalNanos, emissionIntervalNanos);
+        return scaledDebt > Long.MAX_VALUE - nowNanos ? Long.MAX_VALUE : nowNanos + scaledDebt;
+    }
+
+    /**
+     * Converts a debt measured in one emission interval to another, keeping the
+     * number of tokens owed. Saturates at {@link Long#MAX_VALUE}.
+     *
+     * @param debtNanos         debt under {@code fromIntervalNanos}, must be >= 0
+     * @param fromIntervalNanos interval the debt was measured in, 0 if unlimited
+     * @param toIntervalNanos   interval to convert to, 0 if unlimited
+     * @return the equivalent debt
+     */
+    public static long rescaleDebt(final long debtNanos, final long fromIntervalNanos, final long toIntervalNanos) {
+        if (fromIntervalNanos == 0 || toIntervalNanos == 0) {
+            // An unlimited bucket owes nothing
+            return 0;
+        }
+        if (fromIntervalNanos == toIntervalNanos) {
+            return debtNanos;
+        }
+
+        final long wholeTokens = debtNanos / fromIntervalNanos;
+        final double partialToken = (double) (debtNanos % fromIntervalNanos) / fromIntervalNanos;
+        final long wholeNanos;
+        try {
+            wholeNanos = Math.multiplyExact(wholeTokens, toIntervalNanos);
+        } catch (final ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+
+        final long partialNanos = Math.round(partialToken * toIntervalNanos);
+        return wholeNanos > Long.MAX_VALUE - partialNanos ? Long.MAX_VALUE : wholeNanos + partialNanos;
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.frosxt.bucketguard.runtime.bucket.atomic;
+
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Rate parameters shared by every {@link AtomicBucket} of a limiter.
+ * <p>
+ * Changing the rate is a single CAS on the published parameters; buckets
+ * notice the new parameters on their next use and rescale their own state, so
+ * a change reaches millions of buckets without touching any of them up front.
+ * Concurrent changes retry against each other's result, so neither is lost.
+ */
+public final class SharedRate {
+    private static final VarHandle CURRENT;
+
+    static {
+        try {
+            CURRENT = MethodHandles.lookup().findVarHandle(SharedRate.class, "current", RateParameters.class);
+        } catch (final ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile RateParameters current;
+
+    /**
+     * Creates shared parameters for a spec.
+     *
+     * @param spec config spec, not null
+     */
+    public SharedRate(final TokenBucketSpec spec) {
+        Objects.requireNonNull(spec, "spec");
+        if (!spec.bandwidths().isEmpty()) {
+            throw new IllegalArgumentException("shared rates do not support additional bandwidths");
+        }
+        this.current = RateParameters.of(spec);
+    }
+
+    /**
+     * @return the current parameters
+     */
+    public RateParameters current() {
+        return current;
+    }
+
+    /**
+     * Takes the capacity and refill rate of {@code spec}. All other settings
+     * except burst and strict math are ignored; those two must not change.
+     *
+     * @param spec config spec, not null
+     * @throws IllegalArgumentException if {@code spec} changes burst or strict
+     *                                  math, or has additional bandwidths
+     */
+    public void reconfigure(final TokenBucketSpec spec) {
+        Objects.requireNonNull(spec, "spec");
+        if (!spec.bandwidths().isEmpty()) {
+            throw new IllegalArgumentException("additional bandwidths cannot be added by reconfiguration");
+        }
+
+        while (true) {
+            final RateParameters expected = current;
+            final TokenBucketSpec base = expected.spec();
+            if (spec.allowBurst() != base.allowBurst()) {
+                throw new IllegalArgumentException("allowBurst cannot be changed by reconfiguration");
+            }
+            if (spec.strictMath() != base.strictMath()) {
+                throw new IllegalArgumentException("strictMath cannot be changed by reconfiguration");
+            }
+
+            final RateParameters next = RateParameters.of(withRate(base, spec.capacity(), spec.refillTokens(), spec.refillPeriod()));
+            if (CURRENT.compareAndSet(this, expected, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets the rate to one token per {@code emissionIntervalNanos}, keeping the
+     * capacity.
+     *
+     * @param emissionIntervalNanos nanoseconds per token, must be >= 1
+     */
+    public void updateEmissionInterval(final long emissionIntervalNanos) {
+        if (emissionIntervalNanos < 1) {
+            throw new IllegalArgumentException("emissionIntervalNanos must be >= 1");
+        }
+
+        while (true) {
+            final RateParameters expected = current;
+            final TokenBucketSpec base = expected.spec();
+            final RateParameters next = RateParameters.of(withRate(base, base.capacity(), 1, Duration.ofNanos(emissionIntervalNanos)));
+            if (CURRENT.compareAndSet(this, expected, next)) {
+                return;
+            }
+        }
+    }
+
+    private static TokenBucketSpec withRate(final TokenBucketSpec base, final long capacity, final long refillTokens, final Duration refillPeriod) {
+        return TokenBucketSpec.builder()
+                .capacity(capacity)
+                .refillTokens(refillTokens)
+                .refillPeriod(refillPeriod)
+                .contentionStrategy(base.contentionStrategy())
+                .timeSource(base.timeSource())
+                .strictMath(base.strictMath())
+                .allowBurst(base.allowBurst())
+                .metricsEnabled(base.metricsEnabled())
+                .build();
+    }
+}
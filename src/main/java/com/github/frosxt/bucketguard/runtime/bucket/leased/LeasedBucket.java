@@ -0,0 +1,223 @@
+package com.github.frosxt.bucketguard.runtime.bucket.leased;
+
+import com.github.frosxt.bucketguard.api.LimiterStats;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.lease.Lease;
+import com.github.frosxt.bucketguard.api.lease.LeaseBackend;
+import com.github.frosxt.bucketguard.api.spec.LeaseLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bucket that spends tokens leased from a {@link LeaseBackend}.
+ * <p>
+ * Leased tokens are kept as a plain counter taken with CAS, so the hot path
+ * never calls the backend. When the counter falls below a quarter of the
+ * lease size, one renewal is submitted to the renewal executor. Lease sizes
+ * follow an exponentially weighted average of the local consumption rate.
+ * After an empty lease or a backend failure, renewals pause for the backend's
+ * retry hint.
+ */
+public final class LeasedBucket implements Bucket {
+    private static final long MIN_RETRY_NANOS = 1_000_000L;
+    private static final double RATE_WEIGHT = 0.5;
+
+    private final LeaseLimiterSpec spec;
+    private final TokenBucketSpec bucketSpec;
+    private final TimeSource timeSource;
+    private final MetricsRecorder metrics;
+    private final long leaseDurationNanos;
+
+    private final AtomicLong credits = new AtomicLong();
+    private final AtomicLong spent = new AtomicLong();
+    private final AtomicBoolean renewing = new AtomicBoolean();
+    private volatile long leaseSize;
+    private volatile long notBeforeNanos;
+    private volatile long retryHintNanos;
+    private volatile boolean closed;
+
+    // Only touched by the thread holding the renewing flag
+    private long lastRenewalNanos;
+    private long spentAtLastRenewal;
+    private double ratePerNano = -1;
+
+    /**
+     * Creates a LeasedBucket. No tokens are held until {@link #prefetch()}.
+     *
+     * @param spec    lease configuration, not null
+     * @param metrics metrics recorder, not null
+     */
+    public LeasedBucket(final LeaseLimiterSpec spec, final MetricsRecorder metrics) {
+        this.spec = spec;
+        this.bucketSpec = spec.bucketSpec();
+        this.timeSource = bucketSpec.timeSource();
+        this.metrics = metrics;
+        this.leaseDurationNanos = spec.leaseDuration().toNanos();
+        this.leaseSize = spec.initialLease();
+        this.lastRenewalNanos = timeSource.nanoTime();
+    }
+
+    /**
+     * Leases the first batch of tokens on the calling thread. Failures are
+     * ignored; the next acquisition retries in the background.
+     */
+    public void prefetch() {
+        if (renewing.compareAndSet(false, true)) {
+            renew(0);
+        }
+    }
+
+    @Override
+    public Permit tryAcquire(final long tokens, final long nowNanos) {
+        final Permit permit = take(tokens);
+        if (permit != null) {
+            return permit;
+        }
+
+        renewAsync(tokens - credits.get(), nowNanos);
+        final Permit retried = take(tokens);
+        if (retried != null) {
+            return retried;
+        }
+        return new SimplePermit(false, tokens, 0, retryAfterNanos(tokens, nowNanos));
+    }
+
+    @Override
+    public LimiterStats snapshot() {
+        return new LimiterStats(bucketSpec.capacity(), credits.get(), bucketSpec.refillTokens(), bucketSpec.refillPeriod());
+    }
+
+    @Override
+    public long refillPeriodNanos() {
+        return bucketSpec.refillPeriod().toNanos();
+    }
+
+    @Override
+    public long availableTokens(final long nowNanos) {
+        return credits.get();
+    }
+
+    @Override
+    public long retryAfterNanos(final long tokens, final long nowNanos) {
+        if (credits.get() >= tokens) {
+            return 0;
+        }
+        return Math.max(MIN_RETRY_NANOS, Math.max(retryHintNanos, notBeforeNanos - nowNanos));
+    }
+
+    @Override
+    public void refund(final long tokens, final long nowNanos) {
+        spent.addAndGet(-tokens);
+        credits.addAndGet(tokens);
+        if (closed) {
+            releaseCredits();
+        }
+    }
+
+    /**
+     * @return the number of tokens the next lease will request
+     */
+    public long leaseSize() {
+        return leaseSize;
+    }
+
+    /**
+     * Stops renewing and returns unspent tokens to the backend.
+     */
+    public void close() {
+        closed = true;
+        releaseCredits();
+    }
+
+    private Permit take(final long tokens) {
+        while (true) {
+            final long current = credits.get();
+            if (current < tokens) {
+                return null;
+            }
+            final long remaining = current - tokens;
+            if (credits.compareAndSet(current, remaining)) {
+                spent.addAndGet(tokens);
+                if (remaining < Math.max(1, leaseSize / 4)) {
+                    renewAsync(0, timeSource.nanoTime());
+                }
+                return new SimplePermit(true, tokens, remaining, 0);
+            }
+            metrics.casRetry();
+        }
+    }
+
+    private void renewAsync(final long deficit, final long nowNanos) {
+        if (closed || nowNanos - notBeforeNanos < 0 || !renewing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            spec.renewalExecutor().execute(() -> renew(deficit));
+        } catch (final RejectedExecutionException e) {
+            renewing.set(false);
+        }
+    }
+
+    private void renew(final long deficit) {
+        try {
+            final long now = timeSource.nanoTime();
+            final long size = nextLeaseSize(now);
+            final Lease lease = spec.backend().acquire(spec.name(), Math.max(size, deficit));
+            if (lease.tokens() > 0) {
+                retryHintNanos = 0;
+                credits.addAndGet(lease.tokens());
+                if (closed) {
+                    releaseCredits();
+                }
+            } else {
+                retryHintNanos = lease.retryAfterNanos();
+                notBeforeNanos = now + Math.max(MIN_RETRY_NANOS, lease.retryAfterNanos());
+            }
+        } catch (final IOException | RuntimeException e) {
+            notBeforeNanos = timeSource.nanoTime() + MIN_RETRY_NANOS;
+        } finally {
+            renewing.set(false);
+        }
+    }
+
+    private long nextLeaseSize(final long nowNanos) {
+        final long elapsed = nowNanos - lastRenewalNanos;
+        final long spentNow = spent.get();
+        final long consumed = Math.max(0, spentNow - spentAtLastRenewal);
+        lastRenewalNanos = nowNanos;
+        spentAtLastRenewal = spentNow;
+
+        final double target;
+        if (elapsed <= 0) {
+            target = consumed > 0 ? leaseSize * 2.0 : leaseSize;
+        } else {
+            final double observed = (double) consumed / elapsed;
+            ratePerNano = ratePerNano < 0 ? observed : RATE_WEIGHT * observed + (1 - RATE_WEIGHT) * ratePerNano;
+            target = Math.ceil(ratePerNano * leaseDurationNanos);
+        }
+
+        final long size = (long) Math.max(spec.minLease(), Math.min(spec.maxLease(), target));
+        leaseSize = size;
+        return size;
+    }
+
+    private void releaseCredits() {
+        final long unspent = credits.getAndSet(0);
+        if (unspent <= 0) {
+            return;
+        }
+        try {
+            spec.backend().release(spec.name(), unspent);
+        } catch (final IOException | RuntimeException e) {
+            // The backend refills on its own; the tokens are only lost until then
+        }
+    }
+}
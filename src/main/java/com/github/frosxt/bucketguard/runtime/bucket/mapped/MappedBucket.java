@@ -0,0 +1,104 @@
+package com.github.frosxt.bucketguard.runtime.bucket.mapped;
+
+import com.github.frosxt.bucketguard.api.LimiterStats;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.GcraMath;
+
+/**
+ * A GCRA bucket whose TAT lives in a {@link MappedBucketTable} slot, so every
+ * process mapping the table shares it.
+ */
+public final class MappedBucket implements Bucket {
+    private final MappedBucketTable table;
+    private final int offset;
+    private final long emissionIntervalNanos;
+    private final long burstOffsetNanos;
+    private final boolean strictMath;
+
+    MappedBucket(final MappedBucketTable table, final int offset) {
+        this.table = table;
+        this.offset = offset;
+        this.emissionIntervalNanos = table.rate().emissionIntervalNanos();
+        this.burstOffsetNanos = table.rate().burstOffsetNanos();
+        this.strictMath = table.spec().strictMath();
+    }
+
+    @Override
+    public Permit tryAcquire(final long tokens, final long nowNanos) {
+        if (emissionIntervalNanos == 0) {
+            return new SimplePermit(true, tokens, Long.MAX_VALUE, 0);
+        }
+
+        final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos, strictMath);
+
+        while (true) {
+            final long currentTat = table.getTat(offset);
+            final long baseTime = Math.max(currentTat, nowNanos);
+            final long potentialTat = GcraMath.calculatePotentialTat(baseTime, costNanos, strictMath);
+            final long allowedLimit = nowNanos + burstOffsetNanos;
+
+            if (potentialTat <= allowedLimit) {
+                if (table.compareAndSetTat(offset, currentTat, potentialTat)) {
+                    return new SimplePermit(true, tokens, (allowedLimit - potentialTat) / emissionIntervalNanos, 0);
+                }
+                table.metrics().casRetry();
+            } else {
+                return new SimplePermit(false, tokens, 0, potentialTat - burstOffsetNanos - nowNanos);
+            }
+        }
+    }
+
+    @Override
+    public LimiterStats snapshot() {
+        final TokenBucketSpec spec = table.spec();
+        return new LimiterStats(spec.capacity(), availableTokens(spec.timeSource().nanoTime()), spec.refillTokens(), spec.refillPeriod());
+    }
+
+    @Override
+    public long refillPeriodNanos() {
+        return table.spec().refillPeriod().toNanos();
+    }
+
+    @Override
+    public long availableTokens(final long nowNanos) {
+        if (emissionIntervalNanos == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        final long base = Math.max(table.getTat(offset), nowNanos);
+        return Math.max(0, (nowNanos + burstOffsetNanos - base) / emissionIntervalNanos);
+    }
+
+    @Override
+    public long retryAfterNanos(final long tokens, final long nowNanos) {
+        if (emissionIntervalNanos == 0) {
+            return 0;
+        }
+
+        final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos, strictMath);
+        final long potentialTat = GcraMath.calculatePotentialTat(Math.max(table.getTat(offset), nowNanos), costNanos, strictMath);
+        return Math.max(0, potentialTat - burstOffsetNanos - nowNanos);
+    }
+
+    @Override
+    public void refund(final long tokens, final long nowNanos) {
+        if (emissionIntervalNanos == 0) {
+            return;
+        }
+
+        final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos, strictMath);
+        while (true) {
+            final long currentTat = table.getTat(offset);
+            if (currentTat <= nowNanos) {
+                return;
+            }
+            if (table.compareAndSetTat(offset, currentTat, Math.max(currentTat - costNanos, nowNanos))) {
+                return;
+            }
+            table.metrics().casRetry();
+        }
+    }
+}
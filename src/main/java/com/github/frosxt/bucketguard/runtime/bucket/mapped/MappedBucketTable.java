@@ -0,0 +1,214 @@
+package com.github.frosxt.bucketguard.runtime.bucket.mapped;
+
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.RateParameters;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A fixed-size table of named GCRA buckets in a memory-mapped file, shared by
+ * every process on the host that maps the same file.
+ * <p>
+ * Each slot holds a 64-bit name hash and a TAT, both updated with
+ * {@link VarHandle} CAS directly in the mapping, so processes enforce one
+ * limit per name lock-free and with no coordinator. The rate is written to the
+ * header by the process that creates the file; later opens must use the same
+ * rate. Slots are claimed on first use and never released.
+ * <p>
+ * TATs are compared across processes, so the time source must be host-wide.
+ * {@link System#nanoTime()} is on the usual platforms, where it reads the
+ * operating system's monotonic clock.
+ */
+public final class MappedBucketTable {
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private static final int MAGIC = 0x42474d54;
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int SLOTS_OFFSET = 8;
+    private static final int INTERVAL_OFFSET = 16;
+    private static final int BURST_OFFSET = 24;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 16;
+    private static final int MAX_SLOTS = 1 << 26;
+    private static final long EMPTY = 0L;
+
+    private final MappedByteBuffer buffer;
+    private final int mask;
+    private final TokenBucketSpec spec;
+    private final RateParameters rate;
+    private final MetricsRecorder metrics;
+
+    private MappedBucketTable(final MappedByteBuffer buffer, final int slots, final TokenBucketSpec spec, final RateParameters rate,
+            final MetricsRecorder metrics) {
+        this.buffer = buffer;
+        this.mask = slots - 1;
+        this.spec = spec;
+        this.rate = rate;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Opens the table in {@code file}, creating it if it does not exist.
+     *
+     * @param file  the backing file, not null
+     * @param slots number of buckets the table can hold, a power of two; ignored
+     *              when the file already exists
+     * @param spec  bucket configuration, not null
+     * @return the table
+     * @throws IOException if the file cannot be opened or is not a table
+     */
+    public static MappedBucketTable open(final Path file, final int slots, final TokenBucketSpec spec) throws IOException {
+        return open(file, slots, spec, MetricsRecorder.NOOP);
+    }
+
+    /**
+     * Opens the table in {@code file}, creating it if it does not exist.
+     *
+     * @param file    the backing file, not null
+     * @param slots   number of buckets the table can hold, a power of two;
+     *                ignored when the file already exists
+     * @param spec    bucket configuration, not null
+     * @param metrics metrics recorder, not null
+     * @return the table
+     * @throws IOException              if the file cannot be opened or is not a
+     *                                  table
+     * @throws IllegalArgumentException if {@code spec} does not match the rate
+     *                                  the table was created with
+     */
+    public static MappedBucketTable open(final Path file, final int slots, final TokenBucketSpec spec, final MetricsRecorder metrics)
+            throws IOException {
+        Objects.requireNonNull(file, "file");
+        Objects.requireNonNull(spec, "spec");
+        if (slots < 1 || slots > MAX_SLOTS || Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("slots must be a power of two between 1 and " + MAX_SLOTS);
+        }
+        if (!spec.bandwidths().isEmpty()) {
+            throw new IllegalArgumentException("mapped buckets do not support additional bandwidths");
+        }
+
+        final RateParameters rate = RateParameters.of(spec);
+        // File locks are held per process, so threads of one process take turns first
+        synchronized (MappedBucketTable.class) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final FileLock lock = channel.lock();
+                try {
+                    return map(file, channel, slots, spec, rate, metrics);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private static MappedBucketTable map(final Path file, final FileChannel channel, final int slots, final TokenBucketSpec spec,
+            final RateParameters rate, final MetricsRecorder metrics) throws IOException {
+        if (channel.size() == 0) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+            INTS.setVolatile(buffer, SLOTS_OFFSET, slots);
+            LONGS.setVolatile(buffer, INTERVAL_OFFSET, rate.emissionIntervalNanos());
+            LONGS.setVolatile(buffer, BURST_OFFSET, rate.burstOffsetNanos());
+            INTS.setVolatile(buffer, VERSION_OFFSET, VERSION);
+            INTS.setVolatile(buffer, MAGIC_OFFSET, MAGIC);
+            return new MappedBucketTable(buffer, slots, spec, rate, metrics);
+        }
+
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException("Not a BucketGuard bucket table: " + file);
+        }
+        final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if ((int) INTS.getVolatile(header, MAGIC_OFFSET) != MAGIC || (int) INTS.getVolatile(header, VERSION_OFFSET) != VERSION) {
+            throw new IOException("Not a BucketGuard bucket table: " + file);
+        }
+        final int existingSlots = (int) INTS.getVolatile(header, SLOTS_OFFSET);
+        if (existingSlots < 1 || Integer.bitCount(existingSlots) != 1
+                || channel.size() < HEADER_SIZE + (long) existingSlots * SLOT_SIZE) {
+            throw new IOException("Corrupt bucket table: " + file);
+        }
+        if ((long) LONGS.getVolatile(header, INTERVAL_OFFSET) != rate.emissionIntervalNanos()
+                || (long) LONGS.getVolatile(header, BURST_OFFSET) != rate.burstOffsetNanos()) {
+            throw new IllegalArgumentException("spec does not match the rate of the existing table " + file);
+        }
+
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) existingSlots * SLOT_SIZE);
+        return new MappedBucketTable(buffer, existingSlots, spec, rate, metrics);
+    }
+
+    /**
+     * Returns the bucket for {@code name}, claiming a slot if no process has
+     * used the name yet.
+     *
+     * @param name bucket name, not null
+     * @return the bucket
+     * @throws IllegalStateException if every slot is taken by other names
+     */
+    public MappedBucket bucket(final String name) {
+        Objects.requireNonNull(name, "name");
+        final long hash = hash(name);
+        int index = (int) hash & mask;
+        for (int probe = 0; probe <= mask; probe++) {
+            final int offset = HEADER_SIZE + index * SLOT_SIZE;
+            long current = (long) LONGS.getVolatile(buffer, offset);
+            if (current == EMPTY && LONGS.compareAndSet(buffer, offset, EMPTY, hash)) {
+                current = hash;
+            } else if (current == EMPTY) {
+                current = (long) LONGS.getVolatile(buffer, offset);
+            }
+            if (current == hash) {
+                return new MappedBucket(this, offset + Long.BYTES);
+            }
+            index = (index + 1) & mask;
+        }
+        throw new IllegalStateException("bucket table is full");
+    }
+
+    /**
+     * @return the number of buckets the table can hold
+     */
+    public int slots() {
+        return mask + 1;
+    }
+
+    TokenBucketSpec spec() {
+        return spec;
+    }
+
+    RateParameters rate() {
+        return rate;
+    }
+
+    MetricsRecorder metrics() {
+        return metrics;
+    }
+
+    long getTat(final int offset) {
+        return (long) LONGS.getVolatile(buffer, offset);
+    }
+
+    boolean compareAndSetTat(final int offset, final long expected, final long tat) {
+        return LONGS.compareAndSet(buffer, offset, expected, tat);
+    }
+
+    // FNV-1a over UTF-8, never EMPTY
+    private static long hash(final String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (final byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash == EMPTY ? 1 : hash;
+    }
+}
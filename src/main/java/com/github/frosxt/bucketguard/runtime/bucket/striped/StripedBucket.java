@@ -5,6 +5,7 @@ import com.github.frosxt.bucketguard.api.Permit;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
 import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
 import com.github.frosxt.bucketguard.runtime.bucket.atomic.AtomicBucket;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
 import java.time.Duration;
 
@@ -29,6 +30,17 @@ public class StripedBucket implements Bucket {
      * @param stripeCount number of stripes, must be a power of two
      */
     public StripedBucket(final TokenBucketSpec spec, final int stripeCount) {
+        this(spec, stripeCount, MetricsRecorder.NOOP);
+    }
+
+    /**
+     * Creates a new StripedBucket whose stripes report to the given recorder.
+     * 
+     * @param spec        bucket configuration, not null
+     * @param stripeCount number of stripes, must be a power of two
+     * @param metrics     metrics recorder, not null
+     */
+    public StripedBucket(final TokenBucketSpec spec, final int stripeCount, final MetricsRecorder metrics) {
         if (Integer.bitCount(stripeCount) != 1) {
             throw new IllegalArgumentException("stripeCount must be a power of two");
         }
@@ -64,12 +76,47 @@ public class StripedBucket implements Bucket {
                     .allowBurst(spec.allowBurst())
                     .build();
 
-            stripes[i] = new AtomicBucket(stripeSpec);
+            stripes[i] = new AtomicBucket(stripeSpec, metrics);
         }
     }
 
     @Override
     public Permit tryAcquire(final long tokens, final long nowNanos) {
+        return currentStripe().tryAcquire(tokens, nowNanos);
+    }
+
+    /**
+     * Takes from the calling thread's stripe only, like
+     * {@link #tryAcquire(long, long)}; tokens in other stripes are not
+     * available to this thread.
+     */
+    @Override
+    public Permit tryAcquireUpTo(final long max, final long nowNanos) {
+        return currentStripe().tryAcquireUpTo(max, nowNanos);
+    }
+
+    @Override
+    public long retryAfterNanos(final long tokens, final long nowNanos) {
+        return currentStripe().retryAfterNanos(tokens, nowNanos);
+    }
+
+    /**
+     * Refunds the calling thread's stripe, which is the one that granted the
+     * tokens when called from the same thread.
+     * <p>
+     * A permit does not record its stripe, so a refund from another thread,
+     * such as an async chain completing on an executor, credits that thread's
+     * stripe instead. The granting stripe stays debited until it refills, and
+     * the credited stripe absorbs the tokens only up to its own capacity, so
+     * the skew can lose refunded tokens but never grants more than the
+     * bucket's total capacity.
+     */
+    @Override
+    public void refund(final long tokens, final long nowNanos) {
+        currentStripe().refund(tokens, nowNanos);
+    }
+
+    private Bucket currentStripe() {
         int h = (int) Thread.currentThread().threadId();
         h ^= (h >>> 16);
         h *= 0x85ebca6b;
@@ -77,8 +124,7 @@ public class StripedBucket implements Bucket {
         h *= 0xc2b2ae35;
         h ^= (h >>> 16);
 
-        final int index = h & mask;
-        return stripes[index].tryAcquire(tokens, nowNanos);
+        return stripes[h & mask];
     }
 
     @Override
@@ -90,4 +136,18 @@ public class StripedBucket implements Bucket {
 
         return new LimiterStats(totalCapacity, avail, totalRefillTokens, refillPeriod);
     }
+
+    @Override
+    public long refillPeriodNanos() {
+        return refillPeriod.toNanos();
+    }
+
+    @Override
+    public long availableTokens(final long nowNanos) {
+        long avail = 0;
+        for (final Bucket b : stripes) {
+            avail += b.availableTokens(nowNanos);
+        }
+        return avail;
+    }
 }
@@ -0,0 +1,22 @@
+package com.github.frosxt.bucketguard.runtime.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Spans a blocking {@code acquire} call that waited longer than the configured
+ * threshold.
+ */
+@Name("com.github.frosxt.bucketguard.AcquireWait")
+@Label("Acquire Wait")
+@Category("BucketGuard")
+@Description("A blocking acquisition waited for tokens")
+@Threshold("20 ms")
+public final class AcquireWaitEvent extends Event {
+
+    @Label("Key")
+    @Description("Key of the acquisition, or null for a global limiter")
+    String key;
+
+    @Label("Tokens Requested")
+    long tokensRequested;
+}
@@ -0,0 +1,25 @@
+package com.github.frosxt.bucketguard.runtime.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted each time an asynchronous acquisition is put back on the scheduler.
+ */
+@Name("com.github.frosxt.bucketguard.AsyncReschedule")
+@Label("Async Reschedule")
+@Category("BucketGuard")
+@Description("An asynchronous acquisition was rescheduled to wait for tokens")
+@StackTrace(false)
+public final class AsyncRescheduleEvent extends Event {
+
+    @Label("Key")
+    @Description("Key of the acquisition, or null for a global limiter")
+    String key;
+
+    @Label("Tokens Requested")
+    long tokensRequested;
+
+    @Label("Delay")
+    @Timespan(Timespan.NANOSECONDS)
+    long delay;
+}
@@ -0,0 +1,96 @@
+package com.github.frosxt.bucketguard.runtime.jfr;
+
+/**
+ * Emits BucketGuard's instant JFR events.
+ * <p>
+ * Every method checks {@code shouldCommit()} before touching its arguments, so
+ * a disabled event costs a flag check and the key is only stringified while a
+ * recording wants it.
+ */
+public final class JfrEvents {
+
+    private JfrEvents() {
+        throw new UnsupportedOperationException("This class cannot be instantiated!");
+    }
+
+    /**
+     * Records a rejected acquisition.
+     *
+     * @param key             the key, or null for a global limiter
+     * @param tokens          tokens requested
+     * @param retryAfterNanos suggested wait
+     */
+    public static void throttled(final Object key, final long tokens, final long retryAfterNanos) {
+        final ThrottledEvent event = new ThrottledEvent();
+        if (event.shouldCommit()) {
+            event.key = key == null ? null : key.toString();
+            event.tokensRequested = tokens;
+            event.retryAfter = retryAfterNanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records an asynchronous acquisition being rescheduled.
+     *
+     * @param key        the key, or null for a global limiter
+     * @param tokens     tokens requested
+     * @param delayNanos scheduling delay
+     */
+    public static void rescheduled(final Object key, final long tokens, final long delayNanos) {
+        final AsyncRescheduleEvent event = new AsyncRescheduleEvent();
+        if (event.shouldCommit()) {
+            event.key = key == null ? null : key.toString();
+            event.tokensRequested = tokens;
+            event.delay = delayNanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records a key leaving a keyed store.
+     *
+     * @param key   the key
+     * @param cause SIZE, EXPIRED or EXPLICIT
+     */
+    public static void keyRemoved(final Object key, final String cause) {
+        final KeyRemovedEvent event = new KeyRemovedEvent();
+        if (event.shouldCommit()) {
+            event.key = String.valueOf(key);
+            event.cause = cause;
+            event.commit();
+        }
+    }
+
+    /**
+     * Completes a blocking acquisition wait begun by the caller.
+     *
+     * @param event  the event, begun when the acquisition started
+     * @param key    the key, or null for a global limiter
+     * @param tokens tokens requested
+     */
+    public static void acquireWaited(final AcquireWaitEvent event, final Object key, final long tokens) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.key = key == null ? null : key.toString();
+            event.tokensRequested = tokens;
+            event.commit();
+        }
+    }
+
+    /**
+     * Completes a prune begun by the caller.
+     *
+     * @param event   the event, begun before the store lock was taken
+     * @param scanned entries inspected
+     * @param removed entries removed
+     */
+    public static void pruned(final PruneEvent event, final long scanned, final long removed) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.scanned = scanned;
+            event.removed = removed;
+            event.commit();
+        }
+    }
+}
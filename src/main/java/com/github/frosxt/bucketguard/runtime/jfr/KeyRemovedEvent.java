@@ -0,0 +1,21 @@
+package com.github.frosxt.bucketguard.runtime.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted when a keyed store drops a key.
+ */
+@Name("com.github.frosxt.bucketguard.KeyRemoved")
+@Label("Key Removed")
+@Category("BucketGuard")
+@Description("A key was evicted, expired or explicitly removed from a keyed store")
+@StackTrace(false)
+public final class KeyRemovedEvent extends Event {
+
+    @Label("Key")
+    String key;
+
+    @Label("Cause")
+    @Description("SIZE, EXPIRED or EXPLICIT")
+    String cause;
+}
@@ -0,0 +1,21 @@
+package com.github.frosxt.bucketguard.runtime.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Spans a keyed store prune, including the time spent waiting for the store
+ * lock.
+ */
+@Name("com.github.frosxt.bucketguard.Prune")
+@Label("Keyed Store Prune")
+@Category("BucketGuard")
+@Description("A keyed store scanned for and removed expired keys")
+@StackTrace(false)
+public final class PruneEvent extends Event {
+
+    @Label("Entries Scanned")
+    long scanned;
+
+    @Label("Entries Removed")
+    long removed;
+}
@@ -0,0 +1,29 @@
+package com.github.frosxt.bucketguard.runtime.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted when a {@code tryAcquire} is rejected.
+ * <p>
+ * Disabled by default because rejections can be very frequent; enable it in
+ * the recording settings to sample throttled traffic.
+ */
+@Name("com.github.frosxt.bucketguard.Throttled")
+@Label("Throttled Request")
+@Category("BucketGuard")
+@Description("A token acquisition attempt was rejected")
+@Enabled(false)
+@StackTrace(false)
+public final class ThrottledEvent extends Event {
+
+    @Label("Key")
+    @Description("Key of the throttled request, or null for a global limiter")
+    String key;
+
+    @Label("Tokens Requested")
+    long tokensRequested;
+
+    @Label("Retry After")
+    @Timespan(Timespan.NANOSECONDS)
+    long retryAfter;
+}
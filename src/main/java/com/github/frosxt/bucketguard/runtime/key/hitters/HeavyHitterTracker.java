@@ -0,0 +1,105 @@
+package com.github.frosxt.bucketguard.runtime.key.hitters;
+
+import com.github.frosxt.bucketguard.api.HeavyHitter;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks the keys with the most traffic and the most throttled requests in
+ * fixed memory.
+ * <p>
+ * Each summary is guarded by its own lock, taken with {@code tryLock}: when
+ * another thread is already updating it, the observation is skipped rather
+ * than making the request wait. Under contention the summaries therefore
+ * sample the stream, which preserves which keys dominate it.
+ *
+ * @param <K> key type
+ */
+public final class HeavyHitterTracker<K> {
+    private final SpaceSaving<K> traffic;
+    private final SpaceSaving<K> throttled;
+    private final ReentrantLock trafficLock = new ReentrantLock();
+    private final ReentrantLock throttledLock = new ReentrantLock();
+
+    /**
+     * Creates a tracker.
+     *
+     * @param capacity number of keys monitored per summary, 0 to disable tracking
+     */
+    public HeavyHitterTracker(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be >= 0");
+        }
+        this.traffic = capacity > 0 ? new SpaceSaving<>(capacity) : null;
+        this.throttled = capacity > 0 ? new SpaceSaving<>(capacity) : null;
+    }
+
+    /**
+     * Records a request that was granted without waiting.
+     *
+     * @param key the key
+     */
+    public void granted(final K key) {
+        if (traffic == null) {
+            return;
+        }
+        offer(traffic, trafficLock, key);
+    }
+
+    /**
+     * Records a request that was rejected or had to wait.
+     *
+     * @param key the key
+     */
+    public void throttled(final K key) {
+        if (traffic == null) {
+            return;
+        }
+        offer(traffic, trafficLock, key);
+        offer(throttled, throttledLock, key);
+    }
+
+    /**
+     * @param k maximum number of keys
+     * @return keys with the most requests, highest first
+     */
+    public List<HeavyHitter<K>> topTraffic(final int k) {
+        return top(traffic, trafficLock, k);
+    }
+
+    /**
+     * @param k maximum number of keys
+     * @return keys with the most throttled requests, highest first
+     */
+    public List<HeavyHitter<K>> topThrottled(final int k) {
+        return top(throttled, throttledLock, k);
+    }
+
+    private static <K> void offer(final SpaceSaving<K> summary, final ReentrantLock lock, final K key) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            summary.offer(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <K> List<HeavyHitter<K>> top(final SpaceSaving<K> summary, final ReentrantLock lock, final int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be >= 0");
+        }
+        if (summary == null || k == 0) {
+            return List.of();
+        }
+
+        lock.lock();
+        try {
+            return summary.top(k);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.github.frosxt.bucketguard.runtime.key.hitters;
+
+import com.github.frosxt.bucketguard.api.HeavyHitter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Space-Saving frequent-items summary (Metwally, Agrawal and El Abbadi) over
+ * the stream-summary structure.
+ * <p>
+ * Monitors at most {@code capacity} keys. Counters are grouped into buckets of
+ * equal count, kept in ascending order, so an increment and the replacement of
+ * the minimum counter are O(1) and reading the top {@code k} is O(k).
+ * <p>
+ * Not thread-safe; callers serialise access.
+ *
+ * @param <K> key type
+ */
+final class SpaceSaving<K> {
+    private final int capacity;
+    private final HashMap<K, Counter<K>> counters;
+
+    private CountBucket<K> minBucket;
+    private CountBucket<K> maxBucket;
+    private CountBucket<K> spareBuckets;
+
+    SpaceSaving(final int capacity) {
+        this.capacity = capacity;
+        this.counters = HashMap.newHashMap(capacity);
+    }
+
+    /**
+     * Counts one occurrence of {@code key}.
+     *
+     * @param key the key
+     */
+    void offer(final K key) {
+        Counter<K> counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter<>();
+                counter.key = key;
+                attachAsNew(counter);
+                counters.put(key, counter);
+                return;
+            }
+
+            counter = minBucket.counters;
+            counters.remove(counter.key);
+            counter.key = key;
+            counter.error = minBucket.count;
+            counters.put(key, counter);
+        }
+        increment(counter);
+    }
+
+    /**
+     * @param k maximum number of entries
+     * @return the most frequent keys, highest count first
+     */
+    List<HeavyHitter<K>> top(final int k) {
+        final List<HeavyHitter<K>> result = new ArrayList<>(Math.min(k, counters.size()));
+        for (CountBucket<K> bucket = maxBucket; bucket != null && result.size() < k; bucket = bucket.prev) {
+            for (Counter<K> c = bucket.counters; c != null && result.size() < k; c = c.next) {
+                result.add(new HeavyHitter<>(c.key, bucket.count, c.error));
+            }
+        }
+        return result;
+    }
+
+    private void attachAsNew(final Counter<K> counter) {
+        if (minBucket != null && minBucket.count == 1) {
+            minBucket.add(counter);
+            return;
+        }
+
+        final CountBucket<K> bucket = newBucket(1);
+        bucket.next = minBucket;
+        if (minBucket != null) {
+            minBucket.prev = bucket;
+        } else {
+            maxBucket = bucket;
+        }
+        minBucket = bucket;
+        bucket.add(counter);
+    }
+
+    private void increment(final Counter<K> counter) {
+        final CountBucket<K> current = counter.bucket;
+        final long target = current.count + 1;
+
+        CountBucket<K> destination = current.next;
+        if (destination == null || destination.count != target) {
+            if (current.counters == counter && counter.next == null) {
+                current.count = target;
+                return;
+            }
+
+            destination = newBucket(target);
+            destination.prev = current;
+            destination.next = current.next;
+            if (current.next != null) {
+                current.next.prev = destination;
+            } else {
+                maxBucket = destination;
+            }
+            current.next = destination;
+        }
+
+        current.remove(counter);
+        destination.add(counter);
+        if (current.counters == null) {
+            unlink(current);
+        }
+    }
+
+    private void unlink(final CountBucket<K> bucket) {
+        if (bucket.prev != null) {
+            bucket.prev.next = bucket.next;
+        } else {
+            minBucket = bucket.next;
+        }
+        if (bucket.next != null) {
+            bucket.next.prev = bucket.prev;
+        } else {
+            maxBucket = bucket.prev;
+        }
+
+        bucket.prev = null;
+        bucket.next = spareBuckets;
+        spareBuckets = bucket;
+    }
+
+    private CountBucket<K> newBucket(final long count) {
+        final CountBucket<K> bucket;
+        if (spareBuckets != null) {
+            bucket = spareBuckets;
+            spareBuckets = bucket.next;
+            bucket.next = null;
+        } else {
+            bucket = new CountBucket<>();
+        }
+        bucket.count = count;
+        return bucket;
+    }
+
+    private static final class CountBucket<K> {
+        long count;
+        CountBucket<K> prev;
+        CountBucket<K> next;
+        Counter<K> counters;
+
+        void add(final Counter<K> counter) {
+            counter.bucket = this;
+            counter.prev = null;
+            counter.next = counters;
+            if (counters != null) {
+                counters.prev = counter;
+            }
+            counters = counter;
+        }
+
+        void remove(final Counter<K> counter) {
+            if (counter.prev != null) {
+                counter.prev.next = counter.next;
+            } else {
+                counters = counter.next;
+            }
+            if (counter.next != null) {
+                counter.next.prev = counter.prev;
+            }
+            counter.prev = null;
+            counter.next = null;
+            counter.bucket = null;
+        }
+    }
+
+    private static final class Counter<K> {
+        K key;
+        long error;
+        CountBucket<K> bucket;
+        Counter<K> prev;
+        Counter<K> next;
+    }
+}
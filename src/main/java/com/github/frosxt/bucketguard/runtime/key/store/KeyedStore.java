@@ -1,5 +1,6 @@
 package com.github.frosxt.bucketguard.runtime.key.store;
 
+import com.github.frosxt.bucketguard.api.Permit;
 import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
 
 import java.util.Map;
@@ -17,11 +18,70 @@ public interface KeyedStore<K> {
      */
     Bucket getOrCreate(K key, Supplier<Bucket> factory);
 
+    /**
+     * Attempts to acquire tokens for the key, creating its bucket if needed.
+     * <p>
+     * Default implementation acquires from {@link #getOrCreate(Object, Supplier)};
+     * stores without per-key buckets override it.
+     *
+     * @param key      the key
+     * @param factory  factory for new buckets
+     * @param tokens   tokens to acquire
+     * @param nowNanos current time in nanoseconds
+     * @return a Permit result
+     */
+    default Permit tryAcquire(final K key, final Supplier<Bucket> factory, final long tokens, final long nowNanos) {
+        return getOrCreate(key, factory).tryAcquire(tokens, nowNanos);
+    }
+
+    /**
+     * Acquires as many tokens as the key has available, up to {@code max},
+     * creating its bucket if needed.
+     *
+     * @param key      the key
+     * @param factory  factory for new buckets
+     * @param max      most tokens to acquire
+     * @param nowNanos current time in nanoseconds
+     * @return a Permit result
+     * @see Bucket#tryAcquireUpTo(long, long)
+     */
+    default Permit tryAcquireUpTo(final K key, final Supplier<Bucket> factory, final long max, final long nowNanos) {
+        return getOrCreate(key, factory).tryAcquireUpTo(max, nowNanos);
+    }
+
     /**
      * Gets the bucket for the key, or null if absent.
      */
     Bucket get(K key);
 
+    /**
+     * Gets the bucket for the key without refreshing its recency or access
+     * time, or null if absent or expired. Expired entries are left for
+     * maintenance to remove.
+     * <p>
+     * Default implementation delegates to {@link #get(Object)}, for stores
+     * whose lookups have no side effects.
+     */
+    default Bucket peek(final K key) {
+        return get(key);
+    }
+
+    /**
+     * Returns how long until the key could take {@code tokens}, without
+     * consuming anything, creating its bucket or refreshing it.
+     * <p>
+     * An absent key has a full bucket and can take them now.
+     *
+     * @param key      the key
+     * @param tokens   tokens to acquire
+     * @param nowNanos current time in nanoseconds
+     * @return nanoseconds to wait, 0 if available now
+     */
+    default long peekRetryAfterNanos(final K key, final long tokens, final long nowNanos) {
+        final Bucket bucket = peek(key);
+        return bucket == null ? 0 : bucket.retryAfterNanos(tokens, nowNanos);
+    }
+
     /**
      * Returns the current size.
      */
@@ -33,8 +93,89 @@ public interface KeyedStore<K> {
     default void prune() {
     }
 
+    /**
+     * Prunes expired entries, examining at most {@code maxEntries} entries or
+     * for about {@code maxNanos}, and resuming where the previous slice
+     * stopped.
+     * <p>
+     * Default implementation prunes the whole store in one slice.
+     *
+     * @param maxEntries maximum entries to examine
+     * @param maxNanos   time budget in nanoseconds
+     * @return what the slice did
+     */
+    default PruneSlice pruneSlice(final int maxEntries, final long maxNanos) {
+        final int before = size();
+        prune();
+        return new PruneSlice(before, Math.max(0, before - size()), true);
+    }
+
     /**
      * Returns a bounded snapshot of entries.
      */
     Map<K, Bucket> snapshot(int limit);
+
+    /**
+     * Visits live entries in weakly consistent order without copying the store.
+     * <p>
+     * Each entry present for the whole traversal is visited exactly once;
+     * entries added or removed concurrently may or may not be visited. The
+     * visitor is never invoked while a store lock is held.
+     * <p>
+     * Default implementation visits a {@link #snapshot(int)} copy.
+     *
+     * @param visitor receives each entry, returns {@code false} to stop
+     */
+    default void forEachEntry(final EntryVisitor<? super K> visitor) {
+        for (final Map.Entry<K, Bucket> entry : snapshot(Integer.MAX_VALUE).entrySet()) {
+            if (!visitor.visit(entry.getKey(), entry.getValue())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Inserts a bucket restored from a checkpoint, unless the key is already
+     * present.
+     * <p>
+     * Default implementation ignores {@code lastAccessNanos} and inserts
+     * through {@link #getOrCreate(Object, Supplier)}.
+     *
+     * @param key             the key
+     * @param bucket          the restored bucket
+     * @param lastAccessNanos the key's last access, on this store's time source
+     * @return {@code true} if the bucket was inserted
+     */
+    default boolean restore(final K key, final Bucket bucket, final long lastAccessNanos) {
+        return getOrCreate(key, () -> bucket) == bucket;
+    }
+
+    /**
+     * Callback for {@link #forEachEntry(EntryVisitor)}.
+     *
+     * @param <K> the key type
+     */
+    @FunctionalInterface
+    interface EntryVisitor<K> {
+
+        /**
+         * @param key    the key
+         * @param bucket the key's bucket
+         * @return {@code true} to continue the traversal
+         */
+        boolean visit(K key, Bucket bucket);
+
+        /**
+         * Called instead of {@link #visit(Object, Bucket)} by stores that
+         * track access times.
+         *
+         * @param key             the key
+         * @param bucket          the key's bucket
+         * @param lastAccessNanos the key's last access
+         * @return {@code true} to continue the traversal
+         */
+        default boolean visit(final K key, final Bucket bucket, final long lastAccessNanos) {
+            return visit(key, bucket);
+        }
+    }
 }
@@ -2,9 +2,12 @@ package com.github.frosxt.bucketguard.runtime.key.store;
 
 import com.github.frosxt.bucketguard.api.spec.EvictionPolicy;
 import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
-import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
 import com.github.frosxt.bucketguard.runtime.key.store.concurrent.ConcurrentKeyedStore;
 import com.github.frosxt.bucketguard.runtime.key.store.exact.ExactKeyedStoreAdapter;
+import com.github.frosxt.bucketguard.runtime.key.store.exact.RemovalDispatch;
+import com.github.frosxt.bucketguard.runtime.key.store.sketch.SketchKeyedStore;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
 /**
  * Factory for creating keyed stores based on spec configuration.
@@ -19,15 +22,33 @@ public final class KeyedStoreFactory {
      * Creates a KeyedStore based on the spec's eviction policy.
      *
      * @param spec       the store specification
-     * @param timeSource the time source for expiry
+     * @param bucketSpec the bucket specification (time source, sketch rates)
      * @param <K>        the key type
      * @return a new KeyedStore instance
      */
-    public static <K> KeyedStore<K> create(final KeyedStoreSpec<K> spec, final TimeSource timeSource) {
+    public static <K> KeyedStore<K> create(final KeyedStoreSpec<K> spec, final TokenBucketSpec bucketSpec) {
+        return create(spec, bucketSpec, MetricsRecorder.NOOP);
+    }
+
+    /**
+     * Creates a KeyedStore based on the spec's eviction policy, reporting key
+     * creation, eviction and expiry to the given recorder.
+     *
+     * @param spec       the store specification
+     * @param bucketSpec the bucket specification (time source, sketch rates)
+     * @param metrics    metrics recorder
+     * @param <K>        the key type
+     * @return a new KeyedStore instance
+     */
+    public static <K> KeyedStore<K> create(final KeyedStoreSpec<K> spec, final TokenBucketSpec bucketSpec, final MetricsRecorder metrics) {
+        if (spec.approximate()) {
+            return new SketchKeyedStore<>(spec.sketchDepth(), spec.sketchWidth(), bucketSpec, metrics);
+        }
+
         final EvictionPolicy policy = spec.evictionPolicy();
 
         if (policy == EvictionPolicy.NONE) {
-            return new ConcurrentKeyedStore<>();
+            return new ConcurrentKeyedStore<>(metrics);
         }
 
         final int maxKeys = spec.maxKeys();
@@ -38,6 +59,6 @@ public final class KeyedStoreFactory {
             expireNanos = 0;
         }
 
-        return new ExactKeyedStoreAdapter<>(maxKeys, expireNanos, spec.removalListener(), timeSource);
+        return new ExactKeyedStoreAdapter<>(maxKeys, expireNanos, RemovalDispatch.create(spec, metrics), bucketSpec.timeSource(), metrics);
     }
 }
@@ -0,0 +1,15 @@
+package com.github.frosxt.bucketguard.runtime.key.store;
+
+/**
+ * Outcome of one bounded {@link KeyedStore#pruneSlice(int, long)} call.
+ *
+ * @param scanned  entries examined
+ * @param removed  expired entries removed
+ * @param complete {@code true} if the slice reached the end of the store, so
+ *                 the next slice starts a new pass
+ */
+public record PruneSlice(long scanned, long removed, boolean complete) {
+
+    /** A slice of a store that has nothing to prune. */
+    public static final PruneSlice EMPTY = new PruneSlice(0, 0, true);
+}
@@ -0,0 +1,414 @@
+package com.github.frosxt.bucketguard.runtime.key.store.bytes;
+
+import com.github.frosxt.bucketguard.api.ByteKeys;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.jfr.JfrEvents;
+import com.github.frosxt.bucketguard.runtime.jfr.PruneEvent;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import com.github.frosxt.bucketguard.runtime.key.store.PruneSlice;
+import com.github.frosxt.bucketguard.runtime.key.store.exact.ExpiryPolicy;
+import com.github.frosxt.bucketguard.runtime.key.store.exact.RemovalDispatch;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Keyed store for byte keys, compared by content.
+ * <p>
+ * Keys are spread over segments by the high bits of their hash; each segment
+ * is an open-addressing table of parallel arrays probed linearly by the low
+ * bits. Lookups take no lock and allocate nothing: a slot's bucket is
+ * published with release semantics after its hash and key, so a reader that
+ * sees the bucket sees the rest. Inserts lock their segment, copy the key and
+ * grow the table by publishing a new one. Pruning also publishes a new table
+ * rather than leaving tombstones; an acquisition racing with the expiry of its
+ * key may be charged to the removed bucket.
+ * <p>
+ * {@link #getOrCreate(byte[], Supplier)} and {@link #get(byte[])} treat the
+ * whole array as the key. Keys handed to visitors and snapshots are copies.
+ */
+public final class ByteKeyedStore implements KeyedStore<byte[]> {
+    private static final VarHandle BUCKETS = MethodHandles.arrayElementVarHandle(Bucket[].class);
+    private static final VarHandle ACCESS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ARRAY_LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+    private static final int MAX_SEGMENT_CAPACITY = 1 << 30;
+    private static final long ACCESS_RESOLUTION_NANOS = 1_000_000L;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final ExpiryPolicy expiryPolicy;
+    private final RemovalDispatch<byte[]> removalDispatch;
+    private final MetricsRecorder metrics;
+
+    private final Object pruneLock = new Object();
+    private int pruneCursor;
+
+    public ByteKeyedStore(final long expireNanos, final Consumer<byte[]> removalListener, final TimeSource timeSource) {
+        this(expireNanos, removalListener, timeSource, MetricsRecorder.NOOP);
+    }
+
+    public ByteKeyedStore(final long expireNanos, final Consumer<byte[]> removalListener, final TimeSource timeSource,
+            final MetricsRecorder metrics) {
+        this(expireNanos, new RemovalDispatch<>(removalListener, metrics), timeSource, metrics);
+    }
+
+    public ByteKeyedStore(final long expireNanos, final RemovalDispatch<byte[]> removalDispatch, final TimeSource timeSource,
+            final MetricsRecorder metrics) {
+        final int wanted = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+        final int count = Math.min(1 << 16, Integer.highestOneBit(wanted - 1) << 1);
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment();
+        }
+        this.segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(count);
+        this.expiryPolicy = new ExpiryPolicy(expireNanos, timeSource);
+        this.removalDispatch = removalDispatch;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Attempts to acquire tokens for the key in {@code key[offset, offset + length)},
+     * creating its bucket if needed.
+     *
+     * @param key      array holding the key
+     * @param offset   start of the key
+     * @param length   length of the key
+     * @param hash     {@link ByteKeys#hash(byte[], int, int)} of the key
+     * @param factory  factory for new buckets
+     * @param tokens   tokens to acquire
+     * @param nowNanos current time in nanoseconds
+     * @return a Permit result
+     */
+    public Permit tryAcquire(final byte[] key, final int offset, final int length, final int hash, final Supplier<Bucket> factory,
+            final long tokens, final long nowNanos) {
+        return getOrCreate(key, offset, length, hash, factory, nowNanos).tryAcquire(tokens, nowNanos);
+    }
+
+    /**
+     * Attempts to acquire tokens for the key between the buffer's position and
+     * limit, creating its bucket if needed.
+     *
+     * @param key      buffer holding the key
+     * @param hash     {@link ByteKeys#hash(ByteBuffer)} of the key
+     * @param factory  factory for new buckets
+     * @param tokens   tokens to acquire
+     * @param nowNanos current time in nanoseconds
+     * @return a Permit result
+     */
+    public Permit tryAcquire(final ByteBuffer key, final int hash, final Supplier<Bucket> factory, final long tokens, final long nowNanos) {
+        final Segment segment = segmentFor(hash);
+        Table table = segment.table;
+        int index = table.indexOf(key, hash);
+        if (index < 0) {
+            synchronized (segment) {
+                table = segment.table;
+                index = table.indexOf(key, hash);
+                if (index < 0) {
+                    final byte[] copy = new byte[key.remaining()];
+                    key.get(key.position(), copy);
+                    return insert(segment, copy, hash, factory, nowNanos).tryAcquire(tokens, nowNanos);
+                }
+            }
+        }
+        touch(table, index, nowNanos);
+        return table.bucket(index).tryAcquire(tokens, nowNanos);
+    }
+
+    @Override
+    public Bucket getOrCreate(final byte[] key, final Supplier<Bucket> factory) {
+        return getOrCreate(key, 0, key.length, ByteKeys.hash(key, 0, key.length), factory, expiryPolicy.now());
+    }
+
+    @Override
+    public Permit tryAcquire(final byte[] key, final Supplier<Bucket> factory, final long tokens, final long nowNanos) {
+        return tryAcquire(key, 0, key.length, ByteKeys.hash(key, 0, key.length), factory, tokens, nowNanos);
+    }
+
+    @Override
+    public Bucket get(final byte[] key) {
+        final int hash = ByteKeys.hash(key, 0, key.length);
+        final Table table = segmentFor(hash).table;
+        final int index = table.indexOf(key, 0, key.length, hash);
+        return index < 0 ? null : table.bucket(index);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    @Override
+    public void prune() {
+        if (!expiryPolicy.isEnabled()) {
+            return;
+        }
+
+        final PruneEvent event = new PruneEvent();
+        event.begin();
+        long scanned = 0;
+        final List<Removed> removed = new ArrayList<>();
+
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                scanned += segment.prune(expiryPolicy, expiryPolicy.now(), removed);
+            }
+        }
+
+        for (final Removed entry : removed) {
+            removalDispatch.expired(entry.key(), entry.bucket());
+        }
+        JfrEvents.pruned(event, scanned, removed.size());
+    }
+
+    /**
+     * Prunes whole segments, resuming from the segment after the last one the
+     * previous slice pruned, until {@code maxEntries} entries have been
+     * examined or {@code maxNanos} has passed. At least one segment is pruned
+     * per call.
+     */
+    @Override
+    public PruneSlice pruneSlice(final int maxEntries, final long maxNanos) {
+        if (!expiryPolicy.isEnabled()) {
+            return PruneSlice.EMPTY;
+        }
+
+        final PruneEvent event = new PruneEvent();
+        event.begin();
+        final long deadline = System.nanoTime() + maxNanos;
+        long scanned = 0;
+        final List<Removed> removed = new ArrayList<>();
+        final boolean complete;
+
+        synchronized (pruneLock) {
+            do {
+                final Segment segment = segments[pruneCursor];
+                synchronized (segment) {
+                    scanned += segment.prune(expiryPolicy, expiryPolicy.now(), removed);
+                }
+                pruneCursor = (pruneCursor + 1) & (segments.length - 1);
+            } while (pruneCursor != 0 && scanned < maxEntries && System.nanoTime() - deadline < 0);
+            complete = pruneCursor == 0;
+        }
+
+        for (final Removed entry : removed) {
+            removalDispatch.expired(entry.key(), entry.bucket());
+        }
+        JfrEvents.pruned(event, scanned, removed.size());
+        return new PruneSlice(scanned, removed.size(), complete);
+    }
+
+    @Override
+    public Map<byte[], Bucket> snapshot(final int limit) {
+        final Map<byte[], Bucket> result = new HashMap<>();
+        forEachEntry((key, bucket) -> {
+            if (result.size() >= limit) {
+                return false;
+            }
+            result.put(key, bucket);
+            return true;
+        });
+        return result;
+    }
+
+    @Override
+    public void forEachEntry(final EntryVisitor<? super byte[]> visitor) {
+        for (final Segment segment : segments) {
+            final Table table = segment.table;
+            for (int i = 0; i < table.buckets.length; i++) {
+                final Bucket bucket = table.bucket(i);
+                if (bucket != null && !visitor.visit(table.keys[i].clone(), bucket, (long) ACCESS.getOpaque(table.accessed, i))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private Bucket getOrCreate(final byte[] key, final int offset, final int length, final int hash, final Supplier<Bucket> factory,
+            final long nowNanos) {
+        final Segment segment = segmentFor(hash);
+        Table table = segment.table;
+        int index = table.indexOf(key, offset, length, hash);
+        if (index < 0) {
+            synchronized (segment) {
+                table = segment.table;
+                index = table.indexOf(key, offset, length, hash);
+                if (index < 0) {
+                    return insert(segment, Arrays.copyOfRange(key, offset, offset + length), hash, factory, nowNanos);
+                }
+            }
+        }
+        touch(table, index, nowNanos);
+        return table.bucket(index);
+    }
+
+    private Bucket insert(final Segment segment, final byte[] key, final int hash, final Supplier<Bucket> factory, final long nowNanos) {
+        final Bucket bucket = factory.get();
+        segment.add(key, hash, bucket, nowNanos);
+        metrics.keyCreated();
+        return bucket;
+    }
+
+    private Segment segmentFor(final int hash) {
+        return segments[hash >>> segmentShift];
+    }
+
+    private static void touch(final Table table, final int index, final long nowNanos) {
+        // Skip the write while the recorded time is fresh to keep hot slots' lines shared
+        if (nowNanos - (long) ACCESS.getOpaque(table.accessed, index) > ACCESS_RESOLUTION_NANOS) {
+            ACCESS.setOpaque(table.accessed, index, nowNanos);
+        }
+    }
+
+    private static final class Segment {
+        volatile Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+        volatile int size;
+
+        // Callers hold the segment's monitor
+        void add(final byte[] key, final int hash, final Bucket bucket, final long accessNanos) {
+            Table current = table;
+            if ((size + 1) * 4L > current.buckets.length * 3L) {
+                if (current.buckets.length >= MAX_SEGMENT_CAPACITY) {
+                    throw new IllegalStateException("byte key segment is full");
+                }
+                current = copy(current, current.buckets.length * 2, null, 0, null);
+                table = current;
+            }
+            current.place(key, hash, bucket, accessNanos);
+            size = size + 1;
+        }
+
+        // Callers hold the segment's monitor
+        int prune(final ExpiryPolicy expiryPolicy, final long nowNanos, final List<Removed> removed) {
+            final Table current = table;
+            boolean expired = false;
+            for (int i = 0; i < current.buckets.length && !expired; i++) {
+                expired = current.bucket(i) != null && expiryPolicy.isExpired((long) ACCESS.getOpaque(current.accessed, i), nowNanos);
+            }
+            if (expired) {
+                final Table rebuilt = copy(current, current.buckets.length, expiryPolicy, nowNanos, removed);
+                size = rebuilt.count;
+                table = rebuilt;
+            }
+            return current.count;
+        }
+
+        private static Table copy(final Table from, final int capacity, final ExpiryPolicy expiryPolicy, final long nowNanos,
+                final List<Removed> removed) {
+            final Table to = new Table(capacity);
+            for (int i = 0; i < from.buckets.length; i++) {
+                final Bucket bucket = from.bucket(i);
+                if (bucket == null) {
+                    continue;
+                }
+                final long accessNanos = (long) ACCESS.getOpaque(from.accessed, i);
+                if (expiryPolicy != null && expiryPolicy.isExpired(accessNanos, nowNanos)) {
+                    removed.add(new Removed(from.keys[i], bucket));
+                } else {
+                    to.place(from.keys[i], from.hashes[i], bucket, accessNanos);
+                }
+            }
+            return to;
+        }
+    }
+
+    private record Removed(byte[] key, Bucket bucket) {
+    }
+
+    private static final class Table {
+        final int[] hashes;
+        final byte[][] keys;
+        final long[] accessed;
+        final Bucket[] buckets;
+        final int mask;
+        int count;
+
+        Table(final int capacity) {
+            this.hashes = new int[capacity];
+            this.keys = new byte[capacity][];
+            this.accessed = new long[capacity];
+            this.buckets = new Bucket[capacity];
+            this.mask = capacity - 1;
+        }
+
+        Bucket bucket(final int index) {
+            return (Bucket) BUCKETS.getAcquire(buckets, index);
+        }
+
+        void place(final byte[] key, final int hash, final Bucket bucket, final long accessNanos) {
+            int index = hash & mask;
+            while (buckets[index] != null) {
+                index = (index + 1) & mask;
+            }
+            hashes[index] = hash;
+            keys[index] = key;
+            ACCESS.setOpaque(accessed, index, accessNanos);
+            BUCKETS.setRelease(buckets, index, bucket);
+            count++;
+        }
+
+        int indexOf(final byte[] key, final int offset, final int length, final int hash) {
+            int index = hash & mask;
+            while (bucket(index) != null) {
+                final byte[] candidate = keys[index];
+                if (hashes[index] == hash && candidate.length == length && Arrays.equals(candidate, 0, length, key, offset, offset + length)) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        int indexOf(final ByteBuffer key, final int hash) {
+            int index = hash & mask;
+            while (bucket(index) != null) {
+                if (hashes[index] == hash && contentEquals(keys[index], key)) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static boolean contentEquals(final byte[] candidate, final ByteBuffer key) {
+            final int length = key.remaining();
+            if (candidate.length != length) {
+                return false;
+            }
+            final int position = key.position();
+            if (key.hasArray()) {
+                final int start = key.arrayOffset() + position;
+                return Arrays.equals(candidate, 0, length, key.array(), start, start + length);
+            }
+            int i = 0;
+            for (; i + Long.BYTES <= length; i += Long.BYTES) {
+                if ((long) ARRAY_LONGS.get(candidate, i) != (long) BUFFER_LONGS.get(key, position + i)) {
+                    return false;
+                }
+            }
+            for (; i < length; i++) {
+                if (candidate[i] != key.get(position + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
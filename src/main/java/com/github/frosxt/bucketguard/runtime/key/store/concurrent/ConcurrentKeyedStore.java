@@ -2,6 +2,7 @@ package com.github.frosxt.bucketguard.runtime.key.store.concurrent;
 
 import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
 import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -17,10 +18,27 @@ import java.util.function.Supplier;
  */
 public final class ConcurrentKeyedStore<K> implements KeyedStore<K> {
     private final ConcurrentHashMap<K, Bucket> map = new ConcurrentHashMap<>();
+    private final MetricsRecorder metrics;
+
+    public ConcurrentKeyedStore() {
+        this(MetricsRecorder.NOOP);
+    }
+
+    public ConcurrentKeyedStore(final MetricsRecorder metrics) {
+        this.metrics = metrics;
+    }
 
     @Override
     public Bucket getOrCreate(final K key, final Supplier<Bucket> factory) {
-        return map.computeIfAbsent(key, k -> factory.get());
+        final Bucket existing = map.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        return map.computeIfAbsent(key, k -> {
+            metrics.keyCreated();
+            return factory.get();
+        });
     }
 
     @Override
@@ -47,4 +65,13 @@ public final class ConcurrentKeyedStore<K> implements KeyedStore<K> {
 
         return result;
     }
+
+    @Override
+    public void forEachEntry(final EntryVisitor<? super K> visitor) {
+        for (final var entry : map.entrySet()) {
+            if (!visitor.visit(entry.getKey(), entry.getValue())) {
+                return;
+            }
+        }
+    }
 }
@@ -2,28 +2,59 @@ package com.github.frosxt.bucketguard.runtime.key.store.exact;
 
 import com.github.frosxt.bucketguard.api.time.TimeSource;
 import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.jfr.JfrEvents;
+import com.github.frosxt.bucketguard.runtime.jfr.PruneEvent;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore.EntryVisitor;
+import com.github.frosxt.bucketguard.runtime.key.store.PruneSlice;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
  * Exact LRU and expire-after-access keyed store.
+ * <p>
+ * Removals are collected under the store lock and handed to the
+ * {@link RemovalDispatch} after it is released, so a listener never runs
+ * while the lock is held.
  */
 public final class ExactKeyedStore<K> {
+    private static final int TRAVERSAL_BATCH = 256;
+    private static final int DEADLINE_CHECK_INTERVAL = 64;
+
     private final int maxKeys;
     private final ExpiryPolicy expiryPolicy;
     private final RemovalDispatch<K> removalDispatch;
 
     private final Object lock = new Object();
     private final LruMap<K> map;
+    private final MetricsRecorder metrics;
+
+    private final ReentrantLock traversalLock = new ReentrantLock();
+    private long traversalStamp;
 
     public ExactKeyedStore(final int maxKeys, final long expireNanos, final Consumer<K> removalListener, final TimeSource timeSource) {
+        this(maxKeys, expireNanos, removalListener, timeSource, MetricsRecorder.NOOP);
+    }
+
+    public ExactKeyedStore(final int maxKeys, final long expireNanos, final Consumer<K> removalListener, final TimeSource timeSource,
+            final MetricsRecorder metrics) {
+        this(maxKeys, expireNanos, new RemovalDispatch<>(removalListener, metrics), timeSource, metrics);
+    }
+
+    public ExactKeyedStore(final int maxKeys, final long expireNanos, final RemovalDispatch<K> removalDispatch, final TimeSource timeSource,
+            final MetricsRecorder metrics) {
         this.maxKeys = maxKeys;
         this.expiryPolicy = new ExpiryPolicy(expireNanos, timeSource);
-        this.removalDispatch = new RemovalDispatch<>(removalListener);
+        this.removalDispatch = removalDispatch;
         this.map = new LruMap<>(16, 0.75f);
+        this.metrics = metrics;
     }
 
     /**
@@ -34,28 +65,37 @@ public final class ExactKeyedStore<K> {
      * @return the bucket
      */
     public Bucket getOrCreate(final K key, final Supplier<Bucket> factory) {
+        final Bucket bucket;
+        StoreEntry<K> expired = null;
+        final List<StoreEntry<K>> evicted;
+
         synchronized (lock) {
             final long now = expiryPolicy.now();
 
             final StoreEntry<K> existing = map.get(key);
             if (existing != null) {
                 if (expiryPolicy.isExpired(existing.lastAccessNanos(), now)) {
-                    map.remove(key);
-                    removalDispatch.fire(key);
+                    map.removeEntry(existing);
+                    expired = existing;
                 } else {
                     existing.touch(now);
                     return existing.bucket();
                 }
             }
 
-            final Bucket bucket = factory.get();
+            bucket = factory.get();
             final StoreEntry<K> entry = new StoreEntry<>(key, bucket, now);
-            map.put(key, entry);
+            map.put(entry);
+            metrics.keyCreated();
 
-            enforceMaxKeys();
+            evicted = enforceMaxKeys();
+        }
 
-            return bucket;
+        if (expired != null) {
+            removalDispatch.expired(key, expired.bucket());
         }
+        dispatchEvicted(evicted);
+        return bucket;
     }
 
     /**
@@ -65,6 +105,7 @@ public final class ExactKeyedStore<K> {
      * @return the bucket or null
      */
     public Bucket get(final K key) {
+        final StoreEntry<K> expired;
         synchronized (lock) {
             final StoreEntry<K> entry = map.get(key);
             if (entry == null) {
@@ -72,13 +113,32 @@ public final class ExactKeyedStore<K> {
             }
 
             final long now = expiryPolicy.now();
-            if (expiryPolicy.isExpired(entry.lastAccessNanos(), now)) {
-                map.remove(key);
-                removalDispatch.fire(key);
-                return null;
+            if (!expiryPolicy.isExpired(entry.lastAccessNanos(), now)) {
+                entry.touch(now);
+                return entry.bucket();
             }
 
-            entry.touch(now);
+            map.removeEntry(entry);
+            expired = entry;
+        }
+
+        removalDispatch.expired(key, expired.bucket());
+        return null;
+    }
+
+    /**
+     * Looks up a key without moving it in LRU order, refreshing its access
+     * time or removing it if expired.
+     *
+     * @param key the key
+     * @return the bucket, or null if absent or expired
+     */
+    public Bucket peek(final K key) {
+        synchronized (lock) {
+            final StoreEntry<K> entry = map.peek(key);
+            if (entry == null || expiryPolicy.isExpired(entry.lastAccessNanos(), expiryPolicy.now())) {
+                return null;
+            }
             return entry.bucket();
         }
     }
@@ -100,17 +160,77 @@ public final class ExactKeyedStore<K> {
             return;
         }
 
+        final PruneEvent event = new PruneEvent();
+        event.begin();
+        long scanned = 0;
+        final List<StoreEntry<K>> removed = new ArrayList<>();
+
+        synchronized (lock) {
+            final long now = expiryPolicy.now();
+            StoreEntry<K> entry = map.eldest();
+            while (entry != null) {
+                final StoreEntry<K> next = map.successor(entry);
+                scanned++;
+                if (expiryPolicy.isExpired(entry.lastAccessNanos(), now)) {
+                    map.removeEntry(entry);
+                    removed.add(entry);
+                }
+                entry = next;
+            }
+        }
+
+        dispatchExpired(removed);
+        JfrEvents.pruned(event, scanned, removed.size());
+    }
+
+    /**
+     * Prunes expired entries in a bounded slice.
+     * <p>
+     * Entries are removed eldest first until the first one that has not
+     * expired, so the store lock is held for at most {@code maxEntries}
+     * entries or about {@code maxNanos} per call. Access order follows access
+     * time, so that entry ends the pass; a restored entry carrying an older
+     * access time is pruned once it becomes the eldest, and lookups treat it
+     * as expired until then.
+     *
+     * @param maxEntries maximum entries to examine, must be >= 1
+     * @param maxNanos   time budget in nanoseconds, checked every
+     *                   {@value #DEADLINE_CHECK_INTERVAL} entries
+     * @return what the slice did
+     */
+    public PruneSlice pruneSlice(final int maxEntries, final long maxNanos) {
+        if (!expiryPolicy.isEnabled()) {
+            return PruneSlice.EMPTY;
+        }
+
+        final PruneEvent event = new PruneEvent();
+        event.begin();
+        final long deadline = System.nanoTime() + maxNanos;
+        long scanned = 0;
+        final List<StoreEntry<K>> removed = new ArrayList<>();
+        boolean complete = false;
+
         synchronized (lock) {
             final long now = expiryPolicy.now();
-            final var it = map.entrySet().iterator();
-            while (it.hasNext()) {
-                final var e = it.next();
-                if (expiryPolicy.isExpired(e.getValue().lastAccessNanos(), now)) {
-                    it.remove();
-                    removalDispatch.fire(e.getKey());
+            while (scanned < maxEntries && (scanned % DEADLINE_CHECK_INTERVAL != 0 || System.nanoTime() - deadline < 0)) {
+                final StoreEntry<K> entry = map.eldest();
+                if (entry == null) {
+                    complete = true;
+                    break;
+                }
+                scanned++;
+                if (!expiryPolicy.isExpired(entry.lastAccessNanos(), now)) {
+                    complete = true;
+                    break;
                 }
+                map.removeEntry(entry);
+                removed.add(entry);
             }
         }
+
+        dispatchExpired(removed);
+        JfrEvents.pruned(event, scanned, removed.size());
+        return new PruneSlice(scanned, removed.size(), complete);
     }
 
     /**
@@ -122,45 +242,165 @@ public final class ExactKeyedStore<K> {
     public Map<K, Bucket> snapshot(final int limit) {
         synchronized (lock) {
             final Map<K, Bucket> result = new HashMap<>();
-            int count = 0;
-            for (final var e : map.entrySet()) {
-                if (count >= limit) {
-                    break;
-                }
-                result.put(e.getKey(), e.getValue().bucket());
-                count++;
+            for (StoreEntry<K> e = map.eldest(); e != null && result.size() < limit; e = map.successor(e)) {
+                result.put(e.key(), e.bucket());
             }
             return result;
         }
     }
 
-    public void remove(final K key) {
+    /**
+     * Visits live entries, eldest first, in batches.
+     * <p>
+     * The store lock is held only while a batch is collected, walking at most
+     * {@value #TRAVERSAL_BATCH} entries; the visitor runs with the lock
+     * released. A cursor marker holds the traversal's place in the
+     * access-ordered list between batches, and an end marker linked at the
+     * tail when the traversal starts bounds it. Keys inserted during the
+     * traversal land behind the end marker and are not visited; an accessed
+     * entry that has not been visited moves just ahead of the end marker, and
+     * one already visited is stamped so it is not reported twice. Each entry
+     * is therefore walked at most twice, however fast keys are inserted or
+     * accessed. Traversals are serialised against each other.
+     *
+     * @param visitor receives each entry, returns {@code false} to stop
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachEntry(final EntryVisitor<? super K> visitor) {
+        final Object[] keys = new Object[TRAVERSAL_BATCH];
+        final Bucket[] buckets = new Bucket[TRAVERSAL_BATCH];
+        final long[] accessTimes = new long[TRAVERSAL_BATCH];
+        final StoreEntry<K> cursor = StoreEntry.marker();
+        final StoreEntry<K> end = StoreEntry.marker();
+
+        traversalLock.lock();
+        try {
+            final long stamp = ++traversalStamp;
+            synchronized (lock) {
+                map.linkMarkerFirst(cursor);
+                map.beginTraversal(end, stamp);
+            }
+
+            try {
+                boolean more = true;
+                while (more) {
+                    int count = 0;
+                    synchronized (lock) {
+                        final long now = expiryPolicy.now();
+                        int walked = 0;
+                        StoreEntry<K> last = cursor;
+                        StoreEntry<K> entry = map.successor(cursor, end);
+                        while (entry != null && walked < TRAVERSAL_BATCH) {
+                            walked++;
+                            if (entry.visitStamp != stamp && !expiryPolicy.isExpired(entry.lastAccessNanos(), now)) {
+                                entry.visitStamp = stamp;
+                                keys[count] = entry.key();
+                                buckets[count] = entry.bucket();
+                                accessTimes[count] = entry.lastAccessNanos();
+                                count++;
+                            }
+                            last = entry;
+                            entry = map.successor(entry, end);
+                        }
+                        map.moveMarkerAfter(cursor, last);
+                        more = entry != null;
+                    }
+
+                    for (int i = 0; i < count; i++) {
+                        if (!visitor.visit((K) keys[i], buckets[i], accessTimes[i])) {
+                            return;
+                        }
+                    }
+                    Arrays.fill(keys, 0, count, null);
+                    Arrays.fill(buckets, 0, count, null);
+                }
+            } finally {
+                synchronized (lock) {
+                    map.unlinkMarker(cursor);
+                    map.endTraversal();
+                }
+            }
+        } finally {
+            traversalLock.unlock();
+        }
+    }
+
+    /**
+     * Inserts a restored bucket at the most recently used position, unless the
+     * key is present or the access time has already expired.
+     *
+     * @param key             the key
+     * @param bucket          the bucket
+     * @param lastAccessNanos the key's last access
+     * @return {@code true} if inserted
+     */
+    public boolean restore(final K key, final Bucket bucket, final long lastAccessNanos) {
+        final List<StoreEntry<K>> evicted;
         synchronized (lock) {
-            if (map.remove(key) != null) {
-                removalDispatch.fire(key);
+            if (map.peek(key) != null || expiryPolicy.isExpired(lastAccessNanos, expiryPolicy.now())) {
+                return false;
             }
+
+            map.put(new StoreEntry<>(key, bucket, lastAccessNanos));
+            metrics.keyCreated();
+
+            evicted = enforceMaxKeys();
+        }
+
+        dispatchEvicted(evicted);
+        return true;
+    }
+
+    public void remove(final K key) {
+        final StoreEntry<K> removed;
+        synchronized (lock) {
+            removed = map.remove(key);
+        }
+
+        if (removed != null) {
+            removalDispatch.removed(key, removed.bucket());
         }
     }
 
     public void clear() {
+        final List<StoreEntry<K>> removed;
         synchronized (lock) {
-            for (final K key : map.keySet()) {
-                removalDispatch.fire(key);
+            removed = new ArrayList<>(map.size());
+            for (StoreEntry<K> e = map.eldest(); e != null; e = map.successor(e)) {
+                removed.add(e);
             }
             map.clear();
         }
+
+        for (final StoreEntry<K> entry : removed) {
+            removalDispatch.removed(entry.key(), entry.bucket());
+        }
     }
 
-    private void enforceMaxKeys() {
-        if (maxKeys <= 0) {
-            return;
+    // Callers hold the lock; the evicted entries are dispatched once it is released
+    private List<StoreEntry<K>> enforceMaxKeys() {
+        if (maxKeys <= 0 || map.size() <= maxKeys) {
+            return List.of();
+        }
+
+        final List<StoreEntry<K>> evicted = new ArrayList<>(map.size() - maxKeys);
+        while (map.size() > maxKeys) {
+            final StoreEntry<K> eldest = map.eldest();
+            map.removeEntry(eldest);
+            evicted.add(eldest);
         }
+        return evicted;
+    }
+
+    private void dispatchEvicted(final List<StoreEntry<K>> evicted) {
+        for (final StoreEntry<K> entry : evicted) {
+            removalDispatch.evicted(entry.key(), entry.bucket());
+        }
+    }
 
-        final var it = map.entrySet().iterator();
-        while (map.size() > maxKeys && it.hasNext()) {
-            final var eldest = it.next();
-            it.remove();
-            removalDispatch.fire(eldest.getKey());
+    private void dispatchExpired(final List<StoreEntry<K>> expired) {
+        for (final StoreEntry<K> entry : expired) {
+            removalDispatch.expired(entry.key(), entry.bucket());
         }
     }
 }
@@ -3,6 +3,8 @@ package com.github.frosxt.bucketguard.runtime.key.store.exact;
 import com.github.frosxt.bucketguard.api.time.TimeSource;
 import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
 import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import com.github.frosxt.bucketguard.runtime.key.store.PruneSlice;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
 import java.util.Map;
 import java.util.function.Consumer;
@@ -17,7 +19,17 @@ public final class ExactKeyedStoreAdapter<K> implements KeyedStore<K> {
     private final ExactKeyedStore<K> delegate;
 
     public ExactKeyedStoreAdapter(final int maxKeys, final long expireNanos, final Consumer<K> removalListener, final TimeSource timeSource) {
-        this.delegate = new ExactKeyedStore<>(maxKeys, expireNanos, removalListener, timeSource);
+        this(maxKeys, expireNanos, removalListener, timeSource, MetricsRecorder.NOOP);
+    }
+
+    public ExactKeyedStoreAdapter(final int maxKeys, final long expireNanos, final Consumer<K> removalListener, final TimeSource timeSource,
+            final MetricsRecorder metrics) {
+        this.delegate = new ExactKeyedStore<>(maxKeys, expireNanos, removalListener, timeSource, metrics);
+    }
+
+    public ExactKeyedStoreAdapter(final int maxKeys, final long expireNanos, final RemovalDispatch<K> removalDispatch,
+            final TimeSource timeSource, final MetricsRecorder metrics) {
+        this.delegate = new ExactKeyedStore<>(maxKeys, expireNanos, removalDispatch, timeSource, metrics);
     }
 
     @Override
@@ -30,6 +42,11 @@ public final class ExactKeyedStoreAdapter<K> implements KeyedStore<K> {
         return delegate.get(key);
     }
 
+    @Override
+    public Bucket peek(final K key) {
+        return delegate.peek(key);
+    }
+
     @Override
     public int size() {
         return delegate.size();
@@ -40,8 +57,23 @@ public final class ExactKeyedStoreAdapter<K> implements KeyedStore<K> {
         delegate.prune();
     }
 
+    @Override
+    public PruneSlice pruneSlice(final int maxEntries, final long maxNanos) {
+        return delegate.pruneSlice(maxEntries, maxNanos);
+    }
+
     @Override
     public Map<K, Bucket> snapshot(final int limit) {
         return delegate.snapshot(limit);
     }
+
+    @Override
+    public void forEachEntry(final EntryVisitor<? super K> visitor) {
+        delegate.forEachEntry(visitor);
+    }
+
+    @Override
+    public boolean restore(final K key, final Bucket bucket, final long lastAccessNanos) {
+        return delegate.restore(key, bucket, lastAccessNanos);
+    }
 }
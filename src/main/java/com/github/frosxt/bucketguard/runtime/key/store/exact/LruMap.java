@@ -1,28 +1,231 @@
 package com.github.frosxt.bucketguard.runtime.key.store.exact;
 
-import java.io.Serial;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.HashMap;
 
 /**
- * Specialized LinkedHashMap for LRU access order.
+ * Hash index over an intrusive, access-ordered doubly linked list of
+ * {@link StoreEntry} nodes, eldest first.
+ * <p>
+ * Owning the list (rather than extending {@code LinkedHashMap}) lets
+ * traversals park a marker node in it between batches: the marker keeps its
+ * position while other entries are accessed, inserted or removed around it.
+ * Marker nodes are never indexed and are skipped by {@link #eldest()}.
+ * <p>
+ * While a traversal is active, an end marker fixed at the tail bounds it:
+ * inserts carry the traversal's stamp and land behind the end marker, and
+ * accessed entries the traversal has not stamped yet move only up to it.
+ * <p>
+ * Not thread-safe; guarded by the owning store's lock.
+ *
+ * @param <K> key type
  */
-public class LruMap<K> extends LinkedHashMap<K, StoreEntry<K>> {
-    @Serial
-    private static final long serialVersionUID = 1L;
+public final class LruMap<K> {
+    private final HashMap<K, StoreEntry<K>> index;
+    private final StoreEntry<K> head = StoreEntry.marker();
+    private StoreEntry<K> traversalEnd;
+    private long traversalStamp;
 
     /**
      * Creates a new LruMap.
-     * 
+     *
      * @param initialCapacity initial size
      * @param loadFactor      load factor
      */
     public LruMap(final int initialCapacity, final float loadFactor) {
-        super(initialCapacity, loadFactor, true);
+        this.index = new HashMap<>(initialCapacity, loadFactor);
+        head.prev = head;
+        head.next = head;
     }
 
-    @Override
-    protected boolean removeEldestEntry(final Map.Entry<K, StoreEntry<K>> eldest) {
-        return false;
+    /**
+     * Looks up an entry and moves it to the most recently used position, or
+     * just ahead of the active traversal's end marker if the traversal has not
+     * visited it yet.
+     *
+     * @param key the key
+     * @return the entry, or null
+     */
+    public StoreEntry<K> get(final K key) {
+        final StoreEntry<K> entry = index.get(key);
+        if (entry != null) {
+            final StoreEntry<K> anchor = traversalEnd != null && entry.visitStamp != traversalStamp ? traversalEnd : head;
+            if (entry.next != anchor) {
+                unlink(entry);
+                linkBefore(entry, anchor);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Looks up an entry without changing its position.
+     *
+     * @param key the key
+     * @return the entry, or null
+     */
+    public StoreEntry<K> peek(final K key) {
+        return index.get(key);
+    }
+
+    /**
+     * Inserts an entry at the most recently used position.
+     *
+     * @param entry the entry, whose key must not be present
+     */
+    public void put(final StoreEntry<K> entry) {
+        if (traversalEnd != null) {
+            entry.visitStamp = traversalStamp;
+        }
+        index.put(entry.key, entry);
+        linkBefore(entry, head);
+    }
+
+    /**
+     * @param key the key
+     * @return the removed entry, or null
+     */
+    public StoreEntry<K> remove(final K key) {
+        final StoreEntry<K> entry = index.remove(key);
+        if (entry != null) {
+            unlink(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Removes an entry known to be linked.
+     *
+     * @param entry the entry
+     */
+    public void removeEntry(final StoreEntry<K> entry) {
+        index.remove(entry.key);
+        unlink(entry);
+    }
+
+    /**
+     * @return the least recently used entry, or null if empty
+     */
+    public StoreEntry<K> eldest() {
+        return successor(head);
+    }
+
+    /**
+     * Returns the first non-marker node after {@code node}.
+     *
+     * @param node a linked node or marker
+     * @return the next entry, or null at the end of the list
+     */
+    public StoreEntry<K> successor(final StoreEntry<K> node) {
+        StoreEntry<K> next = node.next;
+        while (next != head && next.isMarker()) {
+            next = next.next;
+        }
+        return next == head ? null : next;
+    }
+
+    /**
+     * Returns the first non-marker node after {@code node}, stopping at
+     * {@code end}.
+     *
+     * @param node a linked node or marker
+     * @param end  a linked marker bounding the walk
+     * @return the next entry, or null at {@code end} or the end of the list
+     */
+    public StoreEntry<K> successor(final StoreEntry<K> node, final StoreEntry<K> end) {
+        StoreEntry<K> next = node.next;
+        while (next != end && next != head && next.isMarker()) {
+            next = next.next;
+        }
+        return next == end || next == head ? null : next;
+    }
+
+    /**
+     * Starts a traversal bounded by {@code end}, which is linked at the most
+     * recently used end of the list. Entries inserted until
+     * {@link #endTraversal()} are stamped with {@code stamp}.
+     *
+     * @param end   an unlinked marker
+     * @param stamp the traversal's visit stamp
+     */
+    public void beginTraversal(final StoreEntry<K> end, final long stamp) {
+        linkBefore(end, head);
+        traversalEnd = end;
+        traversalStamp = stamp;
+    }
+
+    /**
+     * Ends the active traversal and unlinks its end marker.
+     */
+    public void endTraversal() {
+        unlink(traversalEnd);
+        traversalEnd = null;
+    }
+
+    /**
+     * Links a marker at the eldest end of the list.
+     *
+     * @param marker an unlinked marker
+     */
+    public void linkMarkerFirst(final StoreEntry<K> marker) {
+        linkBefore(marker, head.next);
+    }
+
+    /**
+     * Moves a linked marker so that it directly follows {@code node}.
+     *
+     * @param marker a linked marker
+     * @param node   a linked node
+     */
+    public void moveMarkerAfter(final StoreEntry<K> marker, final StoreEntry<K> node) {
+        if (marker == node) {
+            return;
+        }
+        unlink(marker);
+        linkBefore(marker, node.next);
+    }
+
+    /**
+     * Unlinks a marker.
+     *
+     * @param marker a linked marker
+     */
+    public void unlinkMarker(final StoreEntry<K> marker) {
+        unlink(marker);
+    }
+
+    /**
+     * @return number of entries
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Removes all entries. Linked markers stay valid and end up at the end of the list.
+     */
+    public void clear() {
+        index.clear();
+        StoreEntry<K> node = head.next;
+        while (node != head) {
+            final StoreEntry<K> next = node.next;
+            if (!node.isMarker()) {
+                unlink(node);
+            }
+            node = next;
+        }
+    }
+
+    private void linkBefore(final StoreEntry<K> node, final StoreEntry<K> successor) {
+        node.next = successor;
+        node.prev = successor.prev;
+        successor.prev.next = node;
+        successor.prev = node;
+    }
+
+    private void unlink(final StoreEntry<K> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
     }
 }
@@ -1,12 +1,47 @@
 package com.github.frosxt.bucketguard.runtime.key.store.exact;
 
+import com.github.frosxt.bucketguard.api.RemovalCause;
+import com.github.frosxt.bucketguard.api.RemovalListener;
+import com.github.frosxt.bucketguard.api.RemovalNotification;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.jfr.JfrEvents;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
  * Handles removal listener dispatch.
+ * <p>
+ * Without an executor, listeners run on the removing thread. With one,
+ * removals are queued on a lock-free queue bounded by a counter and a single
+ * drain task at a time delivers them in batches; a removal that finds the
+ * queue full, or whose drain task the executor rejects, is delivered on the
+ * removing thread instead. Stores call this class only after releasing their
+ * locks, so that fallback never runs a listener under a store lock.
+ * <p>
+ * Listener exceptions thrown on the executor are handed to the executor
+ * thread's uncaught exception handler, and later batches are still delivered.
  */
 public final class RemovalDispatch<K> {
+    private static final int MAX_BATCH = 256;
+
     private final Consumer<K> listener;
+    private final RemovalListener<K> notificationListener;
+    private final MetricsRecorder metrics;
+
+    private final Executor executor;
+    private final int bufferSize;
+    private final ConcurrentLinkedQueue<RemovalNotification<K>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
 
     /**
      * Creates a dispatcher.
@@ -14,17 +49,165 @@ public final class RemovalDispatch<K> {
      * @param listener the listener (can be null)
      */
     public RemovalDispatch(final Consumer<K> listener) {
+        this(listener, MetricsRecorder.NOOP);
+    }
+
+    /**
+     * Creates a dispatcher that also counts evictions and expirations.
+     * 
+     * @param listener the listener (can be null)
+     * @param metrics  metrics recorder, not null
+     */
+    public RemovalDispatch(final Consumer<K> listener, final MetricsRecorder metrics) {
+        this(listener, null, null, 1, metrics);
+    }
+
+    /**
+     * Creates a dispatcher.
+     *
+     * @param listener             key listener (can be null)
+     * @param notificationListener notification listener (can be null)
+     * @param executor             executor for batched delivery, or null to deliver synchronously
+     * @param bufferSize           maximum removals queued for the executor, must be >= 1
+     * @param metrics              metrics recorder, not null
+     */
+    public RemovalDispatch(final Consumer<K> listener, final RemovalListener<K> notificationListener, final Executor executor,
+            final int bufferSize, final MetricsRecorder metrics) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be >= 1");
+        }
         this.listener = listener;
+        this.notificationListener = notificationListener;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates the dispatcher configured by a store spec.
+     *
+     * @param spec    the store spec
+     * @param metrics metrics recorder, not null
+     * @param <K>     key type
+     * @return a new dispatcher
+     */
+    public static <K> RemovalDispatch<K> create(final KeyedStoreSpec<K> spec, final MetricsRecorder metrics) {
+        return new RemovalDispatch<>(spec.removalListener(), spec.removalNotificationListener(), spec.removalExecutor(),
+                spec.removalBufferSize(), metrics);
+    }
+
+    /**
+     * Fires the listener for a key evicted to respect the size bound.
+     * 
+     * @param key    the key
+     * @param bucket the key's bucket
+     */
+    public void evicted(final K key, final Bucket bucket) {
+        metrics.keyEvicted();
+        JfrEvents.keyRemoved(key, "SIZE");
+        fire(key, RemovalCause.SIZE, bucket);
+    }
+
+    /**
+     * Fires the listener for a key removed after being idle.
+     * 
+     * @param key    the key
+     * @param bucket the key's bucket
+     */
+    public void expired(final K key, final Bucket bucket) {
+        metrics.keyExpired();
+        JfrEvents.keyRemoved(key, "EXPIRED");
+        fire(key, RemovalCause.EXPIRED, bucket);
     }
 
     /**
-     * Fires the listener for the given key.
+     * Fires the listener for a key removed explicitly.
      * 
-     * @param key the key
+     * @param key    the key
+     * @param bucket the key's bucket
      */
-    public void fire(final K key) {
+    public void removed(final K key, final Bucket bucket) {
+        JfrEvents.keyRemoved(key, "EXPLICIT");
+        fire(key, RemovalCause.EXPLICIT, bucket);
+    }
+
+    private void fire(final K key, final RemovalCause cause, final Bucket bucket) {
+        if (listener == null && notificationListener == null) {
+            return;
+        }
+
+        // Only notification listeners see the final state, so skip the snapshot otherwise
+        final RemovalNotification<K> notification = new RemovalNotification<>(key, cause,
+                notificationListener == null ? null : bucket.snapshot());
+        if (executor == null || queued.incrementAndGet() > bufferSize) {
+            if (executor != null) {
+                queued.decrementAndGet();
+            }
+            deliver(notification);
+            return;
+        }
+
+        queue.offer(notification);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (final RejectedExecutionException e) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        final List<RemovalNotification<K>> batch = new ArrayList<>(Math.min(MAX_BATCH, Math.max(1, queued.get())));
+        while (true) {
+            RemovalNotification<K> notification;
+            while (batch.size() < MAX_BATCH && (notification = queue.poll()) != null) {
+                batch.add(notification);
+            }
+
+            if (!batch.isEmpty()) {
+                queued.addAndGet(-batch.size());
+                try {
+                    deliverBatch(batch);
+                } catch (final RuntimeException e) {
+                    // The remover has moved on, so report it here and keep delivering later batches
+                    final Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+                batch.clear();
+                continue;
+            }
+
+            draining.set(false);
+            // Removals queued after the last poll but before the flag cleared would otherwise wait for the next removal
+            if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void deliver(final RemovalNotification<K> notification) {
         if (listener != null) {
-            listener.accept(key);
+            listener.accept(notification.key());
+        }
+        if (notificationListener != null) {
+            notificationListener.onRemoval(notification);
+        }
+    }
+
+    private void deliverBatch(final List<RemovalNotification<K>> batch) {
+        if (listener != null) {
+            for (final RemovalNotification<K> notification : batch) {
+                listener.accept(notification.key());
+            }
+        }
+        if (notificationListener != null) {
+            notificationListener.onRemovals(List.copyOf(batch));
         }
     }
 }
@@ -12,6 +12,10 @@ public final class StoreEntry<K> {
     final Bucket bucket;
     volatile long lastAccessNanos;
 
+    StoreEntry<K> prev;
+    StoreEntry<K> next;
+    long visitStamp;
+
     /**
      * Creates a new entry.
      * 
@@ -25,6 +29,18 @@ public final class StoreEntry<K> {
         this.lastAccessNanos = now;
     }
 
+    /**
+     * @param <K> key type
+     * @return a traversal marker, which carries no key or bucket
+     */
+    static <K> StoreEntry<K> marker() {
+        return new StoreEntry<>(null, null, 0);
+    }
+
+    boolean isMarker() {
+        return bucket == null;
+    }
+
     /**
      * Updates access time.
      * 
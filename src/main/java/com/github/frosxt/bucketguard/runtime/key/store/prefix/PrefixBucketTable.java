@@ -0,0 +1,337 @@
+package com.github.frosxt.bucketguard.runtime.key.store.prefix;
+
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.GcraMath;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.RateParameters;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * GCRA buckets for address prefixes, stored in primitive arrays.
+ * <p>
+ * A prefix is a 128-bit key held as two longs. Keys are spread over segments
+ * by the high bits of their hash; each segment is an open-addressing table of
+ * parallel {@code int} tag, {@code long} key and {@code long} TAT arrays,
+ * probed linearly by the low bits. Lookups take no lock and allocate nothing,
+ * and acquisitions CAS the TAT in place.
+ * <p>
+ * A prefix whose TAT has fallen behind the clock is indistinguishable from an
+ * absent one, so {@link #prune(long)} drops every full bucket and only prefixes
+ * with recent traffic stay materialized. Nothing prunes the table on its own;
+ * the owner decides when. Growing and pruning copy a segment into
+ * a new table: each TAT is swapped for a {@code MOVED} marker as it is copied,
+ * and an acquisition that meets the marker waits for the copy and retries on
+ * the new table, so no update is lost.
+ */
+public final class PrefixBucketTable {
+    private static final VarHandle TAGS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle TATS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long MOVED = Long.MIN_VALUE;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+    private static final int MAX_SEGMENT_CAPACITY = 1 << 28;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final long emissionIntervalNanos;
+    private final long burstOffsetNanos;
+    private final boolean strictMath;
+    private final MetricsRecorder metrics;
+
+    /**
+     * Creates an empty table.
+     *
+     * @param rate    rate of every bucket, not null
+     * @param metrics metrics recorder, not null
+     */
+    public PrefixBucketTable(final RateParameters rate, final MetricsRecorder metrics) {
+        final int wanted = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+        final int count = Math.min(1 << 16, Integer.highestOneBit(wanted - 1) << 1);
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment();
+        }
+        this.segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(count);
+        this.emissionIntervalNanos = rate.emissionIntervalNanos();
+        this.burstOffsetNanos = rate.burstOffsetNanos();
+        this.strictMath = rate.spec().strictMath();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Hashes a prefix key.
+     *
+     * @param high high 64 bits of the key
+     * @param low  low 64 bits of the key
+     * @return the hash
+     */
+    public static int hash(final long high, final long low) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h = (h ^ (h >>> 32)) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    /**
+     * Attempts to take {@code tokens} from the prefix's bucket, materializing it
+     * if needed.
+     *
+     * @param high     high 64 bits of the key
+     * @param low      low 64 bits of the key
+     * @param hash     {@link #hash(long, long)} of the key
+     * @param tokens   tokens to acquire
+     * @param nowNanos current time
+     * @return the tokens left if granted, otherwise the negated retry-after
+     *         in nanoseconds, which is always below zero
+     */
+    public long tryAcquire(final long high, final long low, final int hash, final long tokens, final long nowNanos) {
+        if (emissionIntervalNanos == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos, strictMath);
+        final Segment segment = segmentFor(hash);
+        while (true) {
+            Table table = segment.table;
+            int index = table.indexOf(high, low, hash);
+            if (index < 0) {
+                synchronized (segment) {
+                    table = segment.table;
+                    index = table.indexOf(high, low, hash);
+                    if (index < 0) {
+                        index = segment.add(high, low, hash, nowNanos);
+                        table = segment.table;
+                        metrics.keyCreated();
+                    }
+                }
+            }
+
+            while (true) {
+                final long currentTat = (long) TATS.getVolatile(table.tats, index);
+                if (currentTat == MOVED) {
+                    awaitCopy(segment);
+                    break;
+                }
+
+                final long baseTime = Math.max(currentTat, nowNanos);
+                final long potentialTat = GcraMath.calculatePotentialTat(baseTime, costNanos, strictMath);
+                final long allowedLimit = nowNanos + burstOffsetNanos;
+                if (potentialTat > allowedLimit) {
+                    return -(potentialTat - burstOffsetNanos - nowNanos);
+                }
+                if (TATS.compareAndSet(table.tats, index, currentTat, potentialTat)) {
+                    return (allowedLimit - potentialTat) / emissionIntervalNanos;
+                }
+                metrics.casRetry();
+            }
+        }
+    }
+
+    /**
+     * Returns tokens taken by a granted {@link #tryAcquire} that is being
+     * rolled back.
+     *
+     * @param high     high 64 bits of the key
+     * @param low      low 64 bits of the key
+     * @param hash     {@link #hash(long, long)} of the key
+     * @param tokens   tokens previously granted
+     * @param nowNanos the time the tokens were granted at
+     */
+    public void refund(final long high, final long low, final int hash, final long tokens, final long nowNanos) {
+        if (emissionIntervalNanos == 0) {
+            return;
+        }
+
+        final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos, strictMath);
+        final Segment segment = segmentFor(hash);
+        while (true) {
+            final Table table = segment.table;
+            final int index = table.indexOf(high, low, hash);
+            if (index < 0) {
+                return;
+            }
+
+            final long currentTat = (long) TATS.getVolatile(table.tats, index);
+            if (currentTat == MOVED) {
+                awaitCopy(segment);
+                continue;
+            }
+            if (currentTat <= nowNanos || TATS.compareAndSet(table.tats, index, currentTat, Math.max(currentTat - costNanos, nowNanos))) {
+                return;
+            }
+            metrics.casRetry();
+        }
+    }
+
+    /**
+     * Returns how long until the prefix could take {@code tokens}, without
+     * taking anything or materializing the prefix.
+     *
+     * @param high     high 64 bits of the key
+     * @param low      low 64 bits of the key
+     * @param hash     {@link #hash(long, long)} of the key
+     * @param tokens   tokens to acquire
+     * @param nowNanos current time
+     * @return nanoseconds to wait, 0 if available now
+     */
+    public long retryAfterNanos(final long high, final long low, final int hash, final long tokens, final long nowNanos) {
+        if (emissionIntervalNanos == 0) {
+            return 0;
+        }
+
+        final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos, strictMath);
+        final long potentialTat = GcraMath.calculatePotentialTat(Math.max(tat(high, low, hash, nowNanos), nowNanos), costNanos, strictMath);
+        return Math.max(0, potentialTat - burstOffsetNanos - nowNanos);
+    }
+
+    /**
+     * @return the number of materialized prefixes
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            size += segment.table.count;
+        }
+        return size;
+    }
+
+    /**
+     * Drops every prefix whose bucket is full.
+     *
+     * @param nowNanos current time
+     * @return the number of prefixes dropped
+     */
+    public int prune(final long nowNanos) {
+        int removed = 0;
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                removed += segment.prune(nowNanos);
+            }
+        }
+        return removed;
+    }
+
+    private long tat(final long high, final long low, final int hash, final long nowNanos) {
+        final Segment segment = segmentFor(hash);
+        while (true) {
+            final Table table = segment.table;
+            final int index = table.indexOf(high, low, hash);
+            if (index < 0) {
+                return nowNanos;
+            }
+            final long tat = (long) TATS.getVolatile(table.tats, index);
+            if (tat != MOVED) {
+                return tat;
+            }
+            awaitCopy(segment);
+        }
+    }
+
+    private Segment segmentFor(final int hash) {
+        return segments[hash >>> segmentShift];
+    }
+
+    private static void awaitCopy(final Segment segment) {
+        // The copying thread holds the monitor until the new table is published
+        synchronized (segment) {
+            // Taking the monitor is the wait
+        }
+    }
+
+    private static final class Segment {
+        volatile Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+
+        // Callers hold the segment's monitor
+        int add(final long high, final long low, final int hash, final long nowNanos) {
+            Table current = table;
+            if ((current.count + 1) * 4L > current.tags.length * 3L) {
+                if (current.tags.length >= MAX_SEGMENT_CAPACITY) {
+                    throw new IllegalStateException("prefix segment is full");
+                }
+                current = copy(current, current.tags.length * 2, Long.MIN_VALUE);
+                table = current;
+            }
+            // A TAT of now is a full bucket
+            return current.place(high, low, hash, nowNanos);
+        }
+
+        // Callers hold the segment's monitor
+        int prune(final long nowNanos) {
+            final Table current = table;
+            boolean anyFull = false;
+            for (int i = 0; i < current.tags.length && !anyFull; i++) {
+                anyFull = (int) TAGS.getAcquire(current.tags, i) != 0 && (long) TATS.getVolatile(current.tats, i) <= nowNanos;
+            }
+            if (!anyFull) {
+                return 0;
+            }
+
+            final Table pruned = copy(current, current.tags.length, nowNanos);
+            table = pruned;
+            return current.count - pruned.count;
+        }
+
+        /**
+         * Moves every entry whose TAT is after {@code keepAfterNanos} into a new
+         * table of the given capacity, marking the old slots as moved.
+         */
+        private static Table copy(final Table from, final int capacity, final long keepAfterNanos) {
+            final Table to = new Table(capacity);
+            for (int i = 0; i < from.tags.length; i++) {
+                final int tag = (int) TAGS.getAcquire(from.tags, i);
+                if (tag == 0) {
+                    continue;
+                }
+                final long tat = (long) TATS.getAndSet(from.tats, i, MOVED);
+                if (tat > keepAfterNanos) {
+                    to.place(from.keys[i * 2], from.keys[i * 2 + 1], tag, tat);
+                }
+            }
+            return to;
+        }
+    }
+
+    private static final class Table {
+        final int[] tags;
+        final long[] keys;
+        final long[] tats;
+        final int mask;
+        int count;
+
+        Table(final int capacity) {
+            this.tags = new int[capacity];
+            this.keys = new long[capacity * 2];
+            this.tats = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        // Probing starts from the tag, so copies that only know the tag place entries where lookups find them
+        int place(final long high, final long low, final int hash, final long tat) {
+            final int tag = hash | 1;
+            int index = tag & mask;
+            while (tags[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            keys[index * 2] = high;
+            keys[index * 2 + 1] = low;
+            TATS.setVolatile(tats, index, tat);
+            TAGS.setRelease(tags, index, tag);
+            count++;
+            return index;
+        }
+
+        int indexOf(final long high, final long low, final int hash) {
+            final int tag = hash | 1;
+            int index = tag & mask;
+            while (true) {
+                final int candidate = (int) TAGS.getAcquire(tags, index);
+                if (candidate == 0) {
+                    return -1;
+                }
+                if (candidate == tag && keys[index * 2] == high && keys[index * 2 + 1] == low) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.github.frosxt.bucketguard.runtime.key.store.sketch;
+
+import com.github.frosxt.bucketguard.api.LimiterStats;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.GcraMath;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.RefillMath;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Approximate keyed store that keeps GCRA theoretical arrival times in a
+ * fixed {@code depth x width} matrix instead of one bucket per key.
+ * <p>
+ * Each key hashes to one cell per row, and every cell holds a TAT no earlier
+ * than that of any key mapped to it. The smallest of a key's cells is
+ * therefore an upper bound on its own TAT: collisions can only throttle a
+ * key early, never let it exceed its rate.
+ * <p>
+ * A grant first raises the key's other cells to the new TAT and then
+ * publishes it with a CAS on the cell that supplied the estimate. A
+ * concurrent grant for the same key either sees the raised cells or fails
+ * that CAS, so grants are never double-counted. Raises left behind by a
+ * failed CAS only make the estimate more conservative.
+ * <p>
+ * Memory is fixed at {@code depth * width} longs. The store never allocates
+ * per key and has nothing to evict, so {@link #size()} is always 0 and
+ * traversals visit nothing.
+ *
+ * @param <K> the key type
+ */
+public final class SketchKeyedStore<K> implements KeyedStore<K> {
+    private final AtomicLongArray cells;
+    private final int depth;
+    private final int width;
+    private final int widthMask;
+
+    private final long capacity;
+    private final long refillTokens;
+    private final Duration refillPeriod;
+    private final long emissionIntervalNanos;
+    private final long burstOffsetNanos;
+    private final boolean strictMath;
+    private final TimeSource timeSource;
+    private final MetricsRecorder metrics;
+
+    /**
+     * Creates a new SketchKeyedStore.
+     *
+     * @param depth      number of rows (independent hashes), must be >= 1
+     * @param width      cells per row, must be a power of two
+     * @param bucketSpec bucket configuration applied to every key, not null
+     * @param metrics    metrics recorder, not null
+     */
+    public SketchKeyedStore(final int depth, final int width, final TokenBucketSpec bucketSpec, final MetricsRecorder metrics) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be >= 1");
+        }
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width must be a power of two");
+        }
+        if ((long) depth * width > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("depth * width too large");
+        }
+        if (!bucketSpec.bandwidths().isEmpty()) {
+            throw new IllegalArgumentException("approximate stores support a single bandwidth");
+        }
+
+        this.cells = new AtomicLongArray(depth * width);
+        this.depth = depth;
+        this.width = width;
+        this.widthMask = width - 1;
+
+        this.capacity = bucketSpec.capacity();
+        this.refillTokens = bucketSpec.refillTokens();
+        this.refillPeriod = bucketSpec.refillPeriod();
+        this.emissionIntervalNanos = RefillMath.calculateEmissionIntervalNanos(bucketSpec.refillTokens(), bucketSpec.refillPeriod());
+        this.burstOffsetNanos = RefillMath.calculateBurstOffsetNanos(bucketSpec.allowBurst(), bucketSpec.capacity(), emissionIntervalNanos,
+                bucketSpec.strictMath());
+        this.strictMath = bucketSpec.strictMath();
+        this.timeSource = bucketSpec.timeSource();
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Permit tryAcquire(final K key, final Supplier<Bucket> factory, final long tokens, final long nowNanos) {
+        if (emissionIntervalNanos == 0) {
+            return new SimplePermit(true, tokens, Long.MAX_VALUE, 0);
+        }
+
+        final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos, strictMath);
+        final long hash = mix(key.hashCode());
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32) | 1;
+
+        while (true) {
+            int estimateCell = 0;
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                final int cell = cell(row, h1, h2);
+                final long tat = cells.get(cell);
+                if (tat < estimate) {
+                    estimate = tat;
+                    estimateCell = cell;
+                }
+            }
+
+            final long baseTime = Math.max(estimate, nowNanos);
+            final long potentialTat = GcraMath.calculatePotentialTat(baseTime, costNanos, strictMath);
+            final long allowedLimit = nowNanos + burstOffsetNanos;
+            if (potentialTat > allowedLimit) {
+                return new SimplePermit(false, tokens, 0, potentialTat - burstOffsetNanos - nowNanos);
+            }
+
+            for (int row = 0; row < depth; row++) {
+                final int cell = cell(row, h1, h2);
+                if (cell != estimateCell) {
+                    raise(cell, potentialTat);
+                }
+            }
+
+            if (cells.compareAndSet(estimateCell, estimate, potentialTat)) {
+                final long remainingTokens = (allowedLimit - potentialTat) / emissionIntervalNanos;
+                return new SimplePermit(true, tokens, remainingTokens, 0);
+            }
+            metrics.casRetry();
+        }
+    }
+
+    /**
+     * Returns a view of the key's estimated state. Views are not cached; the
+     * acquire path uses {@link #tryAcquire(Object, Supplier, long, long)}
+     * and never creates one.
+     */
+    @Override
+    public Bucket getOrCreate(final K key, final Supplier<Bucket> factory) {
+        return new KeyView(key);
+    }
+
+    @Override
+    public Bucket get(final K key) {
+        return new KeyView(key);
+    }
+
+    @Override
+    public long peekRetryAfterNanos(final K key, final long tokens, final long nowNanos) {
+        return retryAfterNanos(key, tokens, nowNanos);
+    }
+
+    /**
+     * @return always 0, the sketch does not track key cardinality
+     */
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public Map<K, Bucket> snapshot(final int limit) {
+        return Map.of();
+    }
+
+    @Override
+    public void forEachEntry(final EntryVisitor<? super K> visitor) {
+    }
+
+    private long availableTokens(final K key, final long nowNanos) {
+        if (emissionIntervalNanos == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        final long availTime = (nowNanos + burstOffsetNanos) - Math.max(estimate(key), nowNanos);
+        return Math.max(0, availTime / emissionIntervalNanos);
+    }
+
+    private long retryAfterNanos(final K key, final long tokens, final long nowNanos) {
+        if (emissionIntervalNanos == 0) {
+            return 0;
+        }
+
+        final long costNanos = GcraMath.calculateCostNanos(tokens, emissionIntervalNanos, strictMath);
+        final long potentialTat = GcraMath.calculatePotentialTat(Math.max(estimate(key), nowNanos), costNanos, strictMath);
+        return Math.max(0, potentialTat - burstOffsetNanos - nowNanos);
+    }
+
+    private long estimate(final K key) {
+        final long hash = mix(key.hashCode());
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, cells.get(cell(row, h1, h2)));
+        }
+        return estimate;
+    }
+
+    private void raise(final int cell, final long tat) {
+        long current = cells.get(cell);
+        while (current < tat && !cells.compareAndSet(cell, current, tat)) {
+            current = cells.get(cell);
+        }
+    }
+
+    private int cell(final int row, final int h1, final int h2) {
+        return row * width + ((h1 + row * h2) & widthMask);
+    }
+
+    private static long mix(final long hashCode) {
+        long z = hashCode * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    private final class KeyView implements Bucket {
+        private final K key;
+
+        KeyView(final K key) {
+            this.key = key;
+        }
+
+        @Override
+        public Permit tryAcquire(final long tokens, final long nowNanos) {
+            return SketchKeyedStore.this.tryAcquire(key, null, tokens, nowNanos);
+        }
+
+        @Override
+        public LimiterStats snapshot() {
+            return new LimiterStats(capacity, availableTokens(timeSource.nanoTime()), refillTokens, refillPeriod);
+        }
+
+        @Override
+        public long availableTokens(final long nowNanos) {
+            return SketchKeyedStore.this.availableTokens(key, nowNanos);
+        }
+
+        @Override
+        public long retryAfterNanos(final long tokens, final long nowNanos) {
+            return SketchKeyedStore.this.retryAfterNanos(key, tokens, nowNanos);
+        }
+
+        /**
+         * Keeps the tokens consumed: lowering shared cells could let other
+         * keys mapped to them exceed their rate.
+         */
+        @Override
+        public void refund(final long tokens, final long nowNanos) {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.frosxt.bucketguard.runtime.lease;
+
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.lease.Lease;
+import com.github.frosxt.bucketguard.api.lease.LeaseBackend;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.AtomicBucket;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process {@link LeaseBackend} keeping one {@link AtomicBucket} per name.
+ * <p>
+ * Useful for tests, and as the state behind a {@link SocketLeaseServer}.
+ */
+public final class InMemoryLeaseBackend implements LeaseBackend {
+    private final TokenBucketSpec spec;
+    private final ConcurrentHashMap<String, AtomicBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a backend whose buckets all follow {@code spec}.
+     *
+     * @param spec bucket configuration, not null
+     */
+    public InMemoryLeaseBackend(final TokenBucketSpec spec) {
+        this.spec = Objects.requireNonNull(spec, "spec");
+        if (!spec.bandwidths().isEmpty()) {
+            throw new IllegalArgumentException("lease backends do not support additional bandwidths");
+        }
+    }
+
+    @Override
+    public Lease acquire(final String name, final long tokens) {
+        Objects.requireNonNull(name, "name");
+        if (tokens < 1) {
+            throw new IllegalArgumentException("tokens must be >= 1");
+        }
+
+        final AtomicBucket bucket = bucket(name);
+        while (true) {
+            final long now = spec.timeSource().nanoTime();
+            final long take = Math.min(tokens, bucket.availableTokens(now));
+            if (take <= 0) {
+                return new Lease(0, bucket.retryAfterNanos(1, now));
+            }
+            final Permit permit = bucket.tryAcquire(take, now);
+            if (permit.granted()) {
+                return new Lease(take, 0);
+            }
+        }
+    }
+
+    @Override
+    public void release(final String name, final long tokens) {
+        Objects.requireNonNull(name, "name");
+        if (tokens < 1) {
+            throw new IllegalArgumentException("tokens must be >= 1");
+        }
+        bucket(name).refund(tokens, spec.timeSource().nanoTime());
+    }
+
+    /**
+     * @param name bucket name, not null
+     * @return tokens currently available in the bucket
+     */
+    public long availableTokens(final String name) {
+        return bucket(name).availableTokens(spec.timeSource().nanoTime());
+    }
+
+    private AtomicBucket bucket(final String name) {
+        return buckets.computeIfAbsent(name, n -> new AtomicBucket(spec));
+    }
+}
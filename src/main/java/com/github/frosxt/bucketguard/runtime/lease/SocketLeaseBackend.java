@@ -0,0 +1,123 @@
+package com.github.frosxt.bucketguard.runtime.lease;
+
+import com.github.frosxt.bucketguard.api.lease.Lease;
+import com.github.frosxt.bucketguard.api.lease.LeaseBackend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Client for a {@link SocketLeaseServer}.
+ * <p>
+ * Keeps one connection, opened lazily and reopened on the next call after a
+ * failure. Requests are serialised; lease-based limiters make about one
+ * request per lease, so a single connection is enough.
+ */
+public final class SocketLeaseBackend implements LeaseBackend, AutoCloseable {
+    private final InetSocketAddress address;
+    private final int timeoutMillis;
+
+    private Socket socket;
+    private DataInputStream in;
+    private DataOutputStream out;
+
+    /**
+     * Creates a client with a one-second connect and read timeout.
+     *
+     * @param address the server address, not null
+     */
+    public SocketLeaseBackend(final InetSocketAddress address) {
+        this(address, Duration.ofSeconds(1));
+    }
+
+    /**
+     * Creates a client.
+     *
+     * @param address the server address, not null
+     * @param timeout connect and read timeout, positive
+     */
+    public SocketLeaseBackend(final InetSocketAddress address, final Duration timeout) {
+        this.address = Objects.requireNonNull(address, "address");
+        Objects.requireNonNull(timeout, "timeout");
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.timeoutMillis = (int) Math.min(Integer.MAX_VALUE, timeout.toMillis());
+    }
+
+    @Override
+    public synchronized Lease acquire(final String name, final long tokens) throws IOException {
+        try {
+            send(SocketLeaseProtocol.ACQUIRE, name, tokens);
+            return new Lease(in.readLong(), in.readLong());
+        } catch (final IOException e) {
+            disconnect();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void release(final String name, final long tokens) throws IOException {
+        try {
+            send(SocketLeaseProtocol.RELEASE, name, tokens);
+            if (in.readByte() != SocketLeaseProtocol.ACK) {
+                throw new IOException("Unexpected lease server reply");
+            }
+        } catch (final IOException e) {
+            disconnect();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        disconnect();
+    }
+
+    private void send(final byte op, final String name, final long tokens) throws IOException {
+        Objects.requireNonNull(name, "name");
+        if (socket == null) {
+            connect();
+        }
+        out.writeByte(op);
+        out.writeUTF(name);
+        out.writeLong(tokens);
+        out.flush();
+    }
+
+    private void connect() throws IOException {
+        final Socket candidate = new Socket();
+        try {
+            candidate.connect(address, timeoutMillis);
+            candidate.setSoTimeout(timeoutMillis);
+            candidate.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(candidate.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(candidate.getOutputStream()));
+            socket = candidate;
+        } catch (final IOException e) {
+            candidate.close();
+            throw e;
+        }
+    }
+
+    private void disconnect() {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (final IOException ignored) {
+            // Nothing left to clean up
+        }
+        socket = null;
+        in = null;
+        out = null;
+    }
+}
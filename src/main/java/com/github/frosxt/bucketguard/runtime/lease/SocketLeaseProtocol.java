@@ -0,0 +1,18 @@
+package com.github.frosxt.bucketguard.runtime.lease;
+
+/**
+ * Wire format shared by {@link SocketLeaseServer} and {@link SocketLeaseBackend}.
+ * <p>
+ * Each request is an opcode byte, the bucket name in modified UTF-8 and a
+ * token count. An acquire is answered with the granted tokens and the retry
+ * hint; a release with a single acknowledgement byte.
+ */
+final class SocketLeaseProtocol {
+    static final byte ACQUIRE = 1;
+    static final byte RELEASE = 2;
+    static final byte ACK = 0;
+
+    private SocketLeaseProtocol() {
+        throw new UnsupportedOperationException("This class cannot be instantiated!");
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.frosxt.bucketguard.runtime.lease;
+
+import com.github.frosxt.bucketguard.api.lease.Lease;
+import com.github.frosxt.bucketguard.api.lease.LeaseBackend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reference lease server exposing a {@link LeaseBackend} on a loopback socket,
+ * so lease-based limiters in several processes can be tested on one machine.
+ * <p>
+ * Uses a thread per connection; it is meant for tests and local setups, not as
+ * a production coordinator.
+ */
+public final class SocketLeaseServer implements AutoCloseable {
+    private final LeaseBackend backend;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * Binds a server for {@code backend} to an ephemeral loopback port and
+     * starts accepting connections.
+     *
+     * @param backend the backend to serve, not null
+     * @throws IOException if the socket cannot be bound
+     */
+    public SocketLeaseServer(final LeaseBackend backend) throws IOException {
+        this.backend = Objects.requireNonNull(backend, "backend");
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+        final Thread acceptor = new Thread(this::acceptLoop, "bucketguard-lease-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return the address clients should connect to
+     */
+    public InetSocketAddress address() {
+        return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (final Socket socket : connections) {
+            socket.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (final IOException e) {
+                return;
+            }
+
+            connections.add(socket);
+            final Thread handler = new Thread(() -> serve(socket), "bucketguard-lease-connection");
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    private void serve(final Socket socket) {
+        try (socket;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                final byte op;
+                try {
+                    op = in.readByte();
+                } catch (final EOFException e) {
+                    return;
+                }
+                final String name = in.readUTF();
+                final long tokens = in.readLong();
+
+                if (op == SocketLeaseProtocol.ACQUIRE) {
+                    final Lease lease = backend.acquire(name, tokens);
+                    out.writeLong(lease.tokens());
+                    out.writeLong(lease.retryAfterNanos());
+                } else if (op == SocketLeaseProtocol.RELEASE) {
+                    backend.release(name, tokens);
+                    out.writeByte(SocketLeaseProtocol.ACK);
+                } else {
+                    return;
+                }
+                out.flush();
+            }
+        } catch (final IOException | RuntimeException e) {
+            // The client sees the connection drop and reconnects
+        } finally {
+            connections.remove(socket);
+        }
+    }
+}
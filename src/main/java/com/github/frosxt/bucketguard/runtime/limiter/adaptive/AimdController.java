@@ -0,0 +1,86 @@
+package com.github.frosxt.bucketguard.runtime.limiter.adaptive;
+
+import com.github.frosxt.bucketguard.api.spec.AdaptiveLimiterSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.AtomicBucket;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Windowed AIMD controller driving the emission interval of an
+ * {@link AtomicBucket}.
+ * <p>
+ * Samples only raise a congestion flag. The first sample after a window ends
+ * claims the adjustment with a CAS on the window start, so exactly one thread
+ * changes the rate per window and no sample ever blocks. That thread takes
+ * the flag with {@code getAndSet}, so a signal raised while the window
+ * switches counts in this window or the next one, never in neither.
+ */
+final class AimdController {
+    private static final double NANOS_PER_SECOND = 1_000_000_000D;
+
+    private final AtomicBucket bucket;
+    private final TimeSource timeSource;
+    private final double minRate;
+    private final double maxRate;
+    private final long latencyThresholdNanos;
+    private final double increaseStep;
+    private final double decreaseFactor;
+    private final long windowNanos;
+    private final AtomicLong windowStart;
+    private final AtomicBoolean congested = new AtomicBoolean();
+
+    private volatile double rate;
+
+    AimdController(final AdaptiveLimiterSpec spec, final AtomicBucket bucket) {
+        this.bucket = bucket;
+        this.timeSource = spec.bucketSpec().timeSource();
+        this.minRate = spec.minRate();
+        this.maxRate = spec.maxRate();
+        this.latencyThresholdNanos = spec.latencyThreshold().toNanos();
+        this.increaseStep = spec.increaseStep();
+        this.decreaseFactor = spec.decreaseFactor();
+        this.windowNanos = spec.window().toNanos();
+        this.windowStart = new AtomicLong(timeSource.nanoTime());
+
+        final long interval = bucket.emissionIntervalNanos();
+        final double initial = interval == 0 ? maxRate : NANOS_PER_SECOND / interval;
+        this.rate = clamp(initial);
+        bucket.updateEmissionInterval(intervalFor(rate));
+    }
+
+    void record(final long latencyNanos, final boolean failed) {
+        if (latencyNanos < 0) {
+            throw new IllegalArgumentException("latencyNanos must be >= 0");
+        }
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            congested.set(true);
+        }
+
+        final long now = timeSource.nanoTime();
+        final long start = windowStart.get();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+
+        final boolean wasCongested = congested.getAndSet(false);
+        final double next = clamp(wasCongested ? rate * decreaseFactor : rate + increaseStep);
+        if (next != rate) {
+            rate = next;
+            bucket.updateEmissionInterval(intervalFor(next));
+        }
+    }
+
+    double rate() {
+        return rate;
+    }
+
+    private double clamp(final double value) {
+        return Math.max(minRate, Math.min(maxRate, value));
+    }
+
+    private static long intervalFor(final double tokensPerSecond) {
+        return Math.max(1L, Math.round(NANOS_PER_SECOND / tokensPerSecond));
+    }
+}
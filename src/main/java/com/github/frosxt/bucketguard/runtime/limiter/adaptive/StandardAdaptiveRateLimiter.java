@@ -0,0 +1,54 @@
+package com.github.frosxt.bucketguard.runtime.limiter.adaptive;
+
+import com.github.frosxt.bucketguard.api.AdaptiveRateLimiter;
+import com.github.frosxt.bucketguard.api.spec.AdaptiveLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.AtomicBucket;
+import com.github.frosxt.bucketguard.runtime.limiter.global.StandardRateLimiter;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+/**
+ * Standard implementation of AdaptiveRateLimiter.
+ * <p>
+ * Always backed by an {@link AtomicBucket}, whose rate can be changed in place;
+ * the contention strategy of the bucket spec is ignored.
+ */
+public final class StandardAdaptiveRateLimiter extends StandardRateLimiter implements AdaptiveRateLimiter {
+    private final AimdController controller;
+
+    /**
+     * Creates a new StandardAdaptiveRateLimiter.
+     *
+     * @param spec configuration spec, not null
+     */
+    public StandardAdaptiveRateLimiter(final AdaptiveLimiterSpec spec) {
+        this(spec, MetricsRecorder.create(spec.bucketSpec().metricsEnabled()));
+    }
+
+    private StandardAdaptiveRateLimiter(final AdaptiveLimiterSpec spec, final MetricsRecorder metrics) {
+        this(spec, new AtomicBucket(spec.bucketSpec(), metrics), metrics);
+    }
+
+    private StandardAdaptiveRateLimiter(final AdaptiveLimiterSpec spec, final AtomicBucket bucket, final MetricsRecorder metrics) {
+        super(spec.bucketSpec(), bucket, metrics);
+        this.controller = new AimdController(spec, bucket);
+    }
+
+    @Override
+    public void recordSample(final long latencyNanos, final boolean failed) {
+        controller.record(latencyNanos, failed);
+    }
+
+    @Override
+    public double currentRate() {
+        return controller.rate();
+    }
+
+    /**
+     * Not supported: the rate of an adaptive limiter is owned by its controller.
+     */
+    @Override
+    public void reconfigure(final TokenBucketSpec spec) {
+        throw new UnsupportedOperationException("adaptive limiters control their own rate");
+    }
+}
@@ -0,0 +1,415 @@
+package com.github.frosxt.bucketguard.runtime.limiter.composite;
+
+import com.github.frosxt.bucketguard.api.KeyedLimiterStats;
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.LimiterStats;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.spec.CompositeLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.runtime.acquire.AsyncChain;
+import com.github.frosxt.bucketguard.runtime.acquire.AsyncWaiter;
+import com.github.frosxt.bucketguard.runtime.acquire.keyed.KeyedSnapshots;
+import com.github.frosxt.bucketguard.runtime.acquire.keyed.MaintenanceController;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.runtime.jfr.JfrEvents;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A keyed rate limiter that grants a request only if every stage of a chain
+ * of buckets grants it.
+ * <p>
+ * All stages are evaluated against a single reading of the first stage's time
+ * source. Stages are tried in order; when one rejects, the tokens already
+ * taken from earlier stages are refunded, so a rejected request consumes
+ * nothing once it returns. The rejection carries the longest retry-after of
+ * the rejecting stage and every stage after it, which is the earliest time
+ * the whole chain could grant.
+ * <p>
+ * The rollback is compensation, not a transaction. Between the take and the
+ * refund, concurrent callers see the earlier stages debited and may be
+ * rejected by tokens that are about to come back. Refunds go to the bucket
+ * instances that granted, which may since have been evicted from their
+ * stage's store; the key is not looked up again. Striped stages refund the
+ * stripe of the thread doing the rollback, which for async acquisitions may
+ * not be the stripe that granted.
+ * <p>
+ * Snapshots of all keys come from the first stage keyed by the request key
+ * itself, if any.
+ *
+ * @param <K> the key type
+ */
+public final class CompositeKeyedRateLimiter<K> implements KeyedRateLimiter<K> {
+    private final CompositeStage<K>[] stages;
+    private final TimeSource timeSource;
+    private final CompositeStage<K> sampleStage;
+    private final List<MaintenanceController<Object>> maintenance;
+    private final boolean burstLimited;
+    private final long burstLimitedRetryNanos;
+
+    /**
+     * Creates a new CompositeKeyedRateLimiter.
+     *
+     * @param spec composite configuration, not null
+     */
+    @SuppressWarnings("unchecked")
+    public CompositeKeyedRateLimiter(final CompositeLimiterSpec<K> spec) {
+        final List<CompositeLimiterSpec.Stage<K>> stageSpecs = spec.stages();
+        this.stages = (CompositeStage<K>[]) new CompositeStage<?>[stageSpecs.size()];
+        this.maintenance = new ArrayList<>();
+
+        CompositeStage<K> firstByKey = null;
+        boolean anyBurstLimited = false;
+        long retryNanos = 0;
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new CompositeStage<>(stageSpecs.get(i));
+            if (stages[i].maintenance() != null) {
+                maintenance.add(stages[i].maintenance());
+            }
+            if (firstByKey == null && stages[i].keyedByRequestKey()) {
+                firstByKey = stages[i];
+            }
+
+            final TokenBucketSpec bucketSpec = stages[i].bucketSpec();
+            if (!bucketSpec.allowBurst()) {
+                anyBurstLimited = true;
+                retryNanos = Math.max(retryNanos, bucketSpec.refillPeriod().toNanos());
+            }
+        }
+
+        this.timeSource = stages[0].bucketSpec().timeSource();
+        this.sampleStage = firstByKey;
+        this.burstLimited = anyBurstLimited;
+        this.burstLimitedRetryNanos = retryNanos;
+    }
+
+    @Override
+    public Permit tryAcquire(final K key) {
+        return tryAcquire(key, 1);
+    }
+
+    @Override
+    public Permit tryAcquire(final K key, final long tokens) {
+        validate(key, tokens);
+
+        if (burstLimited && tokens > 1) {
+            JfrEvents.throttled(key, tokens, burstLimitedRetryNanos);
+            return new SimplePermit(false, tokens, 0, burstLimitedRetryNanos);
+        }
+
+        final Permit permit = tryAcquireAt(key, tokens, timeSource.nanoTime(), new Bucket[stages.length]);
+        if (!permit.granted()) {
+            JfrEvents.throttled(key, tokens, permit.retryAfterNanos());
+        }
+        return permit;
+    }
+
+    @Override
+    public Permit acquire(final K key) throws InterruptedException {
+        return acquire(key, 1);
+    }
+
+    @Override
+    public Permit acquire(final K key, final long tokens) throws InterruptedException {
+        validate(key, tokens);
+
+        if (burstLimited && tokens > 1) {
+            long remaining = 0;
+            for (long i = 0; i < tokens; i++) {
+                remaining = acquireBlocking(key, 1).remainingTokens();
+            }
+            return new SimplePermit(true, tokens, remaining, 0);
+        }
+        return acquireBlocking(key, tokens);
+    }
+
+    @Override
+    public CompletionStage<Permit> acquireAsync(final K key, final Executor executor) {
+        return acquireAsync(key, 1, executor);
+    }
+
+    @Override
+    public CompletionStage<Permit> acquireAsync(final K key, final long tokens, final Executor executor) {
+        validate(key, tokens);
+        Objects.requireNonNull(executor, "executor");
+
+        if (burstLimited && tokens > 1) {
+            final ChainGrants grants = new ChainGrants();
+            return AsyncChain.start(tokens, () -> acquireAsyncOnce(key, 1, executor, grants),
+                    taken -> grants.refund(taken, timeSource.nanoTime()), () -> { });
+        }
+        return acquireAsyncOnce(key, tokens, executor, null);
+    }
+
+    /**
+     * Returns the longest wait of any stage, which is when the whole chain
+     * could grant.
+     */
+    @Override
+    public long nanosUntilAvailable(final K key, final long tokens) {
+        validate(key, tokens);
+
+        final long now = timeSource.nanoTime();
+        long wait = 0;
+        for (final CompositeStage<K> stage : stages) {
+            wait = Math.max(wait, stage.retryAfterNanos(key, tokens, now));
+        }
+        return wait;
+    }
+
+    /**
+     * Returns the stats of the stage with the fewest tokens available to the key.
+     */
+    @Override
+    public LimiterStats snapshot(final K key) {
+        Objects.requireNonNull(key, "key");
+
+        LimiterStats tightest = null;
+        for (final CompositeStage<K> stage : stages) {
+            final LimiterStats stats = stage.snapshot(key);
+            if (tightest == null || stats.availableTokens() < tightest.availableTokens()) {
+                tightest = stats;
+            }
+        }
+        return tightest;
+    }
+
+    @Override
+    public KeyedLimiterStats snapshotAll() {
+        return snapshotSample(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public KeyedLimiterStats snapshotSample(final int limit) {
+        if (sampleStage == null) {
+            return new KeyedLimiterStats(0, Map.of());
+        }
+        return KeyedSnapshots.snapshotSample(limit, sampleStage.store(), sampleStage.bucketSpec());
+    }
+
+    @Override
+    public KeyedLimiterStats snapshotReservoir(final int limit) {
+        if (sampleStage == null) {
+            return new KeyedLimiterStats(0, Map.of());
+        }
+        return KeyedSnapshots.reservoirSample(limit, sampleStage.store(), sampleStage.bucketSpec());
+    }
+
+    @Override
+    public void prune() {
+        for (final MaintenanceController<Object> controller : maintenance) {
+            controller.prune();
+        }
+    }
+
+    @Override
+    public void startMaintenance() {
+        for (final MaintenanceController<Object> controller : maintenance) {
+            controller.startMaintenance();
+        }
+    }
+
+    @Override
+    public void startMaintenance(final ScheduledExecutorService scheduler) {
+        for (final MaintenanceController<Object> controller : maintenance) {
+            controller.startMaintenance(scheduler);
+        }
+    }
+
+    @Override
+    public void startMaintenance(final ScheduledExecutorService scheduler, final Duration period) {
+        for (final MaintenanceController<Object> controller : maintenance) {
+            controller.startMaintenance(scheduler, period);
+        }
+    }
+
+    @Override
+    public boolean isMaintenanceRunning() {
+        for (final MaintenanceController<Object> controller : maintenance) {
+            if (controller.isMaintenanceRunning()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        for (final MaintenanceController<Object> controller : maintenance) {
+            controller.close();
+        }
+    }
+
+    /**
+     * Takes tokens from every stage, filling {@code buckets} with the bucket
+     * each stage resolved to so that a later rollback refunds exactly those.
+     */
+    private Permit tryAcquireAt(final K key, final long tokens, final long nowNanos, final Bucket[] buckets) {
+        long remaining = Long.MAX_VALUE;
+        for (int i = 0; i < stages.length; i++) {
+            buckets[i] = stages[i].bucket(key);
+            final Permit permit = buckets[i].tryAcquire(tokens, nowNanos);
+            if (!permit.granted()) {
+                return reject(key, tokens, nowNanos, buckets, i, permit.retryAfterNanos());
+            }
+            remaining = Math.min(remaining, permit.remainingTokens());
+        }
+        return new SimplePermit(true, tokens, remaining, 0);
+    }
+
+    private Permit reject(final K key, final long tokens, final long nowNanos, final Bucket[] buckets, final int rejectedStage,
+            final long retryAfterNanos) {
+        refund(buckets, rejectedStage, tokens, nowNanos);
+
+        long retry = retryAfterNanos;
+        for (int i = rejectedStage + 1; i < stages.length; i++) {
+            retry = Math.max(retry, stages[i].retryAfterNanos(key, tokens, nowNanos));
+        }
+        return new SimplePermit(false, tokens, 0, retry);
+    }
+
+    private Permit acquireBlocking(final K key, final long tokens) throws InterruptedException {
+        final Bucket[] buckets = new Bucket[stages.length];
+        while (true) {
+            final Permit permit = tryAcquireAt(key, tokens, timeSource.nanoTime(), buckets);
+            if (permit.granted()) {
+                return permit;
+            }
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            final long waitNanos = permit.retryAfterNanos();
+            if (waitNanos > 0) {
+                if (waitNanos > 1000) {
+                    LockSupport.parkNanos(waitNanos);
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<Permit> acquireAsyncOnce(final K key, final long tokens, final Executor executor, final ChainGrants grants) {
+        return scheduleAsync(key, tokens, executor, null, grants);
+    }
+
+    /**
+     * Makes one attempt, creating the waiter only once the attempt has to be
+     * retried.
+     */
+    private CompletableFuture<Permit> scheduleAsync(final K key, final long tokens, final Executor executor, final AsyncWaiter pending,
+            final ChainGrants grants) {
+        if (pending != null && pending.isDone()) {
+            return pending.future();
+        }
+        AsyncWaiter waiter = pending;
+        try {
+            final long now = timeSource.nanoTime();
+            final Bucket[] buckets = new Bucket[stages.length];
+            final Permit permit = tryAcquireAt(key, tokens, now, buckets);
+            if (permit.granted()) {
+                if (grants != null) {
+                    // Recorded first, since completing the permit may roll the chain back
+                    grants.add(buckets);
+                }
+                if (waiter == null) {
+                    return CompletableFuture.completedFuture(permit);
+                }
+                if (!waiter.grant(permit)) {
+                    // Cancelled while this attempt ran; the chain does not count this grant
+                    refund(buckets, buckets.length, tokens, now);
+                }
+            } else {
+                if (waiter == null) {
+                    waiter = new AsyncWaiter(MetricsRecorder.NOOP);
+                }
+                if (executor instanceof final ScheduledExecutorService scheduler) {
+                    JfrEvents.rescheduled(key, tokens, permit.retryAfterNanos());
+                    final AsyncWaiter retrying = waiter;
+                    waiter.retryLater(scheduler, () -> scheduleAsync(key, tokens, executor, retrying, grants), permit.retryAfterNanos());
+                } else {
+                    waiter.fail(new IllegalArgumentException("Async acquisition with delay requires a ScheduledExecutorService"));
+                }
+            }
+        } catch (final Exception e) {
+            if (waiter == null) {
+                return CompletableFuture.failedFuture(e);
+            }
+            waiter.fail(e);
+        }
+        return waiter.future();
+    }
+
+    private static void refund(final Bucket[] buckets, final int count, final long tokens, final long nowNanos) {
+        for (int i = 0; i < count; i++) {
+            buckets[i].refund(tokens, nowNanos);
+        }
+    }
+
+    private static void validate(final Object key, final long tokens) {
+        Objects.requireNonNull(key, "key");
+        if (tokens < 1) {
+            throw new IllegalArgumentException("tokens must be >= 1");
+        }
+    }
+
+    /**
+     * The buckets each single-token grant of a burst-limited async chain took
+     * from, eldest first, with consecutive grants from the same buckets
+     * merged.
+     */
+    private static final class ChainGrants {
+        private final ArrayDeque<Run> runs = new ArrayDeque<>();
+
+        synchronized void add(final Bucket[] buckets) {
+            final Run last = runs.peekLast();
+            if (last != null && Arrays.equals(last.buckets, buckets)) {
+                last.tokens++;
+            } else {
+                runs.addLast(new Run(buckets));
+            }
+        }
+
+        /**
+         * Refunds the eldest {@code tokens} grants.
+         */
+        synchronized void refund(final long tokens, final long nowNanos) {
+            long left = tokens;
+            while (left > 0 && !runs.isEmpty()) {
+                final Run run = runs.peekFirst();
+                final long taken = Math.min(left, run.tokens);
+                CompositeKeyedRateLimiter.refund(run.buckets, run.buckets.length, taken, nowNanos);
+                run.tokens -= taken;
+                left -= taken;
+                if (run.tokens == 0) {
+                    runs.pollFirst();
+                }
+            }
+        }
+    }
+
+    private static final class Run {
+        private final Bucket[] buckets;
+        private long tokens = 1;
+
+        private Run(final Bucket[] buckets) {
+            this.buckets = buckets;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.frosxt.bucketguard.runtime.limiter.composite;
+
+import com.github.frosxt.bucketguard.api.LimiterStats;
+import com.github.frosxt.bucketguard.api.spec.CompositeLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.acquire.keyed.MaintenanceController;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStoreFactory;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Resolves the bucket a request key maps to at one level of a composite limiter.
+ *
+ * @param <K> request key type
+ */
+final class CompositeStage<K> {
+    private final TokenBucketSpec bucketSpec;
+    private final Function<? super K, ?> classifier;
+    private final Bucket globalBucket;
+    private final KeyedStore<Object> store;
+    private final Supplier<Bucket> bucketFactory;
+    private final MaintenanceController<Object> maintenance;
+
+    @SuppressWarnings("unchecked")
+    CompositeStage(final CompositeLimiterSpec.Stage<K> stage) {
+        this.bucketSpec = stage.bucketSpec();
+        this.classifier = stage.classifier();
+        this.bucketFactory = () -> BucketFactory.create(bucketSpec);
+
+        if (stage.keyed()) {
+            final KeyedStoreSpec<Object> storeSpec = (KeyedStoreSpec<Object>) stage.storeSpec();
+            this.globalBucket = null;
+            this.store = KeyedStoreFactory.create(storeSpec, bucketSpec);
+            this.maintenance = new MaintenanceController<>(store, storeSpec);
+        } else {
+            this.globalBucket = bucketFactory.get();
+            this.store = null;
+            this.maintenance = null;
+        }
+    }
+
+    TokenBucketSpec bucketSpec() {
+        return bucketSpec;
+    }
+
+    /**
+     * @return {@code true} if this stage is keyed by the request key itself.
+     */
+    boolean keyedByRequestKey() {
+        return store != null && classifier == null;
+    }
+
+    KeyedStore<Object> store() {
+        return store;
+    }
+
+    MaintenanceController<Object> maintenance() {
+        return maintenance;
+    }
+
+    /**
+     * @param key request key
+     * @return the key's bucket, created if absent
+     */
+    Bucket bucket(final K key) {
+        if (store == null) {
+            return globalBucket;
+        }
+        return store.getOrCreate(stageKey(key), bucketFactory);
+    }
+
+    /**
+     * @param key request key
+     * @return the key's bucket, or null if it has none yet
+     */
+    Bucket existingBucket(final K key) {
+        if (store == null) {
+            return globalBucket;
+        }
+        return store.get(stageKey(key));
+    }
+
+    /**
+     * @param key request key
+     * @param tokens tokens to acquire
+     * @param nowNanos current time
+     * @return nanoseconds until the tokens could be acquired at this stage
+     */
+    long retryAfterNanos(final K key, final long tokens, final long nowNanos) {
+        if (store == null) {
+            return globalBucket.retryAfterNanos(tokens, nowNanos);
+        }
+        return store.peekRetryAfterNanos(stageKey(key), tokens, nowNanos);
+    }
+
+    /**
+     * @param key request key
+     * @return stats for the key at this stage; initial stats if it has no bucket yet
+     */
+    LimiterStats snapshot(final K key) {
+        final Bucket bucket = existingBucket(key);
+        if (bucket == null) {
+            final long available = bucketSpec.allowBurst() ? bucketSpec.capacity() : 1;
+            return new LimiterStats(bucketSpec.capacity(), available, bucketSpec.refillTokens(), bucketSpec.refillPeriod());
+        }
+        return bucket.snapshot();
+    }
+
+    private Object stageKey(final K key) {
+        return classifier == null ? key : classifier.apply(key);
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.frosxt.bucketguard.runtime.limiter.global;
+
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.mapped.MappedBucketTable;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A RateLimiter backed by one named bucket of a {@link MappedBucketTable},
+ * enforcing a single limit across every process that maps the same file.
+ */
+public final class MappedRateLimiter extends StandardRateLimiter {
+
+    private MappedRateLimiter(final TokenBucketSpec spec, final MappedBucketTable table, final String name, final MetricsRecorder metrics) {
+        super(spec, table.bucket(name), metrics);
+    }
+
+    /**
+     * Opens the bucket {@code name} in the table at {@code file}, creating the
+     * table if needed.
+     *
+     * @param file  the backing file, not null
+     * @param slots capacity of a newly created table, a power of two
+     * @param name  bucket name, not null
+     * @param spec  bucket configuration, must match the table's rate, not null
+     * @return the limiter
+     * @throws IOException if the table cannot be opened
+     */
+    public static MappedRateLimiter open(final Path file, final int slots, final String name, final TokenBucketSpec spec) throws IOException {
+        final MetricsRecorder metrics = MetricsRecorder.create(spec.metricsEnabled());
+        return new MappedRateLimiter(spec, MappedBucketTable.open(file, slots, spec, metrics), name, metrics);
+    }
+}
@@ -1,13 +1,19 @@
 package com.github.frosxt.bucketguard.runtime.limiter.global;
 
+import com.github.frosxt.bucketguard.api.AcquireLatency;
+import com.github.frosxt.bucketguard.api.LimiterMetrics;
 import com.github.frosxt.bucketguard.api.LimiterStats;
 import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.PermitCallback;
 import com.github.frosxt.bucketguard.api.RateLimiter;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
 import com.github.frosxt.bucketguard.runtime.acquire.AcquireCoordinator;
 import com.github.frosxt.bucketguard.runtime.acquire.AsyncAcquireScheduler;
 import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
 import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.AtomicBucket;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
@@ -17,8 +23,10 @@ import java.util.concurrent.Executor;
  */
 public class StandardRateLimiter implements RateLimiter {
     private final Bucket bucket;
+    private final TimeSource timeSource;
     private final AcquireCoordinator acquireCoordinator;
     private final AsyncAcquireScheduler asyncScheduler;
+    private final MetricsRecorder metrics;
 
     /**
      * Creates a new StandardRateLimiter.
@@ -26,9 +34,27 @@ public class StandardRateLimiter implements RateLimiter {
      * @param spec configuration spec, not null
      */
     public StandardRateLimiter(final TokenBucketSpec spec) {
-        this.bucket = BucketFactory.create(spec);
-        this.acquireCoordinator = new AcquireCoordinator(bucket, spec);
-        this.asyncScheduler = new AsyncAcquireScheduler(bucket, spec);
+        this(spec, MetricsRecorder.create(spec.metricsEnabled()));
+    }
+
+    private StandardRateLimiter(final TokenBucketSpec spec, final MetricsRecorder metrics) {
+        this(spec, BucketFactory.create(spec, metrics), metrics);
+    }
+
+    /**
+     * Creates a StandardRateLimiter around an existing bucket, for subclasses
+     * that need to keep a typed reference to it.
+     *
+     * @param spec    configuration spec, not null
+     * @param bucket  the bucket, built from {@code spec}, not null
+     * @param metrics the recorder the bucket reports to, not null
+     */
+    protected StandardRateLimiter(final TokenBucketSpec spec, final Bucket bucket, final MetricsRecorder metrics) {
+        this.metrics = metrics;
+        this.bucket = bucket;
+        this.timeSource = spec.timeSource();
+        this.acquireCoordinator = new AcquireCoordinator(bucket, spec, metrics);
+        this.asyncScheduler = new AsyncAcquireScheduler(bucket, spec, metrics);
     }
 
     @Override
@@ -41,6 +67,11 @@ public class StandardRateLimiter implements RateLimiter {
         return acquireCoordinator.tryAcquire(tokens);
     }
 
+    @Override
+    public Permit tryAcquireUpTo(final long max) {
+        return acquireCoordinator.tryAcquireUpTo(max);
+    }
+
     @Override
     public Permit acquire() throws InterruptedException {
         return acquire(1);
@@ -61,8 +92,44 @@ public class StandardRateLimiter implements RateLimiter {
         return asyncScheduler.acquireAsync(tokens, executor);
     }
 
+    @Override
+    public void acquireAsync(final long tokens, final PermitCallback callback, final Executor executor) {
+        asyncScheduler.acquireAsync(tokens, callback, executor);
+    }
+
+    @Override
+    public long nanosUntilAvailable(final long tokens) {
+        if (tokens < 1) {
+            throw new IllegalArgumentException("tokens must be >= 1");
+        }
+        return bucket.retryAfterNanos(tokens, timeSource.nanoTime());
+    }
+
     @Override
     public LimiterStats snapshot() {
         return bucket.snapshot();
     }
+
+    @Override
+    public void reconfigure(final TokenBucketSpec spec) {
+        if (!(bucket instanceof final AtomicBucket atomicBucket)) {
+            throw new UnsupportedOperationException("reconfiguration requires an atomic bucket");
+        }
+        atomicBucket.reconfigure(spec);
+    }
+
+    @Override
+    public LimiterMetrics metrics() {
+        return metrics.snapshot();
+    }
+
+    @Override
+    public AcquireLatency acquireLatency() {
+        return metrics.latency(false);
+    }
+
+    @Override
+    public AcquireLatency resetAcquireLatency() {
+        return metrics.latency(true);
+    }
 }
@@ -0,0 +1,191 @@
+package com.github.frosxt.bucketguard.runtime.limiter.ip;
+
+import com.github.frosxt.bucketguard.api.IpRateLimiter;
+import com.github.frosxt.bucketguard.api.LimiterMetrics;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.spec.IpLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.RateParameters;
+import com.github.frosxt.bucketguard.runtime.jfr.JfrEvents;
+import com.github.frosxt.bucketguard.runtime.key.store.prefix.PrefixBucketTable;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Standard implementation of IpRateLimiter.
+ * <p>
+ * Each level keeps its prefixes in a {@link PrefixBucketTable}; IPv4
+ * addresses are held in the low 32 bits of the key. All levels are evaluated
+ * against a single reading of the first level's time source. When a level
+ * rejects, tokens taken from earlier levels are refunded, and the rejection
+ * carries the longest retry-after of the rejecting level and every level after
+ * it, as for composite limiters.
+ */
+public final class StandardIpRateLimiter implements IpRateLimiter {
+    private final Level[] ipv4Levels;
+    private final Level[] ipv6Levels;
+    private final TimeSource timeSource;
+    private final MetricsRecorder metrics;
+    private final boolean burstLimited;
+    private final long burstLimitedRetryNanos;
+
+    /**
+     * Creates a new StandardIpRateLimiter.
+     *
+     * @param spec IP limiter configuration, not null
+     */
+    public StandardIpRateLimiter(final IpLimiterSpec spec) {
+        final TokenBucketSpec first = (spec.ipv4Levels().isEmpty() ? spec.ipv6Levels() : spec.ipv4Levels()).get(0).bucketSpec();
+        this.timeSource = first.timeSource();
+        this.metrics = MetricsRecorder.create(first.metricsEnabled());
+        this.ipv4Levels = levels(spec.ipv4Levels(), 32, metrics);
+        this.ipv6Levels = levels(spec.ipv6Levels(), 128, metrics);
+
+        boolean anyBurstLimited = false;
+        long retryNanos = 0;
+        for (final List<IpLimiterSpec.Level> family : List.of(spec.ipv4Levels(), spec.ipv6Levels())) {
+            for (final IpLimiterSpec.Level level : family) {
+                if (!level.bucketSpec().allowBurst()) {
+                    anyBurstLimited = true;
+                    retryNanos = Math.max(retryNanos, level.bucketSpec().refillPeriod().toNanos());
+                }
+            }
+        }
+        this.burstLimited = anyBurstLimited;
+        this.burstLimitedRetryNanos = retryNanos;
+    }
+
+    @Override
+    public Permit tryAcquireIpv4(final int address) {
+        return tryAcquireIpv4(address, 1);
+    }
+
+    @Override
+    public Permit tryAcquireIpv4(final int address, final long tokens) {
+        return tryAcquire(ipv4Levels, 0, address & 0xFFFFFFFFL, tokens);
+    }
+
+    @Override
+    public Permit tryAcquireIpv6(final long high, final long low) {
+        return tryAcquireIpv6(high, low, 1);
+    }
+
+    @Override
+    public Permit tryAcquireIpv6(final long high, final long low, final long tokens) {
+        return tryAcquire(ipv6Levels, high, low, tokens);
+    }
+
+    @Override
+    public Permit tryAcquire(final InetAddress address, final long tokens) {
+        Objects.requireNonNull(address, "address");
+        final ByteBuffer bytes = ByteBuffer.wrap(address.getAddress());
+        if (address instanceof Inet4Address) {
+            return tryAcquireIpv4(bytes.getInt(), tokens);
+        }
+        return tryAcquireIpv6(bytes.getLong(), bytes.getLong(), tokens);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (final Level level : ipv4Levels) {
+            size += level.table().size();
+        }
+        for (final Level level : ipv6Levels) {
+            size += level.table().size();
+        }
+        return size;
+    }
+
+    @Override
+    public void prune() {
+        final long now = timeSource.nanoTime();
+        for (final Level level : ipv4Levels) {
+            level.table().prune(now);
+        }
+        for (final Level level : ipv6Levels) {
+            level.table().prune(now);
+        }
+    }
+
+    @Override
+    public LimiterMetrics metrics() {
+        return metrics.snapshot();
+    }
+
+    private Permit tryAcquire(final Level[] levels, final long high, final long low, final long tokens) {
+        if (tokens < 1) {
+            throw new IllegalArgumentException("tokens must be >= 1");
+        }
+        if (burstLimited && tokens > 1) {
+            metrics.rejected();
+            JfrEvents.throttled(null, tokens, burstLimitedRetryNanos);
+            return new SimplePermit(false, tokens, 0, burstLimitedRetryNanos);
+        }
+
+        final long now = timeSource.nanoTime();
+        long remaining = Long.MAX_VALUE;
+        for (int i = 0; i < levels.length; i++) {
+            final Level level = levels[i];
+            final long prefixHigh = high & level.highMask();
+            final long prefixLow = low & level.lowMask();
+            final long result = level.table().tryAcquire(prefixHigh, prefixLow, PrefixBucketTable.hash(prefixHigh, prefixLow), tokens, now);
+            if (result < 0) {
+                final long retryAfter = reject(levels, i, -result, high, low, tokens, now);
+                metrics.rejected();
+                JfrEvents.throttled(null, tokens, retryAfter);
+                return new SimplePermit(false, tokens, 0, retryAfter);
+            }
+            remaining = Math.min(remaining, result);
+        }
+
+        metrics.granted(tokens);
+        return new SimplePermit(true, tokens, remaining, 0);
+    }
+
+    private static long reject(final Level[] levels, final int rejecting, final long rejectingRetryNanos, final long high, final long low,
+            final long tokens, final long nowNanos) {
+        long retryAfter = rejectingRetryNanos;
+        for (int i = 0; i < levels.length; i++) {
+            if (i == rejecting) {
+                continue;
+            }
+            final Level level = levels[i];
+            final long prefixHigh = high & level.highMask();
+            final long prefixLow = low & level.lowMask();
+            final int hash = PrefixBucketTable.hash(prefixHigh, prefixLow);
+            if (i < rejecting) {
+                level.table().refund(prefixHigh, prefixLow, hash, tokens, nowNanos);
+            } else {
+                retryAfter = Math.max(retryAfter, level.table().retryAfterNanos(prefixHigh, prefixLow, hash, tokens, nowNanos));
+            }
+        }
+        return retryAfter;
+    }
+
+    private static Level[] levels(final List<IpLimiterSpec.Level> specs, final int addressBits, final MetricsRecorder metrics) {
+        final Level[] levels = new Level[specs.size()];
+        for (int i = 0; i < levels.length; i++) {
+            final IpLimiterSpec.Level spec = specs.get(i);
+            final int prefixBits = spec.prefixLength() + (128 - addressBits);
+            final long highMask = mask(Math.min(64, prefixBits));
+            final long lowMask = mask(Math.max(0, prefixBits - 64));
+            levels[i] = new Level(highMask, lowMask, new PrefixBucketTable(RateParameters.of(spec.bucketSpec()), metrics));
+        }
+        return levels;
+    }
+
+    private static long mask(final int leadingBits) {
+        return leadingBits == 0 ? 0 : -1L << (64 - leadingBits);
+    }
+
+    private record Level(long highMask, long lowMask, PrefixBucketTable table) {
+    }
+}
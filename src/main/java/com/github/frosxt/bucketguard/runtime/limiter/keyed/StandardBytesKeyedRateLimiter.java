@@ -0,0 +1,167 @@
+package com.github.frosxt.bucketguard.runtime.limiter.keyed;
+
+import com.github.frosxt.bucketguard.api.ByteKeys;
+import com.github.frosxt.bucketguard.api.BytesKeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.LimiterMetrics;
+import com.github.frosxt.bucketguard.api.LimiterStats;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.spec.EvictionPolicy;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.acquire.keyed.KeyedSnapshots;
+import com.github.frosxt.bucketguard.runtime.acquire.keyed.MaintenanceController;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
+import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.SharedRate;
+import com.github.frosxt.bucketguard.runtime.jfr.JfrEvents;
+import com.github.frosxt.bucketguard.runtime.key.store.bytes.ByteKeyedStore;
+import com.github.frosxt.bucketguard.runtime.key.store.exact.RemovalDispatch;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Standard implementation of BytesKeyedRateLimiter, over a {@link ByteKeyedStore}.
+ * <p>
+ * Supports {@link EvictionPolicy#NONE} and
+ * {@link EvictionPolicy#EXPIRE_AFTER_ACCESS}. Heavy-hitter tracking is not
+ * available, since it would need a key object per call, and throttle events
+ * are recorded without the key.
+ */
+public final class StandardBytesKeyedRateLimiter implements BytesKeyedRateLimiter {
+    private final ByteKeyedStore store;
+    private final TokenBucketSpec bucketSpec;
+    private final MetricsRecorder metrics;
+    private final MaintenanceController<byte[]> maintenanceController;
+    private final Supplier<Bucket> bucketFactory;
+
+    /**
+     * Creates a new StandardBytesKeyedRateLimiter.
+     *
+     * @param bucketSpec bucket configuration, not null
+     * @param storeSpec  store configuration, not null
+     */
+    public StandardBytesKeyedRateLimiter(final TokenBucketSpec bucketSpec, final KeyedStoreSpec<byte[]> storeSpec) {
+        if (storeSpec.approximate() || storeSpec.evictionPolicy() == EvictionPolicy.LRU) {
+            throw new IllegalArgumentException("byte keys support EvictionPolicy NONE and EXPIRE_AFTER_ACCESS only");
+        }
+        final long expireNanos = storeSpec.evictionPolicy() == EvictionPolicy.EXPIRE_AFTER_ACCESS ? storeSpec.expireAfterAccess().toNanos() : 0;
+
+        this.bucketSpec = bucketSpec;
+        this.metrics = MetricsRecorder.create(bucketSpec.metricsEnabled());
+        this.store = new ByteKeyedStore(expireNanos, RemovalDispatch.create(storeSpec, metrics), bucketSpec.timeSource(), metrics);
+        this.maintenanceController = new MaintenanceController<>(store, storeSpec);
+        final SharedRate sharedRate = BucketFactory.supportsReconfigure(bucketSpec) ? new SharedRate(bucketSpec) : null;
+        this.bucketFactory = () -> BucketFactory.create(bucketSpec, sharedRate, metrics);
+    }
+
+    @Override
+    public Permit tryAcquire(final byte[] key, final int offset, final int length) {
+        return tryAcquire(key, offset, length, 1);
+    }
+
+    @Override
+    public Permit tryAcquire(final byte[] key, final int offset, final int length, final long tokens) {
+        return tryAcquire(key, offset, length, ByteKeys.hash(key, offset, length), tokens);
+    }
+
+    @Override
+    public Permit tryAcquire(final byte[] key, final int offset, final int length, final int hash, final long tokens) {
+        Objects.requireNonNull(key, "key");
+        Objects.checkFromIndexSize(offset, length, key.length);
+        final Permit rejected = rejectUnsplittable(tokens);
+        if (rejected != null) {
+            return rejected;
+        }
+        return record(store.tryAcquire(key, offset, length, hash, bucketFactory, tokens, bucketSpec.timeSource().nanoTime()), tokens);
+    }
+
+    @Override
+    public Permit tryAcquire(final ByteBuffer key) {
+        return tryAcquire(key, 1);
+    }
+
+    @Override
+    public Permit tryAcquire(final ByteBuffer key, final long tokens) {
+        return tryAcquire(key, ByteKeys.hash(key), tokens);
+    }
+
+    @Override
+    public Permit tryAcquire(final ByteBuffer key, final int hash, final long tokens) {
+        Objects.requireNonNull(key, "key");
+        final Permit rejected = rejectUnsplittable(tokens);
+        if (rejected != null) {
+            return rejected;
+        }
+        return record(store.tryAcquire(key, hash, bucketFactory, tokens, bucketSpec.timeSource().nanoTime()), tokens);
+    }
+
+    @Override
+    public LimiterStats snapshot(final byte[] key, final int offset, final int length) {
+        Objects.requireNonNull(key, "key");
+        return KeyedSnapshots.snapshot(Arrays.copyOfRange(key, offset, offset + length), store, bucketSpec);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public LimiterMetrics metrics() {
+        return metrics.snapshot();
+    }
+
+    @Override
+    public void prune() {
+        maintenanceController.prune();
+    }
+
+    @Override
+    public void startMaintenance() {
+        maintenanceController.startMaintenance();
+    }
+
+    @Override
+    public void startMaintenance(final ScheduledExecutorService scheduler) {
+        maintenanceController.startMaintenance(scheduler);
+    }
+
+    @Override
+    public void startMaintenance(final ScheduledExecutorService scheduler, final Duration period) {
+        maintenanceController.startMaintenance(scheduler, period);
+    }
+
+    @Override
+    public void close() {
+        maintenanceController.close();
+    }
+
+    private Permit rejectUnsplittable(final long tokens) {
+        if (tokens < 1) {
+            throw new IllegalArgumentException("tokens must be >= 1");
+        }
+        if (!bucketSpec.allowBurst() && tokens > 1) {
+            metrics.rejected();
+            JfrEvents.throttled(null, tokens, bucketSpec.refillPeriod().toNanos());
+            return new SimplePermit(false, tokens, 0, bucketSpec.refillPeriod().toNanos());
+        }
+        return null;
+    }
+
+    private Permit record(final Permit permit, final long tokens) {
+        if (permit.granted()) {
+            metrics.granted(tokens);
+        } else {
+            metrics.rejected();
+            JfrEvents.throttled(null, tokens, permit.retryAfterNanos());
+        }
+        return permit;
+    }
+}
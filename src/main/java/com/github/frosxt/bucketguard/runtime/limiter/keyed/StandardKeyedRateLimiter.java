@@ -1,18 +1,34 @@
 package com.github.frosxt.bucketguard.runtime.limiter.keyed;
 
+import com.github.frosxt.bucketguard.api.AcquireLatency;
+import com.github.frosxt.bucketguard.api.HeavyHitter;
+import com.github.frosxt.bucketguard.api.KeyCodec;
 import com.github.frosxt.bucketguard.api.KeyedLimiterStats;
 import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.KeyedSnapshotVisitor;
+import com.github.frosxt.bucketguard.api.LimiterMetrics;
 import com.github.frosxt.bucketguard.api.LimiterStats;
 import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.PermitCallback;
 import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
 import com.github.frosxt.bucketguard.runtime.acquire.keyed.KeyedAcquireCoordinator;
+import com.github.frosxt.bucketguard.runtime.acquire.keyed.KeyedCheckpoints;
 import com.github.frosxt.bucketguard.runtime.acquire.keyed.KeyedSnapshots;
 import com.github.frosxt.bucketguard.runtime.acquire.keyed.MaintenanceController;
+import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.SharedRate;
+import com.github.frosxt.bucketguard.runtime.key.hitters.HeavyHitterTracker;
 import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
 import com.github.frosxt.bucketguard.runtime.key.store.KeyedStoreFactory;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
@@ -22,6 +38,9 @@ public class StandardKeyedRateLimiter<K> implements KeyedRateLimiter<K> {
     private final TokenBucketSpec bucketSpec;
     private final KeyedAcquireCoordinator<K> acquireCoordinator;
     private final MaintenanceController<K> maintenanceController;
+    private final MetricsRecorder metrics;
+    private final HeavyHitterTracker<K> heavyHitters;
+    private final SharedRate sharedRate;
 
     /**
      * Creates a new StandardKeyedRateLimiter.
@@ -31,8 +50,11 @@ public class StandardKeyedRateLimiter<K> implements KeyedRateLimiter<K> {
      */
     public StandardKeyedRateLimiter(final TokenBucketSpec bucketSpec, final KeyedStoreSpec<K> storeSpec) {
         this.bucketSpec = bucketSpec;
-        this.store = KeyedStoreFactory.create(storeSpec, bucketSpec.timeSource());
-        this.acquireCoordinator = new KeyedAcquireCoordinator<>(store, bucketSpec);
+        this.metrics = MetricsRecorder.create(bucketSpec.metricsEnabled());
+        this.store = KeyedStoreFactory.create(storeSpec, bucketSpec, metrics);
+        this.heavyHitters = new HeavyHitterTracker<>(storeSpec.heavyHitterCapacity());
+        this.sharedRate = !storeSpec.approximate() && BucketFactory.supportsReconfigure(bucketSpec) ? new SharedRate(bucketSpec) : null;
+        this.acquireCoordinator = new KeyedAcquireCoordinator<>(store, bucketSpec, metrics, heavyHitters, sharedRate);
         this.maintenanceController = new MaintenanceController<>(store, storeSpec);
     }
 
@@ -46,6 +68,11 @@ public class StandardKeyedRateLimiter<K> implements KeyedRateLimiter<K> {
         return acquireCoordinator.tryAcquire(key, tokens);
     }
 
+    @Override
+    public Permit tryAcquireUpTo(final K key, final long max) {
+        return acquireCoordinator.tryAcquireUpTo(key, max);
+    }
+
     @Override
     public Permit acquire(final K key) throws InterruptedException {
         return acquire(key, 1);
@@ -66,9 +93,19 @@ public class StandardKeyedRateLimiter<K> implements KeyedRateLimiter<K> {
         return acquireCoordinator.acquireAsync(key, tokens, executor);
     }
 
+    @Override
+    public void acquireAsync(final K key, final long tokens, final PermitCallback callback, final Executor executor) {
+        acquireCoordinator.acquireAsync(key, tokens, callback, executor);
+    }
+
+    @Override
+    public long nanosUntilAvailable(final K key, final long tokens) {
+        return acquireCoordinator.nanosUntilAvailable(key, tokens);
+    }
+
     @Override
     public LimiterStats snapshot(final K key) {
-        return KeyedSnapshots.snapshot(key, store, bucketSpec);
+        return KeyedSnapshots.snapshot(key, store, currentSpec());
     }
 
     @Override
@@ -78,7 +115,65 @@ public class StandardKeyedRateLimiter<K> implements KeyedRateLimiter<K> {
 
     @Override
     public KeyedLimiterStats snapshotSample(final int limit) {
-        return KeyedSnapshots.snapshotSample(limit, store);
+        return KeyedSnapshots.snapshotSample(limit, store, currentSpec());
+    }
+
+    @Override
+    public KeyedLimiterStats snapshotReservoir(final int limit) {
+        return KeyedSnapshots.reservoirSample(limit, store, currentSpec());
+    }
+
+    @Override
+    public void forEachSnapshot(final KeyedSnapshotVisitor<? super K> visitor) {
+        Objects.requireNonNull(visitor, "visitor");
+        KeyedSnapshots.forEachSnapshot(visitor, store, currentSpec());
+    }
+
+    @Override
+    public LimiterMetrics metrics() {
+        return metrics.snapshot();
+    }
+
+    @Override
+    public AcquireLatency acquireLatency() {
+        return metrics.latency(false);
+    }
+
+    @Override
+    public AcquireLatency resetAcquireLatency() {
+        return metrics.latency(true);
+    }
+
+    @Override
+    public List<HeavyHitter<K>> topThrottled(final int k) {
+        return heavyHitters.topThrottled(k);
+    }
+
+    @Override
+    public List<HeavyHitter<K>> topTraffic(final int k) {
+        return heavyHitters.topTraffic(k);
+    }
+
+    @Override
+    public void reconfigure(final TokenBucketSpec spec) {
+        requireSharedRate("reconfiguration");
+        sharedRate.reconfigure(spec);
+    }
+
+    @Override
+    public long checkpoint(final Path path, final KeyCodec<? super K> codec) throws IOException {
+        Objects.requireNonNull(path, "path");
+        Objects.requireNonNull(codec, "codec");
+        requireSharedRate("checkpoints");
+        return KeyedCheckpoints.write(path, codec, store, sharedRate, bucketSpec.timeSource(), Clock.systemUTC());
+    }
+
+    @Override
+    public long restore(final Path path, final KeyCodec<? extends K> codec) throws IOException {
+        Objects.requireNonNull(path, "path");
+        Objects.requireNonNull(codec, "codec");
+        requireSharedRate("checkpoints");
+        return KeyedCheckpoints.read(path, codec, store, sharedRate, metrics, bucketSpec.timeSource(), Clock.systemUTC());
     }
 
     @Override
@@ -86,6 +181,11 @@ public class StandardKeyedRateLimiter<K> implements KeyedRateLimiter<K> {
         maintenanceController.prune();
     }
 
+    @Override
+    public void startMaintenance() {
+        maintenanceController.startMaintenance();
+    }
+
     @Override
     public void startMaintenance(final ScheduledExecutorService scheduler) {
         maintenanceController.startMaintenance(scheduler);
@@ -105,4 +205,14 @@ public class StandardKeyedRateLimiter<K> implements KeyedRateLimiter<K> {
     public void close() {
         maintenanceController.close();
     }
+
+    private void requireSharedRate(final String feature) {
+        if (sharedRate == null) {
+            throw new UnsupportedOperationException(feature + " require exact storage and atomic buckets");
+        }
+    }
+
+    private TokenBucketSpec currentSpec() {
+        return sharedRate == null ? bucketSpec : sharedRate.current().spec();
+    }
 }
@@ -0,0 +1,55 @@
+package com.github.frosxt.bucketguard.runtime.limiter.leased;
+
+import com.github.frosxt.bucketguard.api.LeasedRateLimiter;
+import com.github.frosxt.bucketguard.api.spec.LeaseLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.leased.LeasedBucket;
+import com.github.frosxt.bucketguard.runtime.limiter.global.StandardRateLimiter;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+
+/**
+ * Standard implementation of LeasedRateLimiter.
+ * <p>
+ * The first lease is taken on construction, so a limiter is usually ready
+ * to grant requests as soon as it is built.
+ */
+public final class StandardLeasedRateLimiter extends StandardRateLimiter implements LeasedRateLimiter {
+    private final LeasedBucket bucket;
+
+    /**
+     * Creates a new StandardLeasedRateLimiter.
+     *
+     * @param spec configuration spec, not null
+     */
+    public StandardLeasedRateLimiter(final LeaseLimiterSpec spec) {
+        this(spec, MetricsRecorder.create(spec.bucketSpec().metricsEnabled()));
+    }
+
+    private StandardLeasedRateLimiter(final LeaseLimiterSpec spec, final MetricsRecorder metrics) {
+        this(spec, new LeasedBucket(spec, metrics), metrics);
+    }
+
+    private StandardLeasedRateLimiter(final LeaseLimiterSpec spec, final LeasedBucket bucket, final MetricsRecorder metrics) {
+        super(spec.bucketSpec(), bucket, metrics);
+        this.bucket = bucket;
+        bucket.prefetch();
+    }
+
+    @Override
+    public long leaseSize() {
+        return bucket.leaseSize();
+    }
+
+    @Override
+    public void close() {
+        bucket.close();
+    }
+
+    /**
+     * Not supported: the rate of a leased limiter is owned by its backend.
+     */
+    @Override
+    public void reconfigure(final TokenBucketSpec spec) {
+        throw new UnsupportedOperationException("leased limiters take their rate from the backend");
+    }
+}
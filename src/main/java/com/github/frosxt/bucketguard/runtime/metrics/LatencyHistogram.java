@@ -0,0 +1,91 @@
+package com.github.frosxt.bucketguard.runtime.metrics;
+
+import com.github.frosxt.bucketguard.api.LatencySnapshot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent log-linear histogram of nanosecond values.
+ * <p>
+ * Each power of two is split into {@value #SUB_COUNT} linear sub-buckets,
+ * giving about 3% relative precision across the whole {@code long} range in a
+ * fixed array. Recording is a single atomic increment and never allocates.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param nanos the value
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.getAndIncrement(indexFor(value));
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Captures the current distribution, optionally starting a new interval.
+     * <p>
+     * When resetting, each bucket is swapped to zero atomically, so a value
+     * recorded concurrently lands in exactly one of the two intervals.
+     *
+     * @param reset true to clear the histogram as it is read
+     * @return the snapshot
+     */
+    public LatencySnapshot snapshot(final boolean reset) {
+        final long observedMax = reset ? max.getAndSet(0) : max.get();
+
+        int nonEmpty = 0;
+        final long[] taken = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            taken[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+            if (taken[i] != 0) {
+                nonEmpty++;
+            }
+        }
+
+        final long[] upperBounds = new long[nonEmpty];
+        final long[] bucketCounts = new long[nonEmpty];
+        long highest = 0;
+        int j = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (taken[i] != 0) {
+                upperBounds[j] = upperBound(i);
+                bucketCounts[j] = taken[i];
+                highest = upperBounds[j];
+                j++;
+            }
+        }
+
+        return new LatencySnapshot(upperBounds, bucketCounts, Math.min(Math.max(observedMax, 0), highest));
+    }
+
+    static int indexFor(final long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_COUNT - 1));
+    }
+
+    static long upperBound(final int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        final int shift = (index >>> SUB_BITS) - 1;
+        final long lower = (long) (SUB_COUNT + (index & (SUB_COUNT - 1))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.frosxt.bucketguard.runtime.metrics;
+
+import com.github.frosxt.bucketguard.api.AcquireLatency;
+import com.github.frosxt.bucketguard.api.LimiterMetrics;
+
+/**
+ * Internal sink for limiter counters.
+ * <p>
+ * Call sites hold a final reference and call it unconditionally; when metrics
+ * are disabled the reference is {@link #NOOP}, whose empty methods are inlined
+ * away by the JIT.
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Recorder that discards everything.
+     */
+    MetricsRecorder NOOP = new NoopMetricsRecorder();
+
+    /**
+     * Returns a recorder for the given setting.
+     *
+     * @param enabled whether metrics are enabled
+     * @return a striped recorder if enabled, otherwise {@link #NOOP}
+     */
+    static MetricsRecorder create(final boolean enabled) {
+        return enabled ? new StripedMetricsRecorder() : NOOP;
+    }
+
+    void granted(long tokens);
+
+    void rejected();
+
+    void casRetry();
+
+    /**
+     * Records a completed blocking acquisition.
+     *
+     * @param nanos time from the call to the grant
+     */
+    void blocked(long nanos);
+
+    /**
+     * Records a completed asynchronous acquisition.
+     *
+     * @param nanos time from the call to the grant
+     */
+    void asyncWaited(long nanos);
+
+    void waiterAdded();
+
+    void waiterRemoved();
+
+    void keyCreated();
+
+    void keyEvicted();
+
+    void keyExpired();
+
+    /**
+     * @return the current counter values
+     */
+    LimiterMetrics snapshot();
+
+    /**
+     * @param reset true to start a new interval
+     * @return the time-to-grant distributions recorded since the last reset
+     */
+    AcquireLatency latency(boolean reset);
+}
@@ -0,0 +1,60 @@
+package com.github.frosxt.bucketguard.runtime.metrics;
+
+import com.github.frosxt.bucketguard.api.AcquireLatency;
+import com.github.frosxt.bucketguard.api.LimiterMetrics;
+
+/**
+ * Recorder used when metrics are disabled.
+ */
+final class NoopMetricsRecorder implements MetricsRecorder {
+
+    @Override
+    public void granted(final long tokens) {
+    }
+
+    @Override
+    public void rejected() {
+    }
+
+    @Override
+    public void casRetry() {
+    }
+
+    @Override
+    public void blocked(final long nanos) {
+    }
+
+    @Override
+    public void asyncWaited(final long nanos) {
+    }
+
+    @Override
+    public void waiterAdded() {
+    }
+
+    @Override
+    public void waiterRemoved() {
+    }
+
+    @Override
+    public void keyCreated() {
+    }
+
+    @Override
+    public void keyEvicted() {
+    }
+
+    @Override
+    public void keyExpired() {
+    }
+
+    @Override
+    public LimiterMetrics snapshot() {
+        return LimiterMetrics.DISABLED;
+    }
+
+    @Override
+    public AcquireLatency latency(final boolean reset) {
+        return AcquireLatency.EMPTY;
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.frosxt.bucketguard.runtime.metrics;
+
+import com.github.frosxt.bucketguard.api.AcquireLatency;
+import com.github.frosxt.bucketguard.api.LimiterMetrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recorder backed by {@link LongAdder}s, so concurrent updates land on
+ * separate cells instead of contending on one counter.
+ */
+final class StripedMetricsRecorder implements MetricsRecorder {
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder tokensGranted = new LongAdder();
+    private final LongAdder casRetries = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private final LongAdder pendingWaiters = new LongAdder();
+    private final LongAdder keysCreated = new LongAdder();
+    private final LongAdder keysEvicted = new LongAdder();
+    private final LongAdder keysExpired = new LongAdder();
+    private final LatencyHistogram blockingLatency = new LatencyHistogram();
+    private final LatencyHistogram asyncLatency = new LatencyHistogram();
+
+    @Override
+    public void granted(final long tokens) {
+        granted.increment();
+        tokensGranted.add(tokens);
+    }
+
+    @Override
+    public void rejected() {
+        rejected.increment();
+    }
+
+    @Override
+    public void casRetry() {
+        casRetries.increment();
+    }
+
+    @Override
+    public void blocked(final long nanos) {
+        if (nanos > 0) {
+            blockedNanos.add(nanos);
+        }
+        blockingLatency.record(nanos);
+    }
+
+    @Override
+    public void asyncWaited(final long nanos) {
+        asyncLatency.record(nanos);
+    }
+
+    @Override
+    public void waiterAdded() {
+        pendingWaiters.increment();
+    }
+
+    @Override
+    public void waiterRemoved() {
+        pendingWaiters.decrement();
+    }
+
+    @Override
+    public void keyCreated() {
+        keysCreated.increment();
+    }
+
+    @Override
+    public void keyEvicted() {
+        keysEvicted.increment();
+    }
+
+    @Override
+    public void keyExpired() {
+        keysExpired.increment();
+    }
+
+    @Override
+    public LimiterMetrics snapshot() {
+        return new LimiterMetrics(true, granted.sum(), rejected.sum(), tokensGranted.sum(), casRetries.sum(),
+                blockedNanos.sum(), pendingWaiters.sum(), keysCreated.sum(), keysEvicted.sum(), keysExpired.sum());
+    }
+
+    @Override
+    public AcquireLatency latency(final boolean reset) {
+        return new AcquireLatency(blockingLatency.snapshot(reset), asyncLatency.snapshot(reset));
+    }
+}
@@ -1,10 +1,17 @@
 package com.github.frosxt.bucketguard.runtime.wiring;
 
+import com.github.frosxt.bucketguard.api.BytesKeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.KeyCodec;
 import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.spec.CompositeLimiterSpec;
 import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.limiter.composite.CompositeKeyedRateLimiter;
+import com.github.frosxt.bucketguard.runtime.limiter.keyed.StandardBytesKeyedRateLimiter;
 import com.github.frosxt.bucketguard.runtime.limiter.keyed.StandardKeyedRateLimiter;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Objects;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -15,7 +22,8 @@ public final class KeyedLimiterFactory {
     }
 
     /**
-     * Creates a keyed rate limiter.
+     * Creates a keyed rate limiter, starting maintenance on the shared
+     * maintenance thread if enabled in the spec.
      *
      * @param spec      bucket spec
      * @param storeSpec store spec
@@ -23,10 +31,7 @@ public final class KeyedLimiterFactory {
      * @return the limiter
      */
     public static <K> KeyedRateLimiter<K> create(final TokenBucketSpec spec, final KeyedStoreSpec<K> storeSpec) {
-        Objects.requireNonNull(spec, "spec");
-        Objects.requireNonNull(storeSpec, "storeSpec");
-
-        return new StandardKeyedRateLimiter<>(spec, storeSpec);
+        return create(spec, storeSpec, null);
     }
 
     /**
@@ -34,7 +39,8 @@ public final class KeyedLimiterFactory {
      *
      * @param spec      bucket spec
      * @param storeSpec store spec
-     * @param scheduler optional scheduler for maintenance (if enabled in spec)
+     * @param scheduler optional scheduler for maintenance (if enabled in spec),
+     *                  or null to use the shared maintenance thread
      * @param <K>       key type
      * @return the limiter
      */
@@ -45,10 +51,64 @@ public final class KeyedLimiterFactory {
 
         final KeyedRateLimiter<K> limiter = new StandardKeyedRateLimiter<>(spec, storeSpec);
 
-        if (scheduler != null && storeSpec.maintenanceEnabled()) {
-            limiter.startMaintenance(scheduler, storeSpec.maintenancePeriod());
+        if (storeSpec.maintenanceEnabled()) {
+            if (scheduler != null) {
+                limiter.startMaintenance(scheduler, storeSpec.maintenancePeriod());
+            } else {
+                limiter.startMaintenance();
+            }
         }
 
         return limiter;
     }
+
+    /**
+     * Creates a keyed rate limiter and restores a checkpoint into it.
+     *
+     * @param spec      bucket spec
+     * @param storeSpec store spec
+     * @param path      checkpoint file
+     * @param codec     key codec
+     * @param <K>       key type
+     * @return the limiter
+     * @throws IOException if the checkpoint cannot be read
+     */
+    public static <K> KeyedRateLimiter<K> restore(final TokenBucketSpec spec, final KeyedStoreSpec<K> storeSpec, final Path path,
+            final KeyCodec<? extends K> codec) throws IOException {
+        final KeyedRateLimiter<K> limiter = create(spec, storeSpec);
+        limiter.restore(path, codec);
+        return limiter;
+    }
+
+    /**
+     * Creates a keyed rate limiter for byte keys, starting maintenance on the
+     * shared maintenance thread if enabled in the spec.
+     *
+     * @param spec      bucket spec
+     * @param storeSpec store spec
+     * @return the limiter
+     */
+    public static BytesKeyedRateLimiter createBytes(final TokenBucketSpec spec, final KeyedStoreSpec<byte[]> storeSpec) {
+        Objects.requireNonNull(spec, "spec");
+        Objects.requireNonNull(storeSpec, "storeSpec");
+
+        final BytesKeyedRateLimiter limiter = new StandardBytesKeyedRateLimiter(spec, storeSpec);
+        if (storeSpec.maintenanceEnabled()) {
+            limiter.startMaintenance();
+        }
+        return limiter;
+    }
+
+    /**
+     * Creates a composite keyed rate limiter.
+     *
+     * @param spec composite spec
+     * @param <K>  key type
+     * @return the limiter
+     */
+    public static <K> KeyedRateLimiter<K> createComposite(final CompositeLimiterSpec<K> spec) {
+        Objects.requireNonNull(spec, "spec");
+
+        return new CompositeKeyedRateLimiter<>(spec);
+    }
 }
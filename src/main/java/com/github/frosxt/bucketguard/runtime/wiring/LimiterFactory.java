@@ -1,9 +1,21 @@
 package com.github.frosxt.bucketguard.runtime.wiring;
 
+import com.github.frosxt.bucketguard.api.AdaptiveRateLimiter;
+import com.github.frosxt.bucketguard.api.IpRateLimiter;
+import com.github.frosxt.bucketguard.api.LeasedRateLimiter;
 import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.spec.AdaptiveLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.IpLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.LeaseLimiterSpec;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.limiter.adaptive.StandardAdaptiveRateLimiter;
+import com.github.frosxt.bucketguard.runtime.limiter.global.MappedRateLimiter;
 import com.github.frosxt.bucketguard.runtime.limiter.global.StandardRateLimiter;
+import com.github.frosxt.bucketguard.runtime.limiter.ip.StandardIpRateLimiter;
+import com.github.frosxt.bucketguard.runtime.limiter.leased.StandardLeasedRateLimiter;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Objects;
 
 public final class LimiterFactory {
@@ -22,4 +34,54 @@ public final class LimiterFactory {
         Objects.requireNonNull(spec, "spec");
         return new StandardRateLimiter(spec);
     }
+
+    /**
+     * Creates an adaptive rate limiter.
+     *
+     * @param spec config spec
+     * @return the limiter
+     */
+    public static AdaptiveRateLimiter createAdaptive(final AdaptiveLimiterSpec spec) {
+        Objects.requireNonNull(spec, "spec");
+        return new StandardAdaptiveRateLimiter(spec);
+    }
+
+    /**
+     * Creates a rate limiter per IP prefix.
+     *
+     * @param spec config spec
+     * @return the limiter
+     */
+    public static IpRateLimiter createIp(final IpLimiterSpec spec) {
+        Objects.requireNonNull(spec, "spec");
+        return new StandardIpRateLimiter(spec);
+    }
+
+    /**
+     * Creates a rate limiter spending tokens leased from a backend.
+     *
+     * @param spec config spec
+     * @return the limiter
+     */
+    public static LeasedRateLimiter createLeased(final LeaseLimiterSpec spec) {
+        Objects.requireNonNull(spec, "spec");
+        return new StandardLeasedRateLimiter(spec);
+    }
+
+    /**
+     * Creates a rate limiter over a named bucket in a memory-mapped table.
+     *
+     * @param file  table file
+     * @param slots capacity of a newly created table
+     * @param name  bucket name
+     * @param spec  config spec
+     * @return the limiter
+     * @throws IOException if the table cannot be opened
+     */
+    public static RateLimiter createMapped(final Path file, final int slots, final String name, final TokenBucketSpec spec) throws IOException {
+        Objects.requireNonNull(file, "file");
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(spec, "spec");
+        return MappedRateLimiter.open(file, slots, name, spec);
+    }
 }
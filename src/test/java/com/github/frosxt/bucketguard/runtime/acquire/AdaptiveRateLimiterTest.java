@@ -0,0 +1,96 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.AdaptiveRateLimiter;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.AdaptiveLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveRateLimiterTest {
+
+    private static AdaptiveRateLimiter limiter(final FakeTimeSource time) {
+        return BucketGuards.adaptive(AdaptiveLimiterSpec.builder()
+                .bucketSpec(TokenBucketSpec.builder()
+                        .capacity(1)
+                        .refillTokens(100)
+                        .refillPeriod(Duration.ofSeconds(1))
+                        .timeSource(time)
+                        .build())
+                .rateBounds(10, 200)
+                .latencyThreshold(Duration.ofMillis(50))
+                .increaseStep(10)
+                .decreaseFactor(0.5)
+                .window(Duration.ofSeconds(1))
+                .build());
+    }
+
+    @Test
+    void decreasesMultiplicativelyOnCongestion() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final AdaptiveRateLimiter limiter = limiter(time);
+        assertEquals(100, limiter.currentRate());
+
+        limiter.recordSample(Duration.ofMillis(80), false);
+        assertEquals(100, limiter.currentRate(), "rate changes only at window end");
+
+        time.advance(Duration.ofSeconds(1).toNanos());
+        limiter.recordSample(Duration.ofMillis(1), false);
+        assertEquals(50, limiter.currentRate());
+
+        time.advance(Duration.ofSeconds(1).toNanos());
+        limiter.recordSample(Duration.ofMillis(1), true);
+        assertEquals(25, limiter.currentRate());
+
+        for (int i = 0; i < 5; i++) {
+            time.advance(Duration.ofSeconds(1).toNanos());
+            limiter.recordSample(0, true);
+        }
+        assertEquals(10, limiter.currentRate(), "clamped to the minimum");
+    }
+
+    @Test
+    void increasesAdditivelyWhenHealthy() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final AdaptiveRateLimiter limiter = limiter(time);
+
+        for (int i = 0; i < 15; i++) {
+            time.advance(Duration.ofSeconds(1).toNanos());
+            limiter.recordSample(Duration.ofMillis(5), false);
+        }
+        assertEquals(200, limiter.currentRate(), "clamped to the maximum");
+    }
+
+    @Test
+    void appliesNewRateToLiveBucket() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final AdaptiveRateLimiter limiter = limiter(time);
+
+        assertTrue(limiter.tryAcquire().granted());
+        assertEquals(Duration.ofMillis(10), limiter.tryAcquire().retryAfter());
+
+        time.advance(Duration.ofSeconds(1).toNanos());
+        limiter.recordSample(0, true);
+        assertEquals(50, limiter.currentRate());
+
+        assertTrue(limiter.tryAcquire().granted());
+        final Permit rejected = limiter.tryAcquire();
+        assertFalse(rejected.granted());
+        assertEquals(Duration.ofMillis(20), rejected.retryAfter());
+    }
+
+    @Test
+    void rejectsInvalidBounds() {
+        final TokenBucketSpec bucketSpec = TokenBucketSpec.builder().build();
+        assertThrows(IllegalArgumentException.class,
+                () -> AdaptiveLimiterSpec.builder().bucketSpec(bucketSpec).rateBounds(10, 5).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> AdaptiveLimiterSpec.builder().bucketSpec(bucketSpec).decreaseFactor(1).build());
+        assertThrows(NullPointerException.class, () -> AdaptiveLimiterSpec.builder().build());
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncCancellationTest {
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void cancelRemovesWaiterAndTakesNothing() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final RateLimiter limiter = BucketGuards.tokenBucket(TokenBucketSpec.builder()
+                .capacity(1)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .metricsEnabled(true)
+                .build());
+        assertTrue(limiter.tryAcquire().granted());
+
+        final CompletableFuture<Permit> future = limiter.acquireAsync(scheduler).toCompletableFuture();
+        assertEquals(1, scheduler.getQueue().size());
+        assertEquals(1, limiter.metrics().pendingAsyncWaiters());
+
+        assertTrue(future.cancel(false));
+        assertEquals(0, scheduler.getQueue().size());
+        assertEquals(0, limiter.metrics().pendingAsyncWaiters());
+
+        time.advance(Duration.ofSeconds(1).toNanos());
+        assertTrue(limiter.tryAcquire().granted());
+    }
+
+    @Test
+    void immediateGrantCompletesWithoutWaiting() {
+        final RateLimiter limiter = BucketGuards.tokenBucket(TokenBucketSpec.builder()
+                .capacity(1)
+                .metricsEnabled(true)
+                .build());
+
+        final CompletableFuture<Permit> future = limiter.acquireAsync(scheduler).toCompletableFuture();
+        assertTrue(future.isDone());
+        assertTrue(future.join().granted());
+        assertFalse(future.cancel(false));
+        assertEquals(0, limiter.metrics().pendingAsyncWaiters());
+        assertEquals(0, scheduler.getQueue().size());
+    }
+
+    @Test
+    void timeoutRemovesWaiter() {
+        final RateLimiter limiter = BucketGuards.tokenBucket(TokenBucketSpec.builder()
+                .capacity(1)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofHours(1))
+                .metricsEnabled(true)
+                .build());
+        assertTrue(limiter.tryAcquire().granted());
+
+        final CompletableFuture<Permit> future = limiter.acquireAsync(scheduler).toCompletableFuture().orTimeout(20, TimeUnit.MILLISECONDS);
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertEquals(0, limiter.metrics().pendingAsyncWaiters());
+        assertEquals(0, scheduler.getQueue().size());
+    }
+
+    @Test
+    void cancelledChainRefundsTokensAlreadyTaken() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(TokenBucketSpec.builder()
+                .capacity(3)
+                .refillTokens(3)
+                .refillPeriod(Duration.ofSeconds(3))
+                .allowBurst(false)
+                .timeSource(time)
+                .build(), KeyedStoreSpec.<String>builder().build());
+
+        final CompletableFuture<Permit> future = limiter.acquireAsync("key", 3, scheduler).toCompletableFuture();
+        assertFalse(future.isDone());
+        assertFalse(limiter.tryAcquire("key").granted());
+
+        assertTrue(future.cancel(false));
+        assertEquals(0, scheduler.getQueue().size());
+
+        // The first token of the chain was handed back
+        assertTrue(limiter.tryAcquire("key").granted());
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.KeyCodec;
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.EvictionPolicy;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointTest {
+
+    private static TokenBucketSpec spec(final FakeTimeSource time) {
+        return TokenBucketSpec.builder()
+                .capacity(10)
+                .refillTokens(10)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build();
+    }
+
+    @Test
+    void restoresConsumedTokensInNewLimiter(@TempDir final Path dir) throws IOException {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedStoreSpec<String> storeSpec = KeyedStoreSpec.<String>builder()
+                .evictionPolicy(EvictionPolicy.LRU)
+                .maxKeys(100)
+                .build();
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(spec(time), storeSpec);
+
+        assertTrue(limiter.tryAcquire("refilled").granted());
+        time.advance(Duration.ofSeconds(1).toNanos());
+        assertTrue(limiter.tryAcquire("partial", 6).granted());
+        assertTrue(limiter.tryAcquire("empty", 10).granted());
+
+        final Path file = dir.resolve("limiter.ckpt");
+        assertEquals(2, limiter.checkpoint(file, KeyCodec.utf8()));
+        assertFalse(Files.exists(dir.resolve("limiter.ckpt.tmp")));
+
+        final FakeTimeSource restartedTime = new FakeTimeSource();
+        restartedTime.set(Duration.ofHours(3).toNanos());
+        final KeyedRateLimiter<String> restored = BucketGuards.restoreKeyedTokenBucket(spec(restartedTime), storeSpec, file,
+                KeyCodec.utf8());
+
+        assertEquals(4, restored.snapshot("partial").availableTokens());
+        assertFalse(restored.tryAcquire("empty").granted());
+        assertEquals(10, restored.snapshot("refilled").availableTokens());
+        assertEquals(2, restored.snapshotAll().keyCount());
+    }
+
+    @Test
+    void roundTripsLongKeys(@TempDir final Path dir) throws IOException {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedRateLimiter<Long> limiter = BucketGuards.keyedTokenBucket(spec(time), KeyedStoreSpec.<Long>builder().build());
+        for (long key = 0; key < 1_000; key++) {
+            assertTrue(limiter.tryAcquire(key, 1 + key % 10).granted());
+        }
+
+        final Path file = dir.resolve("longs.ckpt");
+        assertEquals(1_000, limiter.checkpoint(file, KeyCodec.longs()));
+
+        final KeyedRateLimiter<Long> restored = BucketGuards.keyedTokenBucket(spec(time), KeyedStoreSpec.<Long>builder().build());
+        assertEquals(1_000, restored.restore(file, KeyCodec.longs()));
+        assertEquals(9, restored.snapshot(0L).availableTokens());
+        assertEquals(0, restored.snapshot(9L).availableTokens());
+    }
+
+    @Test
+    void rejectsForeignFiles(@TempDir final Path dir) throws IOException {
+        final Path file = dir.resolve("garbage");
+        Files.write(file, new byte[64]);
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(spec(new FakeTimeSource()),
+                KeyedStoreSpec.<String>builder().build());
+        assertThrows(IOException.class, () -> limiter.restore(file, KeyCodec.utf8()));
+    }
+}
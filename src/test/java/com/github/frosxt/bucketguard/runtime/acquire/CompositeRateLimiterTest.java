@@ -0,0 +1,130 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.CompositeLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompositeRateLimiterTest {
+
+    private static TokenBucketSpec spec(final FakeTimeSource time, final long capacity, final Duration period) {
+        return TokenBucketSpec.builder()
+                .capacity(capacity)
+                .refillTokens(1)
+                .refillPeriod(period)
+                .timeSource(time)
+                .build();
+    }
+
+    @Test
+    void rejectionRefundsEarlierStages() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedRateLimiter<String> limiter = BucketGuards.composite(CompositeLimiterSpec.<String>builder()
+                .global(spec(time, 3, Duration.ofSeconds(1)))
+                .perKey(spec(time, 2, Duration.ofSeconds(1)), KeyedStoreSpec.<String>builder().build())
+                .build());
+
+        assertTrue(limiter.tryAcquire("a").granted());
+        assertTrue(limiter.tryAcquire("a").granted());
+        // Global grants, per-key rejects: the global token must be returned
+        assertFalse(limiter.tryAcquire("a").granted());
+        assertFalse(limiter.tryAcquire("a").granted());
+
+        assertTrue(limiter.tryAcquire("b").granted());
+        assertFalse(limiter.tryAcquire("b").granted());
+        assertEquals(0, limiter.snapshot("c").availableTokens());
+    }
+
+    @Test
+    void rollbackRefundsTheBucketsThatGranted() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final AtomicInteger classified = new AtomicInteger();
+        final KeyedRateLimiter<String> limiter = BucketGuards.composite(CompositeLimiterSpec.<String>builder()
+                .perKey(key -> {
+                    classified.incrementAndGet();
+                    return key;
+                }, spec(time, 5, Duration.ofSeconds(1)), KeyedStoreSpec.<String>builder().build())
+                .global(spec(time, 1, Duration.ofSeconds(1)))
+                .build());
+
+        assertTrue(limiter.tryAcquire("a").granted());
+        assertFalse(limiter.tryAcquire("a").granted());
+
+        // The rollback reuses the bucket it took from instead of resolving the key again
+        assertEquals(2, classified.get());
+    }
+
+    @Test
+    void returnsTightestRetryAfter() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedRateLimiter<String> limiter = BucketGuards.composite(CompositeLimiterSpec.<String>builder()
+                .perKey(spec(time, 1, Duration.ofSeconds(1)), KeyedStoreSpec.<String>builder().build())
+                .global(spec(time, 1, Duration.ofSeconds(10)))
+                .build());
+
+        assertTrue(limiter.tryAcquire("a").granted());
+
+        final Permit other = limiter.tryAcquire("b");
+        assertFalse(other.granted());
+        assertEquals(Duration.ofSeconds(10), other.retryAfter());
+
+        // Rejected by the per-key stage after 1s, but the global stage needs 10s
+        final Permit same = limiter.tryAcquire("a");
+        assertFalse(same.granted());
+        assertEquals(Duration.ofSeconds(10), same.retryAfter());
+
+        time.advance(Duration.ofSeconds(10).toNanos());
+        assertTrue(limiter.tryAcquire("b").granted());
+    }
+
+    @Test
+    void classifiesKeysIntoSharedStages() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedRateLimiter<String> limiter = BucketGuards.composite(CompositeLimiterSpec.<String>builder()
+                .perKey(spec(time, 5, Duration.ofSeconds(1)), KeyedStoreSpec.<String>builder().build())
+                .perKey(user -> user.substring(0, user.indexOf('/')), spec(time, 3, Duration.ofSeconds(1)),
+                        KeyedStoreSpec.<String>builder().build())
+                .build());
+
+        assertTrue(limiter.tryAcquire("acme/alice", 2).granted());
+        assertTrue(limiter.tryAcquire("acme/bob").granted());
+        assertFalse(limiter.tryAcquire("acme/bob").granted());
+        assertTrue(limiter.tryAcquire("globex/carol", 3).granted());
+
+        assertEquals(3, limiter.snapshotAll().keyCount());
+        assertEquals(0, limiter.snapshot("acme/alice").availableTokens());
+    }
+
+    @Test
+    void blockingAcquireWaitsForEveryStage() throws InterruptedException {
+        final TokenBucketSpec perKey = TokenBucketSpec.builder()
+                .capacity(1)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofMillis(20))
+                .build();
+        final KeyedRateLimiter<String> limiter = BucketGuards.composite(CompositeLimiterSpec.<String>builder()
+                .perKey(perKey, KeyedStoreSpec.<String>builder().build())
+                .global(TokenBucketSpec.builder().capacity(100).build())
+                .build());
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.acquire("a").granted());
+        }
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(35).toNanos());
+    }
+
+    @Test
+    void requiresAStage() {
+        assertThrows(IllegalArgumentException.class, () -> CompositeLimiterSpec.<String>builder().build());
+    }
+}
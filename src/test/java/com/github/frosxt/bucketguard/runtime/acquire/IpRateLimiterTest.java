@@ -0,0 +1,126 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.IpRateLimiter;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.IpLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpRateLimiterTest {
+
+    private static TokenBucketSpec perSecond(final FakeTimeSource time, final long capacity) {
+        return TokenBucketSpec.builder()
+                .capacity(capacity)
+                .refillTokens(capacity)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build();
+    }
+
+    private static int ipv4(final int a, final int b, final int c, final int d) {
+        return a << 24 | b << 16 | c << 8 | d;
+    }
+
+    @Test
+    void appliesEveryIpv4PrefixAndRefundsOnRejection() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final IpRateLimiter limiter = BucketGuards.ipTokenBucket(IpLimiterSpec.builder()
+                .ipv4(32, perSecond(time, 2))
+                .ipv4(24, perSecond(time, 3))
+                .build());
+
+        assertTrue(limiter.tryAcquireIpv4(ipv4(10, 0, 0, 1)).granted());
+        assertTrue(limiter.tryAcquireIpv4(ipv4(10, 0, 0, 1)).granted());
+        assertFalse(limiter.tryAcquireIpv4(ipv4(10, 0, 0, 1)).granted(), "/32 exhausted");
+
+        assertTrue(limiter.tryAcquireIpv4(ipv4(10, 0, 0, 2)).granted());
+        final Permit rejected = limiter.tryAcquireIpv4(ipv4(10, 0, 0, 3));
+        assertFalse(rejected.granted(), "/24 exhausted");
+        assertTrue(rejected.retryAfterNanos() > 0);
+        assertTrue(limiter.tryAcquireIpv4(ipv4(10, 0, 1, 3)).granted(), "other /24 unaffected");
+
+        time.advance(Duration.ofMillis(340).toNanos());
+        assertTrue(limiter.tryAcquireIpv4(ipv4(10, 0, 0, 3)).granted(), "the rejected /32 kept its tokens");
+    }
+
+    @Test
+    void appliesIpv6PrefixesAndLeavesUnconfiguredFamiliesUnlimited() throws Exception {
+        final FakeTimeSource time = new FakeTimeSource();
+        final IpRateLimiter limiter = BucketGuards.ipTokenBucket(IpLimiterSpec.builder()
+                .ipv6(64, perSecond(time, 2))
+                .ipv6(48, perSecond(time, 3))
+                .build());
+
+        final InetAddress host = InetAddress.getByName("2001:db8:1:1::1");
+        assertTrue(limiter.tryAcquire(host, 2).granted());
+        assertFalse(limiter.tryAcquire(InetAddress.getByName("2001:db8:1:1::2"), 1).granted(), "same /64");
+        assertTrue(limiter.tryAcquire(InetAddress.getByName("2001:db8:1:2::1"), 1).granted(), "same /48, other /64");
+        assertFalse(limiter.tryAcquire(InetAddress.getByName("2001:db8:1:3::1"), 1).granted(), "/48 exhausted");
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquireIpv4(ipv4(10, 0, 0, 1)).granted());
+        }
+    }
+
+    @Test
+    void pruneDropsFullPrefixes() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final IpRateLimiter limiter = BucketGuards.ipTokenBucket(IpLimiterSpec.builder()
+                .ipv4(32, perSecond(time, 10))
+                .ipv4(16, perSecond(time, 100_000))
+                .build());
+
+        for (int i = 0; i < 5_000; i++) {
+            assertTrue(limiter.tryAcquireIpv4(ipv4(10, 1, i >>> 8, i & 0xFF)).granted());
+        }
+        assertEquals(5_001, limiter.size());
+
+        limiter.prune();
+        assertEquals(5_001, limiter.size(), "nothing has refilled yet");
+
+        time.advance(Duration.ofSeconds(1).toNanos());
+        limiter.prune();
+        assertEquals(0, limiter.size());
+        assertEquals(9, limiter.tryAcquireIpv4(ipv4(10, 1, 0, 0)).remainingTokens());
+    }
+
+    @Test
+    void concurrentGrowthLosesNoUpdates() throws InterruptedException {
+        final FakeTimeSource time = new FakeTimeSource();
+        final IpRateLimiter limiter = BucketGuards.ipTokenBucket(IpLimiterSpec.builder()
+                .ipv4(32, perSecond(time, 1_000))
+                .build());
+
+        final int hot = ipv4(192, 168, 0, 1);
+        final AtomicInteger hotGranted = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    limiter.tryAcquireIpv4(ipv4(10, thread, i >>> 8, i & 0xFF));
+                    if (limiter.tryAcquireIpv4(hot).granted()) {
+                        hotGranted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1_000, hotGranted.get());
+        assertEquals(80_001, limiter.size());
+    }
+}
@@ -8,6 +8,8 @@ import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -49,4 +51,32 @@ class KeyedRateLimiterTest {
         // Verify size
         assertTrue(limiter.snapshotAll().keyCount() <= 2);
     }
+
+    @Test
+    void streamsAndSamplesSnapshots() {
+        final TokenBucketSpec spec = TokenBucketSpec.builder().capacity(10).build();
+        for (final EvictionPolicy policy : new EvictionPolicy[] {EvictionPolicy.NONE, EvictionPolicy.LRU}) {
+            final KeyedRateLimiter<Integer> limiter = BucketGuards.keyedTokenBucket(spec, KeyedStoreSpec.<Integer>builder()
+                    .evictionPolicy(policy)
+                    .maxKeys(1000)
+                    .build());
+            for (int i = 0; i < 100; i++) {
+                limiter.tryAcquire(i, 1 + (i % 10));
+            }
+
+            final Map<Integer, Long> streamed = new HashMap<>();
+            limiter.forEachSnapshot(streamed::put);
+            assertEquals(100, streamed.size());
+            assertEquals(9, streamed.get(0));
+            assertEquals(0, streamed.get(9));
+
+            assertEquals(100, limiter.snapshotAll().samples().size());
+            assertEquals(10, limiter.snapshotSample(10).samples().size());
+
+            final var reservoir = limiter.snapshotReservoir(10);
+            assertEquals(100, reservoir.keyCount());
+            assertEquals(10, reservoir.samples().size());
+            assertEquals(100, limiter.snapshotReservoir(500).samples().size());
+        }
+    }
 }
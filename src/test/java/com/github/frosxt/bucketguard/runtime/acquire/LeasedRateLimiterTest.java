@@ -0,0 +1,115 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.LeasedRateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.lease.Lease;
+import com.github.frosxt.bucketguard.api.lease.LeaseBackend;
+import com.github.frosxt.bucketguard.api.spec.LeaseLimiterSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.lease.InMemoryLeaseBackend;
+import com.github.frosxt.bucketguard.runtime.lease.SocketLeaseBackend;
+import com.github.frosxt.bucketguard.runtime.lease.SocketLeaseServer;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeasedRateLimiterTest {
+
+    private static InMemoryLeaseBackend backend(final FakeTimeSource time, final long capacity) {
+        return new InMemoryLeaseBackend(TokenBucketSpec.builder()
+                .capacity(capacity)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofHours(1))
+                .timeSource(time)
+                .build());
+    }
+
+    private static LeasedRateLimiter limiter(final FakeTimeSource time, final LeaseBackend backend) {
+        return BucketGuards.leased(LeaseLimiterSpec.builder()
+                .name("api")
+                .backend(backend)
+                .renewalExecutor(Runnable::run)
+                .bucketSpec(TokenBucketSpec.builder().timeSource(time).build())
+                .leaseBounds(1, 1_000)
+                .initialLease(10)
+                .build());
+    }
+
+    @Test
+    void limitersSharingABackendNeverExceedItsCapacity() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final InMemoryLeaseBackend backend = backend(time, 100);
+        final LeasedRateLimiter first = limiter(time, backend);
+        final LeasedRateLimiter second = limiter(time, backend);
+
+        int granted = 0;
+        for (int i = 0; i < 500; i++) {
+            granted += first.tryAcquire().granted() ? 1 : 0;
+            granted += second.tryAcquire().granted() ? 1 : 0;
+        }
+        assertEquals(100, granted);
+        assertFalse(first.tryAcquire().granted());
+        assertTrue(first.tryAcquire().retryAfterNanos() > 0);
+    }
+
+    @Test
+    void closeReturnsUnspentTokens() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final InMemoryLeaseBackend backend = backend(time, 100);
+        final LeasedRateLimiter limiter = limiter(time, backend);
+        assertEquals(90, backend.availableTokens("api"), "initial lease is prefetched");
+
+        assertTrue(limiter.tryAcquire(3).granted());
+        limiter.close();
+        assertEquals(97, backend.availableTokens("api"));
+    }
+
+    @Test
+    void leasesGrowWithConsumptionSoTheBackendIsRarelyCalled() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final InMemoryLeaseBackend delegate = backend(time, 1_000_000);
+        final AtomicInteger calls = new AtomicInteger();
+        final LeaseBackend counting = new LeaseBackend() {
+            @Override
+            public Lease acquire(final String name, final long tokens) {
+                calls.incrementAndGet();
+                return delegate.acquire(name, tokens);
+            }
+
+            @Override
+            public void release(final String name, final long tokens) {
+                delegate.release(name, tokens);
+            }
+        };
+
+        final LeasedRateLimiter limiter = limiter(time, counting);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(limiter.tryAcquire().granted());
+            if (i % 100 == 0) {
+                time.advance(Duration.ofMillis(10).toNanos());
+            }
+        }
+        assertTrue(calls.get() < 100, "backend calls: " + calls.get());
+        assertTrue(limiter.leaseSize() > 10);
+    }
+
+    @Test
+    void leasesOverLoopbackSocket() throws IOException {
+        final FakeTimeSource time = new FakeTimeSource();
+        final InMemoryLeaseBackend backend = backend(time, 100);
+        try (SocketLeaseServer server = new SocketLeaseServer(backend);
+                SocketLeaseBackend client = new SocketLeaseBackend(server.address())) {
+            final LeasedRateLimiter limiter = limiter(time, client);
+            assertTrue(limiter.tryAcquire(5).granted());
+            assertEquals(90, backend.availableTokens("api"));
+
+            limiter.close();
+            assertEquals(95, backend.availableTokens("api"));
+        }
+    }
+}
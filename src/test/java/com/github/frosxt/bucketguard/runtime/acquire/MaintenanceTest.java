@@ -5,9 +5,17 @@ import com.github.frosxt.bucketguard.api.factory.BucketGuards;
 import com.github.frosxt.bucketguard.api.spec.EvictionPolicy;
 import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.acquire.keyed.MaintenanceController;
+import com.github.frosxt.bucketguard.runtime.acquire.keyed.MaintenanceRuntime;
+import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStore;
+import com.github.frosxt.bucketguard.runtime.key.store.KeyedStoreFactory;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -47,6 +55,148 @@ class MaintenanceTest {
         }
     }
 
+    @Test
+    void budgetedTicksPruneLargeStore() throws InterruptedException {
+        final TokenBucketSpec spec = TokenBucketSpec.builder().capacity(10).build();
+        final KeyedStoreSpec<String> storeSpec = KeyedStoreSpec.<String>builder()
+                .evictionPolicy(EvictionPolicy.EXPIRE_AFTER_ACCESS)
+                .expireAfterAccess(Duration.ofMillis(20))
+                .maintenancePeriod(Duration.ofMillis(40))
+                .maintenanceBudget(1_000, Duration.ofMillis(1))
+                .build();
+
+        try (final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(spec, storeSpec)) {
+            final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+            try {
+                for (int i = 0; i < 20_000; i++) {
+                    limiter.tryAcquire("key-" + i);
+                }
+                limiter.startMaintenance(scheduler);
+
+                // Twenty slices are needed; ticks speed up while slices run out of budget
+                final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+                while (limiter.snapshotAll().keyCount() > 0 && System.nanoTime() < deadline) {
+                    Thread.sleep(20);
+                }
+                assertEquals(0, limiter.snapshotAll().keyCount());
+                assertTrue(limiter.isMaintenanceRunning());
+            } finally {
+                scheduler.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void sharedRuntimeMaintainsManyLimiters() throws InterruptedException {
+        final TokenBucketSpec spec = TokenBucketSpec.builder().capacity(10).build();
+        final KeyedStoreSpec<String> storeSpec = KeyedStoreSpec.<String>builder()
+                .evictionPolicy(EvictionPolicy.EXPIRE_AFTER_ACCESS)
+                .expireAfterAccess(Duration.ofMillis(20))
+                .maintenanceEnabled(true)
+                .maintenancePeriod(Duration.ofMillis(50))
+                .build();
+
+        final int registered = MaintenanceRuntime.shared().size();
+        final List<KeyedRateLimiter<String>> limiters = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(spec, storeSpec);
+            limiter.tryAcquire("key");
+            limiters.add(limiter);
+        }
+        assertEquals(registered + 100, MaintenanceRuntime.shared().size());
+        assertTrue(limiters.getFirst().isMaintenanceRunning());
+
+        final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (limiters.stream().anyMatch(l -> l.snapshotAll().keyCount() > 0) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(limiters.stream().allMatch(l -> l.snapshotAll().keyCount() == 0));
+
+        limiters.forEach(KeyedRateLimiter::close);
+        assertEquals(registered, MaintenanceRuntime.shared().size());
+        assertFalse(limiters.getFirst().isMaintenanceRunning());
+    }
+
+    @Test
+    void collectedControllerLeavesRuntime() throws InterruptedException {
+        final TokenBucketSpec spec = TokenBucketSpec.builder().capacity(10).build();
+        final KeyedStoreSpec<String> storeSpec = KeyedStoreSpec.<String>builder()
+                .evictionPolicy(EvictionPolicy.EXPIRE_AFTER_ACCESS)
+                .expireAfterAccess(Duration.ofSeconds(1))
+                .build();
+        final MaintenanceRuntime runtime = new MaintenanceRuntime("maintenance-test");
+
+        startUnreferenced(runtime, spec, storeSpec);
+        assertEquals(1, runtime.size());
+
+        final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (runtime.size() > 0 && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, runtime.size());
+    }
+
+    @Test
+    void errorInSliceDoesNotStopRuntime() throws InterruptedException {
+        final TokenBucketSpec spec = TokenBucketSpec.builder().capacity(10).build();
+        final KeyedStoreSpec<String> failing = KeyedStoreSpec.<String>builder()
+                .evictionPolicy(EvictionPolicy.EXPIRE_AFTER_ACCESS)
+                .expireAfterAccess(Duration.ofMillis(1))
+                .removalListener(key -> {
+                    throw new Error("listener failed");
+                })
+                .build();
+        final KeyedStoreSpec<String> healthy = KeyedStoreSpec.<String>builder()
+                .evictionPolicy(EvictionPolicy.EXPIRE_AFTER_ACCESS)
+                .expireAfterAccess(Duration.ofMillis(1))
+                .build();
+        final MaintenanceRuntime runtime = new MaintenanceRuntime("maintenance-error-test");
+        final List<Throwable> reported = new CopyOnWriteArrayList<>();
+        final Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, error) -> reported.add(error));
+
+        try {
+            final KeyedStore<String> failingStore = KeyedStoreFactory.create(failing, spec);
+            failingStore.getOrCreate("key", () -> BucketFactory.create(spec));
+            final MaintenanceController<String> failingController = new MaintenanceController<>(failingStore, failing);
+            failingController.startMaintenance(runtime, Duration.ofMillis(10));
+
+            final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (reported.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("listener failed", reported.getFirst().getMessage());
+
+            // The thread survived and still maintains a limiter registered afterwards
+            final KeyedStore<String> healthyStore = KeyedStoreFactory.create(healthy, spec);
+            healthyStore.getOrCreate("key", () -> BucketFactory.create(spec));
+            final MaintenanceController<String> healthyController = new MaintenanceController<>(healthyStore, healthy);
+            healthyController.startMaintenance(runtime, Duration.ofMillis(10));
+            while (healthyStore.size() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, healthyStore.size());
+
+            failingController.close();
+            healthyController.close();
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+
+    private static void startUnreferenced(final MaintenanceRuntime runtime, final TokenBucketSpec spec,
+            final KeyedStoreSpec<String> storeSpec) {
+        final MaintenanceController<String> controller = new MaintenanceController<>(KeyedStoreFactory.create(storeSpec, spec), storeSpec);
+        controller.startMaintenance(runtime, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void maintenanceBudgetValidated() {
+        assertThrows(IllegalArgumentException.class, () -> KeyedStoreSpec.<String>builder().maintenanceBudget(0, Duration.ofMillis(1)).build());
+        assertThrows(IllegalArgumentException.class, () -> KeyedStoreSpec.<String>builder().maintenanceBudget(10, Duration.ZERO).build());
+    }
+
     @Test
     void closeCancelsTask() {
         final TokenBucketSpec spec = TokenBucketSpec.builder().capacity(10).build();
@@ -0,0 +1,141 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.DeadlineQueue;
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.LimiterStats;
+import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.EvictionPolicy;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NanosUntilAvailableTest {
+
+    @Test
+    void reportsWaitWithoutConsuming() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final RateLimiter limiter = BucketGuards.tokenBucket(TokenBucketSpec.builder()
+                .capacity(2)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build());
+
+        assertEquals(0, limiter.nanosUntilAvailable(2));
+        assertEquals(0, limiter.nanosUntilAvailable(2));
+        assertTrue(limiter.tryAcquire(2).granted());
+
+        final long wait = limiter.nanosUntilAvailable(1);
+        assertEquals(Duration.ofSeconds(1).toNanos(), wait);
+        assertFalse(limiter.tryAcquire().granted());
+
+        time.advance(wait);
+        assertEquals(0, limiter.nanosUntilAvailable(1));
+        assertTrue(limiter.tryAcquire().granted());
+    }
+
+    @Test
+    void statsWaitSaturatesInsteadOfOverflowing() {
+        final LimiterStats stats = new LimiterStats(10, 0, 1, Duration.ofSeconds(1));
+        assertEquals(Long.MAX_VALUE, stats.nanosUntilAvailable(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, stats.nanosUntilAvailable(Long.MAX_VALUE / Duration.ofSeconds(1).toNanos() + 1));
+        assertEquals(3 * Duration.ofSeconds(1).toNanos(), stats.nanosUntilAvailable(3));
+    }
+
+    @Test
+    void keyedWaitDoesNotCreateKeys() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(TokenBucketSpec.builder()
+                .capacity(1)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build(), KeyedStoreSpec.<String>builder().build());
+
+        assertEquals(0, limiter.nanosUntilAvailable("absent", 1));
+        assertEquals(0, limiter.snapshotAll().keyCount());
+
+        assertTrue(limiter.tryAcquire("key").granted());
+        assertEquals(Duration.ofSeconds(1).toNanos(), limiter.nanosUntilAvailable("key", 1));
+        assertThrows(IllegalArgumentException.class, () -> limiter.nanosUntilAvailable("key", 0));
+    }
+
+    @Test
+    void keyedProbeDoesNotRefreshKey() {
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(
+                TokenBucketSpec.builder().capacity(1).refillTokens(1).refillPeriod(Duration.ofSeconds(1)).build(),
+                KeyedStoreSpec.<String>builder().maxKeys(2).evictionPolicy(EvictionPolicy.LRU).build());
+
+        assertTrue(limiter.tryAcquire("a").granted());
+        assertTrue(limiter.tryAcquire("b").granted());
+        assertTrue(limiter.nanosUntilAvailable("a", 1) > 0);
+
+        // The probe did not make "a" recently used, so it is evicted first
+        assertTrue(limiter.tryAcquire("c").granted());
+        assertEquals(0, limiter.nanosUntilAvailable("a", 1));
+        assertTrue(limiter.nanosUntilAvailable("b", 1) > 0);
+    }
+
+    @Test
+    void probesApproximateStoreAndPendingRateChange() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final TokenBucketSpec spec = TokenBucketSpec.builder()
+                .capacity(1)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build();
+
+        final KeyedRateLimiter<String> sketch = BucketGuards.keyedTokenBucket(spec,
+                KeyedStoreSpec.<String>builder().approximate(4, 1024).build());
+        assertEquals(0, sketch.nanosUntilAvailable("key", 1));
+        assertTrue(sketch.tryAcquire("key").granted());
+        assertEquals(Duration.ofSeconds(1).toNanos(), sketch.nanosUntilAvailable("key", 1));
+
+        // The probe sees the new rate before any acquisition migrates the bucket
+        final RateLimiter limiter = BucketGuards.tokenBucket(spec);
+        assertTrue(limiter.tryAcquire().granted());
+        limiter.reconfigure(TokenBucketSpec.builder()
+                .capacity(1)
+                .refillTokens(2)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build());
+        assertEquals(Duration.ofMillis(500).toNanos(), limiter.nanosUntilAvailable(1));
+    }
+
+    @Test
+    void deadlineQueueReleasesItemsInDeadlineOrder() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final DeadlineQueue<String> queue = new DeadlineQueue<>(time);
+        assertEquals(Long.MAX_VALUE, queue.nanosUntilNext());
+
+        for (int i = 20; i > 0; i--) {
+            queue.add("c" + i, i * 10L);
+        }
+        queue.add("closed", 5);
+        assertTrue(queue.remove("closed"));
+        assertEquals(20, queue.size());
+        assertEquals(10, queue.nanosUntilNext());
+        assertNull(queue.poll());
+
+        time.advance(35);
+        final List<String> due = new ArrayList<>();
+        assertEquals(3, queue.pollExpired(due::add));
+        assertEquals(List.of("c1", "c2", "c3"), due);
+        assertEquals(5, queue.nanosUntilNext());
+
+        time.advance(1_000);
+        assertEquals("c4", queue.poll());
+        assertEquals(16, queue.pollExpired(item -> { }));
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.PermitCallback;
+import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PermitCallbackTest {
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void immediateGrantRunsInlineWithoutExecutor() {
+        final RateLimiter limiter = BucketGuards.tokenBucket(TokenBucketSpec.builder().capacity(10).build());
+        final Thread caller = Thread.currentThread();
+        final Permit[] received = new Permit[1];
+
+        limiter.acquireAsync(1, permit -> {
+            assertSame(caller, Thread.currentThread());
+            received[0] = permit;
+        }, runnable -> fail("executor used for an immediate grant"));
+
+        assertNotNull(received[0]);
+        assertTrue(received[0].granted());
+    }
+
+    @Test
+    void delayedGrantArrivesFromScheduler() throws Exception {
+        final RateLimiter limiter = BucketGuards.tokenBucket(TokenBucketSpec.builder()
+                .capacity(1)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofMillis(50))
+                .metricsEnabled(true)
+                .build());
+        assertTrue(limiter.tryAcquire().granted());
+
+        final CompletableFuture<Permit> result = new CompletableFuture<>();
+        limiter.acquireAsync(1, result::complete, scheduler);
+        assertFalse(result.isDone());
+        assertEquals(1, limiter.metrics().pendingAsyncWaiters());
+
+        assertTrue(result.get(2, TimeUnit.SECONDS).granted());
+        assertEquals(0, limiter.metrics().pendingAsyncWaiters());
+    }
+
+    @Test
+    void delayedCallbackFailureIsReported() throws Exception {
+        final CompletableFuture<Throwable> reported = new CompletableFuture<>();
+        final ScheduledExecutorService reporting = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setUncaughtExceptionHandler((t, error) -> reported.complete(error));
+            return thread;
+        });
+        try {
+            final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(TokenBucketSpec.builder()
+                    .capacity(1)
+                    .refillTokens(1)
+                    .refillPeriod(Duration.ofMillis(50))
+                    .build(), KeyedStoreSpec.<String>builder().build());
+            assertTrue(limiter.tryAcquire("key").granted());
+
+            limiter.acquireAsync("key", 1, permit -> {
+                throw new IllegalStateException("callback failed");
+            }, reporting);
+
+            assertEquals("callback failed", reported.get(2, TimeUnit.SECONDS).getMessage());
+        } finally {
+            reporting.shutdownNow();
+        }
+    }
+
+    @Test
+    void keyedDelayWithoutSchedulerReportsError() {
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(
+                TokenBucketSpec.builder().capacity(1).refillPeriod(Duration.ofHours(1)).build(),
+                KeyedStoreSpec.<String>builder().build());
+        assertTrue(limiter.tryAcquire("key").granted());
+
+        final Throwable[] error = new Throwable[1];
+        limiter.acquireAsync("key", 1, new PermitCallback() {
+            @Override
+            public void onPermit(final Permit permit) {
+                fail("no tokens are available");
+            }
+
+            @Override
+            public void onError(final Throwable e) {
+                error[0] = e;
+            }
+        }, Runnable::run);
+
+        assertInstanceOf(IllegalArgumentException.class, error[0]);
+    }
+}
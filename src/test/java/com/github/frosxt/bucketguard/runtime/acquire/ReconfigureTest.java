@@ -0,0 +1,145 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.ContentionStrategy;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.AtomicBucket;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReconfigureTest {
+
+    private static TokenBucketSpec spec(final FakeTimeSource time, final long capacity, final long refillTokens) {
+        return TokenBucketSpec.builder()
+                .capacity(capacity)
+                .refillTokens(refillTokens)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build();
+    }
+
+    @Test
+    void keepsConsumedTokensAcrossRateChange() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(spec(time, 10, 10), KeyedStoreSpec.<String>builder().build());
+
+        assertTrue(limiter.tryAcquire("a", 6).granted());
+        limiter.reconfigure(spec(time, 10, 20));
+
+        assertEquals(4, limiter.snapshot("a").availableTokens());
+        assertEquals(20, limiter.snapshot("a").refillTokens());
+        assertEquals(10, limiter.snapshot("untouched").availableTokens());
+
+        time.advance(Duration.ofMillis(100).toNanos());
+        assertEquals(6, limiter.snapshot("a").availableTokens());
+    }
+
+    @Test
+    void burstLimitedRejectionUsesCurrentPeriod() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(TokenBucketSpec.builder()
+                .capacity(10)
+                .refillTokens(10)
+                .refillPeriod(Duration.ofSeconds(1))
+                .allowBurst(false)
+                .timeSource(time)
+                .build(), KeyedStoreSpec.<String>builder().build());
+
+        limiter.reconfigure(TokenBucketSpec.builder()
+                .capacity(10)
+                .refillTokens(10)
+                .refillPeriod(Duration.ofSeconds(5))
+                .allowBurst(false)
+                .timeSource(time)
+                .build());
+
+        assertEquals(Duration.ofSeconds(5).toNanos(), limiter.tryAcquire("a", 2).retryAfterNanos());
+    }
+
+    @Test
+    void racingFirstUsesRescaleOnce() throws InterruptedException {
+        final FakeTimeSource time = new FakeTimeSource();
+        final long now = time.nanoTime();
+        final AtomicBucket bucket = new AtomicBucket(spec(time, 10, 10));
+        assertTrue(bucket.tryAcquire(10, now).granted());
+
+        for (final long rate : new long[] {20, 5, 40, 10}) {
+            bucket.reconfigure(spec(time, 10, rate));
+
+            final CountDownLatch start = new CountDownLatch(1);
+            final Thread[] threads = new Thread[8];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    bucket.availableTokens(now);
+                });
+                threads[i].start();
+            }
+            start.countDown();
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+
+            // Still owes the ten tokens, priced once at the new rate
+            assertEquals(Duration.ofSeconds(10).toNanos() / rate, bucket.debtNanos(now));
+        }
+    }
+
+    @Test
+    void smallerCapacityGrantsNoFreeTokens() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(spec(time, 10, 10), KeyedStoreSpec.<String>builder().build());
+
+        assertTrue(limiter.tryAcquire("a", 3).granted());
+        limiter.reconfigure(spec(time, 5, 10));
+
+        assertTrue(limiter.tryAcquire("a", 2).granted());
+        final Permit rejected = limiter.tryAcquire("a");
+        assertFalse(rejected.granted());
+        assertEquals(Duration.ofMillis(100), rejected.retryAfter());
+        assertEquals(5, limiter.snapshot("fresh").availableTokens());
+    }
+
+    @Test
+    void reconfiguresGlobalLimiter() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final RateLimiter limiter = BucketGuards.tokenBucket(spec(time, 1, 1));
+
+        assertTrue(limiter.tryAcquire().granted());
+        assertEquals(Duration.ofSeconds(1), limiter.tryAcquire().retryAfter());
+
+        limiter.reconfigure(spec(time, 1, 10));
+        assertEquals(Duration.ofMillis(100), limiter.tryAcquire().retryAfter());
+        assertEquals(10, limiter.snapshot().refillTokens());
+    }
+
+    @Test
+    void rejectsUnsupportedChanges() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final RateLimiter limiter = BucketGuards.tokenBucket(spec(time, 10, 10));
+        final TokenBucketSpec noBurst = TokenBucketSpec.builder().allowBurst(false).timeSource(time).build();
+        assertThrows(IllegalArgumentException.class, () -> limiter.reconfigure(noBurst));
+
+        final TokenBucketSpec striped = TokenBucketSpec.builder()
+                .capacity(1_000)
+                .refillTokens(1_000)
+                .contentionStrategy(ContentionStrategy.STRIPED)
+                .timeSource(time)
+                .build();
+        final KeyedRateLimiter<String> keyed = BucketGuards.keyedTokenBucket(striped, KeyedStoreSpec.<String>builder().build());
+        assertThrows(UnsupportedOperationException.class, () -> keyed.reconfigure(spec(time, 10, 10)));
+    }
+}
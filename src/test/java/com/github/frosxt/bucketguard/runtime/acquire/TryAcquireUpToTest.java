@@ -0,0 +1,121 @@
+package com.github.frosxt.bucketguard.runtime.acquire;
+
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.LimiterStats;
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.ContentionStrategy;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.SimplePermit;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TryAcquireUpToTest {
+
+    @Test
+    void grantsWhatIsAvailableUpToMax() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final RateLimiter limiter = BucketGuards.tokenBucket(TokenBucketSpec.builder()
+                .capacity(10)
+                .refillTokens(10)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build());
+
+        final Permit batch = limiter.tryAcquireUpTo(4);
+        assertTrue(batch.granted());
+        assertEquals(4, batch.tokensGranted());
+        assertEquals(6, batch.remainingTokens());
+
+        final Permit rest = limiter.tryAcquireUpTo(100);
+        assertEquals(6, rest.tokensGranted());
+        assertEquals(0, rest.remainingTokens());
+
+        final Permit empty = limiter.tryAcquireUpTo(100);
+        assertFalse(empty.granted());
+        assertEquals(0, empty.tokensGranted());
+        assertEquals(Duration.ofMillis(100).toNanos(), empty.retryAfterNanos());
+
+        time.advance(Duration.ofMillis(300).toNanos());
+        assertEquals(3, limiter.tryAcquireUpTo(100).tokensGranted());
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquireUpTo(0));
+    }
+
+    @Test
+    void withoutBurstGrantsOneAtATime() {
+        final RateLimiter limiter = BucketGuards.tokenBucket(TokenBucketSpec.builder()
+                .capacity(10)
+                .allowBurst(false)
+                .build());
+
+        assertEquals(1, limiter.tryAcquireUpTo(5).tokensGranted());
+    }
+
+    @Test
+    void stripedTakesFromOwnStripe() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final RateLimiter limiter = BucketGuards.tokenBucket(TokenBucketSpec.builder()
+                .capacity(80)
+                .refillTokens(80)
+                .refillPeriod(Duration.ofSeconds(1))
+                .contentionStrategy(ContentionStrategy.STRIPED)
+                .timeSource(time)
+                .build());
+
+        // The limiter reports all 80 tokens, but one thread only reaches its own stripe
+        final long taken = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            long total = 0;
+            Permit permit;
+            while ((permit = limiter.tryAcquireUpTo(50)).granted()) {
+                assertTrue(permit.tokensGranted() >= 1 && permit.tokensGranted() <= 50);
+                total += permit.tokensGranted();
+            }
+            assertTrue(permit.retryAfterNanos() > 0);
+            return total;
+        });
+        assertTrue(taken >= 1 && taken < 80, "taken " + taken);
+    }
+
+    @Test
+    void defaultShrinksWhenAvailabilityOverstates() {
+        // Claims 100 tokens but grants at most 3 per call
+        final Bucket bucket = new Bucket() {
+            @Override
+            public Permit tryAcquire(final long tokens, final long nowNanos) {
+                return new SimplePermit(tokens <= 3, tokens, 0, tokens <= 3 ? 0 : 1);
+            }
+
+            @Override
+            public LimiterStats snapshot() {
+                return new LimiterStats(100, 100, 100, Duration.ofSeconds(1));
+            }
+        };
+
+        final Permit permit = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> bucket.tryAcquireUpTo(50, 0));
+        assertTrue(permit.granted());
+        assertEquals(3, permit.tokensGranted());
+    }
+
+    @Test
+    void keyedGrantsPerKey() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(TokenBucketSpec.builder()
+                .capacity(5)
+                .refillTokens(5)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build(), KeyedStoreSpec.<String>builder().build());
+
+        assertEquals(5, limiter.tryAcquireUpTo("a", 8).tokensGranted());
+        assertFalse(limiter.tryAcquireUpTo("a", 8).granted());
+        assertEquals(2, limiter.tryAcquireUpTo("b", 2).tokensGranted());
+        assertEquals(3, limiter.tryAcquireUpTo("b", 8).tokensGranted());
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.frosxt.bucketguard.runtime.bucket;
+
+import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.mapped.MappedBucket;
+import com.github.frosxt.bucketguard.runtime.bucket.mapped.MappedBucketTable;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedBucketTableTest {
+
+    private static TokenBucketSpec spec(final FakeTimeSource time, final long capacity) {
+        return TokenBucketSpec.builder()
+                .capacity(capacity)
+                .refillTokens(10)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build();
+    }
+
+    @Test
+    void separateMappingsShareOneLimit(@TempDir final Path dir) throws IOException {
+        final FakeTimeSource time = new FakeTimeSource();
+        final Path file = dir.resolve("buckets.tbl");
+        final MappedBucketTable first = MappedBucketTable.open(file, 16, spec(time, 10));
+        final MappedBucketTable second = MappedBucketTable.open(file, 16, spec(time, 10));
+
+        assertTrue(first.bucket("db").tryAcquire(10, time.nanoTime()).granted());
+        final MappedBucket shared = second.bucket("db");
+        assertFalse(shared.tryAcquire(1, time.nanoTime()).granted());
+        assertEquals(Duration.ofMillis(100).toNanos(), shared.retryAfterNanos(1, time.nanoTime()));
+        assertTrue(second.bucket("cache").tryAcquire(10, time.nanoTime()).granted());
+
+        time.advance(Duration.ofMillis(300).toNanos());
+        assertEquals(3, shared.availableTokens(time.nanoTime()));
+    }
+
+    @Test
+    void concurrentMappingsNeverOvergrant(@TempDir final Path dir) throws Exception {
+        final FakeTimeSource time = new FakeTimeSource();
+        final Path file = dir.resolve("buckets.tbl");
+        final AtomicLong granted = new AtomicLong();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final MappedBucket bucket = MappedBucketTable.open(file, 16, spec(time, 1_000)).bucket("db");
+            threads.add(new Thread(() -> {
+                for (int n = 0; n < 500; n++) {
+                    if (bucket.tryAcquire(1, time.nanoTime()).granted()) {
+                        granted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1_000, granted.get());
+    }
+
+    @Test
+    void sharedLimiterUsesNamedBucket(@TempDir final Path dir) throws IOException {
+        final FakeTimeSource time = new FakeTimeSource();
+        final Path file = dir.resolve("limits.tbl");
+        final RateLimiter first = BucketGuards.sharedTokenBucket(file, "db", spec(time, 5));
+        final RateLimiter second = BucketGuards.sharedTokenBucket(file, "db", spec(time, 5));
+
+        assertTrue(first.tryAcquire(3).granted());
+        assertEquals(2, second.snapshot().availableTokens());
+        assertFalse(second.tryAcquire(3).granted());
+    }
+
+    @Test
+    void rejectsMismatchedOrForeignFiles(@TempDir final Path dir) throws IOException {
+        final FakeTimeSource time = new FakeTimeSource();
+        final Path file = dir.resolve("buckets.tbl");
+        MappedBucketTable.open(file, 4, spec(time, 10));
+        assertThrows(IllegalArgumentException.class, () -> MappedBucketTable.open(file, 4, spec(time, 20)));
+
+        final Path garbage = dir.resolve("garbage");
+        Files.write(garbage, new byte[128]);
+        assertThrows(IOException.class, () -> MappedBucketTable.open(garbage, 4, spec(time, 10)));
+    }
+
+    @Test
+    void failsWhenEverySlotIsTaken(@TempDir final Path dir) throws IOException {
+        final MappedBucketTable table = MappedBucketTable.open(dir.resolve("tiny.tbl"), 2, spec(new FakeTimeSource(), 10));
+        table.bucket("a");
+        table.bucket("b");
+        assertNotNull(table.bucket("a"));
+        assertThrows(IllegalStateException.class, () -> table.bucket("c"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.frosxt.bucketguard.runtime.bucket;
+
+import com.github.frosxt.bucketguard.api.Permit;
+import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.Bandwidth;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.MultiBandwidthBucket;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiBandwidthBucketTest {
+
+    private static TokenBucketSpec spec(final FakeTimeSource time) {
+        return TokenBucketSpec.builder()
+                .capacity(10)
+                .refillTokens(10)
+                .refillPeriod(Duration.ofSeconds(1))
+                .addBandwidth(new Bandwidth(20, 20, Duration.ofMinutes(1)))
+                .timeSource(time)
+                .build();
+    }
+
+    @Test
+    void enforcesEveryBandwidth() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final MultiBandwidthBucket bucket = new MultiBandwidthBucket(spec(time));
+
+        assertTrue(bucket.tryAcquire(10, time.nanoTime()).granted());
+        final Permit perSecond = bucket.tryAcquire(1, time.nanoTime());
+        assertFalse(perSecond.granted());
+        assertEquals(Duration.ofMillis(100), perSecond.retryAfter());
+
+        time.advance(Duration.ofSeconds(1).toNanos());
+        assertEquals(10, bucket.availableTokens(time.nanoTime()));
+        assertTrue(bucket.tryAcquire(10, time.nanoTime()).granted());
+
+        // Second bucket is full again, but the per-minute allowance is spent
+        time.advance(Duration.ofSeconds(1).toNanos());
+        assertEquals(0, bucket.availableTokens(time.nanoTime()));
+        final Permit perMinute = bucket.tryAcquire(1, time.nanoTime());
+        assertFalse(perMinute.granted());
+        assertEquals(Duration.ofSeconds(1), perMinute.retryAfter());
+        assertEquals(perMinute.retryAfterNanos(), bucket.retryAfterNanos(1, time.nanoTime()));
+    }
+
+    @Test
+    void refundRestoresEveryBandwidth() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final MultiBandwidthBucket bucket = new MultiBandwidthBucket(spec(time));
+
+        assertTrue(bucket.tryAcquire(4, time.nanoTime()).granted());
+        bucket.refund(4, time.nanoTime());
+        assertEquals(10, bucket.availableTokens(time.nanoTime()));
+        assertTrue(bucket.tryAcquire(10, time.nanoTime()).granted());
+    }
+
+    @Test
+    void limiterBuildsMultiBandwidthBucket() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final RateLimiter limiter = BucketGuards.tokenBucket(spec(time));
+
+        for (int second = 0; second < 2; second++) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(limiter.tryAcquire().granted());
+            }
+            time.advance(Duration.ofSeconds(1).toNanos());
+        }
+        assertFalse(limiter.tryAcquire().granted());
+        assertEquals(0, limiter.snapshot().availableTokens());
+    }
+
+    @Test
+    void rejectsInvalidBandwidth() {
+        assertThrows(IllegalArgumentException.class, () -> new Bandwidth(0, 1, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new Bandwidth(1, 1, Duration.ZERO));
+    }
+}
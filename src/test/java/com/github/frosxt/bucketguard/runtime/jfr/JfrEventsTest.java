@@ -0,0 +1,76 @@
+package com.github.frosxt.bucketguard.runtime.jfr;
+
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.EvictionPolicy;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    @Test
+    void recordsThrottlingExpiryAndPrune(@TempDir final Path dir) throws Exception {
+        final FakeTimeSource time = new FakeTimeSource();
+        final TokenBucketSpec spec = TokenBucketSpec.builder()
+                .capacity(1)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build();
+        final KeyedStoreSpec<String> storeSpec = KeyedStoreSpec.<String>builder()
+                .evictionPolicy(EvictionPolicy.EXPIRE_AFTER_ACCESS)
+                .expireAfterAccess(Duration.ofSeconds(1))
+                .build();
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(spec, storeSpec);
+
+        final Path file = dir.resolve("events.jfr");
+        try (final Recording recording = new Recording()) {
+            recording.enable(ThrottledEvent.class);
+            recording.enable(KeyRemovedEvent.class);
+            recording.enable(PruneEvent.class);
+            recording.start();
+
+            limiter.tryAcquire("client");
+            assertFalse(limiter.tryAcquire("client").granted());
+
+            time.advance(Duration.ofSeconds(2).toNanos());
+            limiter.prune();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        final RecordedEvent throttled = single(events, "com.github.frosxt.bucketguard.Throttled");
+        assertEquals("client", throttled.getString("key"));
+        assertEquals(1, throttled.getLong("tokensRequested"));
+
+        final RecordedEvent removed = single(events, "com.github.frosxt.bucketguard.KeyRemoved");
+        assertEquals("EXPIRED", removed.getString("cause"));
+
+        final RecordedEvent prune = single(events, "com.github.frosxt.bucketguard.Prune");
+        assertEquals(1, prune.getLong("scanned"));
+        assertEquals(1, prune.getLong("removed"));
+    }
+
+    private static RecordedEvent single(final List<RecordedEvent> events, final String name) {
+        final List<RecordedEvent> matching = events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .toList();
+        assertEquals(1, matching.size(), name);
+        return matching.getFirst();
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.frosxt.bucketguard.runtime.key.hitters;
+
+import com.github.frosxt.bucketguard.api.HeavyHitter;
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHitterTrackerTest {
+
+    @Test
+    void exactWhileUnderCapacity() {
+        final HeavyHitterTracker<String> tracker = new HeavyHitterTracker<>(4);
+        for (int i = 0; i < 5; i++) {
+            tracker.granted("a");
+        }
+        for (int i = 0; i < 3; i++) {
+            tracker.throttled("b");
+        }
+        tracker.granted("c");
+
+        final List<HeavyHitter<String>> traffic = tracker.topTraffic(10);
+        assertEquals(List.of(new HeavyHitter<>("a", 5, 0), new HeavyHitter<>("b", 3, 0), new HeavyHitter<>("c", 1, 0)), traffic);
+        assertEquals(List.of(new HeavyHitter<>("b", 3, 0)), tracker.topThrottled(10));
+        assertEquals(1, tracker.topTraffic(1).size());
+    }
+
+    @Test
+    void replacesMinimumAndBoundsError() {
+        final HeavyHitterTracker<Integer> tracker = new HeavyHitterTracker<>(5);
+        for (int round = 0; round < 100; round++) {
+            tracker.granted(1);
+            tracker.granted(1);
+            tracker.granted(2);
+            tracker.granted(1000 + round);
+        }
+
+        final List<HeavyHitter<Integer>> top = tracker.topTraffic(5);
+        assertEquals(5, top.size());
+        assertEquals(1, top.get(0).key());
+        assertTrue(top.get(0).count() >= 200);
+        assertTrue(top.get(0).count() - top.get(0).error() <= 200);
+
+        final HeavyHitter<Integer> second = top.stream().filter(h -> h.key() == 2).findFirst().orElseThrow();
+        assertTrue(second.count() >= 100);
+        assertTrue(second.count() - second.error() <= 100);
+
+        long total = 0;
+        for (final HeavyHitter<Integer> hitter : top) {
+            total += hitter.count();
+        }
+        assertEquals(400, total);
+    }
+
+    @Test
+    void disabledTrackerReportsNothing() {
+        final HeavyHitterTracker<String> tracker = new HeavyHitterTracker<>(0);
+        tracker.throttled("a");
+
+        assertTrue(tracker.topThrottled(5).isEmpty());
+        assertTrue(tracker.topTraffic(5).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> tracker.topTraffic(-1));
+    }
+
+    @Test
+    void limiterRanksThrottledKeys() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final TokenBucketSpec spec = TokenBucketSpec.builder()
+                .capacity(2)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build();
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(spec, KeyedStoreSpec.<String>builder().heavyHitterCapacity(8).build());
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("noisy");
+        }
+        limiter.tryAcquire("quiet");
+
+        final List<HeavyHitter<String>> throttled = limiter.topThrottled(5);
+        assertEquals(1, throttled.size());
+        assertEquals(new HeavyHitter<>("noisy", 8, 0), throttled.get(0));
+        assertEquals(new HeavyHitter<>("noisy", 10, 0), limiter.topTraffic(1).get(0));
+    }
+}
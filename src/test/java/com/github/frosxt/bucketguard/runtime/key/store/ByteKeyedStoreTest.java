@@ -0,0 +1,125 @@
+package com.github.frosxt.bucketguard.runtime.key.store;
+
+import com.github.frosxt.bucketguard.api.ByteKeys;
+import com.github.frosxt.bucketguard.api.BytesKeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.EvictionPolicy;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.api.time.TimeSource;
+import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
+import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
+import com.github.frosxt.bucketguard.runtime.key.store.bytes.ByteKeyedStore;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteKeyedStoreTest {
+    private static final TokenBucketSpec TEST_SPEC = TokenBucketSpec.builder().capacity(10).build();
+    private static final Supplier<Bucket> FACTORY = () -> BucketFactory.create(TEST_SPEC);
+
+    private static byte[] bytes(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void hashIsTheSameForArraysAndBuffers() {
+        final byte[] key = bytes("tenant-0123456789abcdef");
+        final byte[] framed = bytes("xx" + "tenant-0123456789abcdef" + "yy");
+        final ByteBuffer direct = ByteBuffer.allocateDirect(key.length).put(key).flip();
+
+        final int hash = ByteKeys.hash(key, 0, key.length);
+        assertEquals(hash, ByteKeys.hash(framed, 2, key.length));
+        assertEquals(hash, ByteKeys.hash(ByteBuffer.wrap(framed, 2, key.length)));
+        assertEquals(hash, ByteKeys.hash(direct));
+        assertEquals(0, direct.position(), "hashing leaves the buffer untouched");
+    }
+
+    @Test
+    void rangesAndBuffersWithEqualBytesShareABucket() {
+        final ByteKeyedStore store = new ByteKeyedStore(0, null, TimeSource.system());
+        final byte[] framed = bytes("GET /10.0.0.1 HTTP");
+        final byte[] key = bytes("10.0.0.1");
+
+        assertTrue(store.tryAcquire(framed, 5, key.length, ByteKeys.hash(framed, 5, key.length), FACTORY, 4, 0).granted());
+        final ByteBuffer heap = ByteBuffer.wrap(key).asReadOnlyBuffer();
+        assertTrue(store.tryAcquire(heap, ByteKeys.hash(heap), FACTORY, 4, 0).granted());
+        final ByteBuffer direct = ByteBuffer.allocateDirect(key.length).put(key).flip();
+        assertFalse(store.tryAcquire(direct, ByteKeys.hash(direct), FACTORY, 4, 0).granted());
+
+        assertEquals(1, store.size());
+        assertNotNull(store.get(key));
+    }
+
+    @Test
+    void keysAreCopiedOnInsert() {
+        final ByteKeyedStore store = new ByteKeyedStore(0, null, TimeSource.system());
+        final byte[] buffer = bytes("alpha");
+        final Bucket bucket = store.getOrCreate(buffer, FACTORY);
+
+        buffer[0] = 'A';
+        assertSame(bucket, store.get(bytes("alpha")));
+        assertNull(store.get(buffer));
+    }
+
+    @Test
+    void growsPastManyKeys() {
+        final ByteKeyedStore store = new ByteKeyedStore(0, null, TimeSource.system());
+        final byte[] key = new byte[Integer.BYTES];
+        final ByteBuffer view = ByteBuffer.wrap(key);
+        for (int i = 0; i < 20_000; i++) {
+            view.putInt(0, i);
+            store.tryAcquire(key, 0, key.length, ByteKeys.hash(key, 0, key.length), FACTORY, 1, 0);
+        }
+
+        assertEquals(20_000, store.size());
+        for (int i = 0; i < 20_000; i++) {
+            view.putInt(0, i);
+            assertNotNull(store.get(key.clone()), "key " + i);
+        }
+    }
+
+    @Test
+    void pruneRemovesIdleKeys() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final List<String> removed = new ArrayList<>();
+        final ByteKeyedStore store = new ByteKeyedStore(Duration.ofSeconds(10).toNanos(),
+                key -> removed.add(new String(key, StandardCharsets.UTF_8)), time);
+
+        store.getOrCreate(bytes("idle"), FACTORY);
+        time.advance(Duration.ofSeconds(6).toNanos());
+        store.getOrCreate(bytes("busy"), FACTORY);
+        time.advance(Duration.ofSeconds(6).toNanos());
+        store.tryAcquire(bytes("busy"), FACTORY, 1, time.nanoTime());
+
+        store.prune();
+        assertEquals(List.of("idle"), removed);
+        assertEquals(1, store.size());
+        assertNull(store.get(bytes("idle")));
+        assertNotNull(store.get(bytes("busy")));
+    }
+
+    @Test
+    void limiterThrottlesPerKeyBytes() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final BytesKeyedRateLimiter limiter = BucketGuards.bytesKeyedTokenBucket(
+                TokenBucketSpec.builder().capacity(2).refillTokens(1).refillPeriod(Duration.ofSeconds(1)).timeSource(time).build(),
+                KeyedStoreSpec.<byte[]>builder().evictionPolicy(EvictionPolicy.NONE).build());
+
+        final byte[] packet = bytes("src=192.168.0.7;dst=10.0.0.1");
+        assertTrue(limiter.tryAcquire(packet, 4, 11).granted());
+        assertTrue(limiter.tryAcquire(ByteBuffer.wrap(packet, 4, 11)).granted());
+        assertFalse(limiter.tryAcquire(packet, 4, 11).granted());
+        assertTrue(limiter.tryAcquire(packet, 20, 8).granted());
+        assertEquals(2, limiter.size());
+        assertEquals(0, limiter.snapshot(packet, 4, 11).availableTokens());
+    }
+}
@@ -1,15 +1,26 @@
 package com.github.frosxt.bucketguard.runtime.key.store;
 
+import com.github.frosxt.bucketguard.api.RemovalCause;
+import com.github.frosxt.bucketguard.api.RemovalListener;
+import com.github.frosxt.bucketguard.api.RemovalNotification;
 import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
 import com.github.frosxt.bucketguard.api.time.TimeSource;
 import com.github.frosxt.bucketguard.runtime.bucket.Bucket;
 import com.github.frosxt.bucketguard.runtime.bucket.BucketFactory;
 import com.github.frosxt.bucketguard.runtime.key.store.exact.ExactKeyedStore;
+import com.github.frosxt.bucketguard.runtime.key.store.exact.RemovalDispatch;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -82,6 +93,28 @@ class ExactKeyedStoreTest {
         assertEquals(0, store.size());
     }
 
+    @Test
+    void peekLeavesOrderAndAccessTimeAlone() {
+        final AtomicLong fakeTime = new AtomicLong(0);
+        final List<String> evicted = new ArrayList<>();
+        final ExactKeyedStore<String> store = new ExactKeyedStore<>(2, 50, evicted::add, fakeTime::get);
+
+        store.getOrCreate("A", this::createBucket);
+        store.getOrCreate("B", this::createBucket);
+
+        // Peeking A neither makes it MRU nor refreshes it
+        fakeTime.set(40);
+        assertNotNull(store.peek("A"));
+        store.getOrCreate("C", this::createBucket);
+        assertEquals(List.of("A"), evicted);
+
+        // Expired entries read as absent but stay for maintenance
+        fakeTime.set(60);
+        assertNull(store.peek("B"));
+        assertNull(store.peek("A"));
+        assertEquals(2, store.size());
+    }
+
     @Test
     void boundNeverExceeded() {
         final ExactKeyedStore<String> store = new ExactKeyedStore<>(5, 0, null, TimeSource.system());
@@ -123,6 +156,127 @@ class ExactKeyedStoreTest {
         assertEquals("D", evicted.get(3));
     }
 
+    @Test
+    void notificationsCarryCauseAndFinalState() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final TokenBucketSpec spec = TokenBucketSpec.builder().capacity(10).refillPeriod(Duration.ofSeconds(1)).timeSource(time).build();
+        final List<RemovalNotification<String>> notifications = new ArrayList<>();
+        final RemovalDispatch<String> dispatch = new RemovalDispatch<>(null, notifications::add, null, 1, MetricsRecorder.NOOP);
+        final ExactKeyedStore<String> store = new ExactKeyedStore<>(2, Duration.ofMinutes(1).toNanos(), dispatch, time,
+                MetricsRecorder.NOOP);
+
+        store.getOrCreate("A", () -> BucketFactory.create(spec)).tryAcquire(4, time.nanoTime());
+        store.getOrCreate("B", () -> BucketFactory.create(spec));
+        store.getOrCreate("C", () -> BucketFactory.create(spec));
+        store.remove("B");
+        time.advance(Duration.ofMinutes(2).toNanos());
+        store.prune();
+
+        assertEquals(3, notifications.size());
+        assertEquals("A", notifications.get(0).key());
+        assertEquals(RemovalCause.SIZE, notifications.get(0).cause());
+        assertEquals(6, notifications.get(0).finalState().availableTokens());
+        assertEquals(RemovalCause.EXPLICIT, notifications.get(1).cause());
+        assertEquals("C", notifications.get(2).key());
+        assertEquals(RemovalCause.EXPIRED, notifications.get(2).cause());
+    }
+
+    @Test
+    void executorReceivesNotificationsInBatches() {
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final List<List<RemovalNotification<String>>> batches = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+        final RemovalDispatch<String> dispatch = new RemovalDispatch<>(keys::add, new RemovalListenerStub(batches), tasks::add, 3,
+                MetricsRecorder.NOOP);
+        final ExactKeyedStore<String> store = new ExactKeyedStore<>(1, 0, dispatch, TimeSource.system(), MetricsRecorder.NOOP);
+
+        for (int i = 0; i < 4; i++) {
+            store.getOrCreate("key-" + i, this::createBucket);
+        }
+
+        // One drain task for all queued removals, nothing delivered on the removing thread
+        assertEquals(1, tasks.size());
+        assertTrue(keys.isEmpty());
+
+        // The buffer holds 3, so the fourth removal is delivered by the caller
+        store.getOrCreate("key-4", this::createBucket);
+        assertEquals(List.of("key-3"), keys);
+
+        tasks.poll().run();
+        assertEquals(List.of("key-3", "key-0", "key-1", "key-2"), keys);
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(0).size());
+        assertEquals(3, batches.get(1).size());
+        assertEquals(RemovalCause.SIZE, batches.get(1).getFirst().cause());
+    }
+
+    @Test
+    void fallbackDeliveryRunsOutsideStoreLock() {
+        final AtomicReference<ExactKeyedStore<String>> storeRef = new AtomicReference<>();
+        final List<Boolean> storeFree = new ArrayList<>();
+        final RemovalDispatch<String> dispatch = new RemovalDispatch<>(key -> {
+            // Another thread can only read the size if the store lock is not held
+            final Thread probe = Thread.ofPlatform().start(() -> storeRef.get().size());
+            try {
+                probe.join(Duration.ofSeconds(5));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            storeFree.add(!probe.isAlive());
+        }, null, task -> { }, 1, MetricsRecorder.NOOP);
+        final ExactKeyedStore<String> store = new ExactKeyedStore<>(1, 0, dispatch, TimeSource.system(), MetricsRecorder.NOOP);
+        storeRef.set(store);
+
+        // The first eviction fills the buffer; the second and the removal overflow to the caller
+        for (int i = 0; i < 3; i++) {
+            store.getOrCreate("key-" + i, this::createBucket);
+        }
+        store.remove("key-2");
+
+        assertEquals(List.of(true, true), storeFree);
+    }
+
+    @Test
+    void executorListenerFailuresAreReported() throws InterruptedException {
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final List<String> keys = new ArrayList<>();
+        final RemovalDispatch<String> dispatch = new RemovalDispatch<>(key -> {
+            keys.add(key);
+            if (key.equals("key-0")) {
+                throw new IllegalStateException("listener failed");
+            }
+        }, null, tasks::add, 1, MetricsRecorder.NOOP);
+        final ExactKeyedStore<String> store = new ExactKeyedStore<>(1, 0, dispatch, TimeSource.system(), MetricsRecorder.NOOP);
+        store.getOrCreate("key-0", this::createBucket);
+        store.getOrCreate("key-1", this::createBucket);
+
+        final List<Throwable> reported = new ArrayList<>();
+        final Thread worker = Thread.ofPlatform().unstarted(tasks.poll());
+        worker.setUncaughtExceptionHandler((thread, error) -> reported.add(error));
+        worker.start();
+        worker.join();
+
+        assertEquals(1, reported.size());
+        assertEquals("listener failed", reported.getFirst().getMessage());
+
+        // Later removals are still delivered by a new drain task
+        store.getOrCreate("key-2", this::createBucket);
+        tasks.poll().run();
+        assertEquals(List.of("key-0", "key-1"), keys);
+    }
+
+    private record RemovalListenerStub(List<List<RemovalNotification<String>>> batches) implements RemovalListener<String> {
+        @Override
+        public void onRemoval(final RemovalNotification<String> notification) {
+            onRemovals(List.of(notification));
+        }
+
+        @Override
+        public void onRemovals(final List<RemovalNotification<String>> notifications) {
+            batches.add(notifications);
+        }
+    }
+
     @Test
     void pruneRemovesExpiredEntries() {
         final AtomicLong fakeTime = new AtomicLong(0);
@@ -151,6 +305,51 @@ class ExactKeyedStoreTest {
         assertNotNull(store.get("C"));
     }
 
+    @Test
+    void pruneSliceStopsAtFirstLiveEntry() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final List<String> expired = new ArrayList<>();
+        final ExactKeyedStore<String> store = new ExactKeyedStore<>(0, 100, expired::add, time);
+        for (int i = 0; i < 10; i++) {
+            store.getOrCreate("key-" + i, this::createBucket);
+        }
+        time.advance(50);
+        store.getOrCreate("key-0", this::createBucket);
+        time.advance(60);
+
+        final PruneSlice first = store.pruneSlice(4, Long.MAX_VALUE);
+        assertEquals(new PruneSlice(4, 4, false), first);
+        assertEquals(List.of("key-1", "key-2", "key-3", "key-4"), expired);
+
+        // key-0 was accessed last, so it ends the pass
+        store.getOrCreate("late", this::createBucket);
+        final PruneSlice second = store.pruneSlice(100, Long.MAX_VALUE);
+        assertEquals(new PruneSlice(6, 5, true), second);
+        assertEquals(2, store.size());
+        assertNotNull(store.get("key-0"));
+
+        assertEquals(new PruneSlice(1, 0, true), store.pruneSlice(100, Long.MAX_VALUE));
+    }
+
+    @Test
+    void pruneSliceKeepsUpWithHotKeys() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final ExactKeyedStore<String> store = new ExactKeyedStore<>(0, 100, null, time);
+        for (int tick = 0; tick < 200; tick++) {
+            // Hot keys are touched every tick, and two new keys arrive
+            for (int i = 0; i < 20; i++) {
+                store.getOrCreate("hot-" + i, this::createBucket);
+            }
+            store.getOrCreate("new-" + tick + "-a", this::createBucket);
+            store.getOrCreate("new-" + tick + "-b", this::createBucket);
+            time.advance(10);
+            store.pruneSlice(8, Long.MAX_VALUE);
+        }
+
+        // 20 hot keys plus the new keys of the last ten ticks
+        assertTrue(store.size() <= 42, "size " + store.size());
+    }
+
     @Test
     void snapshotReturnsBoundedResults() {
         final ExactKeyedStore<String> store = new ExactKeyedStore<>(100, 0, null, TimeSource.system());
@@ -167,4 +366,82 @@ class ExactKeyedStoreTest {
         snapshot = store.snapshot(100);
         assertEquals(50, snapshot.size());
     }
+
+    @Test
+    void traversalVisitsEachKeyOnceAcrossBatches() {
+        final ExactKeyedStore<String> store = new ExactKeyedStore<>(0, 0, null, TimeSource.system());
+        for (int i = 0; i < 1000; i++) {
+            store.getOrCreate("key-" + i, this::createBucket);
+        }
+
+        final List<String> visited = new ArrayList<>();
+        store.forEachEntry((key, bucket) -> {
+            // Touching a visited key moves it behind the traversal cursor
+            store.get(key);
+            if (visited.size() == 300) {
+                store.getOrCreate("late", this::createBucket);
+            }
+            visited.add(key);
+            return true;
+        });
+
+        final Set<String> unique = new HashSet<>(visited);
+        assertEquals(visited.size(), unique.size());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(unique.contains("key-" + i));
+        }
+        assertEquals(1001, store.size());
+    }
+
+    @Test
+    void traversalEndsUnderSteadyInserts() {
+        final ExactKeyedStore<String> store = new ExactKeyedStore<>(0, 0, null, TimeSource.system());
+        for (int i = 0; i < 1000; i++) {
+            store.getOrCreate("key-" + i, this::createBucket);
+        }
+
+        final List<String> visited = new ArrayList<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> store.forEachEntry((key, bucket) -> {
+            // Every visit inserts a key and touches one not visited yet
+            store.getOrCreate("new-" + visited.size(), this::createBucket);
+            store.get("key-999");
+            visited.add(key);
+            return true;
+        }));
+
+        assertEquals(1000, visited.size());
+        assertEquals(1000, new HashSet<>(visited).size());
+        assertTrue(visited.stream().allMatch(key -> key.startsWith("key-")));
+    }
+
+    @Test
+    void traversalStopsEarlyAndSurvivesEviction() {
+        final List<String> evicted = new ArrayList<>();
+        final ExactKeyedStore<String> store = new ExactKeyedStore<>(500, 0, evicted::add, TimeSource.system());
+        for (int i = 0; i < 500; i++) {
+            store.getOrCreate("key-" + i, this::createBucket);
+        }
+
+        final List<String> visited = new ArrayList<>();
+        store.forEachEntry((key, bucket) -> {
+            visited.add(key);
+            if (visited.size() == 10) {
+                for (int i = 0; i < 400; i++) {
+                    store.getOrCreate("new-" + i, this::createBucket);
+                }
+            }
+            return visited.size() < 600;
+        });
+
+        assertEquals(400, evicted.size());
+        assertEquals(new HashSet<>(visited).size(), visited.size());
+        assertEquals(500, store.size());
+
+        final List<String> first = new ArrayList<>();
+        store.forEachEntry((key, bucket) -> {
+            first.add(key);
+            return first.size() < 5;
+        });
+        assertEquals(5, first.size());
+    }
 }
@@ -0,0 +1,54 @@
+package com.github.frosxt.bucketguard.runtime.key.store;
+
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.bucket.atomic.RateParameters;
+import com.github.frosxt.bucketguard.runtime.key.store.prefix.PrefixBucketTable;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixBucketTableTest {
+    private static final TokenBucketSpec SPEC = TokenBucketSpec.builder()
+            .capacity(1)
+            .refillTokens(1)
+            .refillPeriod(Duration.ofSeconds(1))
+            .build();
+
+    @Test
+    void evenHashesAreFoundAfterGrowth() {
+        final PrefixBucketTable table = new PrefixBucketTable(RateParameters.of(SPEC), MetricsRecorder.NOOP);
+
+        // Small even hashes share one segment and differ from their tags; 40 keys grow it twice
+        for (int i = 0; i < 40; i++) {
+            assertTrue(table.tryAcquire(i, 0, i * 2, 1, 0) >= 0);
+        }
+        assertEquals(40, table.size());
+
+        // Every key is found in the grown table with its bucket still empty
+        for (int i = 0; i < 40; i++) {
+            assertTrue(table.tryAcquire(i, 0, i * 2, 1, 0) < 0, "key " + i);
+        }
+        assertEquals(40, table.size());
+    }
+
+    @Test
+    void collidingKeysAreFoundAfterPrune() {
+        final PrefixBucketTable table = new PrefixBucketTable(RateParameters.of(SPEC), MetricsRecorder.NOOP);
+        final long second = Duration.ofSeconds(1).toNanos();
+
+        // Every key has the same hash, so all of them sit in one probe chain
+        for (int i = 0; i < 20; i++) {
+            assertTrue(table.tryAcquire(i, i, 42, 1, i < 10 ? 0 : second) >= 0);
+        }
+
+        // The first ten have refilled by now; pruning copies the other ten into a new table
+        assertEquals(10, table.prune(second));
+        for (int i = 10; i < 20; i++) {
+            assertTrue(table.tryAcquire(i, i, 42, 1, second) < 0, "key " + i);
+        }
+        assertEquals(10, table.size());
+    }
+}
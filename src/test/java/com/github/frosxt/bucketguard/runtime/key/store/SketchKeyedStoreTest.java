@@ -0,0 +1,122 @@
+package com.github.frosxt.bucketguard.runtime.key.store;
+
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.EvictionPolicy;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.runtime.key.store.sketch.SketchKeyedStore;
+import com.github.frosxt.bucketguard.runtime.metrics.MetricsRecorder;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SketchKeyedStoreTest {
+
+    private static TokenBucketSpec spec(final FakeTimeSource time) {
+        return TokenBucketSpec.builder()
+                .capacity(5)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build();
+    }
+
+    @Test
+    void neverExceedsRateUnderHeavyCollisions() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final SketchKeyedStore<Integer> store = new SketchKeyedStore<>(2, 4, spec(time), MetricsRecorder.NOOP);
+
+        for (int key = 0; key < 100; key++) {
+            int granted = 0;
+            for (int i = 0; i < 10; i++) {
+                if (store.tryAcquire(key, null, 1, time.nanoTime()).granted()) {
+                    granted++;
+                }
+            }
+            assertTrue(granted <= 5, "key " + key + " granted " + granted);
+        }
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void isolatesKeysWhenWide() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final SketchKeyedStore<String> store = new SketchKeyedStore<>(4, 1 << 12, spec(time), MetricsRecorder.NOOP);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(store.tryAcquire("a", null, 1, time.nanoTime()).granted());
+        }
+        assertFalse(store.tryAcquire("a", null, 1, time.nanoTime()).granted());
+        assertEquals(0, store.get("a").availableTokens(time.nanoTime()));
+
+        assertTrue(store.tryAcquire("b", null, 5, time.nanoTime()).granted());
+
+        time.advance(Duration.ofSeconds(1).toNanos());
+        assertTrue(store.tryAcquire("a", null, 1, time.nanoTime()).granted());
+        assertFalse(store.tryAcquire("a", null, 1, time.nanoTime()).granted());
+    }
+
+    @Test
+    void concurrentGrantsForOneKeyAreNotDoubleCounted() throws InterruptedException {
+        final FakeTimeSource time = new FakeTimeSource();
+        final TokenBucketSpec spec = TokenBucketSpec.builder()
+                .capacity(1000)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .build();
+        final SketchKeyedStore<String> store = new SketchKeyedStore<>(4, 64, spec, MetricsRecorder.NOOP);
+
+        final AtomicInteger granted = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (store.tryAcquire("hot", null, 1, 0).granted()) {
+                        granted.incrementAndGet();
+                    }
+                    store.tryAcquire("other-" + id + "-" + i, null, 1, 0);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(granted.get() <= 1000, "granted " + granted.get());
+    }
+
+    @Test
+    void selectedThroughStoreSpec() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final KeyedRateLimiter<String> limiter = BucketGuards.keyedTokenBucket(spec(time),
+                KeyedStoreSpec.<String>builder().approximate(4, 1024).build());
+
+        assertTrue(limiter.tryAcquire("a", 5).granted());
+        assertFalse(limiter.tryAcquire("a").granted());
+        assertEquals(0, limiter.snapshot("a").availableTokens());
+        assertEquals(0, limiter.snapshotAll().keyCount());
+
+        assertThrows(IllegalArgumentException.class, () -> KeyedStoreSpec.<String>builder().approximate(4, 1000).build());
+        assertThrows(IllegalArgumentException.class, () -> KeyedStoreSpec.<String>builder()
+                .approximate(4, 1024)
+                .evictionPolicy(EvictionPolicy.LRU)
+                .maxKeys(10)
+                .build());
+    }
+}
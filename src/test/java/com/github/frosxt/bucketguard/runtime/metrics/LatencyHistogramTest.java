@@ -0,0 +1,78 @@
+package com.github.frosxt.bucketguard.runtime.metrics;
+
+import com.github.frosxt.bucketguard.api.AcquireLatency;
+import com.github.frosxt.bucketguard.api.LatencySnapshot;
+import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketBoundsCoverValues() {
+        final long[] values = {0, 1, 31, 32, 33, 63, 64, 65, 1_000, 123_456_789, Long.MAX_VALUE};
+        for (final long value : values) {
+            final int index = LatencyHistogram.indexFor(value);
+            assertTrue(LatencyHistogram.upperBound(index) >= value, "upper bound below " + value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.upperBound(index - 1) < value, "previous bucket covers " + value);
+            }
+        }
+    }
+
+    @Test
+    void percentilesStayWithinPrecision() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000);
+        }
+
+        final LatencySnapshot snapshot = histogram.snapshot(false);
+        assertEquals(10_000, snapshot.count());
+        assertEquals(10_000_000, snapshot.maxNanos());
+
+        final long p50 = snapshot.valueAtPercentile(50);
+        assertTrue(p50 >= 5_000_000 && p50 <= 5_000_000 * 1.04, "p50 was " + p50);
+        final long p999 = snapshot.valueAtPercentile(99.9);
+        assertTrue(p999 >= 9_990_000 && p999 <= 10_000_000, "p99.9 was " + p999);
+    }
+
+    @Test
+    void resetStartsNewInterval() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.record(200);
+
+        assertEquals(2, histogram.snapshot(true).count());
+        assertEquals(0, histogram.snapshot(false).count());
+
+        histogram.record(300);
+        assertEquals(1, histogram.snapshot(false).count());
+        assertEquals(300, histogram.snapshot(false).maxNanos());
+    }
+
+    @Test
+    void limiterRecordsBlockingTimeToGrant() throws InterruptedException {
+        final TokenBucketSpec spec = TokenBucketSpec.builder()
+                .capacity(1)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofMillis(20))
+                .metricsEnabled(true)
+                .build();
+        final RateLimiter limiter = BucketGuards.tokenBucket(spec);
+
+        limiter.acquire();
+        limiter.acquire();
+
+        final AcquireLatency latency = limiter.resetAcquireLatency();
+        assertEquals(2, latency.blocking().count());
+        assertTrue(latency.blocking().maxNanos() >= Duration.ofMillis(10).toNanos());
+        assertEquals(0, latency.async().count());
+        assertEquals(0, limiter.acquireLatency().blocking().count());
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.frosxt.bucketguard.runtime.metrics;
+
+import com.github.frosxt.bucketguard.api.KeyedRateLimiter;
+import com.github.frosxt.bucketguard.api.LimiterMetrics;
+import com.github.frosxt.bucketguard.api.RateLimiter;
+import com.github.frosxt.bucketguard.api.factory.BucketGuards;
+import com.github.frosxt.bucketguard.api.spec.EvictionPolicy;
+import com.github.frosxt.bucketguard.api.spec.KeyedStoreSpec;
+import com.github.frosxt.bucketguard.api.spec.TokenBucketSpec;
+import com.github.frosxt.bucketguard.test.FakeTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimiterMetricsTest {
+
+    @Test
+    void disabledByDefault() {
+        final RateLimiter limiter = BucketGuards.tokenBucket(TokenBucketSpec.builder().build());
+        limiter.tryAcquire();
+
+        assertSame(LimiterMetrics.DISABLED, limiter.metrics());
+    }
+
+    @Test
+    void countsGrantsAndRejections() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final TokenBucketSpec spec = TokenBucketSpec.builder()
+                .capacity(10)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofSeconds(1))
+                .timeSource(time)
+                .metricsEnabled(true)
+                .build();
+
+        final RateLimiter limiter = BucketGuards.tokenBucket(spec);
+        assertTrue(limiter.tryAcquire(4).granted());
+        assertTrue(limiter.tryAcquire(6).granted());
+        assertFalse(limiter.tryAcquire().granted());
+        assertFalse(limiter.tryAcquire().granted());
+
+        final LimiterMetrics metrics = limiter.metrics();
+        assertTrue(metrics.enabled());
+        assertEquals(2, metrics.granted());
+        assertEquals(2, metrics.rejected());
+        assertEquals(10, metrics.tokensGranted());
+        assertEquals(0, metrics.pendingAsyncWaiters());
+    }
+
+    @Test
+    void asyncWaiterIsReleasedOnGrant() throws Exception {
+        final TokenBucketSpec spec = TokenBucketSpec.builder()
+                .capacity(1)
+                .refillTokens(1)
+                .refillPeriod(Duration.ofMillis(50))
+                .metricsEnabled(true)
+                .build();
+
+        final RateLimiter limiter = BucketGuards.tokenBucket(spec);
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            limiter.tryAcquire();
+            final var future = limiter.acquireAsync(scheduler).toCompletableFuture();
+            assertEquals(1, limiter.metrics().pendingAsyncWaiters());
+
+            future.get(1, TimeUnit.SECONDS);
+            assertEquals(0, limiter.metrics().pendingAsyncWaiters());
+            assertEquals(2, limiter.metrics().granted());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void keyedCountsCreationEvictionAndExpiry() {
+        final FakeTimeSource time = new FakeTimeSource();
+        final TokenBucketSpec spec = TokenBucketSpec.builder()
+                .capacity(10)
+                .timeSource(time)
+                .metricsEnabled(true)
+                .build();
+
+        final KeyedRateLimiter<String> lru = BucketGuards.keyedTokenBucket(spec, KeyedStoreSpec.<String>builder()
+                .evictionPolicy(EvictionPolicy.LRU)
+                .maxKeys(2)
+                .build());
+        lru.tryAcquire("A");
+        lru.tryAcquire("B");
+        lru.tryAcquire("C");
+
+        assertEquals(3, lru.metrics().keysCreated());
+        assertEquals(1, lru.metrics().keysEvicted());
+
+        final KeyedRateLimiter<String> expiring = BucketGuards.keyedTokenBucket(spec, KeyedStoreSpec.<String>builder()
+                .evictionPolicy(EvictionPolicy.EXPIRE_AFTER_ACCESS)
+                .expireAfterAccess(Duration.ofSeconds(1))
+                .build());
+        expiring.tryAcquire("A");
+        time.advance(Duration.ofSeconds(2).toNanos());
+        expiring.prune();
+
+        assertEquals(1, expiring.metrics().keysExpired());
+        assertEquals(0, expiring.metrics().keysEvicted());
+    }
+}